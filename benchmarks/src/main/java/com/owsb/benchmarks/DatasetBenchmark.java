@@ -0,0 +1,64 @@
+package com.owsb.benchmarks;
+
+import com.owsb.repository.storage.EntityStore;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of the benchmark suites: generates a dataset per trial and points the application at it
+ * Every trial runs in its own fork, so each dataset size starts with empty stores and caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public abstract class DatasetBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private File dataDir;
+    private int cursor = 0;
+
+    @Setup(Level.Trial)
+    public void createDataset() throws IOException {
+        dataDir = DatasetGenerator.prepare(rows);
+        setUp();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDataset() throws IOException {
+        // Fold the logs now, otherwise the shutdown hook would try to compact into a deleted directory
+        EntityStore.compactAll();
+        DatasetGenerator.delete(dataDir);
+    }
+
+    /**
+     * Create the objects under test; the dataset is in place when this is called
+     */
+    protected abstract void setUp();
+
+    /**
+     * Get the next row number, cycling through 1..rows so lookups do not hit one hot entry
+     * @return Row number
+     */
+    protected int nextRow() {
+        cursor = cursor % rows + 1;
+        return cursor;
+    }
+}
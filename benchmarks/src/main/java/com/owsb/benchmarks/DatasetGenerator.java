@@ -0,0 +1,230 @@
+package com.owsb.benchmarks;
+
+import com.owsb.dto.ItemDTO;
+import com.owsb.dto.SupplierDTO;
+import com.owsb.dto.UserDTO;
+import com.owsb.model.finance.Payment;
+import com.owsb.model.message.Message;
+import com.owsb.model.procurement.POItem;
+import com.owsb.model.procurement.PRItem;
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.model.procurement.PurchaseRequisition;
+import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.util.Constants;
+import com.owsb.util.FileUtils;
+import com.owsb.util.UserRole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a synthetic data directory in the application's file format
+ * Every table except users gets the requested number of rows, with a fixed seed so runs are
+ * comparable. The directory must be selected before any application class reads Constants,
+ * which is why benchmarks call {@link #prepare} first in their trial setup.
+ */
+public final class DatasetGenerator {
+    static final String SALES_MANAGER_ID = "U002";
+    static final String PURCHASE_MANAGER_ID = "U003";
+    static final String FINANCE_MANAGER_ID = "U005";
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long START = 1704067200000L; // 2024-01-01
+
+    private DatasetGenerator() {
+        // Static access only
+    }
+
+    /**
+     * Create a data directory with the given number of rows and point the application at it
+     * @param rows Rows per table
+     * @return The data directory
+     * @throws IOException if the files cannot be written
+     */
+    public static File prepare(int rows) throws IOException {
+        File dir = Files.createTempDirectory("owsb-bench-" + rows + "-").toFile();
+        System.setProperty("owsb.data.dir", dir.getPath());
+        if (!Constants.ITEM_FILE.startsWith(dir.getPath())) {
+            throw new IllegalStateException("Constants were loaded before the dataset was prepared");
+        }
+
+        Random random = new Random(42);
+        int supplierCount = Math.max(10, rows / 100);
+
+        FileUtils.writeListToJson(Constants.USER_FILE, users());
+        FileUtils.writeListToJson(Constants.SUPPLIER_FILE, suppliers(supplierCount, rows));
+        FileUtils.writeListToJson(Constants.ITEM_FILE, items(rows, supplierCount, random));
+        FileUtils.writeListToJson(Constants.SALES_FILE, sales(rows, random));
+        FileUtils.writeListToJson(Constants.PR_FILE, requisitions(rows, supplierCount, random));
+        FileUtils.writeListToJson(Constants.PO_FILE, purchaseOrders(rows, supplierCount, random));
+        FileUtils.writeListToJson(Constants.PAYMENTS_FILE, payments(rows, supplierCount, random));
+        FileUtils.writeListToJson(Constants.MESSAGES_FILE, messages(rows, random));
+        return dir;
+    }
+
+    /**
+     * Delete a data directory created by {@link #prepare}
+     * @param dir The data directory
+     * @throws IOException if a file cannot be deleted
+     */
+    public static void delete(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        Files.deleteIfExists(dir.toPath());
+    }
+
+    /**
+     * Get the ID of a generated item
+     * @param index Item number, starting at 1
+     * @return Item ID
+     */
+    static String itemId(int index) {
+        return String.format("IT%03d", index);
+    }
+
+    private static List<UserDTO> users() {
+        List<UserDTO> users = new ArrayList<>();
+        UserRole[] roles = UserRole.values();
+        for (int i = 0; i < roles.length; i++) {
+            UserDTO user = new UserDTO();
+            user.userID = String.format("U%03d", i + 1);
+            user.username = roles[i].name().toLowerCase();
+            user.password = user.username;
+            user.name = roles[i].getDisplayName();
+            user.role = roles[i].name();
+            user.email = user.username + "@owsb.com";
+            user.rootAdmin = roles[i] == UserRole.ADMIN;
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static List<SupplierDTO> suppliers(int count, int items) {
+        List<SupplierDTO> suppliers = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            SupplierDTO supplier = new SupplierDTO();
+            supplier.supplierID = String.format("SUP%03d", i);
+            supplier.name = "Supplier " + i;
+            supplier.contactPerson = "Contact " + i;
+            supplier.phone = "012-000 " + i;
+            supplier.itemIDs = new ArrayList<>();
+            suppliers.add(supplier);
+        }
+        for (int i = 1; i <= items; i++) {
+            suppliers.get((i - 1) % count).itemIDs.add(itemId(i));
+        }
+        return suppliers;
+    }
+
+    private static List<ItemDTO> items(int count, int supplierCount, Random random) {
+        List<ItemDTO> items = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            ItemDTO item = new ItemDTO();
+            item.itemID = itemId(i);
+            item.name = "Item " + i;
+            item.description = "Generated item " + i;
+            item.unitPrice = 1 + random.nextInt(10000) / 100.0;
+            item.category = "Category " + (i % 20);
+            item.supplierID = String.format("SUP%03d", (i - 1) % supplierCount + 1);
+            item.dateAdded = "2024-01-01";
+            // Plenty of stock so sale benchmarks never run out; every tenth item is below minimum
+            item.minimumStock = 50;
+            item.maximumStock = 2_000_000;
+            item.currentStock = i % 10 == 0 ? 10 : 1_000_000;
+            item.lastUpdated = "2024-01-01";
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<Sale> sales(int count, Random random) {
+        List<Sale> sales = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            List<SaleItem> lines = new ArrayList<>();
+            int lineCount = 1 + random.nextInt(3);
+            for (int l = 0; l < lineCount; l++) {
+                int item = 1 + random.nextInt(count);
+                lines.add(new SaleItem(itemId(item), "Item " + item, 1 + random.nextInt(5),
+                        1 + random.nextInt(10000) / 100.0, Constants.DEFAULT_PROFIT_RATIO));
+            }
+            sales.add(new Sale(String.format("SL%03d", i), dateOf(i, random), SALES_MANAGER_ID, "", lines));
+        }
+        return sales;
+    }
+
+    private static List<PurchaseRequisition> requisitions(int count, int supplierCount, Random random) {
+        Constants.PurchaseRequisitionStatus[] statuses = Constants.PurchaseRequisitionStatus.values();
+        List<PurchaseRequisition> requisitions = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            int item = 1 + random.nextInt(count);
+            Date date = dateOf(i, random);
+            List<PRItem> lines = new ArrayList<>();
+            lines.add(new PRItem(itemId(item), "Item " + item, 10 + random.nextInt(90), new Date(date.getTime() + 14 * DAY),
+                    String.format("SUP%03d", (item - 1) % supplierCount + 1), 1 + random.nextInt(10000) / 100.0));
+            requisitions.add(new PurchaseRequisition(String.format("PR%03d", i), date, new Date(date.getTime() + 14 * DAY),
+                    SALES_MANAGER_ID, statuses[i % statuses.length], "", lines));
+        }
+        return requisitions;
+    }
+
+    private static List<PurchaseOrder> purchaseOrders(int count, int supplierCount, Random random) {
+        Constants.PurchaseOrderStatus[] statuses = Constants.PurchaseOrderStatus.values();
+        List<PurchaseOrder> orders = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            int item = 1 + random.nextInt(count);
+            int supplier = (item - 1) % supplierCount + 1;
+            Date date = dateOf(i, random);
+            List<POItem> lines = new ArrayList<>();
+            lines.add(new POItem(itemId(item), "Item " + item, 10 + random.nextInt(90),
+                    String.format("SUP%03d", supplier), "Supplier " + supplier, 1 + random.nextInt(10000) / 100.0));
+            PurchaseOrder order = new PurchaseOrder(String.format("PO%03d", i), String.format("PR%03d", i), date,
+                    new Date(date.getTime() + 14 * DAY), PURCHASE_MANAGER_ID, statuses[i % statuses.length], "", lines);
+            order.setFinanceManagerID(FINANCE_MANAGER_ID);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private static List<Payment> payments(int count, int supplierCount, Random random) {
+        Payment.PaymentMethod[] methods = Payment.PaymentMethod.values();
+        Payment.Status[] statuses = Payment.Status.values();
+        List<Payment> payments = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Date date = dateOf(i, random);
+            Payment.PaymentMethod method = methods[i % methods.length];
+            payments.add(new Payment(String.format("PAY%03d", i), date, String.format("PO%03d", i),
+                    String.format("SUP%03d", (i - 1) % supplierCount + 1), 10 + random.nextInt(100000) / 100.0,
+                    method, Payment.generateReferenceNumber(method, date), FINANCE_MANAGER_ID,
+                    statuses[i % statuses.length], ""));
+        }
+        return payments;
+    }
+
+    private static List<Message> messages(int count, Random random) {
+        UserRole[] roles = UserRole.values();
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            UserRole sender = roles[random.nextInt(roles.length)];
+            Message message = new Message(String.format("MSG%03d", i), String.format("U%03d", sender.ordinal() + 1),
+                    sender.getDisplayName(), roles[i % roles.length].name(), "Subject " + i, "Generated message " + i);
+            message.setRead(random.nextBoolean());
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static Date dateOf(int index, Random random) {
+        // Spread over roughly two years
+        return new Date(START + (index % 730) * DAY + random.nextInt((int) DAY));
+    }
+}
@@ -0,0 +1,69 @@
+package com.owsb.benchmarks;
+
+import com.owsb.repository.ItemRepository;
+import com.owsb.repository.MessageRepository;
+import com.owsb.repository.PaymentRepository;
+import com.owsb.repository.PurchaseOrderRepository;
+import com.owsb.repository.PurchaseRequisitionRepository;
+import com.owsb.repository.SalesRepository;
+import com.owsb.repository.SupplierRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * The generate*Id methods, called once for every new document
+ */
+public class IdGenerationBenchmark extends DatasetBenchmark {
+    private ItemRepository itemRepository;
+    private SalesRepository salesRepository;
+    private PurchaseRequisitionRepository prRepository;
+    private PurchaseOrderRepository poRepository;
+    private PaymentRepository paymentRepository;
+    private MessageRepository messageRepository;
+    private SupplierRepository supplierRepository;
+
+    @Override
+    protected void setUp() {
+        itemRepository = new ItemRepository();
+        salesRepository = new SalesRepository();
+        prRepository = new PurchaseRequisitionRepository();
+        poRepository = new PurchaseOrderRepository();
+        paymentRepository = new PaymentRepository();
+        messageRepository = new MessageRepository();
+        supplierRepository = new SupplierRepository();
+    }
+
+    @Benchmark
+    public String generateItemId() {
+        return itemRepository.generateItemId();
+    }
+
+    @Benchmark
+    public String generateSaleId() {
+        return salesRepository.generateNewSaleID();
+    }
+
+    @Benchmark
+    public String generatePRId() {
+        return prRepository.generateNewPRID();
+    }
+
+    @Benchmark
+    public String generatePOId() {
+        return poRepository.generateNewPOID();
+    }
+
+    @Benchmark
+    public String generatePaymentId() {
+        return paymentRepository.generateNewPaymentID();
+    }
+
+    @Benchmark
+    public String generateMessageId() {
+        return messageRepository.generateMessageId();
+    }
+
+    @Benchmark
+    public String generateSupplierId() {
+        return supplierRepository.generateSupplierId();
+    }
+}
@@ -0,0 +1,38 @@
+package com.owsb.benchmarks;
+
+import com.owsb.model.inventory.Item;
+import com.owsb.repository.ItemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Item lookups and writes: the calls behind every inventory screen and stock change
+ */
+public class ItemRepositoryBenchmark extends DatasetBenchmark {
+    private ItemRepository repository;
+    private Item item;
+    private boolean add;
+
+    @Override
+    protected void setUp() {
+        repository = new ItemRepository();
+        item = repository.findById(DatasetGenerator.itemId(1));
+    }
+
+    @Benchmark
+    public Item findById() {
+        return repository.findById(DatasetGenerator.itemId(nextRow()));
+    }
+
+    @Benchmark
+    public boolean update() {
+        item.setDescription("Updated " + nextRow());
+        return repository.update(item);
+    }
+
+    @Benchmark
+    public boolean updateStock() {
+        // Alternate additions and deductions so the level stays put
+        add = !add;
+        return repository.updateStock(DatasetGenerator.itemId(1), add ? 1 : -1);
+    }
+}
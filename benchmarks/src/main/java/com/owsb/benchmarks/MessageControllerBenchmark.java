@@ -0,0 +1,27 @@
+package com.owsb.benchmarks;
+
+import com.owsb.controller.MessageController;
+import com.owsb.model.message.Message;
+import com.owsb.model.user.SalesManager;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.List;
+
+/**
+ * Loading the inbox, which the dashboards do on every refresh
+ */
+public class MessageControllerBenchmark extends DatasetBenchmark {
+    private MessageController controller;
+
+    @Override
+    protected void setUp() {
+        controller = new MessageController();
+        controller.setCurrentUser(new SalesManager(DatasetGenerator.SALES_MANAGER_ID, "sales_manager",
+                "sales_manager", "Sales Manager", "sales_manager@owsb.com"));
+    }
+
+    @Benchmark
+    public List<Message> getMessagesForCurrentUser() {
+        return controller.getMessagesForCurrentUser();
+    }
+}
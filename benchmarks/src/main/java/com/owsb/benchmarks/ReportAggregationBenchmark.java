@@ -0,0 +1,119 @@
+package com.owsb.benchmarks;
+
+import com.owsb.controller.PurchaseOrderController;
+import com.owsb.controller.SalesController;
+import com.owsb.model.finance.Payment;
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.repository.AnalyticsStore;
+import com.owsb.repository.FinancialAggregates;
+import com.owsb.repository.PaymentRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The aggregations behind the financial reports, without the Swing table and chart work
+ * Each report has a benchmark for the figures FinancialReportsPanel reads (the running totals for all
+ * time, the analytics store for a period) and a *Scan baseline doing the same sums over every record.
+ */
+public class ReportAggregationBenchmark extends DatasetBenchmark {
+    // Start of the last quarter of the generated data, which spans 2024 and 2025
+    private static final Date PERIOD_START = new Date(1759276800000L); // 2025-10-01
+
+    private PurchaseOrderController poController;
+    private SalesController salesController;
+    private PaymentRepository paymentRepository;
+    private FinancialAggregates aggregates;
+    private AnalyticsStore analytics;
+
+    @Override
+    protected void setUp() {
+        poController = new PurchaseOrderController();
+        salesController = new SalesController();
+        paymentRepository = new PaymentRepository();
+
+        // Build the totals and the column tables now, so the first iteration does not pay for it
+        aggregates = FinancialAggregates.getInstance();
+        analytics = AnalyticsStore.getInstance();
+        analytics.getProfitAndLoss(PERIOD_START, null);
+    }
+
+    @Benchmark
+    public void purchaseSummary(Blackhole blackhole) {
+        blackhole.consume(aggregates.getPurchaseOrderTotals());
+        blackhole.consume(aggregates.getPurchaseOrdersBy(FinancialAggregates.BY_SUPPLIER));
+    }
+
+    @Benchmark
+    public void purchaseSummaryForPeriod(Blackhole blackhole) {
+        blackhole.consume(analytics.getPurchaseOrderCount(PERIOD_START, null));
+        blackhole.consume(analytics.getPurchaseTotal(PERIOD_START, null, null));
+        blackhole.consume(analytics.getTopSuppliers(PERIOD_START, null, 5));
+    }
+
+    @Benchmark
+    public Map<String, Double> purchaseSummaryScan() {
+        Map<String, Double> supplierTotals = new HashMap<>();
+        for (PurchaseOrder po : poController.getAllPurchaseOrders()) {
+            String supplierName = po.getItems().isEmpty() ? "Unknown" : po.getItems().get(0).getSupplierName();
+            supplierTotals.merge(supplierName, po.getTotalValue(), Double::sum);
+        }
+        return supplierTotals;
+    }
+
+    @Benchmark
+    public FinancialAggregates.ProfitAndLoss profitAndLoss() {
+        return aggregates.getProfitAndLoss();
+    }
+
+    @Benchmark
+    public FinancialAggregates.ProfitAndLoss profitAndLossForPeriod() {
+        return analytics.getProfitAndLoss(PERIOD_START, null);
+    }
+
+    @Benchmark
+    public double profitAndLossScan() {
+        double totalSales = 0;
+        Map<String, Double> salesByCategory = new HashMap<>();
+        for (Sale sale : salesController.getAllSales()) {
+            totalSales += sale.getTotalAmount();
+            for (SaleItem item : sale.getItems()) {
+                salesByCategory.merge(item.getItemName().split(" ")[0], item.getSubtotal(), Double::sum);
+            }
+        }
+
+        double totalLoss = poController.getAllPurchaseOrders().stream()
+                .filter(po -> "COMPLETED".equals(po.getStatus().toString()))
+                .mapToDouble(PurchaseOrder::getTotalValue)
+                .sum();
+        return totalSales - totalLoss + salesByCategory.size();
+    }
+
+    @Benchmark
+    public void supplierPayments(Blackhole blackhole) {
+        blackhole.consume(aggregates.getPaymentTotals());
+        blackhole.consume(aggregates.getPaymentsBy(FinancialAggregates.BY_SUPPLIER));
+    }
+
+    @Benchmark
+    public Map<String, Date> supplierPaymentsScan() {
+        Map<String, List<Payment>> paymentsBySupplier = paymentRepository.findAll().stream()
+                .collect(Collectors.groupingBy(Payment::getSupplierID));
+
+        Map<String, Date> lastPaymentDates = new HashMap<>();
+        for (Map.Entry<String, List<Payment>> entry : paymentsBySupplier.entrySet()) {
+            entry.getValue().stream()
+                    .map(Payment::getDate)
+                    .max(Date::compareTo)
+                    .ifPresent(date -> lastPaymentDates.put(entry.getKey(), date));
+        }
+        return lastPaymentDates;
+    }
+}
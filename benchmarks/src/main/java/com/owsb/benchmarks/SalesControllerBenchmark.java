@@ -0,0 +1,37 @@
+package com.owsb.benchmarks;
+
+import com.owsb.controller.SalesController;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.model.user.SalesManager;
+import com.owsb.util.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Recording a sale: stock reservation, ID generation and the transactional write of sale and stock
+ */
+public class SalesControllerBenchmark extends DatasetBenchmark {
+    private SalesController controller;
+
+    @Override
+    protected void setUp() {
+        controller = new SalesController();
+        controller.setCurrentUser(new SalesManager(DatasetGenerator.SALES_MANAGER_ID, "sales_manager",
+                "sales_manager", "Sales Manager", "sales_manager@owsb.com"));
+    }
+
+    @Benchmark
+    public boolean createSale() {
+        // Items with a multiple of ten are generated low on stock, skip them
+        int row = nextRow();
+        if (row % 10 == 0) {
+            row = nextRow();
+        }
+        List<SaleItem> items = new ArrayList<>();
+        items.add(new SaleItem(DatasetGenerator.itemId(row), "Item " + row, 1, 10.0, Constants.DEFAULT_PROFIT_RATIO));
+        return controller.createSale(new Date(), items, "");
+    }
+}
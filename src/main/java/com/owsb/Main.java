@@ -2,6 +2,12 @@ package com.owsb;
 
 import com.owsb.controller.AuthController;
 import com.owsb.model.user.User;
+import com.owsb.repository.FinancialAggregates;
+import com.owsb.repository.SalesRepository;
+import com.owsb.server.QueryConnection;
+import com.owsb.server.QueryServer;
+import com.owsb.service.DemandForecastService;
+import com.owsb.util.Constants;
 import com.owsb.view.dashboard.AdminDashboard;
 import com.owsb.view.dashboard.FinanceManagerDashboard;
 import com.owsb.view.dashboard.InventoryManagerDashboard;
@@ -154,6 +160,9 @@ public class Main extends JFrame {
             // Get current user
             User currentUser = authController.getCurrentUser();
             
+            // Read through the query server if configured; falls back to the local data otherwise
+            QueryConnection.open(username, password);
+            
             // Hide login window
             setVisible(false);
             
@@ -214,6 +223,7 @@ public class Main extends JFrame {
                     
                     // Log out user
                     authController.logout();
+                    QueryConnection.close();
                     
                     // Show login window again
                     setVisible(true);
@@ -224,8 +234,33 @@ public class Main extends JFrame {
     
     /**
      * Main method - application entry point
+     * Run with --server to serve the controllers to query clients instead of opening the login window;
+     * run the clients with -Dowsb.server.connect=true to read through that server
      */
     public static void main(String[] args) {
+        boolean serverMode = args.length > 0 && "--server".equals(args[0]);
+        
+        // Move old sales out of the live sales file so it stays small
+        if (Constants.SALES_ARCHIVE_ON_STARTUP) {
+            new SalesRepository().archiveOldSales();
+        }
+        
+        // Build the report totals and demand forecasts while the user logs in; a client of the
+        // query server leaves that to the server
+        if (serverMode || !Constants.USE_QUERY_SERVER) {
+            Thread warmUp = new Thread(() -> {
+                FinancialAggregates.getInstance();
+                DemandForecastService.getInstance().getForecasts();
+            }, "aggregates-warm-up");
+            warmUp.setDaemon(true);
+            warmUp.start();
+        }
+        
+        if (serverMode) {
+            runServer();
+            return;
+        }
+        
         // Use system look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -241,4 +276,21 @@ public class Main extends JFrame {
             }
         });
     }
+    
+    /**
+     * Serve the controllers on the query server port until the process is stopped
+     */
+    private static void runServer() {
+        QueryServer server = new QueryServer();
+        if (!server.start()) {
+            System.exit(1);
+        }
+        System.out.println("OWSB query server listening on port " + server.getPort());
+        
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            server.stop();
+        }
+    }
 }
@@ -4,6 +4,7 @@ import com.owsb.model.inventory.Item;
 import com.owsb.model.user.User;
 import com.owsb.model.supplier.Supplier;
 import com.owsb.repository.ItemRepository;
+import com.owsb.repository.StockLedger;
 import com.owsb.repository.SupplierRepository;
 import com.owsb.util.UserRole;
 
@@ -42,6 +43,25 @@ public class ItemController {
         return itemRepository.findAll();
     }
     
+    /**
+     * Get one page of the items in the system
+     * @param descending Whether to list the newest items first
+     * @param offset Number of items to skip
+     * @param limit Maximum number of items
+     * @return Items on the page
+     */
+    public List<Item> getItemPage(boolean descending, int offset, int limit) {
+        return itemRepository.findPage(descending, offset, limit);
+    }
+    
+    /**
+     * Get the number of items in the system
+     * @return Item count
+     */
+    public int getItemCount() {
+        return itemRepository.count();
+    }
+    
     /**
      * Find a specific item by ID
      * @param id Item ID to find
@@ -276,20 +296,9 @@ public class ItemController {
             return false;
         }
         
-        // Check if item exists
-        Item item = itemRepository.findById(itemId);
-        if (item == null) {
-            return false;
-        }
-        
-        // Check if enough stock
-        if (item.getCurrentStock() < quantity) {
-            return false;
-        }
-        
         // Reduce stock (negative quantity because it's a reduction)
-        return itemRepository.updateStock(itemId, -quantity);
-        
+        // The ledger checks existence and available stock atomically with the deduction
+        return itemRepository.updateStock(itemId, -quantity, StockLedger.MovementType.SALE, null);
     }
 
     /**
@@ -297,6 +306,6 @@ public class ItemController {
      * @return Next available item ID
      */
     public String generateNextItemId() {
-        return itemRepository.generateItemId();
+        return itemRepository.peekNextItemId();
     }
 }
\ No newline at end of file
@@ -5,7 +5,6 @@ import com.owsb.model.user.User;
 import com.owsb.repository.MessageRepository;
 import com.owsb.util.UserRole;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -74,40 +73,36 @@ public class MessageController {
     
     /**
      * Get all messages for the current user's role or sent by the current user
-     * @return List of messages
+     * @return List of messages, most recent first
      */
     public List<Message> getMessagesForCurrentUser() {
+        return getMessagesForCurrentUser(0, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Get one page of the messages for the current user's role or sent by the current user
+     * @param offset Number of messages to skip
+     * @param limit Maximum number of messages
+     * @return Messages on the page, most recent first
+     */
+    public List<Message> getMessagesForCurrentUser(int offset, int limit) {
         if (currentUser == null) {
             return List.of();
         }
         
-        List<Message> roleMessages = messageRepository.findByReceiverRole(currentUser.getRole());
-        List<Message> sentMessages = messageRepository.findBySenderId(currentUser.getUserId());
-        
-        // Combine and sort by timestamp (most recent first)
-        List<Message> allMessages = new ArrayList<>();
-        allMessages.addAll(roleMessages);
-        allMessages.addAll(sentMessages);
-        
-        // Remove duplicates (messages that might be both sent and received by the same role)
-        List<Message> uniqueMessages = new ArrayList<>();
-        for (Message message : allMessages) {
-            boolean isDuplicate = false;
-            for (Message uniqueMessage : uniqueMessages) {
-                if (message.getMessageID().equals(uniqueMessage.getMessageID())) {
-                    isDuplicate = true;
-                    break;
-                }
-            }
-            if (!isDuplicate) {
-                uniqueMessages.add(message);
-            }
+        return messageRepository.findInboxPage(currentUser.getRole(), currentUser.getUserId(), offset, limit);
+    }
+    
+    /**
+     * Get the number of messages for the current user's role or sent by the current user
+     * @return Number of messages
+     */
+    public int getMessageCountForCurrentUser() {
+        if (currentUser == null) {
+            return 0;
         }
         
-        // Sort by timestamp (most recent first)
-        uniqueMessages.sort((m1, m2) -> m2.getTimestamp().compareTo(m1.getTimestamp()));
-        
-        return uniqueMessages;
+        return messageRepository.countInbox(currentUser.getRole(), currentUser.getUserId());
     }
     
     /**
@@ -136,12 +131,11 @@ public class MessageController {
      * @return true if all marked successfully
      */
     public boolean markAllMessagesAsRead() {
-        List<Message> unreadMessages = getUnreadMessagesForCurrentUser();
-        boolean success = true;
-        for (Message message : unreadMessages) {
-            success = messageRepository.markAsRead(message.getMessageID()) && success;
+        if (currentUser == null) {
+            return false;
         }
-        return success;
+        
+        return messageRepository.markAllAsRead(currentUser.getRole());
     }
     
     /**
@@ -158,6 +152,10 @@ public class MessageController {
      * @return Number of unread messages
      */
     public int getUnreadMessageCount() {
-        return getUnreadMessagesForCurrentUser().size();
+        if (currentUser == null) {
+            return 0;
+        }
+        
+        return messageRepository.countUnreadByReceiverRole(currentUser.getRole());
     }
 }
\ No newline at end of file
@@ -9,11 +9,14 @@ import com.owsb.model.user.User;
 import com.owsb.repository.PurchaseOrderRepository;
 import com.owsb.repository.PurchaseRequisitionRepository;
 import com.owsb.repository.SupplierRepository;
+import com.owsb.repository.storage.Transaction;
 import com.owsb.util.Constants;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -69,6 +72,29 @@ public class PurchaseOrderController {
         return poRepository.findByStatus(status);
     }
     
+    /**
+     * Get one page of purchase orders
+     * @param status Status to filter by, or null for all
+     * @param byDate Order by PO date instead of creation order
+     * @param descending Whether to reverse the order
+     * @param offset Number of POs to skip
+     * @param limit Maximum number of POs
+     * @return POs on the page
+     */
+    public List<PurchaseOrder> getPurchaseOrderPage(Constants.PurchaseOrderStatus status, boolean byDate,
+                                                   boolean descending, int offset, int limit) {
+        return poRepository.findPage(status, byDate, descending, offset, limit);
+    }
+    
+    /**
+     * Count purchase orders
+     * @param status Status to filter by, or null for all
+     * @return Number of POs
+     */
+    public int countPurchaseOrders(Constants.PurchaseOrderStatus status) {
+        return poRepository.countByStatus(status);
+    }
+    
     /**
      * Get purchase orders created by the current purchase manager
      * @return List of POs created by the current purchase manager
@@ -144,16 +170,76 @@ public class PurchaseOrderController {
                 poItems
         );
         
-        // Save the purchase order
-        boolean saved = poRepository.save(po);
-        
-        if (saved) {
-            // Update the PR status to PROCESSED
-            pr.setStatus(Constants.PurchaseRequisitionStatus.PROCESSED);
-            prRepository.update(pr);
+        // Save the purchase order and mark the PR as PROCESSED in one transaction
+        pr.setStatus(Constants.PurchaseRequisitionStatus.PROCESSED);
+        return Transaction.execute(() -> poRepository.save(po) && prRepository.update(pr));
+    }
+    
+    /**
+     * Create purchase orders for every purchase requisition awaiting approval in one batch
+     * Each PR gets its own PO, as in createPurchaseOrder, using the suggested suppliers and the PR's
+     * required date as delivery date. Supplier names are looked up once per supplier across all PRs,
+     * the PO IDs are allocated as one block and all orders and PR updates are committed together.
+     * The PRs are read inside the transaction, so a PR another user ordered meanwhile is not ordered
+     * twice. PRs without a required date are left pending, to be ordered one by one with a delivery date.
+     * @param notes Notes for every PO, may be empty
+     * @return IDs of the new POs (empty if no PR was pending), or null if the batch was not saved
+     */
+    public List<String> createPurchaseOrdersForPendingRequisitions(String notes) {
+        // Check if current user is set
+        if (currentUser == null) {
+            return null;
         }
         
-        return saved;
+        List<String> poIds = new ArrayList<>();
+        boolean saved = Transaction.execute(() -> {
+            // The requisitions stay locked from here until the orders are committed
+            List<PurchaseRequisition> pending = new ArrayList<>();
+            for (PurchaseRequisition pr : prRepository.findByStatus(Constants.PurchaseRequisitionStatus.PENDING_APPROVAL)) {
+                if (pr.getRequiredDate() != null) {
+                    pending.add(pr);
+                }
+            }
+            if (pending.isEmpty()) {
+                return true;
+            }
+            
+            // Resolve each supplier once, however many lines and PRs it appears on
+            Map<String, String> supplierNames = new HashMap<>();
+            for (PurchaseRequisition pr : pending) {
+                for (PRItem prItem : pr.getItems()) {
+                    supplierNames.computeIfAbsent(prItem.getSuggestedSupplierID(), this::getSupplierName);
+                }
+            }
+            
+            List<String> ids = poRepository.generateNewPOIDs(pending.size());
+            Date now = new Date();
+            for (int i = 0; i < pending.size(); i++) {
+                PurchaseRequisition pr = pending.get(i);
+                List<POItem> poItems = new ArrayList<>();
+                for (PRItem prItem : pr.getItems()) {
+                    poItems.add(POItem.fromPRItem(prItem, supplierNames.get(prItem.getSuggestedSupplierID())));
+                }
+                PurchaseOrder po = new PurchaseOrder(
+                        ids.get(i),
+                        pr.getPrID(),
+                        now,
+                        pr.getRequiredDate(),
+                        currentUser.getUserId(),
+                        Constants.PurchaseOrderStatus.PENDING,
+                        notes,
+                        poItems
+                );
+                pr.setStatus(Constants.PurchaseRequisitionStatus.PROCESSED);
+                // All orders and PR updates are written with one commit per file
+                if (!poRepository.save(po) || !prRepository.update(pr)) {
+                    return false;
+                }
+            }
+            poIds.addAll(ids);
+            return true;
+        });
+        return saved ? poIds : null;
     }
     
     /**
@@ -250,18 +336,21 @@ public class PurchaseOrderController {
         po.setFinanceManagerID(currentUser.getUserId());
         po.setNotes(po.getNotes() + "\n[REJECTED] " + reason);
         
-        // Also update the related PR to REJECTED
-        String prId = po.getPrID();
-        if (prId != null && !prId.isEmpty()) {
-            PurchaseRequisition pr = prRepository.findById(prId);
-            if (pr != null) {
-                pr.setStatus(Constants.PurchaseRequisitionStatus.REJECTED);
-                prRepository.update(pr);
+        // Save the PO together with the related PR, which becomes REJECTED
+        return Transaction.execute(() -> {
+            String prId = po.getPrID();
+            if (prId != null && !prId.isEmpty()) {
+                PurchaseRequisition pr = prRepository.findById(prId);
+                if (pr != null) {
+                    pr.setStatus(Constants.PurchaseRequisitionStatus.REJECTED);
+                    if (!prRepository.update(pr)) {
+                        return false;
+                    }
+                }
             }
-        }
-        
-        // Save the updated PO
-        return poRepository.update(po);
+            
+            return poRepository.update(po);
+        });
     }
     
     /**
@@ -332,18 +421,21 @@ public class PurchaseOrderController {
         // Update the PO
         po.setStatus(Constants.PurchaseOrderStatus.COMPLETED);
         
-        // Also update the related PR to COMPLETED
-        String prId = po.getPrID();
-        if (prId != null && !prId.isEmpty()) {
-            PurchaseRequisition pr = prRepository.findById(prId);
-            if (pr != null) {
-                pr.setStatus(Constants.PurchaseRequisitionStatus.COMPLETED);
-                prRepository.update(pr);
+        // Save the PO together with the related PR, which becomes COMPLETED
+        return Transaction.execute(() -> {
+            String prId = po.getPrID();
+            if (prId != null && !prId.isEmpty()) {
+                PurchaseRequisition pr = prRepository.findById(prId);
+                if (pr != null) {
+                    pr.setStatus(Constants.PurchaseRequisitionStatus.COMPLETED);
+                    if (!prRepository.update(pr)) {
+                        return false;
+                    }
+                }
             }
-        }
-        
-        // Save the updated PO
-        return poRepository.update(po);
+            
+            return poRepository.update(po);
+        });
     }
     
     /**
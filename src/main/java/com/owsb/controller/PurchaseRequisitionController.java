@@ -8,13 +8,14 @@ import com.owsb.model.user.User;
 import com.owsb.repository.ItemRepository;
 import com.owsb.repository.PurchaseRequisitionRepository;
 import com.owsb.repository.SupplierRepository;
+import com.owsb.service.DemandForecastService;
 import com.owsb.util.Constants;
 
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 import com.owsb.util.Constants;
 
 /**
@@ -243,15 +244,11 @@ public class PurchaseRequisitionController {
     }
     
     /**
-     * Get all items with low stock (below minimum stock level)
+     * Get all items with low stock (at or below minimum stock level)
      * @return List of items with low stock
      */
     public List<Item> getItemsWithLowStock() {
-        List<Item> allItems = itemRepository.findAll();
-        
-        return allItems.stream()
-                .filter(item -> item.getCurrentStock() < item.getMinimumStock())
-                .collect(Collectors.toList());
+        return itemRepository.findLowStockItems();
     }
     
     /**
@@ -285,13 +282,9 @@ public class PurchaseRequisitionController {
      * @return Information about existing PRs, or null if none exist
      */
     public String checkExistingPendingPR(String itemId) {
-        List<PurchaseRequisition> pendingPRs = new ArrayList<>();
-        pendingPRs.addAll(prRepository.findByStatus(Constants.PurchaseRequisitionStatus.NEW));
-        pendingPRs.addAll(prRepository.findByStatus(Constants.PurchaseRequisitionStatus.PENDING_APPROVAL));
-        
         StringBuilder result = new StringBuilder();
         
-        for (PurchaseRequisition pr : pendingPRs) {
+        for (PurchaseRequisition pr : prRepository.findOpenByItem(itemId)) {
             for (PRItem item : pr.getItems()) {
                 if (item.getItemID().equals(itemId)) {
                     if (result.length() > 0) {
@@ -307,14 +300,44 @@ public class PurchaseRequisitionController {
         return result.length() > 0 ? result.toString() : null;
     }
     
+    /**
+     * Get the quantity of an item already requested by pending purchase requisitions
+     * @param itemId Item ID
+     * @return Quantity on open PRs, 0 if none
+     */
+    public int getPendingQuantity(String itemId) {
+        return prRepository.findOpenQuantity(itemId);
+    }
+    
+    /**
+     * Get the quantity already requested by pending purchase requisitions for every item
+     * @return Quantity on open PRs per item ID, for all items in the catalogue
+     */
+    public Map<String, Integer> getPendingQuantities() {
+        List<String> itemIds = new ArrayList<>();
+        for (Item item : itemRepository.findAll()) {
+            itemIds.add(item.getItemID());
+        }
+        return prRepository.findOpenQuantities(itemIds);
+    }
+    
     /**
      * Get suggested order quantity for an item
+     * Orders up to maximum stock, or more if forecast demand over the lead time calls for it
      * @param item Item to calculate for
      * @return Suggested order quantity
      */
     public int getSuggestedOrderQuantity(Item item) {
-        // Default strategy: Order to reach maximum stock
-        return Math.max(0, item.getMaximumStock() - item.getCurrentStock());
+        return DemandForecastService.getInstance().getSuggestedOrderQuantity(item);
+    }
+    
+    /**
+     * Get the demand forecast for an item
+     * @param itemId Item ID
+     * @return Forecast with daily demand, lead time and reorder point
+     */
+    public DemandForecastService.Forecast getDemandForecast(String itemId) {
+        return DemandForecastService.getInstance().getForecast(itemId);
     }
     
     /**
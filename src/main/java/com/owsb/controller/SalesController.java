@@ -6,9 +6,12 @@ import com.owsb.model.sales.SaleItem;
 import com.owsb.model.user.User;
 import com.owsb.repository.ItemRepository;
 import com.owsb.repository.SalesRepository;
+import com.owsb.repository.StockLedger;
+import com.owsb.repository.storage.Transaction;
 import com.owsb.util.Constants;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -19,6 +22,7 @@ import java.util.List;
 public class SalesController {
     private final SalesRepository salesRepository;
     private final ItemRepository itemRepository;
+    private final StockLedger stockLedger;
     private User currentUser;
     
     // Reference to the default profit ratio constant
@@ -30,6 +34,7 @@ public class SalesController {
     public SalesController() {
         this.salesRepository = new SalesRepository();
         this.itemRepository = new ItemRepository();
+        this.stockLedger = StockLedger.getInstance();
     }
     
     /**
@@ -83,6 +88,20 @@ public class SalesController {
      * @return true if created successfully
      */
     public boolean createSale(Date date, List<SaleItem> saleItems, String notes) {
+        return createSale(date, saleItems, notes, Collections.emptyList());
+    }
+    
+    /**
+     * Create a new sale, using stock already reserved while the sale was being drafted
+     * Items without a matching reservation are reserved now.
+     * @param date Sale date
+     * @param saleItems List of sale items
+     * @param notes Optional notes
+     * @param draftReservations Reservations made by the sales entry form
+     * @return true if created successfully (the reservations used are then committed)
+     */
+    public boolean createSale(Date date, List<SaleItem> saleItems, String notes,
+                              List<StockLedger.Reservation> draftReservations) {
         // Validate inputs
         if (date == null || saleItems == null || saleItems.isEmpty()) {
             return false;
@@ -93,29 +112,43 @@ public class SalesController {
             return false;
         }
         
-        // Validate inventory and update stock for each item
+        // Validate inventory by reserving the stock for each item
+        List<StockLedger.Reservation> newReservations = new ArrayList<>();
+        List<StockLedger.Reservation> reservations = new ArrayList<>();
         for (SaleItem saleItem : saleItems) {
-            Item item = itemRepository.findById(saleItem.getItemID());
-            if (item == null) {
-                return false;
+            StockLedger.Reservation reservation = findReservation(draftReservations, reservations, saleItem);
+            if (reservation == null) {
+                reservation = stockLedger.reserve(saleItem.getItemID(), saleItem.getQuantity());
+                if (reservation == null) {
+                    newReservations.forEach(stockLedger::release);
+                    return false;
+                }
+                newReservations.add(reservation);
             }
+            reservations.add(reservation);
+        }
+        
+        // Stock deductions and the sale are committed together or not at all
+        boolean saved = Transaction.execute(() -> {
+            // Create a new sale
+            String saleId = salesRepository.generateNewSaleID();
+            Sale sale = new Sale(saleId, date, currentUser.getUserId(), notes, saleItems);
             
-            // Check if there's enough stock
-            if (item.getCurrentStock() < saleItem.getQuantity()) {
-                return false;
+            for (StockLedger.Reservation reservation : reservations) {
+                if (!stockLedger.commit(reservation, saleId)) {
+                    return false;
+                }
             }
             
-            // Update the item stock
-            item.setCurrentStock(item.getCurrentStock() - saleItem.getQuantity());
-            itemRepository.update(item);
-        }
+            // Save the sale
+            return salesRepository.save(sale);
+        });
         
-        // Create a new sale
-        String saleId = salesRepository.generateNewSaleID();
-        Sale sale = new Sale(saleId, date, currentUser.getUserId(), notes, saleItems);
-        
-        // Save the sale
-        return salesRepository.save(sale);
+        if (!saved) {
+            // Draft reservations stay with the form so it can retry
+            newReservations.forEach(stockLedger::release);
+        }
+        return saved;
     }
     
     /**
@@ -127,45 +160,33 @@ public class SalesController {
      * @return true if updated successfully
      */
     public boolean updateSale(String saleId, Date date, List<SaleItem> saleItems, String notes) {
-        // Get the existing sale
-        Sale existingSale = salesRepository.findById(saleId);
-        if (existingSale == null) {
-            return false;
-        }
-        
-        // Restore the original stock levels for existing items
-        for (SaleItem oldItem : existingSale.getItems()) {
-            Item item = itemRepository.findById(oldItem.getItemID());
-            if (item != null) {
-                item.setCurrentStock(item.getCurrentStock() + oldItem.getQuantity());
-                itemRepository.update(item);
-            }
-        }
-        
-        // Validate inventory and update stock for new items
-        for (SaleItem newItem : saleItems) {
-            Item item = itemRepository.findById(newItem.getItemID());
-            if (item == null) {
-                // Rollback stock changes?
+        // If any step fails, the restored and deducted stock levels are rolled back with the sale
+        return Transaction.execute(() -> {
+            // Get the existing sale
+            Sale existingSale = salesRepository.findById(saleId);
+            if (existingSale == null) {
                 return false;
             }
             
-            // Check if there's enough stock
-            if (item.getCurrentStock() < newItem.getQuantity()) {
-                // Rollback stock changes?
+            // Restore the original stock levels for existing items
+            if (!restoreStock(existingSale.getItems(), saleId)) {
                 return false;
             }
             
-            // Update the item stock
-            item.setCurrentStock(item.getCurrentStock() - newItem.getQuantity());
-            itemRepository.update(item);
-        }
-        
-        // Create an updated sale
-        Sale updatedSale = new Sale(saleId, date, existingSale.getSalesManagerID(), notes, saleItems);
-        
-        // Update the sale
-        return salesRepository.update(updatedSale);
+            // Validate inventory and update stock for new items
+            for (SaleItem saleItem : saleItems) {
+                if (!stockLedger.adjust(saleItem.getItemID(), -saleItem.getQuantity(),
+                        StockLedger.MovementType.SALE, saleId)) {
+                    return false;
+                }
+            }
+            
+            // Create an updated sale
+            Sale updatedSale = new Sale(saleId, date, existingSale.getSalesManagerID(), notes, saleItems);
+            
+            // Update the sale
+            return salesRepository.update(updatedSale);
+        });
     }
     
     /**
@@ -174,23 +195,85 @@ public class SalesController {
      * @return true if deleted successfully
      */
     public boolean deleteSale(String saleId) {
-        // Get the sale
-        Sale sale = salesRepository.findById(saleId);
-        if (sale == null) {
-            return false;
+        return Transaction.execute(() -> {
+            // Get the sale
+            Sale sale = salesRepository.findById(saleId);
+            if (sale == null) {
+                return false;
+            }
+            
+            // Restore the stock levels for each item
+            if (!restoreStock(sale.getItems(), saleId)) {
+                return false;
+            }
+            
+            // Delete the sale
+            return salesRepository.delete(saleId);
+        });
+    }
+    
+    /**
+     * Reserve stock for an item while a sale is being drafted
+     * @param itemId Item ID
+     * @param quantity Quantity to reserve
+     * @return Reservation, or null if not enough stock is available
+     */
+    public StockLedger.Reservation reserveStock(String itemId, int quantity) {
+        return stockLedger.reserve(itemId, quantity);
+    }
+    
+    /**
+     * Give back stock reserved for a draft that was changed or discarded
+     * @param reservation Reservation to release
+     */
+    public void releaseReservation(StockLedger.Reservation reservation) {
+        stockLedger.release(reservation);
+    }
+    
+    /**
+     * Get the stock of an item that is not reserved by other drafts
+     * @param itemId Item ID
+     * @return Available quantity
+     */
+    public int getAvailableStock(String itemId) {
+        return stockLedger.getAvailable(itemId);
+    }
+    
+    /**
+     * Find an unused open reservation matching a sale item
+     * @param candidates Reservations to choose from
+     * @param used Reservations already matched to other items
+     * @param saleItem Sale item
+     * @return Matching reservation or null
+     */
+    private StockLedger.Reservation findReservation(List<StockLedger.Reservation> candidates,
+                                                    List<StockLedger.Reservation> used, SaleItem saleItem) {
+        for (StockLedger.Reservation reservation : candidates) {
+            if (reservation.isOpen() && !used.contains(reservation)
+                    && reservation.getItemID().equals(saleItem.getItemID())
+                    && reservation.getQuantity() == saleItem.getQuantity()) {
+                return reservation;
+            }
         }
-        
-        // Restore the stock levels for each item
-        for (SaleItem saleItem : sale.getItems()) {
-            Item item = itemRepository.findById(saleItem.getItemID());
-            if (item != null) {
-                item.setCurrentStock(item.getCurrentStock() + saleItem.getQuantity());
-                itemRepository.update(item);
+        return null;
+    }
+    
+    /**
+     * Put the quantities of a sale back into stock
+     * Items that no longer exist are skipped
+     * @param saleItems Items of the sale
+     * @param saleId Sale ID recorded in the stock movements
+     * @return true if all existing items were updated
+     */
+    private boolean restoreStock(List<SaleItem> saleItems, String saleId) {
+        for (SaleItem saleItem : saleItems) {
+            if (itemRepository.findById(saleItem.getItemID()) != null
+                    && !stockLedger.adjust(saleItem.getItemID(), saleItem.getQuantity(),
+                            StockLedger.MovementType.SALE_REVERSAL, saleId)) {
+                return false;
             }
         }
-        
-        // Delete the sale
-        return salesRepository.delete(saleId);
+        return true;
     }
     
     /**
@@ -5,6 +5,7 @@ import com.owsb.model.supplier.Supplier;
 import com.owsb.model.user.User;
 import com.owsb.repository.ItemRepository;
 import com.owsb.repository.SupplierRepository;
+import com.owsb.service.SupplierService;
 import com.owsb.util.UserRole;
 
 import java.util.ArrayList;
@@ -13,11 +14,13 @@ import java.util.List;
 public class SupplierController {
     private final SupplierRepository supplierRepository;
     private final ItemRepository itemRepository;
+    private final SupplierService supplierService;
     private User currentUser;
 
     public SupplierController() {
         this.supplierRepository = new SupplierRepository();
         this.itemRepository = new ItemRepository();
+        this.supplierService = new SupplierService();
     }
     
     /**
@@ -29,7 +32,7 @@ public class SupplierController {
     }
 
     public String generateNextSupplierId() {
-        return supplierRepository.generateSupplierId();
+        return supplierRepository.peekNextSupplierId();
     }
 
     public boolean addSupplier(String name, String contactPerson, String phone) {
@@ -124,16 +127,7 @@ public class SupplierController {
      * @return List of suppliers that can supply the item
      */
     public List<Supplier> getSuppliersForItem(String itemId) {
-        List<Supplier> result = new ArrayList<>();
-        
-        for (Supplier supplier : supplierRepository.findAll()) {
-            List<String> itemIds = supplier.getItemIDs();
-            if (itemIds != null && itemIds.contains(itemId)) {
-                result.add(supplier);
-            }
-        }
-        
-        return result;
+        return supplierService.findSuppliersForItem(itemId);
     }
     
     /**
@@ -226,14 +220,7 @@ public class SupplierController {
         Item item = itemRepository.findById(itemId);
         if (item != null && supplierId.equals(item.getSupplierID())) {
             // Find alternative suppliers for this item
-            List<Supplier> alternativeSuppliers = new ArrayList<>();
-            for (Supplier s : supplierRepository.findAll()) {
-                if (!s.getSupplierID().equals(supplierId) && 
-                    s.getItemIDs() != null && 
-                    s.getItemIDs().contains(itemId)) {
-                    alternativeSuppliers.add(s);
-                }
-            }
+            List<Supplier> alternativeSuppliers = supplierService.findAlternativeSuppliers(itemId, supplierId);
             
             if (!alternativeSuppliers.isEmpty()) {
                 // Set the first alternative supplier as primary
@@ -2,7 +2,9 @@ package com.owsb.controller;
 
 import com.owsb.model.supplier.Supplier;
 import com.owsb.service.SupplierService;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Extension to PurchaseOrderController to handle supplier selection
@@ -27,6 +29,15 @@ public class SupplierSelectionController {
         return supplierService.findSuppliersForItem(itemID);
     }
     
+    /**
+     * Find the suppliers of every item of a requisition or order at once
+     * @param itemIDs Item IDs
+     * @return Suppliers of each item
+     */
+    public Map<String, List<Supplier>> getSuppliersForItems(Collection<String> itemIDs) {
+        return supplierService.findSuppliersForItems(itemIDs);
+    }
+    
     /**
      * Get primary supplier for an item
      * @param itemID Item ID
@@ -0,0 +1,371 @@
+package com.owsb.repository;
+
+import com.owsb.model.procurement.POItem;
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.repository.analytics.ColumnTable;
+import com.owsb.repository.analytics.Dictionary;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.ReadView;
+import com.owsb.repository.storage.StoreListener;
+import com.owsb.util.Constants;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Columnar copy of the sales and purchase order history for date-ranged reports
+ * Holds one row per sale item and per PO item with epoch-day dates, dictionary-encoded item,
+ * category, supplier and status codes and primitive amounts, so a report over years of history
+ * scans a few arrays instead of the entity graphs.
+ *
+ * The tables are built from SalesRepository and PurchaseOrderRepository on first use. After that
+ * the store listeners note which sales and orders changed, and the next query replaces just their rows.
+ */
+public class AnalyticsStore {
+    // Sale item columns
+    private static final String DAY = "day";
+    private static final String ITEM = "item";
+    private static final String CATEGORY = "category";
+    private static final String QUANTITY = "quantity";
+    private static final String AMOUNT = "amount";
+    // PO item columns, also DAY, ITEM, QUANTITY and AMOUNT
+    private static final String SUPPLIER = "supplier";
+    private static final String STATUS = "status";
+    private static final String ORDERS = "orders"; // 1 on the first row of each order, to count orders
+
+    private static AnalyticsStore instance;
+
+    // Filled by store callbacks, which run under store locks and so must not take this monitor
+    private final Set<String> dirtySales = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtyOrders = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuild = new AtomicBoolean(true);
+
+    private final SalesRepository salesRepository = new SalesRepository();
+    private final PurchaseOrderRepository poRepository = new PurchaseOrderRepository();
+    // Row numbers of each sale and order, to delete them when it changes
+    private final Map<String, int[]> saleRows = new HashMap<>();
+    private final Map<String, int[]> orderRows = new HashMap<>();
+
+    private Dictionary items;
+    private Dictionary categories;
+    private Dictionary suppliers;
+    private Dictionary statuses;
+    private ColumnTable saleItems;
+    private ColumnTable orderItems;
+
+    private AnalyticsStore() {
+    }
+
+    /**
+     * Get the shared analytics store
+     * @return Analytics store
+     */
+    public static synchronized AnalyticsStore getInstance() {
+        if (instance == null) {
+            instance = new AnalyticsStore();
+            instance.subscribe();
+        }
+        return instance;
+    }
+
+    private void subscribe() {
+        // Archived and live copies of a sale share its ID; reading it back picks the one the reports see
+        SalesArchive.getInstance().addListener(new ChangeTracker<>(dirtySales));
+        EntityStore.of(Constants.SALES_FILE, Sale.class, Sale::getSaleID, true)
+                .addListener(new ChangeTracker<>(dirtySales));
+        EntityStore.of(Constants.PO_FILE, PurchaseOrder.class, PurchaseOrder::getPoID, true)
+                .addListener(new ChangeTracker<>(dirtyOrders));
+    }
+
+    /**
+     * Get the total sales within a date range
+     * @param from First date, or null for no lower bound
+     * @param to Last date, inclusive, or null for no upper bound
+     * @return Sum of the sale item subtotals
+     */
+    public synchronized double getSalesTotal(Date from, Date to) {
+        refresh();
+        return salesTotal(from, to);
+    }
+
+    /**
+     * Get sales within a date range per category (first word of the item name)
+     * @param from First date, or null for no lower bound
+     * @param to Last date, inclusive, or null for no upper bound
+     * @return Sales amount by category, largest first
+     */
+    public synchronized Map<String, Double> getSalesByCategory(Date from, Date to) {
+        refresh();
+        return salesByCategory(from, to);
+    }
+
+    /**
+     * Get all profit and loss figures within a date range in one query, so a change saved meanwhile cannot split them
+     * @param from First date, or null for no lower bound
+     * @param to Last date, inclusive, or null for no upper bound
+     * @return Sales total, sales by category and value of the COMPLETED purchase orders
+     */
+    public synchronized FinancialAggregates.ProfitAndLoss getProfitAndLoss(Date from, Date to) {
+        // Refreshed once, so all three figures come from the same rows
+        refresh();
+        return new FinancialAggregates.ProfitAndLoss(salesTotal(from, to), salesByCategory(from, to),
+                purchaseTotal(from, to, Constants.PurchaseOrderStatus.COMPLETED));
+    }
+
+    /**
+     * Get the best-selling items within a date range
+     * @param from First date, or null for no lower bound
+     * @param to Last date, inclusive, or null for no upper bound
+     * @param limit Maximum number of items
+     * @return Quantity sold by item ID, largest first
+     */
+    public synchronized Map<String, Double> getTopItemsSold(Date from, Date to, int limit) {
+        refresh();
+        return salesBetween(from, to).top(saleItems.keyColumn(ITEM), saleItems.valueColumn(QUANTITY),
+                items, limit);
+    }
+
+    /**
+     * Get the number of purchase orders within a date range
+     * @param from First date, or null for no lower bound
+     * @param to Last date, inclusive, or null for no upper bound
+     * @return Number of orders
+     */
+    public synchronized int getPurchaseOrderCount(Date from, Date to) {
+        refresh();
+        return (int) ordersBetween(from, to).sum(orderItems.valueColumn(ORDERS));
+    }
+
+    /**
+     * Get the value of purchase orders within a date range
+     * @param from First date, or null for no lower bound
+     * @param to Last date, inclusive, or null for no upper bound
+     * @param status Only orders with this status, or null for all
+     * @return Sum of the order values
+     */
+    public synchronized double getPurchaseTotal(Date from, Date to, Constants.PurchaseOrderStatus status) {
+        refresh();
+        return purchaseTotal(from, to, status);
+    }
+
+    /**
+     * Get the suppliers with the highest purchase order value within a date range
+     * @param from First date, or null for no lower bound
+     * @param to Last date, inclusive, or null for no upper bound
+     * @param limit Maximum number of suppliers
+     * @return Order value by supplier name (supplier of the order's first item), largest first
+     */
+    public synchronized Map<String, Double> getTopSuppliers(Date from, Date to, int limit) {
+        refresh();
+        return ordersBetween(from, to).top(orderItems.keyColumn(SUPPLIER), orderItems.valueColumn(AMOUNT),
+                suppliers, limit);
+    }
+
+    private double salesTotal(Date from, Date to) {
+        return salesBetween(from, to).sum(saleItems.valueColumn(AMOUNT));
+    }
+
+    private Map<String, Double> salesByCategory(Date from, Date to) {
+        return salesBetween(from, to).top(saleItems.keyColumn(CATEGORY), saleItems.valueColumn(AMOUNT),
+                categories, Integer.MAX_VALUE);
+    }
+
+    private double purchaseTotal(Date from, Date to, Constants.PurchaseOrderStatus status) {
+        ColumnTable.Query query = ordersBetween(from, to);
+        if (status != null) {
+            int code = statuses.codeOf(status.name());
+            if (code < 0) {
+                return 0;
+            }
+            query.where(orderItems.keyColumn(STATUS), code);
+        }
+        return query.sum(orderItems.valueColumn(AMOUNT));
+    }
+
+    private ColumnTable.Query salesBetween(Date from, Date to) {
+        return saleItems.query().between(saleItems.keyColumn(DAY), dayOf(from, Integer.MIN_VALUE),
+                dayOf(to, Integer.MAX_VALUE));
+    }
+
+    private ColumnTable.Query ordersBetween(Date from, Date to) {
+        return orderItems.query().between(orderItems.keyColumn(DAY), dayOf(from, Integer.MIN_VALUE),
+                dayOf(to, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Bring the tables up to date with the changes reported since the last query
+     * Changed sales and orders are read again by ID: their old rows are deleted and new ones appended.
+     * The tables are only rebuilt from scratch on first use, after a store was cleared, or to drop
+     * deleted rows once they make up more than half of a table.
+     */
+    private void refresh() {
+        if (rebuild.get()) {
+            rebuild();
+            return;
+        }
+        if (dirtySales.isEmpty() && dirtyOrders.isEmpty()) {
+            return;
+        }
+        // Read the stores themselves, not a report's view: the rows follow the listeners
+        for (String id : drain(dirtySales)) {
+            deleteRows(saleItems, saleRows.remove(id));
+            Sale sale = ReadView.live(() -> salesRepository.findById(id));
+            if (sale != null) {
+                saleRows.put(id, addSale(sale, saleItems));
+            }
+        }
+        for (String id : drain(dirtyOrders)) {
+            deleteRows(orderItems, orderRows.remove(id));
+            PurchaseOrder po = ReadView.live(() -> poRepository.findById(id));
+            if (po != null) {
+                orderRows.put(id, addOrder(po, orderItems));
+            }
+        }
+        if (saleItems.deletedRows() > saleItems.size() / 2 || orderItems.deletedRows() > orderItems.size() / 2) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Build the tables from all sales and purchase orders
+     */
+    private void rebuild() {
+        // Changes reported from here on are applied by the next refresh, so none are missed
+        rebuild.set(false);
+        dirtySales.clear();
+        dirtyOrders.clear();
+        List<Sale> sales = ReadView.live(() -> salesRepository.findAll());
+        List<PurchaseOrder> orders = ReadView.live(() -> poRepository.findAll());
+
+        items = new Dictionary();
+        categories = new Dictionary();
+        suppliers = new Dictionary();
+        statuses = new Dictionary();
+
+        saleItems = new ColumnTable(new String[]{DAY, ITEM, CATEGORY}, new String[]{QUANTITY, AMOUNT});
+        saleRows.clear();
+        for (Sale sale : sales) {
+            saleRows.put(sale.getSaleID(), addSale(sale, saleItems));
+        }
+
+        orderItems = new ColumnTable(new String[]{DAY, SUPPLIER, ITEM, STATUS},
+                new String[]{QUANTITY, AMOUNT, ORDERS});
+        orderRows.clear();
+        for (PurchaseOrder po : orders) {
+            orderRows.put(po.getPoID(), addOrder(po, orderItems));
+        }
+    }
+
+    /**
+     * Append one row per item of a sale
+     * @return Row numbers
+     */
+    private int[] addSale(Sale sale, ColumnTable table) {
+        int day = dayOf(sale.getDate(), Integer.MIN_VALUE);
+        int[] rows = new int[sale.getItems().size()];
+        int i = 0;
+        for (SaleItem item : sale.getItems()) {
+            rows[i++] = table.addRow(new int[]{
+                    day,
+                    items.encode(item.getItemID()),
+                    categories.encode(item.getItemName().split(" ")[0])
+            }, new double[]{item.getQuantity(), item.getSubtotal()});
+        }
+        return rows;
+    }
+
+    /**
+     * Append one row per item of a purchase order, or a single empty row if it has no items
+     * @return Row numbers
+     */
+    private int[] addOrder(PurchaseOrder po, ColumnTable table) {
+        int day = dayOf(po.getDate(), Integer.MIN_VALUE);
+        // Same supplier rule as the reports: the supplier of the first item
+        int supplier = suppliers.encode(po.getItems().isEmpty() ? "Unknown"
+                : po.getItems().get(0).getSupplierName());
+        int status = statuses.encode(po.getStatus().name());
+        if (po.getItems().isEmpty()) {
+            return new int[]{table.addRow(new int[]{day, supplier, items.encode(null), status},
+                    new double[]{0, 0, 1})};
+        }
+        int[] rows = new int[po.getItems().size()];
+        int i = 0;
+        for (POItem item : po.getItems()) {
+            rows[i] = table.addRow(new int[]{day, supplier, items.encode(item.getItemID()), status},
+                    new double[]{item.getQuantity(), item.getTotalCost(), i == 0 ? 1 : 0});
+            i++;
+        }
+        return rows;
+    }
+
+    private static void deleteRows(ColumnTable table, int[] rows) {
+        if (rows != null) {
+            for (int row : rows) {
+                table.deleteRow(row);
+            }
+        }
+    }
+
+    private static List<String> drain(Set<String> ids) {
+        List<String> drained = new ArrayList<>();
+        for (Iterator<String> it = ids.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * Convert a date to days since 1970-01-01 in the local time zone
+     * @param date Date, or null
+     * @param ifNull Day returned for null
+     * @return Epoch day
+     */
+    private static int dayOf(Date date, int ifNull) {
+        if (date == null) {
+            return ifNull;
+        }
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Records the IDs a store changed so the next query reads them again
+     */
+    private class ChangeTracker<T> implements StoreListener<T> {
+        private final Set<String> dirty;
+
+        ChangeTracker(Set<String> dirty) {
+            this.dirty = dirty;
+        }
+
+        @Override
+        public void add(String id, T entity) {
+            dirty.add(id);
+        }
+
+        @Override
+        public void remove(String id, T entity) {
+            dirty.add(id);
+        }
+
+        @Override
+        public void update(String id, T oldEntity, T newEntity) {
+            dirty.add(id);
+        }
+
+        @Override
+        public void clear() {
+            rebuild.set(true);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.owsb.repository;
+
+import com.owsb.model.procurement.POItem;
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.StoreListener;
+import com.owsb.util.Constants;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily demand of every item and supplier lead times, for demand forecasting
+ * Subscribes to the sales store, the sales archive and the purchase order store and updates the
+ * series on every change, so a new sale adds its quantities to one day of each item it contains
+ * instead of the history being read again. Only building the series the first time scans the data.
+ *
+ * Every change is stamped, so a forecaster can tell which items changed since it last looked.
+ *
+ * Lock order: a store, then the sales archive, then this history; the history never calls out.
+ */
+public class DemandHistory {
+    private static DemandHistory instance;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Units sold per item and epoch day; sales = archived - shadowed + live, as in FinancialAggregates
+    private final Map<String, TreeMap<Long, Integer>> dailyDemand = new HashMap<>();
+    private final Set<String> liveSaleIds = new HashSet<>();
+
+    // Days from order to expected delivery, summed and counted per item and overall
+    private final Map<String, long[]> leadTimes = new HashMap<>();
+    private final long[] allLeadTimes = new long[2];
+
+    private long stamp = 0;
+    private final Map<String, Long> demandStamps = new HashMap<>();
+    private long leadTimeStamp = 0;
+
+    private DemandHistory() {
+    }
+
+    /**
+     * Get the shared history, building it on first use
+     * @return Demand history
+     */
+    public static synchronized DemandHistory getInstance() {
+        if (instance == null) {
+            DemandHistory history = new DemandHistory();
+            history.subscribe();
+            instance = history;
+        }
+        return instance;
+    }
+
+    /**
+     * Build the series from the current data and subscribe to all later changes
+     */
+    private void subscribe() {
+        SalesArchive archive = SalesArchive.getInstance();
+        synchronized (archive) {
+            archive.forEach(sale -> applySale(sale, 1));
+            archive.addListener(new ArchiveListener());
+        }
+        EntityStore.of(Constants.SALES_FILE, Sale.class, Sale::getSaleID, true)
+                .addListener(new LiveSalesListener(archive));
+        EntityStore.of(Constants.PO_FILE, PurchaseOrder.class, PurchaseOrder::getPoID, true)
+                .addListener(new PurchaseOrderListener());
+    }
+
+    /**
+     * Get the units sold per day of several items over a window of days
+     * @param itemIDs Item IDs
+     * @param lastDay Last day of the window
+     * @param days Number of days in the window
+     * @return Units sold per day, oldest first, for each item with sales in the window
+     */
+    public synchronized Map<String, int[]> getDailyDemand(Collection<String> itemIDs, LocalDate lastDay, int days) {
+        long last = lastDay.toEpochDay();
+        long first = last - days + 1;
+        Map<String, int[]> result = new HashMap<>();
+        for (String itemID : itemIDs) {
+            TreeMap<Long, Integer> demand = dailyDemand.get(itemID);
+            if (demand == null) {
+                continue;
+            }
+            Map<Long, Integer> window = demand.subMap(first, true, last, true);
+            if (window.isEmpty()) {
+                continue;
+            }
+            int[] series = new int[days];
+            for (Map.Entry<Long, Integer> entry : window.entrySet()) {
+                series[(int) (entry.getKey() - first)] = entry.getValue();
+            }
+            result.put(itemID, series);
+        }
+        return result;
+    }
+
+    /**
+     * Get the average lead time of several items from order date to delivery date of their purchase orders
+     * Items never ordered get the average over all orders.
+     * @param itemIDs Item IDs
+     * @return Lead time in days per item; missing if nothing was ever ordered
+     */
+    public synchronized Map<String, Double> getLeadTimeDays(Collection<String> itemIDs) {
+        Map<String, Double> result = new HashMap<>();
+        for (String itemID : itemIDs) {
+            long[] leadTime = leadTimes.get(itemID);
+            if (leadTime != null) {
+                result.put(itemID, (double) leadTime[0] / leadTime[1]);
+            } else if (allLeadTimes[1] > 0) {
+                result.put(itemID, (double) allLeadTimes[0] / allLeadTimes[1]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the stamps of the last changes that affect the forecasts of several items
+     * Stamps only grow; a forecast computed at a stamp stays valid while the stamp is unchanged.
+     * @param itemIDs Item IDs
+     * @return Stamp of the last change to each item's sales or to any lead time
+     */
+    public synchronized Map<String, Long> getStamps(Collection<String> itemIDs) {
+        Map<String, Long> result = new HashMap<>();
+        for (String itemID : itemIDs) {
+            result.put(itemID, Math.max(demandStamps.getOrDefault(itemID, 0L), leadTimeStamp));
+        }
+        return result;
+    }
+
+    private void applySale(Sale sale, int sign) {
+        if (sale.getDate() == null || sale.getItems() == null) {
+            return;
+        }
+        long day = sale.getDate().toInstant().atZone(zone).toLocalDate().toEpochDay();
+        stamp++;
+        for (SaleItem item : sale.getItems()) {
+            TreeMap<Long, Integer> demand = dailyDemand.computeIfAbsent(item.getItemID(), id -> new TreeMap<>());
+            demand.merge(day, sign * item.getQuantity(), Integer::sum);
+            demand.remove(day, 0);
+            if (demand.isEmpty()) {
+                dailyDemand.remove(item.getItemID());
+            }
+            demandStamps.put(item.getItemID(), stamp);
+        }
+    }
+
+    private void applyPurchaseOrder(PurchaseOrder po, int sign) {
+        // Rejected and cancelled orders were never going to be delivered
+        if (po.getDate() == null || po.getDeliveryDate() == null
+                || po.getStatus() == Constants.PurchaseOrderStatus.REJECTED
+                || po.getStatus() == Constants.PurchaseOrderStatus.CANCELLED) {
+            return;
+        }
+        long days = Math.max(0, daysBetween(po.getDate(), po.getDeliveryDate()));
+        Set<String> itemIDs = new HashSet<>();
+        for (POItem item : po.getItems()) {
+            itemIDs.add(item.getItemID());
+        }
+        for (String itemID : itemIDs) {
+            long[] leadTime = leadTimes.computeIfAbsent(itemID, id -> new long[2]);
+            leadTime[0] += sign * days;
+            leadTime[1] += sign;
+            if (leadTime[1] == 0) {
+                leadTimes.remove(itemID);
+            }
+        }
+        allLeadTimes[0] += sign * days * itemIDs.size();
+        allLeadTimes[1] += sign * itemIDs.size();
+        leadTimeStamp = ++stamp;
+    }
+
+    private static long daysBetween(Date from, Date to) {
+        return TimeUnit.MILLISECONDS.toDays(to.getTime() - from.getTime());
+    }
+
+    /**
+     * Keeps the lead times in step with the purchase order store
+     */
+    private class PurchaseOrderListener implements StoreListener<PurchaseOrder> {
+        @Override
+        public void add(String id, PurchaseOrder po) {
+            synchronized (DemandHistory.this) {
+                applyPurchaseOrder(po, 1);
+            }
+        }
+
+        @Override
+        public void remove(String id, PurchaseOrder po) {
+            synchronized (DemandHistory.this) {
+                applyPurchaseOrder(po, -1);
+            }
+        }
+
+        @Override
+        public void update(String id, PurchaseOrder oldPo, PurchaseOrder newPo) {
+            synchronized (DemandHistory.this) {
+                applyPurchaseOrder(oldPo, -1);
+                applyPurchaseOrder(newPo, 1);
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (DemandHistory.this) {
+                leadTimes.clear();
+                allLeadTimes[0] = 0;
+                allLeadTimes[1] = 0;
+                leadTimeStamp = ++stamp;
+            }
+        }
+    }
+
+    /**
+     * Keeps the live sales and the archived copies they hide in step with the sales store
+     * Holds the archive lock while looking up an archived copy so the archive cannot change meanwhile.
+     */
+    private class LiveSalesListener implements StoreListener<Sale> {
+        private final SalesArchive archive;
+
+        LiveSalesListener(SalesArchive archive) {
+            this.archive = archive;
+        }
+
+        @Override
+        public void add(String id, Sale sale) {
+            synchronized (archive) {
+                Sale archived = archive.findById(id);
+                synchronized (DemandHistory.this) {
+                    applySale(sale, 1);
+                    liveSaleIds.add(id);
+                    if (archived != null) {
+                        applySale(archived, -1);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void remove(String id, Sale sale) {
+            synchronized (archive) {
+                Sale archived = archive.findById(id);
+                synchronized (DemandHistory.this) {
+                    applySale(sale, -1);
+                    liveSaleIds.remove(id);
+                    if (archived != null) {
+                        applySale(archived, 1);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void update(String id, Sale oldSale, Sale newSale) {
+            synchronized (DemandHistory.this) {
+                applySale(oldSale, -1);
+                applySale(newSale, 1);
+            }
+        }
+
+        @Override
+        public void clear() {
+            // Stores report reloads as the entities that differ
+        }
+    }
+
+    /**
+     * Keeps the archived sales in step with the archive; called with the archive locked
+     */
+    private class ArchiveListener implements StoreListener<Sale> {
+        @Override
+        public void add(String id, Sale sale) {
+            update(id, null, sale);
+        }
+
+        @Override
+        public void remove(String id, Sale sale) {
+            update(id, sale, null);
+        }
+
+        @Override
+        public void update(String id, Sale oldSale, Sale newSale) {
+            synchronized (DemandHistory.this) {
+                // The archived copy of a live sale is hidden by it
+                if (liveSaleIds.contains(id)) {
+                    return;
+                }
+                if (oldSale != null) {
+                    applySale(oldSale, -1);
+                }
+                if (newSale != null) {
+                    applySale(newSale, 1);
+                }
+            }
+        }
+
+        @Override
+        public void clear() {
+            // The archive is never reloaded as a whole
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.owsb.repository;
+
+import com.owsb.model.finance.Payment;
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.StoreListener;
+import com.owsb.util.Constants;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Running totals of sales, purchase orders and payments for the financial reports
+ * Subscribes to the sales, purchase order and payment stores and the sales archive and updates its
+ * totals on every change, so reading a report summary costs the same whatever the history length.
+ * Only building the totals the first time scans the data.
+ *
+ * Totals are kept overall and per group: sales by category and day, purchase orders by supplier,
+ * status and day, payments by supplier, status and day.
+ *
+ * Lock order: a store, then the sales archive, then these totals; the totals never call out.
+ */
+public class FinancialAggregates {
+    // Group names
+    public static final String BY_CATEGORY = "category";
+    public static final String BY_SUPPLIER = "supplier";
+    public static final String BY_STATUS = "status";
+    public static final String BY_DAY = "day";
+
+    private static FinancialAggregates instance;
+
+    /**
+     * Count, amount and latest date of a group of records
+     */
+    public static class Totals {
+        private final long count;
+        private final double amount;
+        private final Date latestDate;
+
+        Totals(long count, double amount, Date latestDate) {
+            this.count = count;
+            this.amount = amount;
+            this.latestDate = latestDate;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        /**
+         * @return Date of the newest record, or null if not tracked for this group
+         */
+        public Date getLatestDate() {
+            return latestDate;
+        }
+    }
+
+    /**
+     * Figures of the profit and loss report, read together
+     */
+    public static class ProfitAndLoss {
+        private final double salesAmount;
+        private final Map<String, Double> salesByCategory;
+        private final double purchaseAmount;
+
+        ProfitAndLoss(double salesAmount, Map<String, Double> salesByCategory, double purchaseAmount) {
+            this.salesAmount = salesAmount;
+            this.salesByCategory = salesByCategory;
+            this.purchaseAmount = purchaseAmount;
+        }
+
+        public double getSalesAmount() {
+            return salesAmount;
+        }
+
+        /**
+         * @return Sales amount per category (first word of the item name)
+         */
+        public Map<String, Double> getSalesByCategory() {
+            return salesByCategory;
+        }
+
+        /**
+         * @return Value of the COMPLETED purchase orders
+         */
+        public double getPurchaseAmount() {
+            return purchaseAmount;
+        }
+    }
+
+    /**
+     * Mutable totals of one group
+     */
+    private static class Accumulator {
+        long count;
+        double amount;
+        TreeMap<Long, Integer> dates; // Record dates with their counts, only where the latest date is wanted
+
+        void add(double amount, Date date, int sign) {
+            count += sign;
+            this.amount += sign * amount;
+            if (date != null) {
+                if (dates == null) {
+                    dates = new TreeMap<>();
+                }
+                dates.merge(date.getTime(), sign, Integer::sum);
+                dates.remove(date.getTime(), 0);
+            }
+        }
+
+        Totals toTotals() {
+            Date latest = dates != null && !dates.isEmpty() ? new Date(dates.lastKey()) : null;
+            return new Totals(count, amount, latest);
+        }
+    }
+
+    /**
+     * Overall and grouped totals of one kind of record
+     */
+    private static class Rollup {
+        final Accumulator total = new Accumulator();
+        final Map<String, Map<String, Accumulator>> groups = new HashMap<>();
+
+        void addTotal(double amount, int sign) {
+            total.add(amount, null, sign);
+        }
+
+        void add(String group, String key, double amount, Date date, int sign) {
+            Map<String, Accumulator> keys = groups.computeIfAbsent(group, g -> new HashMap<>());
+            Accumulator accumulator = keys.computeIfAbsent(key, k -> new Accumulator());
+            accumulator.add(amount, date, sign);
+            if (accumulator.count == 0) {
+                keys.remove(key);
+            }
+        }
+
+        void clear() {
+            total.count = 0;
+            total.amount = 0;
+            groups.clear();
+        }
+    }
+
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    // Sales = archived - shadowed + live; shadowed are archived copies of sales that are also live
+    private final Rollup archivedSales = new Rollup();
+    private final Rollup shadowedSales = new Rollup();
+    private final Rollup liveSales = new Rollup();
+    private final Set<String> liveSaleIds = new HashSet<>();
+
+    private final Rollup purchaseOrders = new Rollup();
+    private final Rollup payments = new Rollup();
+
+    private FinancialAggregates() {
+    }
+
+    /**
+     * Get the shared totals, building them on first use
+     * @return Financial aggregates
+     */
+    public static synchronized FinancialAggregates getInstance() {
+        if (instance == null) {
+            FinancialAggregates aggregates = new FinancialAggregates();
+            aggregates.subscribe();
+            instance = aggregates;
+        }
+        return instance;
+    }
+
+    /**
+     * Build the totals from the current data and subscribe to all later changes
+     */
+    private void subscribe() {
+        SalesArchive archive = SalesArchive.getInstance();
+        synchronized (archive) {
+            archive.forEach(sale -> applySale(archivedSales, sale, 1));
+            archive.addListener(new ArchiveListener());
+        }
+        EntityStore.of(Constants.SALES_FILE, Sale.class, Sale::getSaleID, true)
+                .addListener(new LiveSalesListener(archive));
+        EntityStore.of(Constants.PO_FILE, PurchaseOrder.class, PurchaseOrder::getPoID, true)
+                .addListener(new RollupListener<>(purchaseOrders, this::applyPurchaseOrder));
+        EntityStore.of(Constants.PAYMENTS_FILE, Payment.class, Payment::getPaymentID, true)
+                .addListener(new RollupListener<>(payments, this::applyPayment));
+    }
+
+    /**
+     * @return Totals of all sales
+     */
+    public synchronized Totals getSalesTotals() {
+        Accumulator total = new Accumulator();
+        combine(total, archivedSales.total, 1);
+        combine(total, shadowedSales.total, -1);
+        combine(total, liveSales.total, 1);
+        return total.toTotals();
+    }
+
+    /**
+     * @param group BY_CATEGORY (first word of the item name, amounts are item subtotals) or BY_DAY
+     * @return Sales totals per key, sorted by key
+     */
+    public synchronized Map<String, Totals> getSalesBy(String group) {
+        Map<String, Accumulator> combined = new HashMap<>();
+        combineGroup(combined, archivedSales, group, 1);
+        combineGroup(combined, shadowedSales, group, -1);
+        combineGroup(combined, liveSales, group, 1);
+        return toTotals(combined);
+    }
+
+    /**
+     * Get all profit and loss figures under one lock, so a change saved meanwhile cannot split them
+     * @return Sales total, sales by category and value of the COMPLETED purchase orders
+     */
+    public synchronized ProfitAndLoss getProfitAndLoss() {
+        Map<String, Double> byCategory = new TreeMap<>();
+        for (Map.Entry<String, Totals> entry : getSalesBy(BY_CATEGORY).entrySet()) {
+            byCategory.put(entry.getKey(), entry.getValue().getAmount());
+        }
+        Accumulator completed = purchaseOrders.groups.getOrDefault(BY_STATUS, Collections.emptyMap())
+                .get(Constants.PurchaseOrderStatus.COMPLETED.name());
+        return new ProfitAndLoss(getSalesTotals().getAmount(), byCategory,
+                completed != null ? completed.amount : 0);
+    }
+
+    /**
+     * @return Totals of all purchase orders
+     */
+    public synchronized Totals getPurchaseOrderTotals() {
+        return purchaseOrders.total.toTotals();
+    }
+
+    /**
+     * @param group BY_SUPPLIER (supplier of the first item), BY_STATUS (status name) or BY_DAY
+     * @return Purchase order totals per key, sorted by key
+     */
+    public synchronized Map<String, Totals> getPurchaseOrdersBy(String group) {
+        return toTotals(purchaseOrders.groups.getOrDefault(group, Collections.emptyMap()));
+    }
+
+    /**
+     * @return Totals of all payments
+     */
+    public synchronized Totals getPaymentTotals() {
+        return payments.total.toTotals();
+    }
+
+    /**
+     * @param group BY_SUPPLIER (supplier ID, with the latest payment date), BY_STATUS or BY_DAY
+     * @return Payment totals per key, sorted by key
+     */
+    public synchronized Map<String, Totals> getPaymentsBy(String group) {
+        return toTotals(payments.groups.getOrDefault(group, Collections.emptyMap()));
+    }
+
+    private void applySale(Rollup rollup, Sale sale, int sign) {
+        rollup.addTotal(sale.getTotalAmount(), sign);
+        rollup.add(BY_DAY, day(sale.getDate()), sale.getTotalAmount(), null, sign);
+        for (SaleItem item : sale.getItems()) {
+            // Same category rule as the profit and loss report
+            String category = item.getItemName().split(" ")[0];
+            rollup.add(BY_CATEGORY, category, item.getSubtotal(), null, sign);
+        }
+    }
+
+    private void applyPurchaseOrder(Rollup rollup, PurchaseOrder po, int sign) {
+        String supplier = po.getItems().isEmpty() ? "Unknown" : po.getItems().get(0).getSupplierName();
+        rollup.addTotal(po.getTotalValue(), sign);
+        rollup.add(BY_SUPPLIER, supplier, po.getTotalValue(), null, sign);
+        rollup.add(BY_STATUS, po.getStatus().name(), po.getTotalValue(), null, sign);
+        rollup.add(BY_DAY, day(po.getDate()), po.getTotalValue(), null, sign);
+    }
+
+    private void applyPayment(Rollup rollup, Payment payment, int sign) {
+        rollup.addTotal(payment.getAmount(), sign);
+        rollup.add(BY_SUPPLIER, payment.getSupplierID(), payment.getAmount(), payment.getDate(), sign);
+        rollup.add(BY_STATUS, payment.getStatus().name(), payment.getAmount(), null, sign);
+        rollup.add(BY_DAY, day(payment.getDate()), payment.getAmount(), null, sign);
+    }
+
+    private String day(Date date) {
+        return date != null ? dayFormat.format(date) : "N/A";
+    }
+
+    private static void combine(Accumulator target, Accumulator source, int sign) {
+        target.count += sign * source.count;
+        target.amount += sign * source.amount;
+        if (source.dates != null) {
+            if (target.dates == null) {
+                target.dates = new TreeMap<>();
+            }
+            for (Map.Entry<Long, Integer> entry : source.dates.entrySet()) {
+                target.dates.merge(entry.getKey(), sign * entry.getValue(), Integer::sum);
+                target.dates.remove(entry.getKey(), 0);
+            }
+        }
+    }
+
+    private static void combineGroup(Map<String, Accumulator> target, Rollup rollup, String group, int sign) {
+        for (Map.Entry<String, Accumulator> entry : rollup.groups.getOrDefault(group, Collections.emptyMap()).entrySet()) {
+            combine(target.computeIfAbsent(entry.getKey(), k -> new Accumulator()), entry.getValue(), sign);
+        }
+    }
+
+    private static Map<String, Totals> toTotals(Map<String, Accumulator> accumulators) {
+        Map<String, Totals> totals = new TreeMap<>();
+        for (Map.Entry<String, Accumulator> entry : accumulators.entrySet()) {
+            if (entry.getValue().count != 0) {
+                totals.put(entry.getKey(), entry.getValue().toTotals());
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Adds or subtracts a record in a rollup
+     */
+    private interface Contribution<T> {
+        void apply(Rollup rollup, T entity, int sign);
+    }
+
+    /**
+     * Keeps a rollup in step with a store
+     */
+    private class RollupListener<T> implements StoreListener<T> {
+        private final Rollup rollup;
+        private final Contribution<T> contribution;
+
+        RollupListener(Rollup rollup, Contribution<T> contribution) {
+            this.rollup = rollup;
+            this.contribution = contribution;
+        }
+
+        @Override
+        public void add(String id, T entity) {
+            synchronized (FinancialAggregates.this) {
+                contribution.apply(rollup, entity, 1);
+            }
+        }
+
+        @Override
+        public void remove(String id, T entity) {
+            synchronized (FinancialAggregates.this) {
+                contribution.apply(rollup, entity, -1);
+            }
+        }
+
+        @Override
+        public void update(String id, T oldEntity, T newEntity) {
+            synchronized (FinancialAggregates.this) {
+                contribution.apply(rollup, oldEntity, -1);
+                contribution.apply(rollup, newEntity, 1);
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (FinancialAggregates.this) {
+                rollup.clear();
+            }
+        }
+    }
+
+    /**
+     * Keeps the live sales and the archived copies they hide in step with the sales store
+     * Holds the archive lock while looking up an archived copy so the archive cannot change meanwhile.
+     */
+    private class LiveSalesListener implements StoreListener<Sale> {
+        private final SalesArchive archive;
+
+        LiveSalesListener(SalesArchive archive) {
+            this.archive = archive;
+        }
+
+        @Override
+        public void add(String id, Sale sale) {
+            synchronized (archive) {
+                Sale archived = archive.findById(id);
+                synchronized (FinancialAggregates.this) {
+                    applySale(liveSales, sale, 1);
+                    liveSaleIds.add(id);
+                    if (archived != null) {
+                        applySale(shadowedSales, archived, 1);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void remove(String id, Sale sale) {
+            synchronized (archive) {
+                Sale archived = archive.findById(id);
+                synchronized (FinancialAggregates.this) {
+                    applySale(liveSales, sale, -1);
+                    liveSaleIds.remove(id);
+                    if (archived != null) {
+                        applySale(shadowedSales, archived, -1);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void update(String id, Sale oldSale, Sale newSale) {
+            synchronized (FinancialAggregates.this) {
+                applySale(liveSales, oldSale, -1);
+                applySale(liveSales, newSale, 1);
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (FinancialAggregates.this) {
+                liveSales.clear();
+                shadowedSales.clear();
+                liveSaleIds.clear();
+            }
+        }
+    }
+
+    /**
+     * Keeps the archived sales in step with the archive; called with the archive locked
+     */
+    private class ArchiveListener implements StoreListener<Sale> {
+        @Override
+        public void add(String id, Sale sale) {
+            update(id, null, sale);
+        }
+
+        @Override
+        public void remove(String id, Sale sale) {
+            update(id, sale, null);
+        }
+
+        @Override
+        public void update(String id, Sale oldSale, Sale newSale) {
+            synchronized (FinancialAggregates.this) {
+                // An archived copy of a live sale is hidden, so it changes the shadow by the same amount
+                boolean live = liveSaleIds.contains(id);
+                if (oldSale != null) {
+                    applySale(archivedSales, oldSale, -1);
+                    if (live) {
+                        applySale(shadowedSales, oldSale, -1);
+                    }
+                }
+                if (newSale != null) {
+                    applySale(archivedSales, newSale, 1);
+                    if (live) {
+                        applySale(shadowedSales, newSale, 1);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void clear() {
+            // The archive is never reloaded as a whole
+        }
+    }
+}
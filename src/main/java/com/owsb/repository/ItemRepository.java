@@ -1,49 +1,44 @@
 package com.owsb.repository;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import com.owsb.dto.ItemDTO;
 import com.owsb.model.inventory.Item;
+import com.owsb.repository.event.ChangeBus;
+import com.owsb.repository.event.StockChangedEvent;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.SequenceAllocator;
 import com.owsb.util.Constants;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Implementation of the Repository pattern for Item entities
- * Handles persistence to/from JSON files
+ * Handles persistence to/from JSON files through the shared in-memory EntityStore
  * Demonstrates Single Responsibility Principle by focusing only on data access
  */
 public class ItemRepository implements Repository<Item> {
-    private final Gson gson;
-    private final String filePath;
+    private static final String BY_SUPPLIER = "supplierID";
+    private static final String BY_LOW_STOCK = "lowStock";
+
+    private final EntityStore<ItemDTO> store;
     
     /**
-     * Constructor initializes Gson serializer and file path
+     * Constructor attaches to the shared in-memory store for the items file
      */
     public ItemRepository() {
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-        this.filePath = Constants.ITEM_FILE; // Combined items and inventory
+        this.store = itemStore();
+        store.defineIndex(BY_SUPPLIER, dto -> dto.supplierID);
+        // Only low stock items are indexed, under the key true
+        store.defineIndex(BY_LOW_STOCK, dto -> LowStockWatch.isLow(dto) ? Boolean.TRUE : null);
+        LowStockWatch.attach(store);
     }
     
     @Override
     public List<Item> findAll() {
         List<Item> items = new ArrayList<>();
         
-        try {
-            List<ItemDTO> itemDTOs = readItemsFromFile();
-            
-            for (ItemDTO dto : itemDTOs) {
-                items.add(convertToItem(dto));
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading items: " + e.getMessage());
+        for (ItemDTO dto : store.findAll()) {
+            items.add(convertToItem(dto));
         }
         
         return items;
@@ -51,95 +46,47 @@ public class ItemRepository implements Repository<Item> {
     
     @Override
     public Item findById(String id) {
-        try {
-            List<ItemDTO> itemDTOs = readItemsFromFile();
-            
-            for (ItemDTO dto : itemDTOs) {
-                if (dto.itemID.equals(id)) {
-                    return convertToItem(dto);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error finding item: " + e.getMessage());
-        }
-        
-        return null;
+        ItemDTO dto = store.findById(id);
+        return dto != null ? convertToItem(dto) : null;
     }
     
     @Override
     public boolean save(Item item) {
-        try {
-            List<ItemDTO> itemDTOs = readItemsFromFile();
-            
-            // Check for duplicates
-            for (ItemDTO dto : itemDTOs) {
-                if (dto.itemID.equals(item.getItemID())) {
-                    return false; // Item already exists
-                }
-            }
-            
-            // Add new item
-            itemDTOs.add(convertToDTO(item));
-            
-            // Save to file
-            writeItemsToFile(itemDTOs);
-            return true;
-        } catch (IOException e) {
-            System.err.println("Error saving item: " + e.getMessage());
+        // Store rejects duplicate IDs
+        if (!store.insert(convertToDTO(item))) {
             return false;
         }
+        ChangeBus.getInstance().publish(new StockChangedEvent(item.getItemID()));
+        return true;
     }
     
+    /**
+     * Update an item's details
+     * The stock level is owned by the StockLedger and always kept as stored; change it through updateStock.
+     * @param item Item to update
+     * @return true if updated, false if the item does not exist
+     */
     @Override
     public boolean update(Item item) {
-        try {
-            List<ItemDTO> itemDTOs = readItemsFromFile();
-            boolean updated = false;
-            
-            // Find and update existing item
-            for (int i = 0; i < itemDTOs.size(); i++) {
-                if (itemDTOs.get(i).itemID.equals(item.getItemID())) {
-                    itemDTOs.set(i, convertToDTO(item));
-                    updated = true;
-                    break;
-                }
-            }
-            
-            if (updated) {
-                writeItemsToFile(itemDTOs);
-                return true;
-            }
-            return false; // Item not found
-        } catch (IOException e) {
-            System.err.println("Error updating item: " + e.getMessage());
-            return false;
+        boolean updated = store.modify(item.getItemID(), stored -> {
+            ItemDTO dto = convertToDTO(item);
+            dto.currentStock = stored.currentStock;
+            return dto;
+        });
+        if (updated) {
+            // Minimum and maximum stock may have changed
+            ChangeBus.getInstance().publish(new StockChangedEvent(item.getItemID()));
         }
+        return updated;
     }
     
     @Override
     public boolean delete(String id) {
-        try {
-            List<ItemDTO> itemDTOs = readItemsFromFile();
-            boolean removed = false;
-            
-            // Find and remove item
-            for (int i = 0; i < itemDTOs.size(); i++) {
-                if (itemDTOs.get(i).itemID.equals(id)) {
-                    itemDTOs.remove(i);
-                    removed = true;
-                    break;
-                }
-            }
-            
-            if (removed) {
-                writeItemsToFile(itemDTOs);
-                return true;
-            }
-            return false; // Item not found
-        } catch (IOException e) {
-            System.err.println("Error deleting item: " + e.getMessage());
-            return false;
+        boolean deleted = store.delete(id);
+        if (deleted) {
+            ChangeBus.getInstance().publish(new StockChangedEvent(id));
         }
+        return deleted;
     }
     
     /**
@@ -151,58 +98,74 @@ public class ItemRepository implements Repository<Item> {
     public List<Item> findBySupplier(String supplierID) {
         List<Item> items = new ArrayList<>();
         
-        try {
-            List<ItemDTO> itemDTOs = readItemsFromFile();
-            
-            for (ItemDTO dto : itemDTOs) {
-                if (dto.supplierID.equals(supplierID)) {
-                    items.add(convertToItem(dto));
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error finding items by supplier: " + e.getMessage());
+        for (ItemDTO dto : store.findBy(BY_SUPPLIER, supplierID)) {
+            items.add(convertToItem(dto));
+        }
+        
+        return items;
+    }
+    
+    /**
+     * Find one page of items in file order without converting the rest
+     * @param descending Whether to start from the end of the file
+     * @param offset Number of items to skip
+     * @param limit Maximum number of items
+     * @return Items on the page
+     */
+    public List<Item> findPage(boolean descending, int offset, int limit) {
+        List<Item> items = new ArrayList<>();
+        
+        for (ItemDTO dto : store.findPage(null, descending, null, null, offset, limit)) {
+            items.add(convertToItem(dto));
         }
         
         return items;
     }
     
     /**
-     * Find items with stock below minimum levels
+     * Count all items without loading them
+     * @return Number of items
+     */
+    public int count() {
+        return store.size();
+    }
+    
+    /**
+     * Find items with stock at or below minimum levels
+     * Reads the lowStock index, which is kept up to date on every stock change.
      * @return List of items that need reordering
      */
     public List<Item> findLowStockItems() {
         List<Item> items = new ArrayList<>();
         
-        try {
-            List<ItemDTO> itemDTOs = readItemsFromFile();
-            
-            for (ItemDTO dto : itemDTOs) {
-                if (dto.currentStock <= dto.minimumStock) {
-                    items.add(convertToItem(dto));
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error finding low stock items: " + e.getMessage());
+        for (ItemDTO dto : store.findBy(BY_LOW_STOCK, Boolean.TRUE)) {
+            items.add(convertToItem(dto));
         }
         
         return items;
     }
     
     /**
-     * Update stock level of an item
+     * Update stock level of an item as a manual adjustment
      * @param itemID Item ID to update
      * @param quantity Quantity change (positive for additions, negative for deductions)
      * @return true if successful, false otherwise
      */
     public boolean updateStock(String itemID, int quantity) {
-        Item item = findById(itemID);
-        
-        if (item != null) {
-            item.updateStock(quantity);
-            return update(item);
-        }
-        
-        return false;
+        return updateStock(itemID, quantity, StockLedger.MovementType.ADJUSTMENT, null);
+    }
+    
+    /**
+     * Update stock level of an item through the StockLedger
+     * Deductions fail if they would take stock that is not available (on hand minus reserved)
+     * @param itemID Item ID to update
+     * @param quantity Quantity change (positive for additions, negative for deductions)
+     * @param type Reason recorded in the stock movement journal
+     * @param reference Related document ID (e.g. PO ID), or null
+     * @return true if successful, false otherwise
+     */
+    public boolean updateStock(String itemID, int quantity, StockLedger.MovementType type, String reference) {
+        return StockLedger.getInstance().adjust(itemID, quantity, type, reference);
     }
     
     /**
@@ -210,69 +173,24 @@ public class ItemRepository implements Repository<Item> {
      * @return Next available item ID
      */
     public String generateItemId() {
-        List<Item> items = findAll();
-        
-        // Find the highest existing ID
-        int highestId = 0;
-        for (Item item : items) {
-            String id = item.getItemID();
-            if (id.startsWith("IT")) {
-                try {
-                    int num = Integer.parseInt(id.substring(2));
-                    if (num > highestId) {
-                        highestId = num;
-                    }
-                } catch (NumberFormatException ignored) {}
-            }
-        }
-        
-        // Generate next ID
-        return String.format("IT%03d", highestId + 1);
+        return SequenceAllocator.getInstance().next("IT", store);
     }
-    
+
     /**
-     * Read items from JSON file
-     * @return List of item DTOs
-     * @throws IOException if file error occurs
+     * Get the item ID that will most likely be generated next, without using it up
+     * @return Expected next item ID, for display only
      */
-    private List<ItemDTO> readItemsFromFile() throws IOException {
-        File file = new File(filePath);
-        
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
-        
-        FileReader reader = new FileReader(file);
-        Type listType = new TypeToken<ArrayList<ItemDTO>>(){}.getType();
-        List<ItemDTO> itemDTOs = gson.fromJson(reader, listType);
-        reader.close();
-        
-        // Handle null case when file is empty or invalid
-        if (itemDTOs == null) {
-            return new ArrayList<>();
-        }
-        
-        return itemDTOs;
+    public String peekNextItemId() {
+        return SequenceAllocator.getInstance().peek("IT", store);
     }
     
     /**
-     * Write items to JSON file
-     * @param itemDTOs List of item DTOs to write
-     * @throws IOException if file error occurs
+     * Get the shared store for the items file
+     * @return Item store
      */
-    private void writeItemsToFile(List<ItemDTO> itemDTOs) throws IOException {
-        File file = new File(filePath);
-        
-        // Create directory if it doesn't exist
-        File parentDir = file.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs();
-        }
-        
-        FileWriter writer = new FileWriter(file);
-        gson.toJson(itemDTOs, writer);
-        writer.flush();
-        writer.close();
+    static EntityStore<ItemDTO> itemStore() {
+        // Combined items and inventory
+        return EntityStore.of(Constants.ITEM_FILE, ItemDTO.class, dto -> dto.itemID, false);
     }
     
     /**
@@ -0,0 +1,81 @@
+package com.owsb.repository;
+
+import com.owsb.dto.ItemDTO;
+import com.owsb.repository.event.ChangeBus;
+import com.owsb.repository.event.LowStockEvent;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.StoreListener;
+
+/**
+ * Publishes a LowStockEvent whenever an item crosses its minimum stock level
+ * Compares each changed item with its previous state, so the work done per stock change does not
+ * depend on the size of the catalogue. The set of low stock items itself is the items store's
+ * lowStock index, which follows the same changes.
+ *
+ * Callbacks run under the store lock. Events raised inside a transaction are held back until it
+ * commits; changes written by other instances are reported when the store reloads them.
+ */
+class LowStockWatch implements StoreListener<ItemDTO> {
+    private static LowStockWatch instance;
+
+    // Items already loaded when the watch is attached are not new crossings
+    private volatile boolean attached = false;
+
+    private LowStockWatch() {
+    }
+
+    /**
+     * Start watching the items store, once per process
+     * @param store Items store
+     */
+    static synchronized void attach(EntityStore<ItemDTO> store) {
+        if (instance == null) {
+            instance = new LowStockWatch();
+            // Load the file first so the items already in it arrive while not yet attached
+            store.size();
+            store.addListener(instance);
+            instance.attached = true;
+        }
+    }
+
+    /**
+     * Whether an item is at or below its minimum level, as in Item.isLowStock
+     * @param dto Item
+     * @return true if low on stock
+     */
+    static boolean isLow(ItemDTO dto) {
+        return dto.currentStock <= dto.minimumStock;
+    }
+
+    @Override
+    public void add(String id, ItemDTO entity) {
+        if (attached && isLow(entity)) {
+            publish(id, entity, true);
+        }
+    }
+
+    @Override
+    public void remove(String id, ItemDTO entity) {
+        // A deleted item no longer needs reordering
+        if (isLow(entity)) {
+            publish(id, entity, false);
+        }
+    }
+
+    @Override
+    public void update(String id, ItemDTO oldEntity, ItemDTO newEntity) {
+        boolean low = isLow(newEntity);
+        if (low != isLow(oldEntity)) {
+            publish(id, newEntity, low);
+        }
+    }
+
+    @Override
+    public void clear() {
+        // Nothing cached
+    }
+
+    private void publish(String id, ItemDTO dto, boolean low) {
+        ChangeBus.getInstance().publish(new LowStockEvent(id, low, dto.currentStock, dto.minimumStock));
+    }
+}
@@ -0,0 +1,203 @@
+package com.owsb.repository;
+
+import com.owsb.model.message.Message;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.StoreListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Inbox indexes over the messages store
+ * Keeps the messages received by each role and sent by each user newest first, plus the unread
+ * messages of each role, in step with every store change. Counting unread messages is a lookup
+ * and reading a page of an inbox touches only that page.
+ *
+ * Callbacks run under the store lock and then take this monitor; queries hold only this monitor,
+ * so callers fetch the messages themselves after getting their IDs.
+ */
+class MessageInbox implements StoreListener<Message> {
+    // Newest first; IDs break ties between messages sent in the same second
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator
+            .comparing((Entry e) -> e.timestamp, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(e -> e.messageID, Comparator.reverseOrder());
+
+    private static MessageInbox instance;
+
+    /**
+     * Position of a message in the inbox indexes
+     */
+    private static class Entry {
+        final String messageID;
+        final String timestamp;
+        final String senderID;
+        final String receiverRole;
+
+        Entry(Message message) {
+            this.messageID = message.getMessageID();
+            this.timestamp = message.getTimestamp();
+            this.senderID = message.getSenderID();
+            this.receiverRole = message.getReceiverRole();
+        }
+    }
+
+    private final Map<String, NavigableSet<Entry>> byReceiverRole = new HashMap<>();
+    private final Map<String, NavigableSet<Entry>> bySender = new HashMap<>();
+    private final Map<String, Set<String>> unreadByReceiverRole = new HashMap<>();
+    // Messages counted in both lists: sent by a user to a role, keyed by sender and role
+    private final Map<List<String>, Integer> sentToRole = new HashMap<>();
+
+    private MessageInbox() {
+    }
+
+    /**
+     * Get the inbox of a messages store, building it on first use
+     * @param store Messages store
+     * @return Inbox kept in step with the store
+     */
+    static synchronized MessageInbox of(EntityStore<Message> store) {
+        if (instance == null) {
+            instance = new MessageInbox();
+            store.addListener(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Get the IDs of one page of the messages received by a role or sent by a user, newest first
+     * @param receiverRole Receiver role
+     * @param senderID Sender ID
+     * @param offset Number of messages to skip
+     * @param limit Maximum number of IDs
+     * @return Message IDs
+     */
+    synchronized List<String> page(String receiverRole, String senderID, int offset, int limit) {
+        Iterator<Entry> received = entries(byReceiverRole, receiverRole).iterator();
+        Iterator<Entry> sent = entries(bySender, senderID).iterator();
+        Entry nextReceived = received.hasNext() ? received.next() : null;
+        Entry nextSent = sent.hasNext() ? sent.next() : null;
+
+        // Merge the two sorted lists, skipping sent messages the role also received
+        List<String> ids = new ArrayList<>(Math.min(limit, 64));
+        int skipped = 0;
+        while (ids.size() < limit && (nextReceived != null || nextSent != null)) {
+            Entry next;
+            if (nextSent == null || (nextReceived != null && NEWEST_FIRST.compare(nextReceived, nextSent) <= 0)) {
+                next = nextReceived;
+                nextReceived = received.hasNext() ? received.next() : null;
+            } else {
+                next = nextSent;
+                nextSent = sent.hasNext() ? sent.next() : null;
+                if (next.receiverRole != null && next.receiverRole.equals(receiverRole)) {
+                    continue;
+                }
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                ids.add(next.messageID);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Count the messages received by a role or sent by a user
+     * @param receiverRole Receiver role
+     * @param senderID Sender ID
+     * @return Number of distinct messages
+     */
+    synchronized int count(String receiverRole, String senderID) {
+        return entries(byReceiverRole, receiverRole).size() + entries(bySender, senderID).size()
+                - sentToRole.getOrDefault(Arrays.asList(senderID, receiverRole), 0);
+    }
+
+    /**
+     * @param receiverRole Receiver role
+     * @return Number of unread messages for the role
+     */
+    synchronized int countUnread(String receiverRole) {
+        Set<String> unread = unreadByReceiverRole.get(receiverRole);
+        return unread != null ? unread.size() : 0;
+    }
+
+    /**
+     * @param receiverRole Receiver role
+     * @return IDs of the unread messages for the role
+     */
+    synchronized List<String> unreadIds(String receiverRole) {
+        Set<String> unread = unreadByReceiverRole.get(receiverRole);
+        return unread != null ? new ArrayList<>(unread) : new ArrayList<>();
+    }
+
+    @Override
+    public synchronized void add(String id, Message message) {
+        Entry entry = new Entry(message);
+        file(byReceiverRole, entry.receiverRole, entry);
+        file(bySender, entry.senderID, entry);
+        if (entry.senderID != null && entry.receiverRole != null) {
+            sentToRole.merge(Arrays.asList(entry.senderID, entry.receiverRole), 1, Integer::sum);
+        }
+        if (!message.isRead() && entry.receiverRole != null) {
+            unreadByReceiverRole.computeIfAbsent(entry.receiverRole, k -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String id, Message message) {
+        Entry entry = new Entry(message);
+        unfile(byReceiverRole, entry.receiverRole, entry);
+        unfile(bySender, entry.senderID, entry);
+        sentToRole.computeIfPresent(Arrays.asList(entry.senderID, entry.receiverRole),
+                (k, count) -> count > 1 ? count - 1 : null);
+        Set<String> unread = unreadByReceiverRole.get(entry.receiverRole);
+        if (unread != null) {
+            unread.remove(id);
+        }
+    }
+
+    @Override
+    public synchronized void update(String id, Message oldMessage, Message newMessage) {
+        remove(id, oldMessage);
+        add(id, newMessage);
+    }
+
+    @Override
+    public synchronized void clear() {
+        byReceiverRole.clear();
+        bySender.clear();
+        unreadByReceiverRole.clear();
+        sentToRole.clear();
+    }
+
+    private static NavigableSet<Entry> entries(Map<String, NavigableSet<Entry>> index, String key) {
+        NavigableSet<Entry> entries = key != null ? index.get(key) : null;
+        return entries != null ? entries : Collections.emptyNavigableSet();
+    }
+
+    private static void file(Map<String, NavigableSet<Entry>> index, String key, Entry entry) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new TreeSet<>(NEWEST_FIRST)).add(entry);
+        }
+    }
+
+    private static void unfile(Map<String, NavigableSet<Entry>> index, String key, Entry entry) {
+        NavigableSet<Entry> entries = key != null ? index.get(key) : null;
+        if (entries != null) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -1,34 +1,35 @@
 package com.owsb.repository;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import com.owsb.model.message.Message;
+import com.owsb.repository.event.ChangeBus;
+import com.owsb.repository.event.MessageArrivedEvent;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.SequenceAllocator;
+import com.owsb.repository.storage.Transaction;
 import com.owsb.util.Constants;
+import com.owsb.util.FileUtils;
 import com.owsb.util.UserRole;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Repository for managing system messages
  */
 public class MessageRepository {
-    private final Gson gson;
-    private final String filePath;
+    private static final String BY_RECEIVER_ROLE = "receiverRole";
+    private static final String BY_SENDER = "senderID";
+
+    private final EntityStore<Message> store;
+    private final MessageInbox inbox;
     
     /**
      * Constructor
      */
     public MessageRepository() {
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-        this.filePath = Constants.MESSAGES_FILE;
+        String filePath = Constants.MESSAGES_FILE;
         
         // Create empty file if it doesn't exist
         try {
@@ -38,15 +39,17 @@ public class MessageRepository {
                 if (parentDir != null && !parentDir.exists()) {
                     parentDir.mkdirs();
                 }
-                file.createNewFile();
-                // Write empty array to file
-                FileWriter writer = new FileWriter(file);
-                writer.write("[]");
-                writer.close();
+                // Write empty array by rename, so another instance never reads a half-created file
+                FileUtils.writeListToJsonAtomically(filePath, new ArrayList<>());
             }
         } catch (IOException e) {
             System.err.println("Error creating messages file: " + e.getMessage());
         }
+        
+        this.store = EntityStore.of(filePath, Message.class, Message::getMessageID, true);
+        store.defineIndex(BY_RECEIVER_ROLE, Message::getReceiverRole);
+        store.defineIndex(BY_SENDER, Message::getSenderID);
+        this.inbox = MessageInbox.of(store);
     }
     
     /**
@@ -54,12 +57,7 @@ public class MessageRepository {
      * @return List of all messages
      */
     public List<Message> findAll() {
-        try {
-            return readMessagesFromFile();
-        } catch (IOException e) {
-            System.err.println("Error reading messages: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return store.findAll();
     }
     
     /**
@@ -68,15 +66,7 @@ public class MessageRepository {
      * @return List of messages for that role
      */
     public List<Message> findByReceiverRole(UserRole role) {
-        try {
-            List<Message> messages = readMessagesFromFile();
-            return messages.stream()
-                    .filter(m -> m.getReceiverRole().equals(role.name()))
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            System.err.println("Error finding messages by role: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return store.findBy(BY_RECEIVER_ROLE, role.name());
     }
     
     /**
@@ -85,15 +75,42 @@ public class MessageRepository {
      * @return List of unread messages for that role
      */
     public List<Message> findUnreadByReceiverRole(UserRole role) {
-        try {
-            List<Message> messages = readMessagesFromFile();
-            return messages.stream()
-                    .filter(m -> m.getReceiverRole().equals(role.name()) && !m.isRead())
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            System.err.println("Error finding unread messages: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        store.refresh();
+        return fetch(inbox.unreadIds(role.name()));
+    }
+    
+    /**
+     * Count unread messages by receiver role without loading them
+     * @param role Receiver role
+     * @return Number of unread messages for that role
+     */
+    public int countUnreadByReceiverRole(UserRole role) {
+        store.refresh();
+        return inbox.countUnread(role.name());
+    }
+    
+    /**
+     * Find one page of the messages received by a role or sent by a user, newest first
+     * @param role Receiver role
+     * @param senderID Sender ID
+     * @param offset Number of messages to skip
+     * @param limit Maximum number of messages
+     * @return Messages on the page
+     */
+    public List<Message> findInboxPage(UserRole role, String senderID, int offset, int limit) {
+        store.refresh();
+        return fetch(inbox.page(role.name(), senderID, offset, limit));
+    }
+    
+    /**
+     * Count the messages received by a role or sent by a user
+     * @param role Receiver role
+     * @param senderID Sender ID
+     * @return Number of messages
+     */
+    public int countInbox(UserRole role, String senderID) {
+        store.refresh();
+        return inbox.count(role.name(), senderID);
     }
     
     /**
@@ -102,24 +119,12 @@ public class MessageRepository {
      * @return true if saved successfully
      */
     public boolean save(Message message) {
-        try {
-            List<Message> messages = readMessagesFromFile();
-            
-            // Check for duplicates
-            boolean exists = messages.stream()
-                    .anyMatch(m -> m.getMessageID().equals(message.getMessageID()));
-            
-            if (exists) {
-                return false;
-            }
-            
-            messages.add(message);
-            writeMessagesToFile(messages);
-            return true;
-        } catch (IOException e) {
-            System.err.println("Error saving message: " + e.getMessage());
+        // Store rejects duplicate IDs
+        if (!store.insert(message)) {
             return false;
         }
+        ChangeBus.getInstance().publish(new MessageArrivedEvent(store.findById(message.getMessageID())));
+        return true;
     }
     
     /**
@@ -128,27 +133,7 @@ public class MessageRepository {
      * @return true if updated successfully
      */
     public boolean update(Message message) {
-        try {
-            List<Message> messages = readMessagesFromFile();
-            boolean updated = false;
-            
-            for (int i = 0; i < messages.size(); i++) {
-                if (messages.get(i).getMessageID().equals(message.getMessageID())) {
-                    messages.set(i, message);
-                    updated = true;
-                    break;
-                }
-            }
-            
-            if (updated) {
-                writeMessagesToFile(messages);
-                return true;
-            }
-            return false;
-        } catch (IOException e) {
-            System.err.println("Error updating message: " + e.getMessage());
-            return false;
-        }
+        return store.update(message);
     }
     
     /**
@@ -157,27 +142,38 @@ public class MessageRepository {
      * @return true if marked successfully
      */
     public boolean markAsRead(String messageID) {
-        try {
-            List<Message> messages = readMessagesFromFile();
-            boolean updated = false;
-            
-            for (Message message : messages) {
-                if (message.getMessageID().equals(messageID)) {
+        Message message = store.findById(messageID);
+        if (message == null) {
+            return false;
+        }
+        
+        message.setRead(true);
+        return store.update(message);
+    }
+    
+    /**
+     * Mark all unread messages for a role as read in one transaction
+     * @param role Receiver role
+     * @return true if all were marked
+     */
+    public boolean markAllAsRead(UserRole role) {
+        store.refresh();
+        List<String> unreadIds = inbox.unreadIds(role.name());
+        if (unreadIds.isEmpty()) {
+            return true;
+        }
+        // One journal write for the whole batch instead of one file write per message
+        return Transaction.execute(() -> {
+            for (String messageID : unreadIds) {
+                if (!store.modify(messageID, message -> {
                     message.setRead(true);
-                    updated = true;
-                    break;
+                    return message;
+                })) {
+                    return false;
                 }
             }
-            
-            if (updated) {
-                writeMessagesToFile(messages);
-                return true;
-            }
-            return false;
-        } catch (IOException e) {
-            System.err.println("Error marking message as read: " + e.getMessage());
-            return false;
-        }
+            return true;
+        });
     }
     
     /**
@@ -186,27 +182,7 @@ public class MessageRepository {
      * @return true if deleted successfully
      */
     public boolean delete(String messageID) {
-        try {
-            List<Message> messages = readMessagesFromFile();
-            boolean removed = false;
-            
-            for (int i = 0; i < messages.size(); i++) {
-                if (messages.get(i).getMessageID().equals(messageID)) {
-                    messages.remove(i);
-                    removed = true;
-                    break;
-                }
-            }
-            
-            if (removed) {
-                writeMessagesToFile(messages);
-                return true;
-            }
-            return false;
-        } catch (IOException e) {
-            System.err.println("Error deleting message: " + e.getMessage());
-            return false;
-        }
+        return store.delete(messageID);
     }
     
     /**
@@ -214,90 +190,31 @@ public class MessageRepository {
      * @return New message ID
      */
     public String generateMessageId() {
-        try {
-            List<Message> messages = readMessagesFromFile();
-            
-            // Find the highest existing ID
-            int highestId = 0;
-            for (Message message : messages) {
-                String id = message.getMessageID();
-                if (id.startsWith("MSG")) {
-                    try {
-                        int num = Integer.parseInt(id.substring(3));
-                        if (num > highestId) {
-                            highestId = num;
-                        }
-                    } catch (NumberFormatException ignored) {}
-                }
-            }
-            
-            // Generate next ID
-            return String.format("MSG%03d", highestId + 1);
-        } catch (IOException e) {
-            System.err.println("Error generating message ID: " + e.getMessage());
-            return "MSG001"; // Default if error
-        }
-    }
-    
-    /**
-     * Read messages from file
-     * @return List of messages
-     * @throws IOException If file cannot be read
-     */
-    private List<Message> readMessagesFromFile() throws IOException {
-        File file = new File(filePath);
-        
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
-        
-        FileReader reader = new FileReader(file);
-        Type listType = new TypeToken<ArrayList<Message>>(){}.getType();
-        List<Message> messages = gson.fromJson(reader, listType);
-        reader.close();
-        
-        // Handle null case when file is empty or invalid
-        if (messages == null) {
-            return new ArrayList<>();
-        }
-        
-        return messages;
-    }
-    
-    /**
-     * Write messages to file
-     * @param messages List of messages
-     * @throws IOException If file cannot be written
-     */
-    private void writeMessagesToFile(List<Message> messages) throws IOException {
-        File file = new File(filePath);
-        
-        // Create directory if it doesn't exist
-        File parentDir = file.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs();
-        }
-        
-        FileWriter writer = new FileWriter(file);
-        gson.toJson(messages, writer);
-        writer.flush();
-        writer.close();
+        return SequenceAllocator.getInstance().next("MSG", store);
     }
 
-        /**
+    /**
      * Find messages by sender ID
      * @param senderID Sender ID
      * @return List of messages from that sender
      */
     public List<Message> findBySenderId(String senderID) {
-        try {
-            List<Message> messages = readMessagesFromFile();
-            return messages.stream()
-                    .filter(m -> m.getSenderID().equals(senderID))
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            System.err.println("Error finding messages by sender: " + e.getMessage());
-            return new ArrayList<>();
+        return store.findBy(BY_SENDER, senderID);
+    }
+    
+    /**
+     * Load messages by ID, skipping any deleted meanwhile
+     * @param ids Message IDs
+     * @return Messages in the same order
+     */
+    private List<Message> fetch(List<String> ids) {
+        List<Message> messages = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Message message = store.findById(id);
+            if (message != null) {
+                messages.add(message);
+            }
         }
+        return messages;
     }
 }
\ No newline at end of file
@@ -1,20 +1,35 @@
 package com.owsb.repository;
 
 import com.owsb.model.finance.Payment;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.SequenceAllocator;
 import com.owsb.util.Constants;
-import com.owsb.util.FileUtils;
 
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Repository for Payment entities
  * Implements the Repository interface demonstrating polymorphism
  */
 public class PaymentRepository implements Repository<Payment> {
+    private static final String BY_PO = "poID";
+    private static final String BY_SUPPLIER = "supplierID";
+    private static final String BY_STATUS = "status";
+    private static final String BY_DATE = "date";
+
+    private final EntityStore<Payment> store;
+    
+    /**
+     * Constructor attaches to the shared in-memory store for the payments file
+     */
+    public PaymentRepository() {
+        this.store = EntityStore.of(Constants.PAYMENTS_FILE, Payment.class, Payment::getPaymentID, true);
+        store.defineIndex(BY_PO, Payment::getPoID);
+        store.defineIndex(BY_SUPPLIER, Payment::getSupplierID);
+        store.defineIndex(BY_STATUS, Payment::getStatus);
+        store.defineSortedIndex(BY_DATE, Payment::getDate);
+    }
     
     /**
      * Find all payments
@@ -22,15 +37,7 @@ public class PaymentRepository implements Repository<Payment> {
      */
     @Override
     public List<Payment> findAll() {
-        try {
-            Type type = FileUtils.getListType(Payment.class);
-            List<Payment> payments = FileUtils.readListFromJson(Constants.PAYMENTS_FILE, type);
-            
-            return payments != null ? payments : new ArrayList<>();
-        } catch (IOException e) {
-            System.err.println("Error reading payments: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return store.findAll();
     }
     
     /**
@@ -40,11 +47,7 @@ public class PaymentRepository implements Repository<Payment> {
      */
     @Override
     public Payment findById(String id) {
-        List<Payment> payments = findAll();
-        return payments.stream()
-                .filter(payment -> payment.getPaymentID().equals(id))
-                .findFirst()
-                .orElse(null);
+        return store.findById(id);
     }
     
     /**
@@ -54,15 +57,8 @@ public class PaymentRepository implements Repository<Payment> {
      */
     @Override
     public boolean save(Payment entity) {
-        List<Payment> payments = findAll();
-        
-        // Check for duplicate ID
-        if (payments.stream().anyMatch(payment -> payment.getPaymentID().equals(entity.getPaymentID()))) {
-            return false;
-        }
-        
-        payments.add(entity);
-        return saveList(payments);
+        // Store rejects duplicate IDs
+        return store.insert(entity);
     }
     
     /**
@@ -72,18 +68,7 @@ public class PaymentRepository implements Repository<Payment> {
      */
     @Override
     public boolean update(Payment entity) {
-        List<Payment> payments = findAll();
-        
-        boolean found = false;
-        for (int i = 0; i < payments.size(); i++) {
-            if (payments.get(i).getPaymentID().equals(entity.getPaymentID())) {
-                payments.set(i, entity);
-                found = true;
-                break;
-            }
-        }
-        
-        return found && saveList(payments);
+        return store.update(entity);
     }
     
     /**
@@ -93,14 +78,7 @@ public class PaymentRepository implements Repository<Payment> {
      */
     @Override
     public boolean delete(String id) {
-        List<Payment> payments = findAll();
-        int originalSize = payments.size();
-        
-        payments = payments.stream()
-                .filter(payment -> !payment.getPaymentID().equals(id))
-                .collect(Collectors.toList());
-        
-        return (payments.size() < originalSize) && saveList(payments);
+        return store.delete(id);
     }
     
     /**
@@ -109,9 +87,7 @@ public class PaymentRepository implements Repository<Payment> {
      * @return List of payments for the specified PO
      */
     public List<Payment> findByPurchaseOrder(String poId) {
-        return findAll().stream()
-                .filter(payment -> payment.getPoID().equals(poId))
-                .collect(Collectors.toList());
+        return store.findBy(BY_PO, poId);
     }
     
     /**
@@ -120,9 +96,7 @@ public class PaymentRepository implements Repository<Payment> {
      * @return List of payments for the specified supplier
      */
     public List<Payment> findBySupplier(String supplierId) {
-        return findAll().stream()
-                .filter(payment -> payment.getSupplierID().equals(supplierId))
-                .collect(Collectors.toList());
+        return store.findBy(BY_SUPPLIER, supplierId);
     }
     
     /**
@@ -131,44 +105,47 @@ public class PaymentRepository implements Repository<Payment> {
      * @return List of payments with the specified status
      */
     public List<Payment> findByStatus(Payment.Status status) {
-        return findAll().stream()
-                .filter(payment -> payment.getStatus() == status)
-                .collect(Collectors.toList());
+        return store.findBy(BY_STATUS, status);
     }
     
     /**
-     * Generate a new unique payment ID
-     * @return New payment ID
+     * Find one page of payments without loading the rest
+     * @param status Only payments with this status, or null for all
+     * @param byDate Order by payment date instead of file order
+     * @param descending Whether to reverse the order
+     * @param offset Number of payments to skip
+     * @param limit Maximum number of payments
+     * @return Payments on the page
      */
-    public String generateNewPaymentID() {
-        List<Payment> payments = findAll();
-        
-        if (payments.isEmpty()) {
-            return "PAY001";
-        }
-        
-        // Find the highest payment ID number
-        int maxId = payments.stream()
-                .map(payment -> Integer.parseInt(payment.getPaymentID().substring(3)))
-                .max(Integer::compare)
-                .orElse(0);
-        
-        // Generate the next ID
-        return String.format("PAY%03d", maxId + 1);
+    public List<Payment> findPage(Payment.Status status, boolean byDate, boolean descending, int offset, int limit) {
+        return store.findPage(byDate ? BY_DATE : null, descending, status != null ? BY_STATUS : null, status,
+                offset, limit);
     }
     
     /**
-     * Save the list of payments to the file
-     * @param payments List of payments to save
-     * @return true if saved successfully
+     * Count payments without loading them
+     * @param status Only payments with this status, or null for all
+     * @return Number of payments
+     */
+    public int countByStatus(Payment.Status status) {
+        return status != null ? store.countBy(BY_STATUS, status) : store.size();
+    }
+    
+    /**
+     * Find payments made within a date range, oldest first
+     * @param from Start date (inclusive), or null for no lower bound
+     * @param to End date (exclusive), or null for no upper bound
+     * @return List of payments in the range
+     */
+    public List<Payment> findByDateRange(Date from, Date to) {
+        return store.findInRange(BY_DATE, from, to);
+    }
+    
+    /**
+     * Generate a new unique payment ID
+     * @return New payment ID
      */
-    private boolean saveList(List<Payment> payments) {
-        try {
-            FileUtils.writeListToJson(Constants.PAYMENTS_FILE, payments);
-            return true;
-        } catch (IOException e) {
-            System.err.println("Error saving payments: " + e.getMessage());
-            return false;
-        }
+    public String generateNewPaymentID() {
+        return SequenceAllocator.getInstance().next("PAY", store);
     }
 }
\ No newline at end of file
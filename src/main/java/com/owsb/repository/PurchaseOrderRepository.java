@@ -1,20 +1,37 @@
 package com.owsb.repository;
 
 import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.repository.event.ChangeBus;
+import com.owsb.repository.event.PurchaseOrderStatusChangedEvent;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.SequenceAllocator;
 import com.owsb.util.Constants;
-import com.owsb.util.FileUtils;
 
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Repository for PurchaseOrder entities
  * Implements the Repository interface demonstrating polymorphism
  */
 public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
+    private static final String BY_PURCHASE_MANAGER = "purchaseManagerID";
+    private static final String BY_STATUS = "status";
+    private static final String BY_PR = "prID";
+    private static final String BY_DATE = "date";
+
+    private final EntityStore<PurchaseOrder> store;
+    
+    /**
+     * Constructor attaches to the shared in-memory store for the purchase orders file
+     */
+    public PurchaseOrderRepository() {
+        this.store = EntityStore.of(Constants.PO_FILE, PurchaseOrder.class, PurchaseOrder::getPoID, true);
+        store.defineIndex(BY_PURCHASE_MANAGER, PurchaseOrder::getPurchaseManagerID);
+        store.defineIndex(BY_STATUS, PurchaseOrder::getStatus);
+        store.defineIndex(BY_PR, PurchaseOrder::getPrID);
+        store.defineSortedIndex(BY_DATE, PurchaseOrder::getDate);
+    }
     
     /**
      * Find all purchase orders
@@ -22,15 +39,7 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      */
     @Override
     public List<PurchaseOrder> findAll() {
-        try {
-            Type type = FileUtils.getListType(PurchaseOrder.class);
-            List<PurchaseOrder> orders = FileUtils.readListFromJson(Constants.PO_FILE, type);
-            
-            return orders != null ? orders : new ArrayList<>();
-        } catch (IOException e) {
-            System.err.println("Error reading purchase orders: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return store.findAll();
     }
     
     /**
@@ -40,11 +49,7 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      */
     @Override
     public PurchaseOrder findById(String id) {
-        List<PurchaseOrder> orders = findAll();
-        return orders.stream()
-                .filter(po -> po.getPoID().equals(id))
-                .findFirst()
-                .orElse(null);
+        return store.findById(id);
     }
     
     /**
@@ -54,15 +59,13 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      */
     @Override
     public boolean save(PurchaseOrder entity) {
-        List<PurchaseOrder> orders = findAll();
-        
-        // Check for duplicate ID
-        if (orders.stream().anyMatch(po -> po.getPoID().equals(entity.getPoID()))) {
+        // Store rejects duplicate IDs
+        if (!store.insert(entity)) {
             return false;
         }
-        
-        orders.add(entity);
-        return saveList(orders);
+        ChangeBus.getInstance().publish(new PurchaseOrderStatusChangedEvent(entity.getPoID(), null,
+                store.findById(entity.getPoID())));
+        return true;
     }
     
     /**
@@ -72,18 +75,15 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      */
     @Override
     public boolean update(PurchaseOrder entity) {
-        List<PurchaseOrder> orders = findAll();
-        
-        boolean found = false;
-        for (int i = 0; i < orders.size(); i++) {
-            if (orders.get(i).getPoID().equals(entity.getPoID())) {
-                orders.set(i, entity);
-                found = true;
-                break;
-            }
+        PurchaseOrder before = store.findById(entity.getPoID());
+        if (!store.update(entity)) {
+            return false;
         }
-        
-        return found && saveList(orders);
+        if (before.getStatus() != entity.getStatus()) {
+            ChangeBus.getInstance().publish(new PurchaseOrderStatusChangedEvent(entity.getPoID(),
+                    before.getStatus(), store.findById(entity.getPoID())));
+        }
+        return true;
     }
     
     /**
@@ -93,14 +93,12 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      */
     @Override
     public boolean delete(String id) {
-        List<PurchaseOrder> orders = findAll();
-        int originalSize = orders.size();
-        
-        orders = orders.stream()
-                .filter(po -> !po.getPoID().equals(id))
-                .collect(Collectors.toList());
-        
-        return (orders.size() < originalSize) && saveList(orders);
+        PurchaseOrder before = store.findById(id);
+        if (!store.delete(id)) {
+            return false;
+        }
+        ChangeBus.getInstance().publish(new PurchaseOrderStatusChangedEvent(id, before.getStatus(), null));
+        return true;
     }
     
     /**
@@ -109,9 +107,7 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      * @return List of POs created by the specified purchase manager
      */
     public List<PurchaseOrder> findByPurchaseManager(String purchaseManagerID) {
-        return findAll().stream()
-                .filter(po -> po.getPurchaseManagerID().equals(purchaseManagerID))
-                .collect(Collectors.toList());
+        return store.findBy(BY_PURCHASE_MANAGER, purchaseManagerID);
     }
     
     /**
@@ -120,9 +116,31 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      * @return List of POs with the specified status
      */
     public List<PurchaseOrder> findByStatus(Constants.PurchaseOrderStatus status) {
-        return findAll().stream()
-                .filter(po -> po.getStatus() == status)
-                .collect(Collectors.toList());
+        return store.findBy(BY_STATUS, status);
+    }
+    
+    /**
+     * Find one page of purchase orders without loading the rest
+     * @param status Only POs with this status, or null for all
+     * @param byDate Order by PO date instead of file order
+     * @param descending Whether to reverse the order
+     * @param offset Number of POs to skip
+     * @param limit Maximum number of POs
+     * @return POs on the page
+     */
+    public List<PurchaseOrder> findPage(Constants.PurchaseOrderStatus status, boolean byDate, boolean descending,
+                                        int offset, int limit) {
+        return store.findPage(byDate ? BY_DATE : null, descending, status != null ? BY_STATUS : null, status,
+                offset, limit);
+    }
+    
+    /**
+     * Count purchase orders without loading them
+     * @param status Only POs with this status, or null for all
+     * @return Number of POs
+     */
+    public int countByStatus(Constants.PurchaseOrderStatus status) {
+        return status != null ? store.countBy(BY_STATUS, status) : store.size();
     }
     
     /**
@@ -131,9 +149,17 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      * @return List of POs associated with the specified PR
      */
     public List<PurchaseOrder> findByPR(String prID) {
-        return findAll().stream()
-                .filter(po -> po.getPrID().equals(prID))
-                .collect(Collectors.toList());
+        return store.findBy(BY_PR, prID);
+    }
+    
+    /**
+     * Find purchase orders created within a date range, oldest first
+     * @param from Start date (inclusive), or null for no lower bound
+     * @param to End date (exclusive), or null for no upper bound
+     * @return List of POs in the range
+     */
+    public List<PurchaseOrder> findByDateRange(Date from, Date to) {
+        return store.findInRange(BY_DATE, from, to);
     }
     
     /**
@@ -141,34 +167,15 @@ public class PurchaseOrderRepository implements Repository<PurchaseOrder> {
      * @return New PO ID
      */
     public String generateNewPOID() {
-        List<PurchaseOrder> orders = findAll();
-        
-        if (orders.isEmpty()) {
-            return "PO001";
-        }
-        
-        // Find the highest PO ID number
-        int maxId = orders.stream()
-                .map(po -> Integer.parseInt(po.getPoID().substring(2)))
-                .max(Integer::compare)
-                .orElse(0);
-        
-        // Generate the next ID
-        return String.format("PO%03d", maxId + 1);
+        return SequenceAllocator.getInstance().next("PO", store);
     }
     
     /**
-     * Save the list of purchase orders to the file
-     * @param orders List of purchase orders to save
-     * @return true if saved successfully
+     * Generate several unique PO IDs at once for a batch of new orders
+     * @param count Number of IDs
+     * @return New PO IDs in ascending order
      */
-    private boolean saveList(List<PurchaseOrder> orders) {
-        try {
-            FileUtils.writeListToJson(Constants.PO_FILE, orders);
-            return true;
-        } catch (IOException e) {
-            System.err.println("Error saving purchase orders: " + e.getMessage());
-            return false;
-        }
+    public List<String> generateNewPOIDs(int count) {
+        return SequenceAllocator.getInstance().nextBlock("PO", store, count);
     }
 }
\ No newline at end of file
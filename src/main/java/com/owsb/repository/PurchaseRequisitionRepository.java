@@ -2,40 +2,52 @@ package com.owsb.repository;
 
 import com.owsb.model.procurement.PRItem;
 import com.owsb.model.procurement.PurchaseRequisition;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.SequenceAllocator;
 import com.owsb.util.Constants;
-import com.owsb.util.FileUtils;
 
-import java.io.IOException;
-import java.lang.reflect.Type;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Repository for PurchaseRequisition entities
  * Implements the Repository interface demonstrating polymorphism
  */
 public class PurchaseRequisitionRepository implements Repository<PurchaseRequisition> {
+    private static final String BY_SALES_MANAGER = "salesManagerID";
+    private static final String BY_STATUS = "status";
+    private static final String BY_OPEN_ITEM = "openItemIDs";
+
+    private final EntityStore<PurchaseRequisition> store;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
     
+    /**
+     * Constructor attaches to the shared in-memory store for the purchase requisitions file
+     */
+    public PurchaseRequisitionRepository() {
+        this.store = EntityStore.of(Constants.PR_FILE, PurchaseRequisition.class, PurchaseRequisition::getPrID, true);
+        store.defineIndex(BY_SALES_MANAGER, PurchaseRequisition::getSalesManagerID);
+        store.defineIndex(BY_STATUS, PurchaseRequisition::getStatus);
+        // Open demand: a requisition is filed under its items only while it still awaits an order,
+        // so a status change moves it in or out with the update
+        store.defineMultiIndex(BY_OPEN_ITEM, PurchaseRequisitionRepository::openItemIDs);
+    }
+    
     /**
      * Find all purchase requisitions
      * @return List of all purchase requisitions
      */
     @Override
     public List<PurchaseRequisition> findAll() {
-        try {
-            Type type = FileUtils.getListType(PurchaseRequisition.class);
-            List<PurchaseRequisition> requisitions = FileUtils.readListFromJson(Constants.PR_FILE, type);
-            
-            return requisitions != null ? requisitions : new ArrayList<>();
-        } catch (IOException e) {
-            System.err.println("Error reading purchase requisitions: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return store.findAll();
     }
     
     /**
@@ -45,11 +57,7 @@ public class PurchaseRequisitionRepository implements Repository<PurchaseRequisi
      */
     @Override
     public PurchaseRequisition findById(String id) {
-        List<PurchaseRequisition> requisitions = findAll();
-        return requisitions.stream()
-                .filter(pr -> pr.getPrID().equals(id))
-                .findFirst()
-                .orElse(null);
+        return store.findById(id);
     }
     
     /**
@@ -59,15 +67,8 @@ public class PurchaseRequisitionRepository implements Repository<PurchaseRequisi
      */
     @Override
     public boolean save(PurchaseRequisition entity) {
-        List<PurchaseRequisition> requisitions = findAll();
-        
-        // Check for duplicate ID
-        if (requisitions.stream().anyMatch(pr -> pr.getPrID().equals(entity.getPrID()))) {
-            return false;
-        }
-        
-        requisitions.add(entity);
-        return saveList(requisitions);
+        // Store rejects duplicate IDs
+        return store.insert(entity);
     }
     
     /**
@@ -77,18 +78,7 @@ public class PurchaseRequisitionRepository implements Repository<PurchaseRequisi
      */
     @Override
     public boolean update(PurchaseRequisition entity) {
-        List<PurchaseRequisition> requisitions = findAll();
-        
-        boolean found = false;
-        for (int i = 0; i < requisitions.size(); i++) {
-            if (requisitions.get(i).getPrID().equals(entity.getPrID())) {
-                requisitions.set(i, entity);
-                found = true;
-                break;
-            }
-        }
-        
-        return found && saveList(requisitions);
+        return store.update(entity);
     }
     
     /**
@@ -98,14 +88,7 @@ public class PurchaseRequisitionRepository implements Repository<PurchaseRequisi
      */
     @Override
     public boolean delete(String id) {
-        List<PurchaseRequisition> requisitions = findAll();
-        int originalSize = requisitions.size();
-        
-        requisitions = requisitions.stream()
-                .filter(pr -> !pr.getPrID().equals(id))
-                .collect(Collectors.toList());
-        
-        return (requisitions.size() < originalSize) && saveList(requisitions);
+        return store.delete(id);
     }
     
     /**
@@ -114,9 +97,7 @@ public class PurchaseRequisitionRepository implements Repository<PurchaseRequisi
      * @return List of PRs created by the specified sales manager
      */
     public List<PurchaseRequisition> findBySalesManager(String salesManagerID) {
-        return findAll().stream()
-                .filter(pr -> pr.getSalesManagerID().equals(salesManagerID))
-                .collect(Collectors.toList());
+        return store.findBy(BY_SALES_MANAGER, salesManagerID);
     }
     
     /**
@@ -125,45 +106,66 @@ public class PurchaseRequisitionRepository implements Repository<PurchaseRequisi
      * @return List of PRs with the specified status
      */
     public List<PurchaseRequisition> findByStatus(Constants.PurchaseRequisitionStatus status) {
-        return findAll().stream()
-                .filter(pr -> pr.getStatus() == status)
-                .collect(Collectors.toList());
+        return store.findBy(BY_STATUS, status);
     }
     
     /**
-     * Generate a new unique PR ID
-     * @return New PR ID
+     * Find the open purchase requisitions (new or pending approval) that include an item
+     * @param itemID Item ID
+     * @return List of open PRs with at least one line for the item
      */
-    public String generateNewPRID() {
-        List<PurchaseRequisition> requisitions = findAll();
-        
-        if (requisitions.isEmpty()) {
-            return "PR001";
+    public List<PurchaseRequisition> findOpenByItem(String itemID) {
+        return store.findBy(BY_OPEN_ITEM, itemID);
+    }
+
+    /**
+     * Get the quantity of an item requested by open purchase requisitions
+     * @param itemID Item ID
+     * @return Total quantity over all open PR lines for the item
+     */
+    public int findOpenQuantity(String itemID) {
+        int quantity = 0;
+        for (PurchaseRequisition pr : store.findBy(BY_OPEN_ITEM, itemID)) {
+            for (PRItem item : pr.getItems()) {
+                if (item.getItemID().equals(itemID)) {
+                    quantity += item.getQuantity();
+                }
+            }
         }
-        
-        // Find the highest PR ID number
-        int maxId = requisitions.stream()
-                .map(pr -> Integer.parseInt(pr.getPrID().substring(2)))
-                .max(Integer::compare)
-                .orElse(0);
-        
-        // Generate the next ID
-        return String.format("PR%03d", maxId + 1);
+        return quantity;
     }
-    
+
     /**
-     * Save the list of purchase requisitions to the file
-     * @param requisitions List of purchase requisitions to save
-     * @return true if saved successfully
+     * Get the quantities of several items requested by open purchase requisitions
+     * @param itemIDs Item IDs
+     * @return Total open quantity per item, in the order of itemIDs (0 if none is requested)
      */
-    private boolean saveList(List<PurchaseRequisition> requisitions) {
-        try {
-            // FileUtils.createBackup(Constants.PR_FILE);
-            FileUtils.writeListToJson(Constants.PR_FILE, requisitions);
-            return true;
-        } catch (IOException e) {
-            System.err.println("Error saving purchase requisitions: " + e.getMessage());
-            return false;
+    public Map<String, Integer> findOpenQuantities(Collection<String> itemIDs) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String itemID : itemIDs) {
+            result.put(itemID, findOpenQuantity(itemID));
+        }
+        return result;
+    }
+
+    /**
+     * Generate a new unique PR ID
+     * @return New PR ID
+     */
+    public String generateNewPRID() {
+        return SequenceAllocator.getInstance().next("PR", store);
+    }
+
+    private static Set<String> openItemIDs(PurchaseRequisition pr) {
+        if ((pr.getStatus() != Constants.PurchaseRequisitionStatus.NEW
+                && pr.getStatus() != Constants.PurchaseRequisitionStatus.PENDING_APPROVAL)
+                || pr.getItems() == null) {
+            return Collections.emptySet();
+        }
+        Set<String> itemIDs = new HashSet<>();
+        for (PRItem item : pr.getItems()) {
+            itemIDs.add(item.getItemID());
         }
+        return itemIDs;
     }
 }
\ No newline at end of file
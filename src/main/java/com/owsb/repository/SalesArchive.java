@@ -0,0 +1,804 @@
+package com.owsb.repository;
+
+import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.repository.storage.PersistentMap;
+import com.owsb.repository.storage.PersistentSortedMap;
+import com.owsb.repository.storage.ProcessLock;
+import com.owsb.repository.storage.ReadView;
+import com.owsb.repository.storage.StoreListener;
+import com.owsb.repository.storage.codec.RecordCodec;
+import com.owsb.repository.storage.codec.RecordCodecs;
+import com.owsb.repository.storage.codec.StoredFields;
+import com.owsb.util.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Read-mostly store for old sales, kept out of sales.txt so the live store stays small
+ * Sales are appended to data/sales_archive.dat, which is memory-mapped for reading, and located
+ * through an in-memory offset index by sale ID and by date (saved to data/sales_archive.idx so
+ * opening the archive does not scan it). A lookup or date-range read only touches the pages of
+ * the records it returns, decoded straight from the mapped file.
+ *
+ * Records use the binary sale layout of RecordCodecs. Deleting an archived sale appends a
+ * tombstone; archived sales are otherwise never changed in place (an edited sale moves back to
+ * the live store, which takes precedence).
+ *
+ * Instances sharing the data directory append and delete under the archive's ProcessLock, which
+ * counts every write; an instance that sees a new count, or a file length it has not mapped, maps
+ * the file again and reads just the records appended since.
+ *
+ * Because records never change once written, a version of the archive is just the locations of its
+ * sales, by ID (a {@link PersistentMap}) and by date (a {@link PersistentSortedMap}), and the mapping
+ * of the file at the time. Every append and removal publishes one to {@link ReadView}s, which read it
+ * without locking the archive; a date-range read walks just the locations in the range.
+ */
+class SalesArchive {
+    // Oldest first; sales of the same date in the order they were indexed, like byDate
+    private static final Comparator<Location> BY_DATE = Comparator.<Location>comparingLong(location -> location.date)
+            .thenComparingLong(location -> location.sequence);
+    private static final SalesArchive INSTANCE = new SalesArchive(); // After BY_DATE, the constructor uses it
+
+    private static final int MAGIC = 0x4F575341;       // "OWSA"
+    private static final int INDEX_MAGIC = 0x4F575349; // "OWSI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6;          // Magic and version
+    private static final byte SALE = 1;
+    private static final byte TOMBSTONE = 0;
+    private static final int ITEM_NUMBERS_SIZE = 28;   // Quantity, unit price, profit ratio, subtotal
+
+    private final File dataFile = new File(Constants.SALES_ARCHIVE_FILE);
+    private final File indexFile = new File(Constants.SALES_ARCHIVE_INDEX);
+    private final RecordCodec<Sale> codec = RecordCodecs.forClass(Sale.class);
+    // Shared with other instances, plus the generation of the data we hold
+    private final ProcessLock fileLock = new ProcessLock(Constants.SALES_ARCHIVE_FILE);
+    private long knownGeneration = -1;
+
+    // Offset of the record of each live sale, and sale IDs by date (Long.MIN_VALUE for no date)
+    private final Map<String, Long> offsets = new HashMap<>();
+    private final TreeMap<Long, Set<String>> byDate = new TreeMap<>();
+    private MappedByteBuffer buffer;
+    private int end = HEADER_SIZE;                     // End of the last complete record
+    private boolean opened = false;
+    private final List<StoreListener<Sale>> listeners = new ArrayList<>(); // Notified of appends and removals
+
+    // Locations of the archived sales as immutable maps, and the last version published to read views
+    private PersistentMap<String, Location> locations = PersistentMap.empty();
+    private PersistentSortedMap<Location, Location> datedLocations = PersistentSortedMap.empty(BY_DATE);
+    private long nextSequence = 0;
+    private Version published = new Version(PersistentMap.empty(), PersistentSortedMap.empty(BY_DATE), null);
+
+    /**
+     * Record of one archived sale in the data file
+     */
+    private static final class Location {
+        final String saleID;
+        final long offset;
+        final long date;
+        final long sequence; // Order of indexing, to keep sales of the same date apart
+
+        Location(String saleID, long offset, long date, long sequence) {
+            this.saleID = saleID;
+            this.offset = offset;
+            this.date = date;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Archived sales as of one moment
+     * The mapping of the time covers every record in it, since the file only grows.
+     */
+    private static final class Version {
+        final PersistentMap<String, Location> locations;
+        final PersistentSortedMap<Location, Location> byDate;
+        final ByteBuffer data;
+
+        Version(PersistentMap<String, Location> locations, PersistentSortedMap<Location, Location> byDate,
+                ByteBuffer data) {
+            this.locations = locations;
+            this.byDate = byDate;
+            this.data = data;
+        }
+
+        /**
+         * Get the locations of the sales from one date up to another, found by position in the date order
+         * @param from Start date (inclusive), or null for no lower bound
+         * @param to End date (exclusive), or null for no upper bound
+         * @return Locations, oldest first
+         */
+        List<Location> between(Date from, Date to) {
+            int first = from != null ? byDate.rank(bound(from)) : 0;
+            int last = to != null ? byDate.rank(bound(to)) : byDate.size();
+            return byDate.values(first, last);
+        }
+
+        List<Sale> decodeAll(Predicate<Location> filter) {
+            List<Sale> sales = new ArrayList<>();
+            for (Iterator<Location> it = byDate.iterator(0, false); it.hasNext(); ) {
+                Location location = it.next();
+                if (filter.test(location)) {
+                    sales.add(decode(data, location.offset));
+                }
+            }
+            return sales;
+        }
+
+        /**
+         * Key sorting before every sale of a date
+         */
+        private static Location bound(Date date) {
+            return new Location(null, 0, date.getTime(), Long.MIN_VALUE);
+        }
+    }
+
+    private SalesArchive() {
+    }
+
+    /**
+     * Get the shared archive
+     * @return Sales archive
+     */
+    static SalesArchive getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Check whether a sale is archived
+     * @param saleID Sale ID
+     * @return true if archived and not deleted
+     */
+    boolean contains(String saleID) {
+        Version view = viewed();
+        if (view != null) {
+            return view.locations.containsKey(saleID);
+        }
+        synchronized (this) {
+            return open() && offsets.containsKey(saleID);
+        }
+    }
+
+    /**
+     * Get the IDs of all archived sales, oldest first
+     * @return Sale IDs
+     */
+    List<String> ids() {
+        List<String> ids = new ArrayList<>();
+        Version view = viewed();
+        if (view != null) {
+            for (Iterator<Location> it = view.byDate.iterator(0, false); it.hasNext(); ) {
+                ids.add(it.next().saleID);
+            }
+            return ids;
+        }
+        synchronized (this) {
+            if (open()) {
+                byDate.values().forEach(ids::addAll);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Find an archived sale
+     * @param saleID Sale ID
+     * @return Sale, or null if not archived
+     */
+    Sale findById(String saleID) {
+        Version view = viewed();
+        if (view != null) {
+            Location location = view.locations.get(saleID);
+            return location != null ? decode(view.data, location.offset) : null;
+        }
+        synchronized (this) {
+            if (!open()) {
+                return null;
+            }
+            Long offset = offsets.get(saleID);
+            return offset != null ? decode(buffer, offset) : null;
+        }
+    }
+
+    /**
+     * Add a listener notified of every archived sale that is added, replaced or removed
+     * Callbacks run while the archive is locked.
+     * @param listener Listener
+     */
+    synchronized void addListener(StoreListener<Sale> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Visit all archived sales, oldest first, without collecting them in a list
+     * Always reads the archive itself, never a read view: used to fill listeners registered right after.
+     * @param action Receives each sale
+     */
+    synchronized void forEach(Consumer<Sale> action) {
+        if (!open()) {
+            return;
+        }
+        for (Set<String> ids : byDate.values()) {
+            for (String id : ids) {
+                action.accept(decode(buffer, offsets.get(id)));
+            }
+        }
+    }
+
+    /**
+     * Get all archived sales, oldest first
+     * @return Sales
+     */
+    List<Sale> findAll() {
+        return findInRange(null, null);
+    }
+
+    /**
+     * Find archived sales within a date range, oldest first
+     * @param from Start date (inclusive), or null for no lower bound
+     * @param to End date (exclusive), or null for no upper bound
+     * @return Sales in the range
+     */
+    List<Sale> findInRange(Date from, Date to) {
+        Version view = viewed();
+        if (view != null) {
+            List<Sale> sales = new ArrayList<>();
+            for (Location location : view.between(from, to)) {
+                sales.add(decode(view.data, location.offset));
+            }
+            return sales;
+        }
+        synchronized (this) {
+            return findInRangeLocked(from, to);
+        }
+    }
+
+    private List<Sale> findInRangeLocked(Date from, Date to) {
+        List<Sale> sales = new ArrayList<>();
+        if (!open()) {
+            return sales;
+        }
+
+        Map<Long, Set<String>> range;
+        if (from == null && to == null) {
+            range = byDate;
+        } else if (from == null) {
+            range = byDate.headMap(to.getTime(), false);
+        } else if (to == null) {
+            range = byDate.tailMap(from.getTime(), true);
+        } else {
+            range = byDate.subMap(from.getTime(), true, to.getTime(), false);
+        }
+        for (Set<String> ids : range.values()) {
+            for (String id : ids) {
+                sales.add(decode(buffer, offsets.get(id)));
+            }
+        }
+        return sales;
+    }
+
+    /**
+     * Find archived sales containing an item
+     * Only the item IDs of each record are read; matching sales are then decoded in full.
+     * @param itemID Item ID
+     * @return Sales containing the item, oldest first
+     */
+    List<Sale> findByItem(String itemID) {
+        Version view = viewed();
+        if (view != null) {
+            return view.decodeAll(location -> containsItem(view.data, location.offset, itemID));
+        }
+        List<Sale> sales = new ArrayList<>();
+        synchronized (this) {
+            if (!open()) {
+                return sales;
+            }
+            for (Set<String> ids : byDate.values()) {
+                for (String id : ids) {
+                    long offset = offsets.get(id);
+                    if (containsItem(buffer, offset, itemID)) {
+                        sales.add(decode(buffer, offset));
+                    }
+                }
+            }
+        }
+        return sales;
+    }
+
+    /**
+     * Get the number of archived sales
+     * @return Sale count
+     */
+    int size() {
+        Version view = viewed();
+        if (view != null) {
+            return view.locations.size();
+        }
+        synchronized (this) {
+            return open() ? offsets.size() : 0;
+        }
+    }
+
+    /**
+     * Get the version of the archive in the current thread's read view
+     * @return Version to read, or null to read the archive itself
+     */
+    private Version viewed() {
+        ReadView view = ReadView.current();
+        return view != null ? view.versionOf(Constants.SALES_ARCHIVE_FILE, this::latestVersion) : null;
+    }
+
+    private synchronized Version latestVersion() {
+        open();
+        return published;
+    }
+
+    /**
+     * Make the current archive visible to read views taken from now on
+     */
+    private void publish() {
+        if (locations != published.locations) {
+            published = new Version(locations, datedLocations, buffer);
+            ReadView.publish(Collections.singletonMap(Constants.SALES_ARCHIVE_FILE, published));
+        }
+    }
+
+    /**
+     * Append sales to the archive
+     * The data is synced before the index changes, so a crash leaves either the old or the new archive.
+     * @param sales Sales to archive; an ID that is already archived is replaced
+     * @return true if written
+     */
+    synchronized boolean append(Collection<Sale> sales) {
+        if (!open()) {
+            return false;
+        }
+        fileLock.lockExclusive();
+        try {
+            // Offsets follow whatever other instances appended
+            catchUp();
+            Map<Sale, Long> written = writeRecords(sales, null);
+            knownGeneration = fileLock.nextGeneration();
+            remap();
+            for (Map.Entry<Sale, Long> entry : written.entrySet()) {
+                Sale sale = entry.getKey();
+                Long previous = offsets.get(sale.getSaleID());
+                Sale replaced = previous != null && !listeners.isEmpty() ? decode(buffer, previous) : null;
+                unindex(sale.getSaleID());
+                index(sale.getSaleID(), sale.getDate(), entry.getValue());
+                for (StoreListener<Sale> listener : listeners) {
+                    if (replaced != null) {
+                        listener.update(sale.getSaleID(), replaced, sale);
+                    } else {
+                        listener.add(sale.getSaleID(), sale);
+                    }
+                }
+            }
+            publish();
+            saveIndex();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error archiving sales: " + e.getMessage());
+            return false;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Delete an archived sale by appending a tombstone
+     * @param saleID Sale ID
+     * @return true if the sale was archived and is now deleted
+     */
+    synchronized boolean remove(String saleID) {
+        if (!open()) {
+            return false;
+        }
+        fileLock.lockExclusive();
+        try {
+            catchUp();
+            if (!offsets.containsKey(saleID)) {
+                return false;
+            }
+            Sale removed = !listeners.isEmpty() ? decode(buffer, offsets.get(saleID)) : null;
+            writeRecords(new ArrayList<>(), saleID);
+            knownGeneration = fileLock.nextGeneration();
+            remap();
+            unindex(saleID);
+            publish();
+            saveIndex();
+            for (StoreListener<Sale> listener : listeners) {
+                listener.remove(saleID, removed);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error deleting archived sale: " + e.getMessage());
+            return false;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Open the archive on first use, or catch up with other instances' changes after that
+     * @return true if the archive can be read (an absent archive is empty)
+     */
+    private boolean open() {
+        if (opened && fileLock.generation() == knownGeneration && dataFile.length() == mappedLength()) {
+            return true;
+        }
+        fileLock.lockShared();
+        try {
+            if (!opened) {
+                knownGeneration = fileLock.generation();
+                if (dataFile.exists()) {
+                    remap();
+                    if (!loadIndex()) {
+                        rebuildIndex();
+                        saveIndex();
+                    }
+                }
+                opened = true;
+            } else {
+                catchUp();
+            }
+            publish();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error opening sales archive: " + e.getMessage());
+            return false;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Read the records other instances appended since we last looked, telling the listeners
+     * If the file shrank (replaced rather than appended to), everything is read again. Must hold the file lock.
+     */
+    private void catchUp() throws IOException {
+        if (fileLock.generation() == knownGeneration && dataFile.length() == mappedLength()) {
+            return;
+        }
+        knownGeneration = fileLock.generation();
+        ByteBuffer previous = buffer;
+        if (dataFile.exists()) {
+            remap();
+        } else {
+            buffer = null;
+        }
+
+        if (previous != null && buffer != null && buffer.limit() >= end) {
+            end = scan(end, true);
+            return;
+        }
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            for (StoreListener<Sale> listener : listeners) {
+                listener.remove(entry.getKey(), decode(previous, entry.getValue()));
+            }
+        }
+        offsets.clear();
+        byDate.clear();
+        locations = PersistentMap.empty();
+        datedLocations = PersistentSortedMap.empty(BY_DATE);
+        end = buffer != null ? scan(HEADER_SIZE, true) : HEADER_SIZE;
+    }
+
+    private int mappedLength() {
+        return buffer != null ? buffer.limit() : 0;
+    }
+
+    /**
+     * Append sale records, or a tombstone, and sync them
+     * @return Offset of each written sale record
+     */
+    private Map<Sale, Long> writeRecords(Collection<Sale> sales, String tombstoneID) throws IOException {
+        Map<Sale, Long> offsetsWritten = new LinkedHashMap<>();
+        boolean created = !dataFile.exists() || dataFile.length() == 0;
+        long position = created ? HEADER_SIZE : end;
+        if (!created && dataFile.length() > end) {
+            // Drop a record torn by a crash, so the new ones follow the last complete record
+            try (RandomAccessFile file = new RandomAccessFile(dataFile, "rw")) {
+                file.setLength(end);
+            }
+        }
+
+        try (FileOutputStream fileOut = new FileOutputStream(dataFile, true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            if (created) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+            }
+
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream recordOut = new DataOutputStream(record);
+            for (Sale sale : sales) {
+                record.reset();
+                codec.write(recordOut, sale);
+                recordOut.flush();
+                out.writeInt(record.size());
+                out.writeByte(SALE);
+                record.writeTo(out);
+                offsetsWritten.put(sale, position);
+                position += 5 + record.size();
+            }
+            if (tombstoneID != null) {
+                byte[] id = tombstoneID.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(4 + id.length);
+                out.writeByte(TOMBSTONE);
+                out.writeInt(id.length);
+                out.write(id);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        end = (int) dataFile.length();
+        return offsetsWritten;
+    }
+
+    /**
+     * Map the whole data file for reading
+     */
+    private void remap() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(dataFile, "r"); FileChannel channel = file.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Sales archive larger than 2 GB");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException(dataFile + " is not a sales archive");
+        }
+    }
+
+    /**
+     * Rebuild the index by walking the record headers
+     */
+    private void rebuildIndex() {
+        offsets.clear();
+        byDate.clear();
+        locations = PersistentMap.empty();
+        datedLocations = PersistentSortedMap.empty(BY_DATE);
+        end = scan(HEADER_SIZE, false);
+    }
+
+    /**
+     * Index the records from a position to the end of the mapped file
+     * A torn record at the end (from a crash during an append) is ignored.
+     * @param position Offset of the first record
+     * @param notify Whether to tell the listeners about each sale added, replaced or deleted
+     * @return End of the last complete record
+     */
+    private int scan(int position, boolean notify) {
+        while (position + 5 <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length < 0 || position + 5 + length > buffer.limit()) {
+                break;
+            }
+            int field = position + 5;
+            String id = readString(buffer, field);
+            Long previous = offsets.get(id);
+            Sale replaced = notify && previous != null && !listeners.isEmpty() ? decode(buffer, previous) : null;
+            unindex(id);
+            if (buffer.get(position + 4) == SALE) {
+                long date = buffer.getLong(field + 4 + Math.max(0, buffer.getInt(field)));
+                index(id, date != Long.MIN_VALUE ? new Date(date) : null, position);
+                if (notify && !listeners.isEmpty()) {
+                    Sale sale = decode(buffer, position);
+                    for (StoreListener<Sale> listener : listeners) {
+                        if (replaced != null) {
+                            listener.update(id, replaced, sale);
+                        } else {
+                            listener.add(id, sale);
+                        }
+                    }
+                }
+            } else if (replaced != null) {
+                for (StoreListener<Sale> listener : listeners) {
+                    listener.remove(id, replaced);
+                }
+            }
+            position += 5 + length;
+        }
+        return position;
+    }
+
+    /**
+     * Load the saved index if it matches the data file
+     * @return false if the index is missing or out of date
+     */
+    private boolean loadIndex() {
+        if (!indexFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readLong() != dataFile.length()) {
+                return false;
+            }
+            offsets.clear();
+            byDate.clear();
+            locations = PersistentMap.empty();
+            datedLocations = PersistentSortedMap.empty(BY_DATE);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long offset = in.readLong();
+                long date = in.readLong();
+                String id = in.readUTF();
+                index(id, date != Long.MIN_VALUE ? new Date(date) : null, offset);
+            }
+            end = buffer.limit();
+            return true;
+        } catch (IOException e) {
+            return false; // Rebuilt from the data file
+        }
+    }
+
+    /**
+     * Save the index; it is only a cache of the data file, so it is not synced
+     * Readers may save it at the same time, so each writes its own temporary file.
+     */
+    private void saveIndex() throws IOException {
+        File tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(end); // A torn record past the end makes the index stale, so the tail is dropped
+            out.writeInt(offsets.size());
+            for (Map.Entry<Long, Set<String>> entry : byDate.entrySet()) {
+                for (String id : entry.getValue()) {
+                    out.writeLong(offsets.get(id));
+                    out.writeLong(entry.getKey());
+                    out.writeUTF(id);
+                }
+            }
+        }
+        try {
+            Files.move(tempFile.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void index(String saleID, Date date, long offset) {
+        long dateKey = date != null ? date.getTime() : Long.MIN_VALUE;
+        offsets.put(saleID, offset);
+        byDate.computeIfAbsent(dateKey, key -> new LinkedHashSet<>()).add(saleID);
+        Location location = new Location(saleID, offset, dateKey, nextSequence++);
+        locations = locations.put(saleID, location);
+        datedLocations = datedLocations.put(location, location);
+    }
+
+    private void unindex(String saleID) {
+        Long offset = offsets.remove(saleID);
+        if (offset == null) {
+            return;
+        }
+        datedLocations = datedLocations.remove(locations.get(saleID));
+        locations = locations.remove(saleID);
+        long date = buffer.getLong(offset.intValue() + 5 + 4 + Math.max(0, buffer.getInt(offset.intValue() + 5)));
+        Set<String> ids = byDate.get(date);
+        if (ids != null) {
+            ids.remove(saleID);
+            if (ids.isEmpty()) {
+                byDate.remove(date);
+            }
+        }
+    }
+
+    /**
+     * Decode a sale record directly from the mapped file
+     * Field layout as written by the sale codec: ID, date, sales manager, notes, the items, then the total.
+     */
+    private static Sale decode(ByteBuffer data, long offset) {
+        int position = (int) offset + 5;
+        String saleID = readString(data, position);
+        position += stringSize(data, position);
+        long date = data.getLong(position);
+        position += 8;
+        String salesManagerID = readString(data, position);
+        position += stringSize(data, position);
+        String notes = readString(data, position);
+        position += stringSize(data, position);
+
+        int count = data.getInt(position);
+        position += 4;
+        List<SaleItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String itemID = readString(data, position);
+            position += stringSize(data, position);
+            String itemName = readString(data, position);
+            position += stringSize(data, position);
+            int quantity = data.getInt(position);
+            double unitPrice = data.getDouble(position + 4);
+            double profitRatio = data.getDouble(position + 12);
+            SaleItem item = new SaleItem(itemID, itemName, quantity, unitPrice, profitRatio);
+            StoredFields.setDouble(item, "subtotal", data.getDouble(position + 20));
+            position += ITEM_NUMBERS_SIZE;
+            items.add(item);
+        }
+        Sale sale = new Sale(saleID, date != Long.MIN_VALUE ? new Date(date) : null, salesManagerID, notes, items);
+        StoredFields.setDouble(sale, "totalAmount", data.getDouble(position));
+        return sale;
+    }
+
+    /**
+     * Check the item IDs of a sale record without decoding the rest
+     */
+    private static boolean containsItem(ByteBuffer data, long offset, String itemID) {
+        byte[] wanted = itemID.getBytes(StandardCharsets.UTF_8);
+        int position = (int) offset + 5;
+        position += stringSize(data, position);       // Sale ID
+        position += 8;                          // Date
+        position += stringSize(data, position);       // Sales manager
+        position += stringSize(data, position);       // Notes
+
+        int count = data.getInt(position);
+        position += 4;
+        for (int i = 0; i < count; i++) {
+            if (stringEquals(data, position, wanted)) {
+                return true;
+            }
+            position += stringSize(data, position);   // Item ID
+            position += stringSize(data, position);   // Item name
+            position += ITEM_NUMBERS_SIZE;      // Quantity, unit price, profit ratio, subtotal
+        }
+        return false;
+    }
+
+    private static String readString(ByteBuffer data, int position) {
+        int length = data.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean stringEquals(ByteBuffer data, int position, byte[] wanted) {
+        if (data.getInt(position) != wanted.length) {
+            return false;
+        }
+        for (int i = 0; i < wanted.length; i++) {
+            if (data.get(position + 4 + i) != wanted[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int stringSize(ByteBuffer data, int position) {
+        return 4 + Math.max(0, data.getInt(position));
+    }
+}
@@ -1,24 +1,59 @@
 package com.owsb.repository;
 
 import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.SequenceAllocator;
+import com.owsb.repository.storage.Transaction;
 import com.owsb.util.Constants;
-import com.owsb.util.FileUtils;
 
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Repository for Sale entities
  * Implements the Repository interface demonstrating polymorphism
+ * Recent sales live in the sales file; older ones are moved to the SalesArchive and merged back
+ * in on reads. A sale in the sales file takes precedence over an archived copy.
  */
 public class SalesRepository implements Repository<Sale> {
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private static final String BY_DATE = "date";
+    private static final String BY_ITEM = "itemID";
+
+    private final EntityStore<Sale> store;
+    private final SalesArchive archive = SalesArchive.getInstance();
+
+    // Sale IDs in both the sales file and the archive, so new IDs never reuse an archived one
+    private final SequenceAllocator.IdSource saleIds = new SequenceAllocator.IdSource() {
+        @Override
+        public boolean contains(String id) {
+            return store.contains(id) || archive.contains(id);
+        }
+
+        @Override
+        public List<String> ids() {
+            List<String> ids = archive.ids();
+            ids.addAll(store.ids());
+            return ids;
+        }
+    };
+    
+    /**
+     * Constructor attaches to the shared in-memory store for the sales file
+     */
+    public SalesRepository() {
+        this.store = EntityStore.of(Constants.SALES_FILE, Sale.class, Sale::getSaleID, true);
+        store.defineSortedIndex(BY_DATE, Sale::getDate);
+        store.defineMultiIndex(BY_ITEM, sale -> sale.getItems().stream()
+                .map(SaleItem::getItemID)
+                .collect(Collectors.toList()));
+    }
     
     /**
      * Find all sales
@@ -26,15 +61,7 @@ public class SalesRepository implements Repository<Sale> {
      */
     @Override
     public List<Sale> findAll() {
-        try {
-            Type type = FileUtils.getListType(Sale.class);
-            List<Sale> sales = FileUtils.readListFromJson(Constants.SALES_FILE, type);
-            
-            return sales != null ? sales : new ArrayList<>();
-        } catch (IOException e) {
-            System.err.println("Error reading sales: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return merge(archive.findAll(), store.findAll());
     }
     
     /**
@@ -44,11 +71,8 @@ public class SalesRepository implements Repository<Sale> {
      */
     @Override
     public Sale findById(String id) {
-        List<Sale> sales = findAll();
-        return sales.stream()
-                .filter(sale -> sale.getSaleID().equals(id))
-                .findFirst()
-                .orElse(null);
+        Sale sale = store.findById(id);
+        return sale != null ? sale : archive.findById(id);
     }
     
     /**
@@ -58,15 +82,8 @@ public class SalesRepository implements Repository<Sale> {
      */
     @Override
     public boolean save(Sale entity) {
-        List<Sale> sales = findAll();
-        
-        // Check for duplicate ID
-        if (sales.stream().anyMatch(sale -> sale.getSaleID().equals(entity.getSaleID()))) {
-            return false;
-        }
-        
-        sales.add(entity);
-        return saveList(sales);
+        // Store rejects duplicate IDs
+        return !archive.contains(entity.getSaleID()) && store.insert(entity);
     }
     
     /**
@@ -76,18 +93,11 @@ public class SalesRepository implements Repository<Sale> {
      */
     @Override
     public boolean update(Sale entity) {
-        List<Sale> sales = findAll();
-        
-        boolean found = false;
-        for (int i = 0; i < sales.size(); i++) {
-            if (sales.get(i).getSaleID().equals(entity.getSaleID())) {
-                sales.set(i, entity);
-                found = true;
-                break;
-            }
+        if (!store.contains(entity.getSaleID()) && archive.contains(entity.getSaleID())) {
+            // An edited archived sale moves back to the sales file, where it hides the archived copy
+            return store.insert(entity);
         }
-        
-        return found && saveList(sales);
+        return store.update(entity);
     }
     
     /**
@@ -97,14 +107,21 @@ public class SalesRepository implements Repository<Sale> {
      */
     @Override
     public boolean delete(String id) {
-        List<Sale> sales = findAll();
-        int originalSize = sales.size();
-        
-        sales = sales.stream()
-                .filter(sale -> !sale.getSaleID().equals(id))
-                .collect(Collectors.toList());
-        
-        return (sales.size() < originalSize) && saveList(sales);
+        boolean live = store.contains(id);
+        if (live && !store.delete(id)) {
+            return false;
+        }
+        if (!archive.contains(id)) {
+            return live;
+        }
+
+        // The archive is not transactional, so its tombstone is only written once the deletion commits
+        Transaction.whenComplete(committed -> {
+            if (committed) {
+                archive.remove(id);
+            }
+        });
+        return true;
     }
     
     /**
@@ -113,10 +130,27 @@ public class SalesRepository implements Repository<Sale> {
      * @return List of sales on that date
      */
     public List<Sale> findByDate(Date date) {
-        String targetDate = dateFormat.format(date);
-        return findAll().stream()
-                .filter(sale -> dateFormat.format(sale.getDate()).equals(targetDate))
-                .collect(Collectors.toList());
+        // Range from midnight to the next midnight in the local time zone
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        Date startOfDay = calendar.getTime();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        
+        return findByDateRange(startOfDay, calendar.getTime());
+    }
+    
+    /**
+     * Find sales within a date range, oldest first
+     * @param from Start date (inclusive), or null for no lower bound
+     * @param to End date (exclusive), or null for no upper bound
+     * @return List of sales in the range
+     */
+    public List<Sale> findByDateRange(Date from, Date to) {
+        return merge(archive.findInRange(from, to), store.findInRange(BY_DATE, from, to));
     }
     
     /**
@@ -125,10 +159,7 @@ public class SalesRepository implements Repository<Sale> {
      * @return List of sales containing that item
      */
     public List<Sale> findByItem(String itemId) {
-        return findAll().stream()
-                .filter(sale -> sale.getItems().stream()
-                        .anyMatch(item -> item.getItemID().equals(itemId)))
-                .collect(Collectors.toList());
+        return merge(archive.findByItem(itemId), store.findBy(BY_ITEM, itemId));
     }
     
     /**
@@ -136,34 +167,73 @@ public class SalesRepository implements Repository<Sale> {
      * @return New sale ID
      */
     public String generateNewSaleID() {
-        List<Sale> sales = findAll();
-        
-        if (sales.isEmpty()) {
-            return "SL001";
+        return SequenceAllocator.getInstance().next("SL", saleIds);
+    }
+    
+    /**
+     * Move sales older than Constants.SALES_ARCHIVE_AFTER_DAYS from the sales file to the archive
+     * @return Number of sales archived, or -1 if archiving failed
+     */
+    public int archiveOldSales() {
+        if (Constants.SALES_ARCHIVE_AFTER_DAYS <= 0) {
+            return 0;
         }
-        
-        // Find the highest sale ID number
-        int maxId = sales.stream()
-                .map(sale -> Integer.parseInt(sale.getSaleID().substring(2)))
-                .max(Integer::compare)
-                .orElse(0);
-        
-        // Generate the next ID
-        return String.format("SL%03d", maxId + 1);
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_MONTH, -Constants.SALES_ARCHIVE_AFTER_DAYS);
+        return archiveSalesBefore(calendar.getTime());
     }
     
     /**
-     * Save the list of sales to the file
-     * @param sales List of sales to save
-     * @return true if saved successfully
+     * Move sales dated before a cutoff from the sales file to the archive
+     * The archive is written first; if the removal from the sales file then fails, the sales
+     * are simply present twice and the sales file copy is used.
+     * @param cutoff Sales before this date are archived
+     * @return Number of sales archived, or -1 if archiving failed
      */
-    private boolean saveList(List<Sale> sales) {
-        try {
-            FileUtils.writeListToJson(Constants.SALES_FILE, sales);
+    public int archiveSalesBefore(Date cutoff) {
+        List<Sale> oldSales = store.findInRange(BY_DATE, null, cutoff);
+        if (oldSales.isEmpty()) {
+            return 0;
+        }
+        if (!archive.append(oldSales)) {
+            return -1;
+        }
+
+        boolean removed = Transaction.execute(() -> {
+            for (Sale sale : oldSales) {
+                // Another instance may have archived it at the same time
+                if (store.findById(sale.getSaleID()) != null && !store.delete(sale.getSaleID())) {
+                    return false;
+                }
+            }
             return true;
-        } catch (IOException e) {
-            System.err.println("Error saving sales: " + e.getMessage());
-            return false;
+        });
+        return removed ? oldSales.size() : -1;
+    }
+    
+    /**
+     * Combine archived and live sales, dropping archived copies of sales in the sales file
+     * @param archived Sales from the archive
+     * @param live Sales from the sales file
+     * @return Combined list ordered by date, oldest first
+     */
+    private List<Sale> merge(List<Sale> archived, List<Sale> live) {
+        if (archived.isEmpty()) {
+            return live;
+        }
+        Set<String> liveIds = new HashSet<>();
+        for (Sale sale : live) {
+            liveIds.add(sale.getSaleID());
+        }
+
+        List<Sale> sales = new ArrayList<>(archived.size() + live.size());
+        for (Sale sale : archived) {
+            if (!liveIds.contains(sale.getSaleID())) {
+                sales.add(sale);
+            }
         }
+        sales.addAll(live);
+        sales.sort(Comparator.comparing(Sale::getDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return sales;
     }
 }
\ No newline at end of file
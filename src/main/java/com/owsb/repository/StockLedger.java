@@ -0,0 +1,365 @@
+package com.owsb.repository;
+
+import com.google.gson.Gson;
+import com.owsb.dto.ItemDTO;
+import com.owsb.repository.event.ChangeBus;
+import com.owsb.repository.event.StockChangedEvent;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.ReadView;
+import com.owsb.repository.storage.StoreListener;
+import com.owsb.repository.storage.Transaction;
+import com.owsb.util.Constants;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Authoritative in-memory stock levels for all items
+ * Each item has one atomic counter holding both the quantity on hand and the quantity reserved
+ * by open sale drafts, so checking availability and taking stock is a single compare-and-set:
+ * concurrent clerks never lose each other's updates and never wait on the items file.
+ *
+ * Every change is applied to the item's record as a delta, so other instances' changes to the same
+ * record are kept, and appended to the movement journal data/stock_movements.log. The counters
+ * follow the items store through a listener: changes made by other instances or by hand, and
+ * writes undone by a rollback, reach them when the store reloads.
+ */
+public class StockLedger {
+    private static final StockLedger INSTANCE = new StockLedger();
+    private static final Gson gson = new Gson(); // Compact output, one movement per line
+
+    /**
+     * Reason for a stock movement
+     */
+    public enum MovementType {
+        SALE,           // Stock sold
+        SALE_REVERSAL,  // Stock returned by editing or deleting a sale
+        RECEIPT,        // Stock received from a purchase order
+        ADJUSTMENT      // Manual correction
+    }
+
+    /**
+     * Stock set aside for a sale that has not been saved yet
+     * Either committed (the stock is taken) or released (it becomes available again).
+     */
+    public static class Reservation {
+        private final String itemID;
+        private final int quantity;
+        private final AtomicBoolean open = new AtomicBoolean(true);
+
+        private Reservation(String itemID, int quantity) {
+            this.itemID = itemID;
+            this.quantity = quantity;
+        }
+
+        public String getItemID() {
+            return itemID;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public boolean isOpen() {
+            return open.get();
+        }
+    }
+
+    /**
+     * One line of the movement journal
+     */
+    private static class Movement {
+        String timestamp;
+        String itemID;
+        MovementType type;
+        int quantity;
+        int balance;
+        String reference;
+    }
+
+    private final EntityStore<ItemDTO> store = ItemRepository.itemStore();
+    private final File journalFile = new File(Constants.STOCK_MOVEMENTS_FILE);
+    private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+    // Item ID -> on hand (high 32 bits) and reserved (low 32 bits)
+    private final ConcurrentHashMap<String, AtomicLong> levels = new ConcurrentHashMap<>();
+    // Record being written by this thread, whose change the counter already holds
+    private final ThreadLocal<ItemDTO> writing = new ThreadLocal<>();
+
+    private StockLedger() {
+        // The listener first receives every item already in the file
+        ReadView.live(store::size);
+        store.addListener(new LevelSync());
+    }
+
+    /**
+     * Get the shared ledger
+     * @return Stock ledger
+     */
+    public static StockLedger getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the quantity physically in stock
+     * @param itemID Item ID
+     * @return Quantity on hand, or 0 for an unknown item
+     */
+    public int getOnHand(String itemID) {
+        AtomicLong level = levelOf(itemID);
+        return level != null ? onHand(level.get()) : 0;
+    }
+
+    /**
+     * Get the quantity that can still be sold or reserved
+     * @param itemID Item ID
+     * @return Quantity on hand minus open reservations, or 0 for an unknown item
+     */
+    public int getAvailable(String itemID) {
+        AtomicLong level = levelOf(itemID);
+        if (level == null) {
+            return 0;
+        }
+        long packed = level.get();
+        return onHand(packed) - reserved(packed);
+    }
+
+    /**
+     * Set stock aside for a sale draft
+     * @param itemID Item ID
+     * @param quantity Quantity to reserve
+     * @return Reservation, or null if the item does not exist or not enough stock is available
+     */
+    public Reservation reserve(String itemID, int quantity) {
+        AtomicLong level = levelOf(itemID);
+        if (level == null || quantity <= 0) {
+            return null;
+        }
+
+        while (true) {
+            long packed = level.get();
+            if (onHand(packed) - reserved(packed) < quantity) {
+                return null;
+            }
+            if (level.compareAndSet(packed, pack(onHand(packed), reserved(packed) + quantity))) {
+                return new Reservation(itemID, quantity);
+            }
+        }
+    }
+
+    /**
+     * Make reserved stock available again
+     * Releasing a reservation that was already committed or released does nothing.
+     * @param reservation Reservation to release
+     */
+    public void release(Reservation reservation) {
+        if (reservation != null && reservation.open.compareAndSet(true, false)) {
+            AtomicLong level = levels.get(reservation.itemID);
+            if (level != null) {
+                level.addAndGet(-reservation.quantity);
+            }
+        }
+    }
+
+    /**
+     * Take reserved stock out of inventory
+     * Inside a transaction the reservation is reopened if the transaction rolls back.
+     * @param reservation Reservation to commit
+     * @param reference Sale ID recorded in the journal
+     * @return true if the stock was taken and written
+     */
+    public boolean commit(Reservation reservation, String reference) {
+        if (reservation == null || !reservation.open.compareAndSet(true, false)) {
+            return false;
+        }
+        AtomicLong level = levels.get(reservation.itemID);
+        if (level == null) {
+            return false;
+        }
+
+        // Reserved stock is always on hand, so this cannot fail
+        long delta = pack(-reservation.quantity, -reservation.quantity);
+        level.addAndGet(delta);
+
+        return record(reservation.itemID, -reservation.quantity, MovementType.SALE, reference, undoStock -> {
+            // The stock comes back with the reverted record; the reservation is held again
+            level.addAndGet(undoStock ? -delta : reservation.quantity);
+            reservation.open.set(true);
+        });
+    }
+
+    /**
+     * Change the quantity on hand directly (receipts, corrections, sale reversals, unreserved sales)
+     * A reduction only succeeds if enough unreserved stock is available.
+     * @param itemID Item ID
+     * @param quantity Change in quantity (positive for additions, negative for deductions)
+     * @param type Reason for the change
+     * @param reference Related document ID (sale, purchase order), or null
+     * @return true if the change was applied and written
+     */
+    public boolean adjust(String itemID, int quantity, MovementType type, String reference) {
+        AtomicLong level = levelOf(itemID);
+        if (level == null) {
+            return false;
+        }
+
+        while (true) {
+            long packed = level.get();
+            int newOnHand = onHand(packed) + quantity;
+            if (newOnHand < reserved(packed)) {
+                return false;
+            }
+            if (level.compareAndSet(packed, pack(newOnHand, reserved(packed)))) {
+                break;
+            }
+        }
+
+        long delta = pack(quantity, 0);
+        return record(itemID, quantity, type, reference, undoStock -> {
+            if (undoStock) {
+                level.addAndGet(-delta);
+            }
+        });
+    }
+
+    /**
+     * Write the new level of an item and journal the movement once it is committed
+     * @param itemID Item ID
+     * @param quantity Change in quantity
+     * @param type Reason for the change
+     * @param reference Related document ID
+     * @param onFailure Undoes the counter change if the write or the enclosing transaction fails; told whether
+     *                  the stock must be put back too, or comes back with the record when the store reverts it
+     * @return true if written
+     */
+    private boolean record(String itemID, int quantity, MovementType type, String reference,
+                           Consumer<Boolean> onFailure) {
+        AtomicBoolean changed = new AtomicBoolean(false);
+        boolean written;
+        try {
+            written = store.modify(itemID, dto -> {
+                // The stored level may hold changes this counter has not seen yet, so only add ours
+                dto.currentStock += quantity;
+                dto.lastUpdated = LocalDate.now().toString();
+                writing.set(dto);
+                changed.set(true);
+                return dto;
+            });
+        } finally {
+            writing.remove();
+        }
+
+        if (!written) {
+            // A changed record that failed to write is reloaded, which reverts the stock
+            onFailure.accept(!changed.get());
+            return false;
+        }
+
+        Transaction.whenComplete(committed -> {
+            if (!committed) {
+                onFailure.accept(false);
+            } else {
+                appendMovement(itemID, quantity, type, reference);
+                ChangeBus.getInstance().publish(new StockChangedEvent(itemID));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Append a movement to the journal
+     */
+    private synchronized void appendMovement(String itemID, int quantity, MovementType type, String reference) {
+        Movement movement = new Movement();
+        movement.timestamp = timestampFormat.format(new Date());
+        movement.itemID = itemID;
+        movement.type = type;
+        movement.quantity = quantity;
+        movement.balance = getOnHand(itemID);
+        movement.reference = reference;
+
+        // The item record is the durable copy of the level, so the journal is not synced separately
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write((gson.toJson(movement) + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Error writing stock movement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the counter of an item
+     * @param itemID Item ID
+     * @return Counter, or null if the item does not exist
+     */
+    private AtomicLong levelOf(String itemID) {
+        if (itemID == null) {
+            return null;
+        }
+        AtomicLong level = levels.get(itemID);
+        if (level != null) {
+            return level;
+        }
+
+        // The item may have been added by another instance; reading it reloads the store, which
+        // reports it to the listener. Always the store itself, even when asked from a read view.
+        ReadView.live(() -> store.findById(itemID));
+        return levels.get(itemID);
+    }
+
+    /**
+     * Keeps the counters in step with the items store
+     * Changes to the stored level that the ledger did not make itself are added to the counter,
+     * leaving open reservations as they are.
+     */
+    private class LevelSync implements StoreListener<ItemDTO> {
+        @Override
+        public void add(String id, ItemDTO entity) {
+            levels.putIfAbsent(id, new AtomicLong(pack(entity.currentStock, 0)));
+        }
+
+        @Override
+        public void remove(String id, ItemDTO entity) {
+            levels.remove(id);
+        }
+
+        @Override
+        public void update(String id, ItemDTO oldEntity, ItemDTO newEntity) {
+            int change = newEntity.currentStock - oldEntity.currentStock;
+            if (change == 0 || newEntity == writing.get()) {
+                return;
+            }
+            AtomicLong level = levels.get(id);
+            if (level != null) {
+                level.addAndGet(pack(change, 0));
+            } else {
+                add(id, newEntity);
+            }
+        }
+
+        @Override
+        public void clear() {
+            levels.clear();
+        }
+    }
+
+    private static long pack(int onHand, int reserved) {
+        return ((long) onHand << 32) + reserved;
+    }
+
+    private static int onHand(long packed) {
+        return (int) ((packed - reserved(packed)) >> 32);
+    }
+
+    private static int reserved(long packed) {
+        return (int) packed;
+    }
+}
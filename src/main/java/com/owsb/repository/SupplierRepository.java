@@ -1,164 +1,104 @@
 package com.owsb.repository;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import com.owsb.dto.SupplierDTO;
 import com.owsb.model.supplier.Supplier;
+import com.owsb.repository.storage.EntityStore;
+import com.owsb.repository.storage.SequenceAllocator;
 import com.owsb.util.Constants;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SupplierRepository implements Repository<Supplier> {
-    private final Gson gson;
-    private final String filePath;
+    private static final String BY_ITEM = "itemIDs";
+
+    private final EntityStore<SupplierDTO> store;
 
     public SupplierRepository() {
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-        this.filePath = Constants.SUPPLIER_FILE;
+        this.store = EntityStore.of(Constants.SUPPLIER_FILE, SupplierDTO.class, dto -> dto.supplierID, false);
+        // Item to supplier direction of the catalogue; a supplier's own itemIDs give the other
+        store.defineMultiIndex(BY_ITEM, dto -> dto.itemIDs);
     }
 
     @Override
     public List<Supplier> findAll() {
         List<Supplier> suppliers = new ArrayList<>();
-        try {
-            List<SupplierDTO> dtos = readSuppliersFromFile();
-            for (SupplierDTO dto : dtos) {
-                suppliers.add(convertToSupplier(dto));
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading suppliers: " + e.getMessage());
+        for (SupplierDTO dto : store.findAll()) {
+            suppliers.add(convertToSupplier(dto));
         }
         return suppliers;
     }
 
     @Override
     public Supplier findById(String id) {
-        try {
-            List<SupplierDTO> dtos = readSuppliersFromFile();
-            for (SupplierDTO dto : dtos) {
-                if (dto.supplierID.equals(id)) {
-                    return convertToSupplier(dto);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error finding supplier: " + e.getMessage());
-        }
-        return null;
+        SupplierDTO dto = store.findById(id);
+        return dto != null ? convertToSupplier(dto) : null;
     }
 
     @Override
     public boolean save(Supplier supplier) {
-        try {
-            List<SupplierDTO> dtos = readSuppliersFromFile();
-            for (SupplierDTO dto : dtos) {
-                if (dto.supplierID.equals(supplier.getSupplierID())) {
-                    return false;
-                }
-            }
-            dtos.add(convertToDTO(supplier));
-            writeSuppliersToFile(dtos);
-            return true;
-        } catch (IOException e) {
-            System.err.println("Error saving supplier: " + e.getMessage());
-            return false;
-        }
+        return store.insert(convertToDTO(supplier));
     }
 
     @Override
     public boolean update(Supplier supplier) {
-        try {
-            List<SupplierDTO> dtos = readSuppliersFromFile();
-            boolean updated = false;
-            for (int i = 0; i < dtos.size(); i++) {
-                if (dtos.get(i).supplierID.equals(supplier.getSupplierID())) {
-                    dtos.set(i, convertToDTO(supplier));
-                    updated = true;
-                    break;
-                }
-            }
-            if (updated) {
-                writeSuppliersToFile(dtos);
-                return true;
-            }
-            return false;
-        } catch (IOException e) {
-            System.err.println("Error updating supplier: " + e.getMessage());
-            return false;
-        }
+        return store.update(convertToDTO(supplier));
     }
 
     @Override
     public boolean delete(String id) {
-        try {
-            List<SupplierDTO> dtos = readSuppliersFromFile();
-            boolean removed = false;
-            for (int i = 0; i < dtos.size(); i++) {
-                if (dtos.get(i).supplierID.equals(id)) {
-                    dtos.remove(i);
-                    removed = true;
-                    break;
-                }
-            }
-            if (removed) {
-                writeSuppliersToFile(dtos);
-                return true;
-            }
-            return false;
-        } catch (IOException e) {
-            System.err.println("Error deleting supplier: " + e.getMessage());
-            return false;
+        return store.delete(id);
+    }
+
+    /**
+     * Find the suppliers whose catalogue includes an item
+     * @param itemID Item ID
+     * @return Suppliers of the item
+     */
+    public List<Supplier> findByItem(String itemID) {
+        List<Supplier> suppliers = new ArrayList<>();
+        for (SupplierDTO dto : store.findBy(BY_ITEM, itemID)) {
+            suppliers.add(convertToSupplier(dto));
         }
+        return suppliers;
     }
 
-    public String generateSupplierId() {
-        List<Supplier> suppliers = findAll();
-        int highestId = 0;
-        for (Supplier supplier : suppliers) {
-            String id = supplier.getSupplierID();
-            if (id.startsWith("SUP")) {
-                try {
-                    int num = Integer.parseInt(id.substring(3));
-                    if (num > highestId) {
-                        highestId = num;
-                    }
-                } catch (NumberFormatException ignored) {}
+    /**
+     * Find the suppliers of several items at once, e.g. every line of a requisition
+     * A supplier of more than one of the items is returned as the same instance.
+     * @param itemIDs Item IDs
+     * @return Suppliers of each item, in the order of itemIDs (items without suppliers map to an empty list)
+     */
+    public Map<String, List<Supplier>> findByItems(Collection<String> itemIDs) {
+        Map<String, List<Supplier>> result = new LinkedHashMap<>();
+        Map<String, Supplier> converted = new HashMap<>();
+        for (String itemID : itemIDs) {
+            if (result.containsKey(itemID)) {
+                continue;
             }
+            List<Supplier> suppliers = new ArrayList<>();
+            for (SupplierDTO dto : store.findBy(BY_ITEM, itemID)) {
+                suppliers.add(converted.computeIfAbsent(dto.supplierID, id -> convertToSupplier(dto)));
+            }
+            result.put(itemID, suppliers);
         }
-        return String.format("SUP%03d", highestId + 1);
+        return result;
     }
 
-    private List<SupplierDTO> readSuppliersFromFile() throws IOException {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
-        FileReader reader = new FileReader(file);
-        Type listType = new TypeToken<ArrayList<SupplierDTO>>(){}.getType();
-        List<SupplierDTO> dtos = gson.fromJson(reader, listType);
-        reader.close();
-        if (dtos == null) {
-            return new ArrayList<>();
-        }
-        return dtos;
+    public String generateSupplierId() {
+        return SequenceAllocator.getInstance().next("SUP", store);
     }
 
-    private void writeSuppliersToFile(List<SupplierDTO> dtos) throws IOException {
-        File file = new File(filePath);
-        File parentDir = file.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs();
-        }
-        FileWriter writer = new FileWriter(file);
-        gson.toJson(dtos, writer);
-        writer.flush();
-        writer.close();
+    /**
+     * Get the supplier ID that will most likely be generated next, without using it up
+     * @return Expected next supplier ID, for display only
+     */
+    public String peekNextSupplierId() {
+        return SequenceAllocator.getInstance().peek("SUP", store);
     }
 
     private Supplier convertToSupplier(SupplierDTO dto) {
@@ -169,7 +109,8 @@ public class SupplierRepository implements Repository<Supplier> {
         if (dto.itemIDs == null) {
             supplier.setItemIDs(new ArrayList<>());
         } else {
-            supplier.setItemIDs(dto.itemIDs);
+            // Copy so the cached DTO is never modified through the supplier
+            supplier.setItemIDs(new ArrayList<>(dto.itemIDs));
         }
         return supplier;
     }
@@ -182,7 +123,7 @@ public class SupplierRepository implements Repository<Supplier> {
         dto.phone = supplier.getPhone();
         dto.email = supplier.getEmail();
         dto.address = supplier.getAddress();
-        dto.itemIDs = supplier.getItemIDs();
+        dto.itemIDs = supplier.getItemIDs() != null ? new ArrayList<>(supplier.getItemIDs()) : null;
         return dto;
     }
 }
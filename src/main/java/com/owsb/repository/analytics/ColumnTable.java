@@ -0,0 +1,232 @@
+package com.owsb.repository.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table stored column by column in primitive arrays
+ * Key columns hold ints (dictionary codes, epoch days), value columns hold doubles (amounts,
+ * quantities). Queries scan only the columns they filter and sum, without creating objects per row.
+ * Rows are appended, and deleted by marking them: queries skip deleted rows, which keep their place
+ * so row numbers stay valid. Not thread-safe; callers must synchronize changes with queries.
+ */
+public class ColumnTable {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final String[] keyNames;
+    private final String[] valueNames;
+    private final int[][] keys;
+    private final double[][] values;
+    private final BitSet deleted = new BitSet();
+    private int size;
+
+    /**
+     * Create an empty table
+     * @param keyNames Names of the int key columns
+     * @param valueNames Names of the double value columns
+     */
+    public ColumnTable(String[] keyNames, String[] valueNames) {
+        this.keyNames = keyNames.clone();
+        this.valueNames = valueNames.clone();
+        this.keys = new int[keyNames.length][INITIAL_CAPACITY];
+        this.values = new double[valueNames.length][INITIAL_CAPACITY];
+    }
+
+    /**
+     * Append a row
+     * @param rowKeys One key per key column, in column order
+     * @param rowValues One value per value column, in column order
+     * @return Row number
+     */
+    public int addRow(int[] rowKeys, double[] rowValues) {
+        if (size == capacity()) {
+            int capacity = capacity() * 2;
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = Arrays.copyOf(keys[i], capacity);
+            }
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Arrays.copyOf(values[i], capacity);
+            }
+        }
+        for (int i = 0; i < keys.length; i++) {
+            keys[i][size] = rowKeys[i];
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i][size] = rowValues[i];
+        }
+        return size++;
+    }
+
+    /**
+     * Delete a row; it is skipped by queries from now on
+     * @param row Row number returned by addRow
+     */
+    public void deleteRow(int row) {
+        deleted.set(row);
+    }
+
+    /**
+     * @return Number of rows, including deleted ones
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of deleted rows
+     */
+    public int deletedRows() {
+        return deleted.cardinality();
+    }
+
+    /**
+     * @param name Key column name
+     * @return Index of the key column
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public int keyColumn(String name) {
+        return indexOf(keyNames, name);
+    }
+
+    /**
+     * @param name Value column name
+     * @return Index of the value column
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public int valueColumn(String name) {
+        return indexOf(valueNames, name);
+    }
+
+    /**
+     * Start a query over all rows
+     * @return Query without filters
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    private int capacity() {
+        return keys.length > 0 ? keys[0].length : values[0].length;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column: " + name);
+    }
+
+    /**
+     * Filtered view of the table with group-by, sum and top-N
+     * Filters keep rows whose key lies in an inclusive range; all filters must match.
+     */
+    public class Query {
+        private final List<int[]> filters = new ArrayList<>(); // {column, min, max}
+
+        private Query() {
+        }
+
+        /**
+         * Keep rows whose key lies between two bounds
+         * @param keyColumn Key column index
+         * @param min Lowest key, inclusive
+         * @param max Highest key, inclusive
+         * @return This query
+         */
+        public Query between(int keyColumn, int min, int max) {
+            filters.add(new int[]{keyColumn, min, max});
+            return this;
+        }
+
+        /**
+         * Keep rows with one key
+         * @param keyColumn Key column index
+         * @param key Key to keep
+         * @return This query
+         */
+        public Query where(int keyColumn, int key) {
+            return between(keyColumn, key, key);
+        }
+
+        /**
+         * @param valueColumn Value column index
+         * @return Sum of the column over the matching rows
+         */
+        public double sum(int valueColumn) {
+            double[] column = values[valueColumn];
+            double sum = 0;
+            for (int row = 0; row < size; row++) {
+                if (matches(row)) {
+                    sum += column[row];
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * Sum a value column per key
+         * @param keyColumn Key column to group by, holding codes from 0 to groups - 1
+         * @param valueColumn Value column to sum
+         * @param groups Number of codes, e.g. the dictionary size
+         * @return Sums indexed by code
+         */
+        public double[] sumBy(int keyColumn, int valueColumn, int groups) {
+            int[] groupKeys = keys[keyColumn];
+            double[] column = values[valueColumn];
+            double[] sums = new double[groups];
+            for (int row = 0; row < size; row++) {
+                if (matches(row)) {
+                    sums[groupKeys[row]] += column[row];
+                }
+            }
+            return sums;
+        }
+
+        /**
+         * Sum a value column per key and decode the keys
+         * @param keyColumn Key column holding codes of the dictionary
+         * @param valueColumn Value column to sum
+         * @param dictionary Dictionary of the key column
+         * @param limit Maximum number of groups returned, largest sums first
+         * @return Sums by decoded key, largest first, without groups that had no rows or sum to 0
+         */
+        public Map<String, Double> top(int keyColumn, int valueColumn, Dictionary dictionary, int limit) {
+            double[] sums = sumBy(keyColumn, valueColumn, dictionary.size());
+            Integer[] order = new Integer[sums.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(sums[b], sums[a]));
+
+            Map<String, Double> result = new LinkedHashMap<>();
+            for (int code : order) {
+                if (result.size() == limit) {
+                    break;
+                }
+                if (sums[code] != 0) {
+                    result.put(dictionary.decode(code), sums[code]);
+                }
+            }
+            return result;
+        }
+
+        private boolean matches(int row) {
+            if (deleted.get(row)) {
+                return false;
+            }
+            for (int[] filter : filters) {
+                int key = keys[filter[0]][row];
+                if (key < filter[1] || key > filter[2]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.owsb.repository.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of strings such as item, supplier or category names
+ * Each distinct value gets a small int code, in order of first appearance, so tables store ints
+ * instead of repeating the strings.
+ */
+public class Dictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Get the code of a value, assigning the next code if it is new
+     * @param value Value to encode, null is stored as ""
+     * @return Code
+     */
+    public int encode(String value) {
+        String key = value != null ? value : "";
+        Integer code = codes.get(key);
+        if (code == null) {
+            code = values.size();
+            codes.put(key, code);
+            values.add(key);
+        }
+        return code;
+    }
+
+    /**
+     * Get the code of a value without assigning one
+     * @param value Value to look up
+     * @return Code, or -1 if the value was never encoded
+     */
+    public int codeOf(String value) {
+        Integer code = codes.get(value != null ? value : "");
+        return code != null ? code : -1;
+    }
+
+    /**
+     * @param code Code returned by encode
+     * @return Value with that code
+     */
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * @return Number of distinct values, codes run from 0 to size - 1
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,118 @@
+package com.owsb.repository.event;
+
+import com.owsb.repository.storage.Transaction;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * In-process bus carrying change events from the repositories to the views
+ * Repositories publish after a successful write; inside a transaction the event is held back
+ * until the transaction commits and dropped if it rolls back.
+ *
+ * Subscribers are held through a weak reference to their owner (typically a panel), so a panel
+ * that is no longer shown can be garbage collected without unsubscribing. The handler receives the
+ * owner and must not capture it itself, e.g. an unbound method reference like Panel::onEvent.
+ */
+public final class ChangeBus {
+    private static final ChangeBus INSTANCE = new ChangeBus();
+
+    private final List<Subscription<?, ?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    private ChangeBus() {
+    }
+
+    /**
+     * @return The shared bus
+     */
+    public static ChangeBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to one type of event
+     * @param owner Object the handler belongs to; the subscription ends when it is collected
+     * @param type Event type, subclasses included
+     * @param executor Runs the handler, e.g. SwingUtilities::invokeLater for Swing components
+     * @param handler Receives the owner and the event
+     * @param <O> Owner type
+     * @param <E> Event type
+     * @return Subscription, closed by unsubscribe
+     */
+    public <O, E extends ChangeEvent> Subscription<O, E> subscribe(O owner, Class<E> type, Executor executor,
+                                                                   BiConsumer<? super O, ? super E> handler) {
+        Subscription<O, E> subscription = new Subscription<>(owner, type, executor, handler);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * End a subscription
+     * @param subscription Subscription returned by subscribe
+     */
+    public void unsubscribe(Subscription<?, ?> subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Publish an event once the current transaction, if any, commits
+     * @param event Event
+     */
+    public void publish(ChangeEvent event) {
+        Transaction.whenComplete(committed -> {
+            if (committed) {
+                deliver(event);
+            }
+        });
+    }
+
+    private void deliver(ChangeEvent event) {
+        for (Subscription<?, ?> subscription : subscriptions) {
+            if (!subscription.offer(event)) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * A handler subscribed to one event type
+     * @param <O> Owner type
+     * @param <E> Event type
+     */
+    public static final class Subscription<O, E extends ChangeEvent> {
+        private final WeakReference<O> owner;
+        private final Class<E> type;
+        private final Executor executor;
+        private final BiConsumer<? super O, ? super E> handler;
+
+        private Subscription(O owner, Class<E> type, Executor executor, BiConsumer<? super O, ? super E> handler) {
+            this.owner = new WeakReference<>(owner);
+            this.type = type;
+            this.executor = executor;
+            this.handler = handler;
+        }
+
+        /**
+         * Hand an event to the handler if it has the subscribed type
+         * @return false if the owner was collected and the subscription should be dropped
+         */
+        private boolean offer(ChangeEvent event) {
+            if (owner.get() == null) {
+                return false;
+            }
+            if (type.isInstance(event)) {
+                E typed = type.cast(event);
+                executor.execute(() -> {
+                    O current = owner.get();
+                    if (current != null) {
+                        handler.accept(current, typed);
+                    }
+                });
+            }
+            return true;
+        }
+    }
+}
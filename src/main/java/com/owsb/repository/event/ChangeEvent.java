@@ -0,0 +1,22 @@
+package com.owsb.repository.event;
+
+/**
+ * Base class of the change events published on the {@link ChangeBus}
+ */
+public abstract class ChangeEvent {
+    private final String id;
+
+    /**
+     * @param id ID of the changed entity
+     */
+    protected ChangeEvent(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return ID of the changed entity
+     */
+    public String getId() {
+        return id;
+    }
+}
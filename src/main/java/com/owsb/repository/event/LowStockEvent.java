@@ -0,0 +1,40 @@
+package com.owsb.repository.event;
+
+/**
+ * An item's stock fell to or below its minimum level, or recovered above it
+ * Only published when the item crosses the threshold; changes that keep it on the same side
+ * are plain StockChangedEvents.
+ */
+public class LowStockEvent extends ChangeEvent {
+    private final boolean low;
+    private final int currentStock;
+    private final int minimumStock;
+
+    /**
+     * @param itemID Item ID
+     * @param low true if the item became low on stock, false if it recovered or was deleted
+     * @param currentStock Stock level after the change
+     * @param minimumStock Minimum stock level after the change
+     */
+    public LowStockEvent(String itemID, boolean low, int currentStock, int minimumStock) {
+        super(itemID);
+        this.low = low;
+        this.currentStock = currentStock;
+        this.minimumStock = minimumStock;
+    }
+
+    /**
+     * @return true if the item is now low on stock, false if it recovered
+     */
+    public boolean isLow() {
+        return low;
+    }
+
+    public int getCurrentStock() {
+        return currentStock;
+    }
+
+    public int getMinimumStock() {
+        return minimumStock;
+    }
+}
@@ -0,0 +1,22 @@
+package com.owsb.repository.event;
+
+import com.owsb.model.message.Message;
+
+/**
+ * A new message was sent
+ */
+public class MessageArrivedEvent extends ChangeEvent {
+    private final Message message;
+
+    /**
+     * @param message The new message (a private copy)
+     */
+    public MessageArrivedEvent(Message message) {
+        super(message.getMessageID());
+        this.message = message;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,42 @@
+package com.owsb.repository.event;
+
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.util.Constants;
+
+/**
+ * A purchase order was created, deleted or changed status
+ */
+public class PurchaseOrderStatusChangedEvent extends ChangeEvent {
+    private final Constants.PurchaseOrderStatus oldStatus;
+    private final PurchaseOrder purchaseOrder;
+
+    /**
+     * @param poID Purchase order ID
+     * @param oldStatus Status before the change, or null if the order is new
+     * @param purchaseOrder Order after the change, or null if it was deleted
+     */
+    public PurchaseOrderStatusChangedEvent(String poID, Constants.PurchaseOrderStatus oldStatus,
+                                           PurchaseOrder purchaseOrder) {
+        super(poID);
+        this.oldStatus = oldStatus;
+        this.purchaseOrder = purchaseOrder;
+    }
+
+    public Constants.PurchaseOrderStatus getOldStatus() {
+        return oldStatus;
+    }
+
+    /**
+     * @return Status after the change, or null if the order was deleted
+     */
+    public Constants.PurchaseOrderStatus getNewStatus() {
+        return purchaseOrder != null ? purchaseOrder.getStatus() : null;
+    }
+
+    /**
+     * @return Order after the change (a private copy), or null if it was deleted
+     */
+    public PurchaseOrder getPurchaseOrder() {
+        return purchaseOrder;
+    }
+}
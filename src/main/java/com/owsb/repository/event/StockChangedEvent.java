@@ -0,0 +1,13 @@
+package com.owsb.repository.event;
+
+/**
+ * An item's stock level or stock limits changed, or the item was added or deleted
+ */
+public class StockChangedEvent extends ChangeEvent {
+    /**
+     * @param itemID Item ID
+     */
+    public StockChangedEvent(String itemID) {
+        super(itemID);
+    }
+}
@@ -0,0 +1,220 @@
+package com.owsb.repository.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.owsb.repository.storage.codec.RecordCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Storage engine that keeps the whole entity list in one compact binary file
+ * The file sits next to the JSON data file (data/items.txt -> data/items.bin) and starts with a
+ * header naming the record type and its schema version, so a file written by a different codec
+ * version is rejected instead of being misread. If the binary file does not exist yet, the JSON
+ * file is loaded instead and the binary file is created by the next write.
+ * @param <T> The entity type
+ */
+public class BinarySnapshotEngine<T> implements StorageEngine<T> {
+    private static final int MAGIC = 0x4F575342; // "OWSB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Gson gson = new Gson();
+
+    private final File file;
+    private final RecordCodec<T> codec;
+    private final Function<T, String> keyExtractor;
+    private final JsonFileEngine<T> jsonSource;
+
+    // File state as of our last load/write, used to detect outside changes
+    private long knownModified = -1;
+    private long knownSize = -1;
+
+    /**
+     * Constructor
+     * @param filePath JSON data file the binary file belongs to
+     * @param entityClass Class of the stored entities
+     * @param keyExtractor Function returning the unique ID of an entity
+     * @param codec Binary format of the entities
+     */
+    public BinarySnapshotEngine(String filePath, Class<T> entityClass, Function<T, String> keyExtractor,
+                                RecordCodec<T> codec) {
+        this.file = new File(binaryPathFor(filePath));
+        this.codec = codec;
+        this.keyExtractor = keyExtractor;
+        this.jsonSource = new JsonFileEngine<>(filePath, entityClass, keyExtractor);
+    }
+
+    /**
+     * Get the binary file that belongs to a data file
+     * @param filePath Data file path
+     * @return Binary file path (same name with a .bin extension)
+     */
+    public static String binaryPathFor(String filePath) {
+        int dot = filePath.lastIndexOf('.');
+        int separator = filePath.lastIndexOf(File.separatorChar);
+        String base = dot > separator ? filePath.substring(0, dot) : filePath;
+        return base + ".bin";
+    }
+
+    @Override
+    public LinkedHashMap<String, T> load() throws IOException {
+        if (!file.exists()) {
+            knownModified = -1;
+            knownSize = -1;
+            return jsonSource.load();
+        }
+
+        knownModified = file.lastModified();
+        knownSize = file.length();
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            int count = readHeader(in);
+            LinkedHashMap<String, T> entities = new LinkedHashMap<>(Math.max(16, count * 4 / 3 + 1));
+            for (int i = 0; i < count; i++) {
+                T entity = codec.read(in);
+                entities.put(keyExtractor.apply(entity), entity);
+            }
+            return entities;
+        } catch (IllegalArgumentException e) {
+            // Model constructors reject invalid values such as a zero quantity
+            throw new IOException("Invalid record in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Stream<T> stream(Predicate<JsonObject> where) throws IOException {
+        if (!file.exists()) {
+            return jsonSource.stream(where);
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        int count;
+        try {
+            count = readHeader(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+
+        // Records have to be decoded before the filter can see them, so this saves memory rather than decoding
+        Spliterator<T> records = new Spliterators.AbstractSpliterator<T>(count,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int remaining = count;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                while (remaining > 0) {
+                    remaining--;
+                    T entity;
+                    try {
+                        entity = codec.read(in);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (IllegalArgumentException e) {
+                        throw new UncheckedIOException(
+                                new IOException("Invalid record in " + file + ": " + e.getMessage(), e));
+                    }
+                    if (where == null || where.test(gson.toJsonTree(entity).getAsJsonObject())) {
+                        action.accept(entity);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        return StreamSupport.stream(records, false).onClose(() -> {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void write(Collection<Mutation<T>> mutations, Collection<T> currentState, boolean sync) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tempFile)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeUTF(codec.getTypeName());
+            out.writeShort(codec.getSchemaVersion());
+            out.writeInt(currentState.size());
+            for (T entity : currentState) {
+                codec.write(out, entity);
+            }
+            out.flush();
+            if (sync) {
+                fileOut.getFD().sync();
+            }
+        }
+
+        try {
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        knownModified = file.lastModified();
+        knownSize = file.length();
+    }
+
+    @Override
+    public void sync() {
+        // Files are replaced by rename, there is nothing buffered to flush
+    }
+
+    @Override
+    public void compact(Collection<T> currentState) {
+        // Every write is already a full snapshot
+    }
+
+    @Override
+    public boolean hasChanged() {
+        if (!file.exists()) {
+            return knownSize != -1 || jsonSource.hasChanged();
+        }
+        return file.lastModified() != knownModified || file.length() != knownSize;
+    }
+
+    /**
+     * Check the header of a binary file against this engine's codec
+     * @param in Stream positioned at the start of the file
+     * @return Number of records that follow
+     * @throws IOException if the file is not a snapshot of this codec's type and version
+     */
+    private int readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readShort() != FORMAT_VERSION) {
+            throw new IOException(file + " is not an OWSB binary snapshot");
+        }
+        String typeName = in.readUTF();
+        int schemaVersion = in.readShort();
+        if (!codec.getTypeName().equals(typeName) || codec.getSchemaVersion() != schemaVersion) {
+            throw new IOException(file + " holds " + typeName + " v" + schemaVersion
+                    + ", expected " + codec.getTypeName() + " v" + codec.getSchemaVersion());
+        }
+        return in.readInt();
+    }
+}
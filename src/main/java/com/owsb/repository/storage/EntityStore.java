@@ -0,0 +1,1195 @@
+package com.owsb.repository.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.owsb.repository.storage.codec.RecordCodec;
+import com.owsb.repository.storage.codec.RecordCodecs;
+import com.owsb.util.Constants;
+import com.owsb.util.JsonArrayCursor;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedCollection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory write-through cache for a single data file
+ * The data is loaded once into a map keyed by entity ID and all reads are served from memory.
+ * Every mutation is written straight through to disk by the configured {@link StorageEngine},
+ * and the data is only reloaded when the engine reports a change on disk
+ * (e.g. the file was edited by hand or by another instance).
+ *
+ * Several instances may share one data directory: reads lock the file shared and writes exclusive
+ * (see {@link ProcessLock}), and every write first catches up with what the others committed.
+ * Only the entities that changed are passed on to indexes and listeners.
+ *
+ * All repositories backed by the same file share one store, see {@link #of}.
+ * Inside a {@link Transaction} changes are only staged and written when the transaction commits.
+ *
+ * Alongside the map the store keeps an immutable copy of its data, a {@link PersistentMap} that shares
+ * everything but the changed paths with its previous version. Each written change publishes the new
+ * version to {@link ReadView}s, and reads through a view are answered from it without locking the store.
+ * The indexes are immutable too and are published with the data, so lookups through a view use the
+ * index as it was at that moment instead of scanning the version.
+ *
+ * The file is only loaded when it is first needed. Until then lookups by ID or by field are
+ * read straight from disk, rejecting non-matching entries before they are bound, so a login or a
+ * single lookup does not load a large file; after Constants.COLD_LOOKUPS_BEFORE_LOAD of them the store loads.
+ * @param <T> The entity type kept in the file
+ */
+public class EntityStore<T> implements SequenceAllocator.IdSource {
+    private static final Map<String, EntityStore<?>> STORES = new ConcurrentHashMap<>();
+    private static final Gson gson = new Gson();
+
+    static {
+        // Finish transactions that were committed but not fully written before the last shutdown
+        if (usesLogEngine()) {
+            TransactionJournal.recover();
+        }
+        // Fold outstanding logs into the data files on exit so they stay readable on their own
+        Runtime.getRuntime().addShutdownHook(new Thread(EntityStore::compactAll));
+    }
+
+    private final String filePath;
+    private final Class<T> entityClass;
+    private final Function<T, String> keyExtractor;
+    private final UnaryOperator<T> copier;
+    private final StorageEngine<T> engine;
+    // Shared with other processes using the same file, plus the generation of the data we hold
+    private final ProcessLock fileLock;
+    private long knownGeneration = -1;
+    // Compactions of the file seen so far, and compactions made by our engine
+    private long knownCompactions = -1;
+    private long compactionsMade = 0;
+
+    // Entities in file order, keyed by ID
+    private LinkedHashMap<String, T> entities = new LinkedHashMap<>();
+    private boolean loaded = false;
+    // Lookups answered from disk before the first load
+    private int coldLookups = 0;
+
+    // Secondary indexes by name, maintained on every change to the map (also looked up by view reads)
+    private final Map<String, SecondaryIndex<T>> indexes = new ConcurrentHashMap<>();
+    // Indexes and external listeners, notified of every change to the map
+    private final List<StoreListener<T>> listeners = new ArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Transaction holding this store, and the changes it has made but not yet written
+    private Transaction owner;
+    private final LinkedHashMap<String, Mutation<T>> staged = new LinkedHashMap<>();
+
+    // Immutable copy of the map, and the last version published to read views (only written changes)
+    private PersistentMap<String, T> working = PersistentMap.empty();
+    private Version<T> published = null;
+
+    /**
+     * Data of a store at one moment, with the indexes as they were at that moment
+     */
+    private static final class Version<T> {
+        final PersistentMap<String, T> data;
+        // Index snapshots by name; an index declared after the version was taken is built from its data
+        final Map<String, Object> indexes;
+
+        Version(PersistentMap<String, T> data, Map<String, Object> indexes) {
+            this.data = data;
+            this.indexes = indexes;
+        }
+    }
+
+    /**
+     * Constructor - use {@link #of} so repositories share the same store
+     * @param filePath Data file backing this store
+     * @param entityClass Class of the stored entities
+     * @param keyExtractor Function returning the unique ID of an entity
+     * @param detached Whether callers receive copies instead of the cached instances
+     */
+    private EntityStore(String filePath, Class<T> entityClass, Function<T, String> keyExtractor, boolean detached) {
+        this.filePath = filePath;
+        this.entityClass = entityClass;
+        this.keyExtractor = keyExtractor;
+        this.copier = detached ? this::deepCopy : UnaryOperator.identity();
+        this.engine = createEngine(filePath, entityClass, keyExtractor);
+        this.fileLock = new ProcessLock(filePath);
+    }
+
+    /**
+     * Create the storage engine selected in Constants.STORAGE_ENGINE and Constants.SNAPSHOT_FORMAT
+     * @param filePath Data file
+     * @param entityClass Class of the stored entities
+     * @param keyExtractor Function returning the unique ID of an entity
+     * @return Storage engine for the file
+     */
+    private static <T> StorageEngine<T> createEngine(String filePath, Class<T> entityClass,
+                                                     Function<T, String> keyExtractor) {
+        StorageEngine<T> snapshot = createSnapshotEngine(filePath, entityClass, keyExtractor);
+        if (!usesLogEngine()) {
+            return snapshot;
+        }
+        return new LogStructuredEngine<>(filePath, snapshot, entityClass, keyExtractor,
+                Constants.LOG_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Create the engine for full snapshots: binary if selected and the type has a codec, JSON otherwise
+     */
+    private static <T> StorageEngine<T> createSnapshotEngine(String filePath, Class<T> entityClass,
+                                                             Function<T, String> keyExtractor) {
+        RecordCodec<T> codec = "binary".equalsIgnoreCase(Constants.SNAPSHOT_FORMAT)
+                ? RecordCodecs.forClass(entityClass) : null;
+        if (codec == null) {
+            return new JsonFileEngine<>(filePath, entityClass, keyExtractor);
+        }
+        return new BinarySnapshotEngine<>(filePath, entityClass, keyExtractor, codec);
+    }
+
+    /**
+     * Check whether stores use the log engine (the default) rather than whole-file rewrites
+     * @return true for the log engine
+     */
+    static boolean usesLogEngine() {
+        return !"json".equalsIgnoreCase(Constants.STORAGE_ENGINE);
+    }
+
+    /**
+     * Compact every open store, folding pending log records into the data files
+     */
+    public static void compactAll() {
+        for (EntityStore<?> store : STORES.values()) {
+            store.compact();
+        }
+    }
+
+    /**
+     * Bring the loaded stores up to date with changes made by other instances, skipping busy stores
+     * Called before taking a {@link ReadView}, which must not wait for writers.
+     */
+    static void refreshIdle() {
+        for (EntityStore<?> store : STORES.values()) {
+            if (store.loaded && store.lock.tryLock()) {
+                try {
+                    if (store.owner == null) {
+                        store.refreshIfChanged();
+                    }
+                } finally {
+                    store.lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the shared store for a data file, creating it on first use
+     * Repositories that hand out their stored objects directly (the domain models serialized by Gson)
+     * should pass detached = true so callers can never modify the cache without calling update.
+     * Repositories that convert to/from DTOs already return fresh objects and can pass false.
+     * @param filePath Data file backing the store
+     * @param entityClass Class of the stored entities
+     * @param keyExtractor Function returning the unique ID of an entity
+     * @param detached Whether reads and writes copy entities in and out of the cache
+     * @return The shared store for that file
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityStore<T> of(String filePath, Class<T> entityClass,
+                                        Function<T, String> keyExtractor, boolean detached) {
+        return (EntityStore<T>) STORES.computeIfAbsent(filePath,
+                path -> new EntityStore<>(path, entityClass, keyExtractor, detached));
+    }
+
+    /**
+     * Declare a hash index for equality lookups through {@link #findBy}
+     * Stores are shared, so declaring an index that already exists is a no-op.
+     * @param name Index name
+     * @param keyExtractor Function returning the indexed value of an entity (null = not indexed)
+     */
+    public void defineIndex(String name, Function<T, ?> keyExtractor) {
+        defineMultiIndex(name, entity -> Collections.singletonList(keyExtractor.apply(entity)));
+    }
+
+    /**
+     * Declare a hash index where one entity can be filed under several keys,
+     * e.g. a requisition under each of its item IDs
+     * @param name Index name
+     * @param keysExtractor Function returning all indexed values of an entity
+     */
+    public void defineMultiIndex(String name, Function<T, ? extends Collection<?>> keysExtractor) {
+        acquire();
+        try {
+            if (!indexes.containsKey(name)) {
+                addIndex(name, new HashIndex<>(keysExtractor));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Declare a sorted index for range lookups through {@link #findInRange}
+     * @param name Index name
+     * @param keyExtractor Function returning the sort key of an entity (null = not indexed)
+     */
+    public <K extends Comparable<? super K>> void defineSortedIndex(String name,
+                                                                Function<T, K> keyExtractor) {
+        acquire();
+        try {
+            if (!indexes.containsKey(name)) {
+                addIndex(name, new SortedIndex<>(keyExtractor));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Subscribe to all changes of this store
+     * The listener first receives the entities in the file, loading it if needed; later reloads
+     * arrive as adds, updates and removals of the entities that differ.
+     * @param listener Listener to add
+     */
+    public void addListener(StoreListener<T> listener) {
+        acquire();
+        try {
+            refreshIfChanged();
+            register(listener);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find all entities filed under a key in a hash index
+     * @param indexName Index name
+     * @param key Value to look up
+     * @return List of matching entities
+     */
+    public List<T> findBy(String indexName, Object key) {
+        Version<T> view = viewed();
+        if (view != null) {
+            return resolve(view.data, hashIndexIn(view, indexName).lookup(key));
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            return resolve(working, hashIndex(indexName).snapshot().lookup(key));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Count the entities filed under a key in a hash index
+     * @param indexName Index name
+     * @param key Value to look up
+     * @return Number of matching entities
+     */
+    public int countBy(String indexName, Object key) {
+        Version<T> view = viewed();
+        if (view != null) {
+            return hashIndexIn(view, indexName).count(key);
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            return hashIndex(indexName).snapshot().count(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find all entities with from <= key < to in a sorted index, in key order
+     * @param indexName Index name
+     * @param from Lower bound (inclusive), or null for no lower bound
+     * @param to Upper bound (exclusive), or null for no upper bound
+     * @return List of matching entities
+     */
+    @SuppressWarnings("unchecked")
+    public <K extends Comparable<? super K>> List<T> findInRange(String indexName, K from, K to) {
+        Version<T> view = viewed();
+        if (view != null) {
+            return resolve(view.data, ((SortedIndex.Snapshot<K>) sortedIndexIn(view, indexName)).range(from, to));
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            return resolve(working, ((SortedIndex.Snapshot<K>) sortedIndex(indexName).snapshot()).range(from, to));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get one page of the entities, optionally filtered by a hash index and ordered by a sorted index
+     * Only the entities on the page are copied. Ordered by a sorted index alone, the page is found
+     * without stepping over the IDs before it; otherwise those IDs are stepped over but not copied.
+     * @param sortIndex Sorted index giving the order, or null for file order; entities without a
+     *                  sort key are left out
+     * @param descending Whether to reverse the order
+     * @param filterIndex Hash index to filter on, or null for no filter
+     * @param filterKey Key the entities must be filed under in filterIndex
+     * @param offset Number of matching entities to skip
+     * @param limit Maximum number of entities
+     * @return Entities on the page
+     */
+    public List<T> findPage(String sortIndex, boolean descending, String filterIndex, Object filterKey,
+                            int offset, int limit) {
+        Version<T> view = viewed();
+        if (view != null) {
+            List<T> inFileOrder = descending ? view.data.values().reversed() : view.data.values();
+            if (sortIndex == null && filterIndex == null) {
+                int start = Math.min(offset, inFileOrder.size());
+                return copyAll(inFileOrder.subList(start, Math.min(inFileOrder.size(), start + limit)));
+            }
+            return resolve(view.data, pageIds(
+                    sortIndex != null ? sortedIndexIn(view, sortIndex) : null, descending,
+                    filterIndex != null ? hashIndexIn(view, filterIndex) : null, filterKey,
+                    inFileOrder.stream().map(keyExtractor).iterator(), offset, limit));
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            SequencedCollection<String> ids = entities.sequencedKeySet();
+            return resolve(working, pageIds(
+                    sortIndex != null ? sortedIndex(sortIndex).snapshot() : null, descending,
+                    filterIndex != null ? hashIndex(filterIndex).snapshot() : null, filterKey,
+                    (descending ? ids.reversed() : ids).iterator(), offset, limit));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pick the IDs on one page, see {@link #findPage}
+     * Without a filter the sorted index steps straight to the page; with one, the IDs before the page
+     * are stepped over but not copied.
+     * @param sort Sorted index giving the order, or null for file order
+     * @param descending Whether to reverse the sort order
+     * @param filter Hash index to filter on, or null for no filter
+     * @param filterKey Key the entities must be filed under in the filter
+     * @param fileOrder IDs in file order (reversed if descending), used without a sort
+     * @param offset Number of matching IDs to skip
+     * @param limit Maximum number of IDs
+     * @return IDs on the page
+     */
+    private static List<String> pageIds(SortedIndex.Snapshot<?> sort, boolean descending, HashIndex.Snapshot filter,
+                                        Object filterKey, Iterator<String> fileOrder, int offset, int limit) {
+        if (filter == null && sort != null) {
+            return sort.page(descending, offset, limit);
+        }
+        Iterator<String> order = sort != null ? sort.ids(descending) : fileOrder;
+        List<String> page = new ArrayList<>(Math.min(limit, 256));
+        int skipped = 0;
+        while (order.hasNext() && page.size() < limit) {
+            String id = order.next();
+            if (filter != null && !filter.contains(filterKey, id)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(id);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Get all entities in file order
+     * @return List of all entities
+     */
+    public List<T> findAll() {
+        Version<T> view = viewed();
+        if (view != null) {
+            return copyAll(view.data.values());
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            List<T> result = new ArrayList<>(entities.size());
+            for (T entity : entities.values()) {
+                result.add(copier.apply(entity));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find an entity by ID
+     * @param id Entity ID
+     * @return Entity or null if not found
+     */
+    public T findById(String id) {
+        Version<T> view = viewed();
+        if (view != null) {
+            T entity = view.data.get(id);
+            return entity != null ? copier.apply(entity) : null;
+        }
+        acquire();
+        try {
+            if (streamsLookup()) {
+                List<T> found = streamFromDisk(JsonArrayCursor.anyFieldEquals(id),
+                        entity -> id.equals(keyExtractor.apply(entity)), 1);
+                if (found != null) {
+                    return found.isEmpty() ? null : found.get(0);
+                }
+            }
+            refreshIfChanged();
+            T entity = entities.get(id);
+            return entity != null ? copier.apply(entity) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find all entities matching a predicate
+     * The predicate sees the cached instances and must not modify them
+     * @param predicate Filter condition
+     * @return List of matching entities
+     */
+    public List<T> findWhere(Predicate<T> predicate) {
+        Version<T> view = viewed();
+        if (view != null) {
+            List<T> result = new ArrayList<>();
+            for (T entity : view.data.values()) {
+                if (predicate.test(entity)) {
+                    result.add(copier.apply(entity));
+                }
+            }
+            return result;
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            List<T> result = new ArrayList<>();
+            for (T entity : entities.values()) {
+                if (predicate.test(entity)) {
+                    result.add(copier.apply(entity));
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find all entities whose field holds the given value
+     * @param field Field name as written in the data file
+     * @param value Expected value, compared as text
+     * @return List of matching entities
+     */
+    public List<T> findByField(String field, String value) {
+        if (viewed() == null) {
+            acquire();
+            try {
+                if (streamsLookup()) {
+                    List<T> found = streamFromDisk(JsonArrayCursor.fieldEquals(field, value),
+                            entity -> true, Integer.MAX_VALUE);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return findWhere(fieldMatcher(field, value));
+    }
+
+    /**
+     * Check whether an entity with the given ID exists
+     * @param id Entity ID
+     * @return true if it exists
+     */
+    public boolean contains(String id) {
+        Version<T> view = viewed();
+        if (view != null) {
+            return view.data.containsKey(id);
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            return entities.containsKey(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the IDs of all entities without copying the entities themselves
+     * @return List of IDs in file order; read-only under a read view
+     */
+    public List<String> ids() {
+        Version<T> view = viewed();
+        if (view != null) {
+            return view.data.keys();
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            return new ArrayList<>(entities.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reload the file if another process changed it, updating indexes and listeners
+     * For listeners that answer queries themselves, without a store call that would refresh first.
+     */
+    public void refresh() {
+        acquire();
+        try {
+            refreshIfChanged();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of entities
+     * @return Entity count
+     */
+    public int size() {
+        Version<T> view = viewed();
+        if (view != null) {
+            return view.data.size();
+        }
+        acquire();
+        try {
+            refreshIfChanged();
+            return entities.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Insert a new entity
+     * @param entity Entity to insert
+     * @return true if inserted, false if the ID already exists or the file could not be written
+     */
+    public boolean insert(T entity) {
+        acquireForWrite();
+        try {
+            refreshIfChanged();
+            String id = keyExtractor.apply(entity);
+            if (entities.containsKey(id)) {
+                return false;
+            }
+
+            T stored = copier.apply(entity);
+            entities.put(id, stored);
+            indexAdd(id, stored);
+            return persist(Mutation.put(id, stored));
+        } finally {
+            releaseForWrite();
+        }
+    }
+
+    /**
+     * Replace an existing entity, keeping its position in the file
+     * @param entity Entity to update
+     * @return true if updated, false if not found or the file could not be written
+     */
+    public boolean update(T entity) {
+        acquireForWrite();
+        try {
+            refreshIfChanged();
+            String id = keyExtractor.apply(entity);
+            if (!entities.containsKey(id)) {
+                return false;
+            }
+
+            T stored = copier.apply(entity);
+            T previous = entities.put(id, stored);
+            indexUpdate(id, previous, stored);
+            return persist(Mutation.put(id, stored));
+        } finally {
+            releaseForWrite();
+        }
+    }
+
+    /**
+     * Atomically change an existing entity based on its current state
+     * The store stays locked between reading and writing, so concurrent modifications are never lost.
+     * @param id Entity ID
+     * @param modifier Function receiving a private copy of the current state and returning the new state
+     * @return true if updated, false if not found or the file could not be written
+     */
+    public boolean modify(String id, UnaryOperator<T> modifier) {
+        acquireForWrite();
+        try {
+            refreshIfChanged();
+            T current = entities.get(id);
+            if (current == null) {
+                return false;
+            }
+
+            T stored = modifier.apply(deepCopy(current));
+            entities.put(id, stored);
+            indexUpdate(id, current, stored);
+            return persist(Mutation.put(id, stored));
+        } finally {
+            releaseForWrite();
+        }
+    }
+
+    /**
+     * Delete an entity by ID
+     * @param id Entity ID
+     * @return true if deleted, false if not found or the file could not be written
+     */
+    public boolean delete(String id) {
+        acquireForWrite();
+        try {
+            refreshIfChanged();
+            T removed = entities.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            indexRemove(id, removed);
+
+            return persist(Mutation.delete(id));
+        } finally {
+            releaseForWrite();
+        }
+    }
+
+    /**
+     * Fold pending changes into a fresh snapshot of the data file
+     */
+    public void compact() {
+        acquireForWrite();
+        try {
+            if (!loaded) {
+                return;
+            }
+            // Another instance may have written since; compacting a stale state would drop its changes
+            refreshIfChanged();
+
+            try {
+                engine.compact(entities.values());
+                countCompactions();
+            } catch (IOException e) {
+                System.err.println("Error compacting " + filePath + ": " + e.getMessage());
+            }
+        } finally {
+            releaseForWrite();
+        }
+    }
+
+    /**
+     * Load the data if it has never been read or another process has committed since the last read/write
+     */
+    private void refreshIfChanged() {
+        // A transaction keeps working on its own staged state until it ends
+        if (loaded && (owner != null || !changedOnDisk())) {
+            return;
+        }
+
+        fileLock.lockShared();
+        try {
+            reload(Collections.emptyList());
+        } finally {
+            fileLock.unlock();
+        }
+        if (owner == null) {
+            publish();
+        }
+    }
+
+    /**
+     * Decide whether a lookup reads the file instead of loading the store
+     * Must hold the lock.
+     * @return true while the store has never been loaded and has answered only a few lookups
+     */
+    private boolean streamsLookup() {
+        if (loaded || owner != null || coldLookups >= Constants.COLD_LOOKUPS_BEFORE_LOAD) {
+            return false;
+        }
+        coldLookups++;
+        return true;
+    }
+
+    /**
+     * Read matching entities straight from disk under the shared file lock, leaving the store unloaded
+     * @param where Filter on the raw JSON, applied before entities are bound
+     * @param predicate Check on the bound entities
+     * @param limit Maximum number of entities to read
+     * @return Matching entities, or null if the file could not be read and the store should load instead
+     */
+    private List<T> streamFromDisk(Predicate<JsonObject> where, Predicate<T> predicate, int limit) {
+        fileLock.lockShared();
+        try (Stream<T> stream = engine.stream(where)) {
+            return stream.filter(predicate).limit(limit).collect(Collectors.toList());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading " + filePath + ": " + e.getMessage());
+            return null;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Build a predicate comparing a field of loaded entities, the in-memory side of {@link #findByField}
+     * @param name Field name, as Gson writes it
+     * @param value Expected value, compared as text
+     * @return Predicate on entities; matches nothing if the class has no such field
+     */
+    private Predicate<T> fieldMatcher(String name, String value) {
+        for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                return entity -> {
+                    try {
+                        Object fieldValue = field.get(entity);
+                        return fieldValue != null && fieldValue.toString().equals(value);
+                    } catch (IllegalAccessException e) {
+                        return false;
+                    }
+                };
+            } catch (NoSuchFieldException ignored) {}
+        }
+        System.err.println(entityClass.getSimpleName() + " has no field " + name);
+        return entity -> false;
+    }
+
+    /**
+     * Check the generation counter and the engine for changes made by someone else
+     * The counter catches rewrites by other instances that keep the file's size and timestamp,
+     * the engine catches edits made without the lock (e.g. by hand).
+     * @return true if the cache is out of date
+     */
+    private boolean changedOnDisk() {
+        return fileLock.generation() != knownGeneration || engine.hasChanged();
+    }
+
+    /**
+     * Bring the cache up to date with the disk, then apply changes that are about to be written
+     * Only the entities that actually differ are passed to the indexes and listeners. Must hold the file lock.
+     * @param pending Own changes to apply on top of the current disk state
+     */
+    private void reload(List<Mutation<T>> pending) {
+        knownGeneration = fileLock.generation();
+        long compactions = fileLock.compactions();
+        try {
+            // The log engine can read just the records appended since we last looked, unless the log was compacted
+            List<Mutation<T>> changes = loaded && compactions == knownCompactions ? engine.readChanges() : null;
+            knownCompactions = compactions;
+            if (changes != null) {
+                changes.forEach(this::apply);
+            } else {
+                reconcile(engine.load());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading " + filePath + ": " + e.getMessage());
+            reconcile(new LinkedHashMap<>());
+        }
+        pending.forEach(this::apply);
+        loaded = true;
+    }
+
+    /**
+     * Replace the cached map with a freshly loaded one, notifying listeners only of real differences
+     * Unchanged entities keep their cached instance.
+     * @param fresh Entities as loaded from disk
+     */
+    private void reconcile(LinkedHashMap<String, T> fresh) {
+        LinkedHashMap<String, T> previous = entities;
+        entities = fresh;
+        for (Map.Entry<String, T> entry : previous.entrySet()) {
+            if (!fresh.containsKey(entry.getKey())) {
+                indexRemove(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, T> entry : fresh.entrySet()) {
+            T old = previous.get(entry.getKey());
+            if (old == null) {
+                indexAdd(entry.getKey(), entry.getValue());
+            } else if (gson.toJsonTree(old).equals(gson.toJsonTree(entry.getValue()))) {
+                entry.setValue(old);
+            } else {
+                indexUpdate(entry.getKey(), old, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Apply a change read from disk (or about to be written) to the map and the listeners
+     * @param mutation Change to apply
+     */
+    private void apply(Mutation<T> mutation) {
+        String id = mutation.getId();
+        if (mutation.getOperation() == Mutation.Operation.PUT) {
+            T previous = entities.put(id, mutation.getEntity());
+            if (previous == null) {
+                indexAdd(id, mutation.getEntity());
+            } else if (previous != mutation.getEntity()) {
+                indexUpdate(id, previous, mutation.getEntity());
+            }
+        } else {
+            T removed = entities.remove(id);
+            if (removed != null) {
+                indexRemove(id, removed);
+            }
+        }
+    }
+
+    /**
+     * Register an index and fill it from the currently loaded data
+     * @param name Index name
+     * @param index Index to register
+     */
+    private void addIndex(String name, SecondaryIndex<T> index) {
+        indexes.put(name, index);
+        register(index);
+    }
+
+    /**
+     * Register a listener and add the currently loaded data to it
+     * @param listener Listener to register
+     */
+    private void register(StoreListener<T> listener) {
+        listeners.add(listener);
+        for (Map.Entry<String, T> entry : entities.entrySet()) {
+            listener.add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Get a hash index by name
+     * @param name Index name
+     * @return The index
+     */
+    private HashIndex<T> hashIndex(String name) {
+        SecondaryIndex<T> index = indexes.get(name);
+        if (!(index instanceof HashIndex)) {
+            throw new IllegalArgumentException("No hash index " + name + " on " + filePath);
+        }
+        return (HashIndex<T>) index;
+    }
+
+    /**
+     * Get a sorted index by name
+     * @param name Index name
+     * @return The index
+     */
+    private SortedIndex<T, ?> sortedIndex(String name) {
+        SecondaryIndex<T> index = indexes.get(name);
+        if (!(index instanceof SortedIndex)) {
+            throw new IllegalArgumentException("No sorted index " + name + " on " + filePath);
+        }
+        return (SortedIndex<T, ?>) index;
+    }
+
+    /**
+     * Get the version of this store in the current thread's read view
+     * @return Version to read, or null to read the store itself (no view, or inside a transaction)
+     */
+    private Version<T> viewed() {
+        ReadView view = ReadView.current();
+        if (view == null || Transaction.current() != null) {
+            return null;
+        }
+        return view.versionOf(filePath, () -> {
+            acquire();
+            try {
+                refreshIfChanged();
+                return published;
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Make the current data visible to read views taken from now on
+     * Called once a change is written, or after a reload; never with unwritten transaction changes.
+     */
+    private void publish() {
+        if (published == null || working != published.data) {
+            published = new Version<>(working, indexSnapshots());
+            ReadView.publish(Collections.singletonMap(filePath, published));
+        }
+    }
+
+    /**
+     * Publish the data of all stores a transaction wrote, as one step, before the stores are released
+     * @param stores Stores of the committed transaction
+     */
+    static void publishCommitted(List<EntityStore<?>> stores) {
+        Map<String, Object> versions = new LinkedHashMap<>();
+        for (EntityStore<?> store : stores) {
+            store.takeUnpublished(versions);
+        }
+        if (!versions.isEmpty()) {
+            ReadView.publish(versions);
+        }
+    }
+
+    private void takeUnpublished(Map<String, Object> versions) {
+        if (published == null || working != published.data) {
+            published = new Version<>(working, indexSnapshots());
+            versions.put(filePath, published);
+        }
+    }
+
+    /**
+     * Take a snapshot of every index, to publish with the data they were kept up to date with
+     */
+    private Map<String, Object> indexSnapshots() {
+        Map<String, Object> snapshots = new ConcurrentHashMap<>();
+        for (Map.Entry<String, SecondaryIndex<T>> entry : indexes.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Get a hash index as it was in a version
+     */
+    private HashIndex.Snapshot hashIndexIn(Version<T> version, String name) {
+        return (HashIndex.Snapshot) indexIn(version, name, hashIndex(name));
+    }
+
+    /**
+     * Get a sorted index as it was in a version
+     */
+    private SortedIndex.Snapshot<?> sortedIndexIn(Version<T> version, String name) {
+        return (SortedIndex.Snapshot<?>) indexIn(version, name, sortedIndex(name));
+    }
+
+    private static <T> Object indexIn(Version<T> version, String name, SecondaryIndex<T> index) {
+        return version.indexes.computeIfAbsent(name, key -> {
+            SecondaryIndex<T> copy = index.emptyCopy();
+            for (String id : version.data.keys()) {
+                copy.add(id, version.data.get(id));
+            }
+            return copy.snapshot();
+        });
+    }
+
+    /**
+     * Copy entities read from a version out to the caller
+     */
+    private List<T> copyAll(List<T> entities) {
+        List<T> result = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            result.add(copier.apply(entity));
+        }
+        return result;
+    }
+
+    /**
+     * Turn index hits into (copies of) the entities of a version
+     * @param data Version of the data the IDs were found in
+     * @param ids Entity IDs
+     * @return List of entities
+     */
+    private List<T> resolve(PersistentMap<String, T> data, Collection<String> ids) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T entity = data.get(id);
+            if (entity != null) {
+                result.add(copier.apply(entity));
+            }
+        }
+        return result;
+    }
+
+    private void indexAdd(String id, T entity) {
+        working = working.put(id, entity);
+        for (StoreListener<T> listener : listeners) {
+            listener.add(id, entity);
+        }
+    }
+
+    private void indexUpdate(String id, T oldEntity, T newEntity) {
+        working = working.put(id, newEntity);
+        for (StoreListener<T> listener : listeners) {
+            listener.update(id, oldEntity, newEntity);
+        }
+    }
+
+    private void indexRemove(String id, T entity) {
+        working = working.remove(id);
+        for (StoreListener<T> listener : listeners) {
+            listener.remove(id, entity);
+        }
+    }
+
+    /**
+     * Lock the store for the current call
+     * Inside a transaction the store stays locked (and joins the transaction) until it ends.
+     */
+    private void acquire() {
+        lock.lock();
+        Transaction tx = Transaction.current();
+        if (tx != null && owner != tx) {
+            lock.lock();
+            // Start from what other instances have committed so far
+            refreshIfChanged();
+            owner = tx;
+            tx.enlist(this);
+        }
+    }
+
+    /**
+     * Lock the store for a call that changes it
+     * Outside a transaction this also locks the file against other processes until
+     * {@link #releaseForWrite}, so the change is made to, and written over, the latest data.
+     */
+    private void acquireForWrite() {
+        acquire();
+        if (owner == null) {
+            fileLock.lockExclusive();
+        }
+    }
+
+    private void releaseForWrite() {
+        if (owner == null) {
+            fileLock.unlock();
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Persist a mutation that has already been applied to the map, or stage it inside a transaction
+     * On failure the cache is invalidated so the next access reloads what is actually on disk
+     * @param mutation Change to persist
+     * @return true if written (or staged) successfully
+     */
+    private boolean persist(Mutation<T> mutation) {
+        if (owner != null) {
+            // Later changes to the same entity replace earlier ones
+            staged.remove(mutation.getId());
+            staged.put(mutation.getId(), mutation);
+            return true;
+        }
+
+        try {
+            engine.write(Collections.singletonList(mutation), entities.values(), true);
+            countCompactions();
+            knownGeneration = fileLock.nextGeneration();
+            publish();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing " + filePath + ": " + e.getMessage());
+            loaded = false;
+            return false;
+        }
+    }
+
+    /**
+     * Tell other instances about compactions our engine made while writing; must hold the file lock exclusively
+     */
+    private void countCompactions() {
+        long made = engine.compactions();
+        if (made != compactionsMade) {
+            compactionsMade = made;
+            knownCompactions = fileLock.countCompaction();
+        }
+    }
+
+    /**
+     * Check whether the current transaction changed this store
+     * @return true if there are staged changes
+     */
+    boolean hasStaged() {
+        return !staged.isEmpty();
+    }
+
+    /**
+     * Add the staged changes to a journal entry
+     * @param changes Journal changes to append to
+     */
+    void describeStaged(List<TransactionJournal.Change> changes) {
+        for (Mutation<T> mutation : staged.values()) {
+            TransactionJournal.Change change = new TransactionJournal.Change();
+            change.file = filePath;
+            change.op = mutation.getOperation();
+            change.id = mutation.getId();
+            change.entity = mutation.getEntity() != null ? gson.toJsonTree(mutation.getEntity()) : null;
+            changes.add(change);
+        }
+    }
+
+    /**
+     * Write the staged changes as one batch
+     * @param transactionId ID to tag the changes with, or null if no journal is used
+     * @param sync Whether the write must be durable on return
+     * @return true if written successfully
+     */
+    boolean applyStaged(String transactionId, boolean sync) {
+        List<Mutation<T>> mutations = new ArrayList<>(staged.size());
+        for (Mutation<T> mutation : staged.values()) {
+            mutations.add(transactionId != null ? mutation.inTransaction(transactionId) : mutation);
+        }
+        staged.clear();
+
+        fileLock.lockExclusive();
+        try {
+            // Keep what other instances committed during the transaction; our changes go on top
+            if (changedOnDisk()) {
+                reload(mutations);
+            }
+            engine.write(mutations, entities.values(), sync);
+            countCompactions();
+            knownGeneration = fileLock.nextGeneration();
+            if (!sync) {
+                TransactionJournal.registerPending(engine);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing " + filePath + ": " + e.getMessage());
+            return false;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Release the store at the end of a transaction
+     * @param committed Whether the transaction committed; if not, the staged changes are dropped
+     *                  and the store reloads its last written state before it is released, so indexes
+     *                  and listeners hear about every entity the transaction had changed
+     */
+    void endTransaction(boolean committed) {
+        owner = null;
+        try {
+            if (!committed) {
+                staged.clear();
+                loaded = false;
+                refreshIfChanged();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deep copy an entity through Gson's tree model
+     * @param entity Entity to copy
+     * @return Independent copy of the entity
+     */
+    private T deepCopy(T entity) {
+        return gson.fromJson(gson.toJsonTree(entity), entityClass);
+    }
+}
@@ -0,0 +1,156 @@
+package com.owsb.repository.storage;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Hash index for equality lookups on foreign keys, enum statuses and similar fields
+ * One entity may be filed under several keys (e.g. every item ID on a requisition).
+ * Entities whose key is null are not indexed.
+ * @param <T> The entity type
+ */
+class HashIndex<T> implements SecondaryIndex<T> {
+    private static final PersistentSortedMap<Long, String> EMPTY_BUCKET =
+            PersistentSortedMap.empty(Comparator.naturalOrder());
+
+    private final Function<T, ? extends Collection<?>> keysExtractor;
+    private Snapshot entries = new Snapshot(PersistentMap.empty(), PersistentMap.empty());
+    private long nextPosition = 0;
+
+    /**
+     * Constructor
+     * @param keysExtractor Function returning all keys an entity is filed under
+     */
+    HashIndex(Function<T, ? extends Collection<?>> keysExtractor) {
+        this.keysExtractor = keysExtractor;
+    }
+
+    /**
+     * Entries of the index at one moment
+     * Each key has a bucket of IDs ordered by when they were filed under it.
+     */
+    static final class Snapshot {
+        final PersistentMap<Object, PersistentSortedMap<Long, String>> buckets;
+        // Position of each indexed ID in its buckets
+        final PersistentMap<String, Long> positions;
+
+        Snapshot(PersistentMap<Object, PersistentSortedMap<Long, String>> buckets,
+                 PersistentMap<String, Long> positions) {
+            this.buckets = buckets;
+            this.positions = positions;
+        }
+
+        /**
+         * Get the IDs of all entities filed under a key
+         * @param key Key to look up
+         * @return IDs in the order they were filed
+         */
+        List<String> lookup(Object key) {
+            PersistentSortedMap<Long, String> bucket = bucket(key);
+            return bucket.values(0, bucket.size());
+        }
+
+        /**
+         * Get the number of entities filed under a key without materializing them
+         * @param key Key to look up
+         * @return Number of entities
+         */
+        int count(Object key) {
+            return bucket(key).size();
+        }
+
+        /**
+         * Check whether an entity is filed under a key
+         * @param key Key
+         * @param id Entity ID
+         * @return true if filed under the key
+         */
+        boolean contains(Object key, String id) {
+            Long position = positions.get(id);
+            return position != null && id.equals(bucket(key).get(position));
+        }
+
+        private PersistentSortedMap<Long, String> bucket(Object key) {
+            PersistentSortedMap<Long, String> bucket = key != null ? buckets.get(key) : null;
+            return bucket != null ? bucket : EMPTY_BUCKET;
+        }
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        return entries;
+    }
+
+    @Override
+    public HashIndex<T> emptyCopy() {
+        return new HashIndex<>(keysExtractor);
+    }
+
+    @Override
+    public void add(String id, T entity) {
+        Set<Object> keys = keysOf(entity);
+        if (keys.isEmpty()) {
+            return;
+        }
+        long position = nextPosition++;
+        PersistentMap<Object, PersistentSortedMap<Long, String>> buckets = entries.buckets;
+        for (Object key : keys) {
+            buckets = buckets.put(key, entries.bucket(key).put(position, id));
+        }
+        entries = new Snapshot(buckets, entries.positions.put(id, position));
+    }
+
+    @Override
+    public void remove(String id, T entity) {
+        Long position = entries.positions.get(id);
+        if (position == null) {
+            return;
+        }
+        PersistentMap<Object, PersistentSortedMap<Long, String>> buckets = entries.buckets;
+        for (Object key : keysOf(entity)) {
+            PersistentSortedMap<Long, String> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket = bucket.remove(position);
+                buckets = bucket.size() > 0 ? buckets.put(key, bucket) : buckets.remove(key);
+            }
+        }
+        entries = new Snapshot(buckets, entries.positions.remove(id));
+    }
+
+    @Override
+    public void update(String id, T oldEntity, T newEntity) {
+        // Leave untouched keys alone so entities keep their position in the buckets
+        if (keysOf(oldEntity).equals(keysOf(newEntity))) {
+            return;
+        }
+        remove(id, oldEntity);
+        add(id, newEntity);
+    }
+
+    @Override
+    public void clear() {
+        entries = new Snapshot(PersistentMap.empty(), PersistentMap.empty());
+    }
+
+    /**
+     * Get the non-null keys of an entity
+     * @param entity Entity
+     * @return Distinct keys
+     */
+    private Set<Object> keysOf(T entity) {
+        Set<Object> keys = new LinkedHashSet<>();
+        Collection<?> extracted = keysExtractor.apply(entity);
+        if (extracted != null) {
+            for (Object key : extracted) {
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,87 @@
+package com.owsb.repository.storage;
+
+import com.google.gson.JsonObject;
+import com.owsb.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine that keeps the whole entity list in one pretty-printed JSON file
+ * Every write rewrites the complete file. This is the original data/*.txt layout and
+ * also serves as the snapshot format of {@link LogStructuredEngine}.
+ * @param <T> The entity type
+ */
+public class JsonFileEngine<T> implements StorageEngine<T> {
+    private final String filePath;
+    private final Class<T> entityClass;
+    private final Function<T, String> keyExtractor;
+
+    // File state as of our last load/write, used to detect outside changes
+    private long knownModified = -1;
+    private long knownSize = -1;
+
+    /**
+     * Constructor
+     * @param filePath JSON data file
+     * @param entityClass Class of the stored entities
+     * @param keyExtractor Function returning the unique ID of an entity
+     */
+    public JsonFileEngine(String filePath, Class<T> entityClass, Function<T, String> keyExtractor) {
+        this.filePath = filePath;
+        this.entityClass = entityClass;
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public LinkedHashMap<String, T> load() throws IOException {
+        File file = new File(filePath);
+        knownModified = file.lastModified();
+        knownSize = file.length();
+
+        // Streamed straight into the map, so the file is never held as a list as well
+        LinkedHashMap<String, T> entities = new LinkedHashMap<>();
+        try (Stream<T> stream = FileUtils.streamListFromJson(filePath, entityClass)) {
+            stream.forEach(entity -> entities.put(keyExtractor.apply(entity), entity));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return entities;
+    }
+
+    @Override
+    public Stream<T> stream(Predicate<JsonObject> where) throws IOException {
+        return FileUtils.streamListFromJson(filePath, entityClass, where);
+    }
+
+    @Override
+    public void write(Collection<Mutation<T>> mutations, Collection<T> currentState, boolean sync) throws IOException {
+        FileUtils.writeListToJsonAtomically(filePath, new ArrayList<>(currentState));
+        File file = new File(filePath);
+        knownModified = file.lastModified();
+        knownSize = file.length();
+    }
+
+    @Override
+    public void sync() {
+        // Files are replaced by rename, there is nothing buffered to flush
+    }
+
+    @Override
+    public void compact(Collection<T> currentState) {
+        // Every write is already a full snapshot
+    }
+
+    @Override
+    public boolean hasChanged() {
+        File file = new File(filePath);
+        return file.lastModified() != knownModified || file.length() != knownSize;
+    }
+}
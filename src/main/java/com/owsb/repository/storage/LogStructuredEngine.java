@@ -0,0 +1,380 @@
+package com.owsb.repository.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine that appends every change to a log instead of rewriting the data file
+ * The data file (e.g. data/items.txt, or data/items.bin with binary snapshots) acts as the snapshot,
+ * and changes since the last snapshot live in a sibling log file (e.g. data/items.log) with one
+ * compact JSON record per line.
+ * Loading reads the snapshot and replays the log. Once the log holds at least as many records as
+ * the snapshot has entities (and no fewer than Constants.LOG_COMPACTION_THRESHOLD) it is folded
+ * into a new snapshot, so the cost of a save no longer grows with the size of the data set.
+ *
+ * Existing data files work unchanged as the initial snapshot.
+ * @param <T> The entity type
+ */
+public class LogStructuredEngine<T> implements StorageEngine<T> {
+    private static final Gson gson = new Gson(); // Compact output, one record per line
+
+    private final StorageEngine<T> snapshot;
+    private final File logFile;
+    private final Class<T> entityClass;
+    private final Function<T, String> keyExtractor;
+    private final int compactionThreshold;
+
+    private int logRecords = 0;
+    private long knownLogSize = -1;
+    private long compactions = 0;
+
+    // Set while the log holds records that the transaction journal still refers to by ID
+    private volatile boolean holdsJournaledRecords = false;
+
+    /**
+     * One line of the log
+     */
+    static class LogRecord {
+        Mutation.Operation op;
+        String id;
+        JsonElement entity;
+        String tx; // Transaction that wrote the record, absent for plain writes
+    }
+
+    /**
+     * Constructor
+     * @param filePath JSON data file the log belongs to
+     * @param snapshot Engine holding the snapshot the log is replayed on
+     * @param entityClass Class of the stored entities
+     * @param keyExtractor Function returning the unique ID of an entity
+     * @param compactionThreshold Minimum number of log records before the log is compacted
+     */
+    public LogStructuredEngine(String filePath, StorageEngine<T> snapshot, Class<T> entityClass,
+                               Function<T, String> keyExtractor, int compactionThreshold) {
+        this.snapshot = snapshot;
+        this.logFile = new File(logPathFor(filePath));
+        this.entityClass = entityClass;
+        this.keyExtractor = keyExtractor;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Get the log file that belongs to a data file
+     * @param filePath Data file path
+     * @return Log file path (same name with a .log extension)
+     */
+    public static String logPathFor(String filePath) {
+        int dot = filePath.lastIndexOf('.');
+        int separator = filePath.lastIndexOf(File.separatorChar);
+        String base = dot > separator ? filePath.substring(0, dot) : filePath;
+        return base + ".log";
+    }
+
+    @Override
+    public LinkedHashMap<String, T> load() throws IOException {
+        LinkedHashMap<String, T> entities = snapshot.load();
+        logRecords = 0;
+
+        if (logFile.exists()) {
+            byte[] bytes = Files.readAllBytes(logFile.toPath());
+            int lineStart = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    replay(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8), entities);
+                    lineStart = i + 1;
+                }
+            }
+
+            // A last line without newline is a write that was interrupted, drop it
+            if (lineStart < bytes.length) {
+                System.err.println("Discarding incomplete record at the end of " + logFile);
+                try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                    raf.setLength(lineStart);
+                }
+            }
+        }
+        knownLogSize = logFile.length();
+        // Loads may run alongside other readers, so an overgrown log is compacted by the next write
+        return entities;
+    }
+
+    @Override
+    public Stream<T> stream(Predicate<JsonObject> where) throws IOException {
+        // The log is bounded by compaction, so its latest record per ID is held while the snapshot streams past
+        Map<String, LogRecord> changed = new LinkedHashMap<>();
+        if (logFile.exists()) {
+            byte[] bytes = Files.readAllBytes(logFile.toPath());
+            int lineStart = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                    lineStart = i + 1;
+                    try {
+                        LogRecord record = gson.fromJson(line, LogRecord.class);
+                        if (record != null && record.id != null) {
+                            changed.remove(record.id);
+                            changed.put(record.id, record);
+                        }
+                    } catch (JsonSyntaxException ignored) {}
+                }
+            }
+            // An interrupted last line is left for the next load to cut off
+        }
+
+        // Entities changed since the last compaction come after the untouched ones
+        List<T> logged = new ArrayList<>();
+        for (LogRecord record : changed.values()) {
+            if (record.op == Mutation.Operation.PUT && record.entity != null && record.entity.isJsonObject()
+                    && (where == null || where.test(record.entity.getAsJsonObject()))) {
+                logged.add(gson.fromJson(record.entity, entityClass));
+            }
+        }
+        Stream<T> unchanged = snapshot.stream(where)
+                .filter(entity -> !changed.containsKey(keyExtractor.apply(entity)));
+        return Stream.concat(unchanged, logged.stream());
+    }
+
+    @Override
+    public List<Mutation<T>> readChanges() throws IOException {
+        // Compactions by other instances are caught by the store's counter; this catches edits made without the lock
+        long length = logFile.length();
+        if (knownLogSize < 0 || length < knownLogSize || snapshot.hasChanged()) {
+            return null;
+        }
+
+        List<Mutation<T>> mutations = new ArrayList<>();
+        if (length == knownLogSize) {
+            return mutations;
+        }
+        byte[] bytes = new byte[(int) (length - knownLogSize)];
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "r")) {
+            raf.seek(knownLogSize);
+            raf.readFully(bytes);
+        }
+
+        // Only whole lines; the rest is picked up once its writer has finished it
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                Mutation<T> mutation = parse(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                if (mutation != null) {
+                    mutations.add(mutation);
+                }
+                lineStart = i + 1;
+            }
+        }
+        knownLogSize += lineStart;
+        return mutations;
+    }
+
+    @Override
+    public void write(Collection<Mutation<T>> mutations, Collection<T> currentState, boolean sync) throws IOException {
+        List<LogRecord> records = new ArrayList<>(mutations.size());
+        for (Mutation<T> mutation : mutations) {
+            LogRecord record = new LogRecord();
+            record.op = mutation.getOperation();
+            record.id = mutation.getId();
+            record.entity = mutation.getEntity() != null ? gson.toJsonTree(mutation.getEntity()) : null;
+            record.tx = mutation.getTransactionId();
+            records.add(record);
+        }
+
+        if (!sync) {
+            holdsJournaledRecords = true;
+        }
+        append(logFile, records, sync);
+        logRecords += mutations.size();
+        knownLogSize = logFile.length();
+
+        // Deferred writes are never compacted here; the journal checkpoint has to run first
+        if (sync && shouldCompact(currentState.size())) {
+            compact(currentState);
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        sync(logFile);
+        holdsJournaledRecords = false;
+    }
+
+    @Override
+    public void compact(Collection<T> currentState) throws IOException {
+        if (logRecords == 0 && logFile.length() == 0) {
+            return;
+        }
+
+        // Compaction drops the transaction tags recovery relies on, so the journal must let go of them first;
+        // it may hold other instances' transactions as well as ours
+        if (!TransactionJournal.checkpoint()) {
+            return;
+        }
+
+        // The snapshot is replaced atomically before the log is cleared, so a crash in between
+        // only means the (idempotent) log is replayed once more on top of the new snapshot
+        snapshot.write(Collections.emptyList(), currentState, true);
+        try (FileOutputStream out = new FileOutputStream(logFile, false)) {
+            out.getFD().sync();
+        }
+        logRecords = 0;
+        knownLogSize = logFile.length();
+        compactions++;
+    }
+
+    @Override
+    public long compactions() {
+        return compactions;
+    }
+
+    @Override
+    public boolean hasChanged() {
+        return snapshot.hasChanged() || logFile.length() != knownLogSize;
+    }
+
+    /**
+     * Get the IDs of all transactions that have records in a log file
+     * @param logFile Log file
+     * @param repair Whether to cut off an interrupted last line so records can safely be appended
+     *               afterwards; only while holding the file's lock exclusively
+     * @return Transaction IDs found in the log
+     * @throws IOException if the log cannot be read
+     */
+    static Set<String> transactionsIn(File logFile, boolean repair) throws IOException {
+        Set<String> transactions = new HashSet<>();
+        if (!logFile.exists()) {
+            return transactions;
+        }
+
+        byte[] bytes = Files.readAllBytes(logFile.toPath());
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                lineStart = i + 1;
+                try {
+                    LogRecord record = gson.fromJson(line, LogRecord.class);
+                    if (record != null && record.tx != null) {
+                        transactions.add(record.tx);
+                    }
+                } catch (JsonSyntaxException ignored) {}
+            }
+        }
+
+        if (repair && lineStart < bytes.length) {
+            try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                raf.setLength(lineStart);
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Make a log file durable, whoever wrote it
+     * @param logFile Log file
+     * @throws IOException if the log cannot be synced
+     */
+    static void sync(File logFile) throws IOException {
+        if (logFile.exists()) {
+            try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+                out.getFD().sync();
+            }
+        }
+    }
+
+    /**
+     * Append records to a log file with a single write
+     * @param logFile Log file
+     * @param records Records to append
+     * @param sync Whether to make the records durable before returning
+     * @throws IOException if the log cannot be written
+     */
+    static void append(File logFile, List<LogRecord> records, boolean sync) throws IOException {
+        StringBuilder batch = new StringBuilder();
+        for (LogRecord record : records) {
+            batch.append(gson.toJson(record)).append('\n');
+        }
+
+        File parentDir = logFile.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+            if (sync) {
+                out.getFD().sync();
+            }
+        }
+    }
+
+    /**
+     * Apply one log line to the entity map
+     * @param line Log line
+     * @param entities Map to update
+     */
+    private void replay(String line, LinkedHashMap<String, T> entities) {
+        Mutation<T> mutation = parse(line);
+        if (mutation == null) {
+            return;
+        }
+        if (mutation.getOperation() == Mutation.Operation.PUT) {
+            entities.put(mutation.getId(), mutation.getEntity());
+        } else {
+            entities.remove(mutation.getId());
+        }
+    }
+
+    /**
+     * Read one log line
+     * @param line Log line
+     * @return The change it records, or null for blank or unreadable lines
+     */
+    private Mutation<T> parse(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+
+        try {
+            LogRecord record = gson.fromJson(line, LogRecord.class);
+            logRecords++;
+            if (record.op == Mutation.Operation.PUT) {
+                return Mutation.put(record.id, gson.fromJson(record.entity, entityClass));
+            } else if (record.op == Mutation.Operation.DELETE) {
+                return Mutation.delete(record.id);
+            }
+        } catch (JsonSyntaxException e) {
+            System.err.println("Skipping unreadable record in " + logFile + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Decide whether the log has grown enough to be folded into the snapshot
+     * Compacting only after at least as many records as entities keeps the amortized cost per write constant
+     * @param entityCount Number of entities in the current state
+     * @return true if a compaction is due
+     */
+    private boolean shouldCompact(int entityCount) {
+        return logRecords >= Math.max(compactionThreshold, entityCount);
+    }
+}
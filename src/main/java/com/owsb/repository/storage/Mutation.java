@@ -0,0 +1,72 @@
+package com.owsb.repository.storage;
+
+/**
+ * A single change to an entity store
+ * Used by storage engines to persist changes without rewriting unchanged data
+ * @param <T> The entity type
+ */
+public class Mutation<T> {
+    /**
+     * Kind of change
+     */
+    public enum Operation {
+        PUT,    // Insert or replace the entity with this ID
+        DELETE  // Remove the entity with this ID
+    }
+
+    private final Operation operation;
+    private final String id;
+    private final T entity;
+    private final String transactionId;
+
+    private Mutation(Operation operation, String id, T entity, String transactionId) {
+        this.operation = operation;
+        this.id = id;
+        this.entity = entity;
+        this.transactionId = transactionId;
+    }
+
+    /**
+     * Create an insert/replace mutation
+     * @param id Entity ID
+     * @param entity New entity state
+     * @return PUT mutation
+     */
+    public static <T> Mutation<T> put(String id, T entity) {
+        return new Mutation<>(Operation.PUT, id, entity, null);
+    }
+
+    /**
+     * Create a delete mutation
+     * @param id Entity ID
+     * @return DELETE mutation
+     */
+    public static <T> Mutation<T> delete(String id) {
+        return new Mutation<>(Operation.DELETE, id, null, null);
+    }
+
+    /**
+     * Tag this change with the transaction that made it
+     * @param transactionId Transaction ID
+     * @return Copy of this mutation carrying the transaction ID
+     */
+    public Mutation<T> inTransaction(String transactionId) {
+        return new Mutation<>(operation, id, entity, transactionId);
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public T getEntity() {
+        return entity;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+}
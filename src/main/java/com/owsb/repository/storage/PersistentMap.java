@@ -0,0 +1,356 @@
+package com.owsb.repository.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable hash map, kept as a hash array mapped trie
+ * Every change returns a new map that shares all untouched nodes with the old one, so a change costs
+ * a handful of small array copies (one per trie level) and old versions stay valid for as long as
+ * anyone reads them. Used to hand out point-in-time versions of the stores, see {@link ReadView}.
+ *
+ * Values are listed in insertion order: replacing a value keeps its position, as in a LinkedHashMap.
+ * @param <K> Key type, with value-based equals and hashCode
+ * @param <V> Value type
+ */
+public final class PersistentMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(new BitmapNode(0, new Object[0]), 0, 0);
+
+    private final BitmapNode root;
+    private final int size;
+    private final long nextOrdinal;
+    // Entries, values and keys in insertion order, built on first use; the map never changes, so neither do they
+    private volatile Entry[] orderedEntries;
+    private volatile List<V> orderedValues;
+    private volatile List<K> orderedKeys;
+
+    private PersistentMap(BitmapNode root, int size, long nextOrdinal) {
+        this.root = root;
+        this.size = size;
+        this.nextOrdinal = nextOrdinal;
+    }
+
+    /**
+     * Get the empty map
+     * @return Empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Get the value of a key
+     * @param key Key
+     * @return Value, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        Entry entry = find(key);
+        return entry != null ? (V) entry.value : null;
+    }
+
+    /**
+     * Check whether a key is present
+     * @param key Key
+     * @return true if present
+     */
+    public boolean containsKey(K key) {
+        return find(key) != null;
+    }
+
+    /**
+     * Get the number of entries
+     * @return Entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a map with a key set to a value
+     * @param key Key
+     * @param value Value (not null)
+     * @return New map, or this map if the key already has this exact value
+     */
+    public PersistentMap<K, V> put(K key, V value) {
+        Entry existing = find(key);
+        if (existing != null && existing.value == value) {
+            return this;
+        }
+        long ordinal = existing != null ? existing.ordinal : nextOrdinal;
+        BitmapNode newRoot = root.put(new Entry(key, key.hashCode(), value, ordinal), 0);
+        return new PersistentMap<>(newRoot, existing != null ? size : size + 1,
+                existing != null ? nextOrdinal : nextOrdinal + 1);
+    }
+
+    /**
+     * Get a map without a key
+     * @param key Key
+     * @return New map, or this map if the key is absent
+     */
+    public PersistentMap<K, V> remove(K key) {
+        if (find(key) == null) {
+            return this;
+        }
+        BitmapNode newRoot = root.remove(key, key.hashCode(), 0);
+        return new PersistentMap<>(newRoot != null ? newRoot : empty().root, size - 1, nextOrdinal);
+    }
+
+    /**
+     * Get all values in insertion order
+     * @return Read-only list of values
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = orderedValues;
+        if (result == null) {
+            Entry[] entries = entriesInOrder();
+            Object[] values = new Object[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                values[i] = entries[i].value;
+            }
+            result = (List<V>) List.of(values);
+            orderedValues = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get all keys in insertion order
+     * @return Read-only list of keys
+     */
+    @SuppressWarnings("unchecked")
+    public List<K> keys() {
+        List<K> result = orderedKeys;
+        if (result == null) {
+            Entry[] entries = entriesInOrder();
+            Object[] keys = new Object[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                keys[i] = entries[i].key;
+            }
+            result = (List<K>) List.of(keys);
+            orderedKeys = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the entries sorted by insertion order, sorting them only once per map
+     */
+    private Entry[] entriesInOrder() {
+        Entry[] result = orderedEntries;
+        if (result == null) {
+            List<Entry> entries = new ArrayList<>(size);
+            root.collect(entries);
+            entries.sort(Comparator.comparingLong(entry -> entry.ordinal));
+            result = entries.toArray(new Entry[0]);
+            orderedEntries = result;
+        }
+        return result;
+    }
+
+    private Entry find(Object key) {
+        int hash = key.hashCode();
+        Object node = root;
+        int shift = 0;
+        while (true) {
+            if (node instanceof BitmapNode) {
+                BitmapNode bitmapNode = (BitmapNode) node;
+                int bit = bit(hash, shift);
+                if ((bitmapNode.bitmap & bit) == 0) {
+                    return null;
+                }
+                node = bitmapNode.children[bitmapNode.index(bit)];
+                shift += BITS;
+            } else if (node instanceof Entry) {
+                Entry entry = (Entry) node;
+                return entry.key.equals(key) ? entry : null;
+            } else {
+                return ((CollisionNode) node).find(key);
+            }
+        }
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * One key and value, with its position in insertion order
+     */
+    private static final class Entry {
+        final Object key;
+        final int hash;
+        final Object value;
+        final long ordinal;
+
+        Entry(Object key, int hash, Object value, long ordinal) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.ordinal = ordinal;
+        }
+    }
+
+    /**
+     * Trie node with up to 32 children, present ones packed in order of their bit in the bitmap
+     * A child is an Entry, a deeper BitmapNode, or a CollisionNode.
+     */
+    private static final class BitmapNode {
+        final int bitmap;
+        final Object[] children;
+
+        BitmapNode(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        BitmapNode put(Entry entry, int shift) {
+            int bit = bit(entry.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] grown = new Object[children.length + 1];
+                System.arraycopy(children, 0, grown, 0, index);
+                grown[index] = entry;
+                System.arraycopy(children, index, grown, index + 1, children.length - index);
+                return new BitmapNode(bitmap | bit, grown);
+            }
+
+            Object child = children[index];
+            Object replacement;
+            if (child instanceof Entry) {
+                Entry existing = (Entry) child;
+                replacement = existing.key.equals(entry.key) ? entry
+                        : merge(existing, existing.hash, entry, shift + BITS);
+            } else if (child instanceof BitmapNode) {
+                replacement = ((BitmapNode) child).put(entry, shift + BITS);
+            } else {
+                CollisionNode collisions = (CollisionNode) child;
+                int hash = collisions.entries[0].hash;
+                replacement = hash == entry.hash ? collisions.put(entry)
+                        : merge(collisions, hash, entry, shift + BITS);
+            }
+            Object[] copy = children.clone();
+            copy[index] = replacement;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        /**
+         * @return Node without the key, or null if it became empty
+         */
+        BitmapNode remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            Object child = children[index];
+            Object replacement;
+            if (child instanceof Entry) {
+                replacement = null;
+            } else if (child instanceof BitmapNode) {
+                BitmapNode node = ((BitmapNode) child).remove(key, hash, shift + BITS);
+                // A branch left with a single entry folds back into its parent
+                replacement = node != null && node.children.length == 1 && node.children[0] instanceof Entry
+                        ? node.children[0] : node;
+            } else {
+                replacement = ((CollisionNode) child).remove(key);
+            }
+
+            if (replacement != null) {
+                Object[] copy = children.clone();
+                copy[index] = replacement;
+                return new BitmapNode(bitmap, copy);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            Object[] shrunk = new Object[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, shrunk);
+        }
+
+        void collect(List<Entry> entries) {
+            for (Object child : children) {
+                if (child instanceof Entry) {
+                    entries.add((Entry) child);
+                } else if (child instanceof BitmapNode) {
+                    ((BitmapNode) child).collect(entries);
+                } else {
+                    entries.addAll(Arrays.asList(((CollisionNode) child).entries));
+                }
+            }
+        }
+
+        /**
+         * Build the smallest subtree holding an entry or collision node and a new entry with another key
+         */
+        private static Object merge(Object first, int firstHash, Entry second, int shift) {
+            if (firstHash == second.hash) {
+                return new CollisionNode(new Entry[]{(Entry) first, second});
+            }
+            int firstBit = bit(firstHash, shift);
+            int secondBit = bit(second.hash, shift);
+            if (firstBit == secondBit) {
+                return new BitmapNode(firstBit, new Object[]{merge(first, firstHash, second, shift + BITS)});
+            }
+            Object[] children = Integer.compareUnsigned(firstBit, secondBit) < 0
+                    ? new Object[]{first, second} : new Object[]{second, first};
+            return new BitmapNode(firstBit | secondBit, children);
+        }
+    }
+
+    /**
+     * Entries whose keys share the full hash
+     */
+    private static final class CollisionNode {
+        final Entry[] entries;
+
+        CollisionNode(Entry[] entries) {
+            this.entries = entries;
+        }
+
+        Entry find(Object key) {
+            for (Entry entry : entries) {
+                if (entry.key.equals(key)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        CollisionNode put(Entry entry) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].key.equals(entry.key)) {
+                    Entry[] copy = entries.clone();
+                    copy[i] = entry;
+                    return new CollisionNode(copy);
+                }
+            }
+            Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+            grown[entries.length] = entry;
+            return new CollisionNode(grown);
+        }
+
+        /**
+         * @return Node without the key, or the last remaining entry
+         */
+        Object remove(Object key) {
+            List<Entry> remaining = new ArrayList<>(entries.length);
+            for (Entry entry : entries) {
+                if (!entry.key.equals(key)) {
+                    remaining.add(entry);
+                }
+            }
+            return remaining.size() == 1 ? remaining.get(0) : new CollisionNode(remaining.toArray(new Entry[0]));
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.owsb.repository.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sorted map, kept as an AVL tree whose nodes also count their subtree
+ * Like {@link PersistentMap}, every change returns a new map sharing all untouched nodes with the old
+ * one (one node copy per tree level). The counts let a position be found in O(log n), so a page deep
+ * into the order is reached without stepping over everything before it.
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public final class PersistentSortedMap<K, V> {
+    private final Comparator<? super K> comparator;
+    private final Node root;
+
+    private PersistentSortedMap(Comparator<? super K> comparator, Node root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    /**
+     * Get an empty map
+     * @param comparator Order of the keys
+     * @return Empty map
+     */
+    public static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentSortedMap<>(comparator, null);
+    }
+
+    /**
+     * @return Number of entries
+     */
+    public int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * Get the value of a key
+     * @param key Key
+     * @return Value, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        Node node = root;
+        while (node != null) {
+            int order = comparator.compare(key, (K) node.key);
+            if (order == 0) {
+                return (V) node.value;
+            }
+            node = order < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Get a map with a key set to a value
+     * @param key Key
+     * @param value Value
+     * @return New map
+     */
+    public PersistentSortedMap<K, V> put(K key, V value) {
+        return new PersistentSortedMap<>(comparator, put(root, key, value));
+    }
+
+    /**
+     * Get a map without a key
+     * @param key Key
+     * @return New map, or this map if the key is absent
+     */
+    public PersistentSortedMap<K, V> remove(K key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return new PersistentSortedMap<>(comparator, remove(root, key));
+    }
+
+    /**
+     * Count the keys before a key
+     * @param key Key, present or not
+     * @return Number of keys smaller than it, i.e. the position it has or would have
+     */
+    @SuppressWarnings("unchecked")
+    public int rank(K key) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            if (comparator.compare(key, (K) node.key) <= 0) {
+                node = node.left;
+            } else {
+                rank += sizeOf(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Get the values at a range of positions
+     * @param from First position, inclusive
+     * @param to Last position, exclusive
+     * @return Values in key order
+     */
+    public List<V> values(int from, int to) {
+        List<V> values = new ArrayList<>(Math.max(0, Math.min(to, size()) - from));
+        Iterator<V> it = iterator(from, false);
+        for (int i = from; i < to && it.hasNext(); i++) {
+            values.add(it.next());
+        }
+        return values;
+    }
+
+    /**
+     * Iterate over the values in key order
+     * @param skip Number of values to skip, without visiting them
+     * @param descending Whether to start with the largest key
+     * @return Values, lazily
+     */
+    public Iterator<V> iterator(int skip, boolean descending) {
+        return new Walk(skip, descending);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node put(Node node, K key, V value) {
+        if (node == null) {
+            return new Node(key, value, null, null);
+        }
+        int order = comparator.compare(key, (K) node.key);
+        if (order == 0) {
+            return new Node(key, value, node.left, node.right);
+        }
+        return order < 0 ? balance(node.key, node.value, put(node.left, key, value), node.right)
+                : balance(node.key, node.value, node.left, put(node.right, key, value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node remove(Node node, K key) {
+        int order = comparator.compare(key, (K) node.key);
+        if (order < 0) {
+            return balance(node.key, node.value, remove(node.left, key), node.right);
+        } else if (order > 0) {
+            return balance(node.key, node.value, node.left, remove(node.right, key));
+        }
+        if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        }
+        // Replace with the smallest entry on the right
+        Node successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, remove(node.right, (K) successor.key));
+    }
+
+    /**
+     * Build a node from two subtrees whose heights differ by at most two, rotating to restore balance
+     */
+    private static Node balance(Object key, Object value, Node left, Node right) {
+        int lean = heightOf(left) - heightOf(right);
+        if (lean > 1) {
+            if (heightOf(left.left) < heightOf(left.right)) {
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            }
+            return rotateRight(key, value, left, right);
+        } else if (lean < -1) {
+            if (heightOf(right.right) < heightOf(right.left)) {
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            }
+            return rotateLeft(key, value, left, right);
+        }
+        return new Node(key, value, left, right);
+    }
+
+    private static Node rotateRight(Object key, Object value, Node left, Node right) {
+        return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+    }
+
+    private static Node rotateLeft(Object key, Object value, Node left, Node right) {
+        return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+    }
+
+    private static int sizeOf(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static int heightOf(Node node) {
+        return node != null ? node.height : 0;
+    }
+
+    /**
+     * Tree node with the height and entry count of its subtree
+     */
+    private static final class Node {
+        final Object key;
+        final Object value;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+
+        Node(Object key, Object value, Node left, Node right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(heightOf(left), heightOf(right)) + 1;
+            this.size = sizeOf(left) + sizeOf(right) + 1;
+        }
+    }
+
+    /**
+     * In-order walk keeping the path of nodes still to visit
+     */
+    private final class Walk implements Iterator<V> {
+        private final boolean descending;
+        private final Deque<Node> path = new ArrayDeque<>();
+
+        Walk(int skip, boolean descending) {
+            this.descending = descending;
+            // Go down to the first node to visit, remembering the ancestors that come after it
+            Node node = root;
+            while (node != null) {
+                Node before = descending ? node.right : node.left;
+                if (skip < sizeOf(before)) {
+                    path.push(node);
+                    node = before;
+                } else if (skip == sizeOf(before)) {
+                    path.push(node);
+                    break;
+                } else {
+                    skip -= sizeOf(before) + 1;
+                    node = descending ? node.left : node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = path.pop();
+            Node child = descending ? node.left : node.right;
+            while (child != null) {
+                path.push(child);
+                child = descending ? child.right : child.left;
+            }
+            return (V) node.value;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.owsb.repository.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Advisory lock shared by every OWSB instance working on the same data directory
+ * Lives in a sidecar file next to the data file (e.g. data/items.lock). Readers lock it shared and
+ * writers exclusive through FileChannel locks, so an instance never reads a file while another one
+ * replaces it, and never writes without first seeing what the others committed.
+ *
+ * The lock file also holds a generation counter that every writer increments. Comparing it with the
+ * generation seen last tells an instance whether anyone committed since, even when a rewrite keeps
+ * the file's size and timestamp. A second counter after it does the same for compactions.
+ *
+ * File locks belong to the whole JVM and must not overlap, so there is one lock per file and callers
+ * serialize their use of it. Nested calls only count; the outermost call decides the mode.
+ * Public for files kept outside the stores, such as the sales archive.
+ */
+public class ProcessLock {
+    private final File file;
+    private FileChannel channel;
+    private FileLock held;
+    private int depth = 0;
+
+    /**
+     * Constructor
+     * @param filePath Data file the lock guards
+     */
+    public ProcessLock(String filePath) {
+        this.file = new File(lockPathFor(filePath));
+    }
+
+    /**
+     * Get the lock file that belongs to a data file
+     * @param filePath Data file path
+     * @return Lock file path (same name with a .lock extension)
+     */
+    static String lockPathFor(String filePath) {
+        int dot = filePath.lastIndexOf('.');
+        int separator = filePath.lastIndexOf(File.separatorChar);
+        String base = dot > separator ? filePath.substring(0, dot) : filePath;
+        return base + ".lock";
+    }
+
+    /**
+     * Lock for reading, waiting while another instance writes
+     * @return true if locked; false if the lock file is unusable and the caller runs unlocked
+     */
+    public boolean lockShared() {
+        return lock(true);
+    }
+
+    /**
+     * Lock for writing, waiting until no other instance reads or writes
+     * @return true if locked; false if the lock file is unusable and the caller runs unlocked
+     */
+    public boolean lockExclusive() {
+        return lock(false);
+    }
+
+    /**
+     * Release one lock call; the file lock itself goes with the outermost one
+     */
+    public void unlock() {
+        if (depth == 0 || --depth > 0 || held == null) {
+            return;
+        }
+        try {
+            held.release();
+        } catch (IOException e) {
+            System.err.println("Error unlocking " + file + ": " + e.getMessage());
+        }
+        held = null;
+    }
+
+    /**
+     * Read the generation counter without locking
+     * @return Number of commits so far, or -1 if the lock file cannot be read
+     */
+    public long generation() {
+        return readCounter(0);
+    }
+
+    /**
+     * Count a commit; only call while holding the lock exclusively
+     * @return The new generation, or -1 if the counter cannot be written
+     */
+    public long nextGeneration() {
+        return incrementCounter(0);
+    }
+
+    /**
+     * Read the compaction counter without locking
+     * @return Number of times the data file was compacted, or -1 if the lock file cannot be read
+     */
+    public long compactions() {
+        return readCounter(Long.BYTES);
+    }
+
+    /**
+     * Count a compaction; only call while holding the lock exclusively
+     * @return The new count, or -1 if the counter cannot be written
+     */
+    public long countCompaction() {
+        return incrementCounter(Long.BYTES);
+    }
+
+    private long readCounter(long position) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            // A new lock file has no counter yet
+            return channel().read(buffer, position) < Long.BYTES ? 0 : buffer.getLong(0);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private long incrementCounter(long position) {
+        long value = readCounter(position);
+        if (value < 0) {
+            return -1;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, value + 1);
+            channel().write(buffer, position);
+            return value + 1;
+        } catch (IOException e) {
+            System.err.println("Error updating " + file + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private boolean lock(boolean shared) {
+        depth++;
+        if (depth > 1) {
+            return held != null;
+        }
+        try {
+            held = channel().lock(0, Long.MAX_VALUE, shared);
+        } catch (IOException e) {
+            System.err.println("Error locking " + file + ": " + e.getMessage());
+            held = null;
+        }
+        return held != null;
+    }
+
+    /**
+     * Open the lock file on first use; it stays open for the lifetime of the process
+     */
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            File parentDir = file.getParentFile();
+            if (parentDir != null && !parentDir.exists()) {
+                parentDir.mkdirs();
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+}
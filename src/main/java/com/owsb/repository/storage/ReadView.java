@@ -0,0 +1,152 @@
+package com.owsb.repository.storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Immutable point-in-time view of every store, for reads that must agree with each other
+ * Every store publishes a new version of its data (a {@link PersistentMap}) when a change is written,
+ * and a transaction publishes all the stores it changed at once. A view is just the set of versions
+ * current when it was taken: taking one never locks, and reading through it never waits for writers,
+ * nor do writers wait for it.
+ *
+ * Usage:
+ * <pre>
+ * ReadView view = ReadView.latest();
+ * List&lt;Sale&gt; sales = view.read(() -> salesRepository.findAll());
+ * List&lt;PurchaseOrder&gt; orders = view.read(() -> poRepository.findAll());   // same moment as the sales
+ * </pre>
+ * Inside {@link #read} every repository call on the same thread is answered from the view, except in
+ * a {@link Transaction}, which always sees its own changes. The view only holds what this process has
+ * loaded; stores read for the first time through a view are loaded then, and changes committed by
+ * other instances are picked up when the view is taken if their stores are not busy.
+ */
+public final class ReadView {
+    private static final ThreadLocal<ReadView> CURRENT = new ThreadLocal<>();
+    private static final AtomicReference<Versions> LATEST = new AtomicReference<>(new Versions(0, PersistentMap.empty()));
+
+    /**
+     * Published versions of all stores, by data file, and a counter of publications
+     */
+    private static final class Versions {
+        final long number;
+        final PersistentMap<String, Object> stores;
+
+        Versions(long number, PersistentMap<String, Object> stores) {
+            this.number = number;
+            this.stores = stores;
+        }
+    }
+
+    private final Versions versions;
+    // Versions of stores first loaded after the view was taken, kept so later reads agree
+    private final Map<String, Object> loadedLater = new ConcurrentHashMap<>();
+
+    private ReadView(Versions versions) {
+        this.versions = versions;
+    }
+
+    /**
+     * Take a view of the latest committed data
+     * @return New view
+     */
+    public static ReadView latest() {
+        // Reloading notifies listeners too, even when taken inside another view
+        live(() -> {
+            EntityStore.refreshIdle();
+            return null;
+        });
+        return new ReadView(LATEST.get());
+    }
+
+    /**
+     * Get the view the current thread is reading through
+     * @return View, or null outside {@link #read}
+     */
+    public static ReadView current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run reads against this view
+     * The work should only read. A nested call with another view reads through that one until it returns.
+     * @param work Reads to run
+     * @return Result of the work
+     */
+    public <R> R read(Supplier<R> work) {
+        ReadView outer = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            restore(outer);
+        }
+    }
+
+    /**
+     * Run reads against the stores themselves, even inside a view
+     * For data kept in step with the stores through their listeners, which may be ahead of any view.
+     * @param work Reads to run
+     * @return Result of the work
+     */
+    public static <R> R live(Supplier<R> work) {
+        ReadView outer = CURRENT.get();
+        CURRENT.remove();
+        try {
+            return work.get();
+        } finally {
+            restore(outer);
+        }
+    }
+
+    /**
+     * @return Number of publications before this view was taken; a later view with the same number saw the same data
+     */
+    public long getVersion() {
+        return versions.number;
+    }
+
+    /**
+     * Get the version of a store in this view
+     * @param file Data file of the store
+     * @param loader Loads and publishes the store if it was not loaded when the view was taken
+     * @return Version of the store
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V versionOf(String file, Supplier<V> loader) {
+        Object version = versions.stores.get(file);
+        if (version == null) {
+            // Loading notifies the store's listeners, which must see the store itself
+            version = loadedLater.computeIfAbsent(file, key -> live(loader));
+        }
+        return (V) version;
+    }
+
+    private static void restore(ReadView outer) {
+        if (outer != null) {
+            CURRENT.set(outer);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Make new versions of stores visible to views taken from now on, all at the same moment
+     * For stores kept outside this package (e.g. the sales archive); EntityStore publishes itself.
+     * @param changed New version per data file
+     */
+    public static void publish(Map<String, ?> changed) {
+        Versions current;
+        Versions next;
+        do {
+            current = LATEST.get();
+            PersistentMap<String, Object> stores = current.stores;
+            for (Map.Entry<String, ?> entry : changed.entrySet()) {
+                stores = stores.put(entry.getKey(), entry.getValue());
+            }
+            next = new Versions(current.number + 1, stores);
+        } while (!LATEST.compareAndSet(current, next));
+    }
+}
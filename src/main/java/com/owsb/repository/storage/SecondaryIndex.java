@@ -0,0 +1,22 @@
+package com.owsb.repository.storage;
+
+/**
+ * A secondary index over the entities of an EntityStore
+ * Maps derived keys to entity IDs and is kept up to date incrementally by the store.
+ * Its entries are immutable snapshots, so a {@link ReadView} keeps the index as it was with the data.
+ * @param <T> The entity type
+ */
+interface SecondaryIndex<T> extends StoreListener<T> {
+
+    /**
+     * Get the entries as of now; later changes do not affect them
+     * @return Snapshot of the index
+     */
+    Object snapshot();
+
+    /**
+     * Create an empty index on the same keys, e.g. to index an older version of the data
+     * @return New index
+     */
+    SecondaryIndex<T> emptyCopy();
+}
@@ -0,0 +1,249 @@
+package com.owsb.repository.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.owsb.util.Constants;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out document IDs (IT001, SL042, PO1000, ...) from persistent per-prefix counters
+ * Numbers are reserved in blocks of Constants.SEQUENCE_BLOCK_SIZE: data/sequences.txt records the
+ * first number not yet reserved, so a new ID is usually just an atomic increment and a crash can
+ * only leave a gap. IDs that already exist in the store are always skipped, so a lost or outdated
+ * sequences file never causes a duplicate. A prefix without a counter is seeded once from the highest
+ * ID in its store. Numbers are padded to at least three digits and simply grow beyond that.
+ */
+public class SequenceAllocator {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final SequenceAllocator INSTANCE = new SequenceAllocator(); // After gson, the constructor uses it
+
+    /**
+     * IDs already in use for a prefix; implemented by EntityStore
+     */
+    public interface IdSource {
+        /**
+         * @param id ID to check
+         * @return true if the ID is taken
+         */
+        boolean contains(String id);
+
+        /**
+         * @return All IDs in use, only read when a prefix has no saved counter
+         */
+        List<String> ids();
+    }
+
+    /**
+     * Counter of one prefix
+     */
+    private static class Sequence {
+        final AtomicLong next;
+        volatile long reservedUpTo; // Exclusive; numbers below it are recorded as reserved on disk
+
+        Sequence(long next) {
+            this.next = new AtomicLong(next);
+            this.reservedUpTo = next;
+        }
+    }
+
+    private final File file = new File(Constants.SEQUENCE_FILE);
+    private final ConcurrentHashMap<String, Sequence> sequences = new ConcurrentHashMap<>();
+    private final ProcessLock fileLock = new ProcessLock(Constants.SEQUENCE_FILE);
+    // Reserved limits as last written, guarded by this
+    private final Map<String, Long> persisted;
+
+    private SequenceAllocator() {
+        persisted = load();
+    }
+
+    /**
+     * Get the shared allocator
+     * @return Sequence allocator
+     */
+    public static SequenceAllocator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Allocate the next ID for a prefix
+     * @param prefix ID prefix, e.g. "IT"
+     * @param store IDs of this prefix, used for seeding and to skip IDs already taken
+     * @return New ID
+     */
+    public String next(String prefix, IdSource store) {
+        return nextBlock(prefix, store, 1).get(0);
+    }
+
+    /**
+     * Allocate several consecutive IDs at once, e.g. for a batch insert
+     * @param prefix ID prefix
+     * @param store IDs of this prefix
+     * @param count Number of IDs
+     * @return New IDs in ascending order
+     */
+    public List<String> nextBlock(String prefix, IdSource store, int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        Sequence sequence = sequenceFor(prefix, store);
+
+        List<String> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int wanted = count - ids.size();
+            long first = sequence.next.getAndAdd(wanted);
+            long end = first + wanted;
+            if (end > sequence.reservedUpTo && !reserve(prefix, sequence, end)) {
+                continue; // Another instance holds these numbers, draw again past its block
+            }
+
+            // Counters restored from an older sequences file may lag behind the data
+            for (long number = first; number < end; number++) {
+                String id = format(prefix, number);
+                if (!store.contains(id)) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Get the ID the next call to {@link #next} will most likely return, without allocating it
+     * Meant for showing the upcoming code in a form; another user may still take it first.
+     * @param prefix ID prefix
+     * @param store IDs of this prefix
+     * @return Expected next ID
+     */
+    public String peek(String prefix, IdSource store) {
+        Sequence sequence = sequenceFor(prefix, store);
+        long number = sequence.next.get();
+        while (store.contains(format(prefix, number))) {
+            number++;
+        }
+        return format(prefix, number);
+    }
+
+    /**
+     * Record a new reserved limit on disk before any number below it is handed out
+     * Other instances sharing the data directory reserve from the same file, so it is reread under
+     * an exclusive lock and each instance's block starts where the last one ended.
+     * If the file cannot be written the IDs are still handed out: after a restart the stale
+     * counter only costs a few skipped lookups, since IDs already in the store are never reused.
+     * @return false if another instance reserved the numbers up to end, so they must not be used
+     */
+    private synchronized boolean reserve(String prefix, Sequence sequence, long end) {
+        if (end <= sequence.reservedUpTo) {
+            return true; // Another thread already reserved far enough
+        }
+
+        fileLock.lockExclusive();
+        try {
+            load().forEach((key, limit) -> persisted.merge(key, limit, Math::max));
+            long reservedElsewhere = persisted.getOrDefault(prefix, 0L);
+            boolean ours = reservedElsewhere <= sequence.reservedUpTo;
+            long start = ours ? end : Math.max(end, reservedElsewhere);
+            if (!ours) {
+                sequence.next.accumulateAndGet(start, Math::max);
+            }
+
+            long limit = start + Constants.SEQUENCE_BLOCK_SIZE;
+            persisted.put(prefix, limit);
+            try {
+                save();
+            } catch (IOException e) {
+                System.err.println("Error saving ID sequences: " + e.getMessage());
+            }
+            sequence.reservedUpTo = limit;
+            return ours;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Get the counter of a prefix, creating it from the sequences file or the highest ID in the store
+     */
+    private Sequence sequenceFor(String prefix, IdSource store) {
+        Sequence sequence = sequences.get(prefix);
+        if (sequence != null) {
+            return sequence;
+        }
+
+        // Seeded without holding a lock: the store may be locked by a transaction that allocates IDs itself
+        Long saved;
+        synchronized (this) {
+            saved = persisted.get(prefix);
+        }
+        Sequence created = new Sequence(saved != null ? saved : highestNumber(prefix, store) + 1);
+        Sequence existing = sequences.putIfAbsent(prefix, created);
+        return existing != null ? existing : created;
+    }
+
+    private static long highestNumber(String prefix, IdSource store) {
+        long highest = 0;
+        // Never seeded from a read view, whose IDs may already be taken
+        for (String id : ReadView.live(store::ids)) {
+            if (id.startsWith(prefix) && id.length() > prefix.length()) {
+                try {
+                    highest = Math.max(highest, Long.parseLong(id.substring(prefix.length())));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        return highest;
+    }
+
+    private static String format(String prefix, long number) {
+        return String.format("%s%03d", prefix, number);
+    }
+
+    /**
+     * Read the reserved limits
+     */
+    private Map<String, Long> load() {
+        if (!file.exists()) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            Map<String, Long> limits = gson.fromJson(json, new TypeToken<LinkedHashMap<String, Long>>() {}.getType());
+            return limits != null ? limits : new LinkedHashMap<>();
+        } catch (IOException | JsonSyntaxException e) {
+            // Reseeding from the data is always safe, the existing IDs are skipped
+            System.err.println("Error reading ID sequences, reseeding: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Write the reserved limits durably, replacing the file atomically
+     */
+    private void save() throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(gson.toJson(persisted).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.owsb.repository.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Sorted index for range queries, typically on dates
+ * Entities whose key is null are not indexed.
+ * @param <T> The entity type
+ * @param <K> The key type
+ */
+class SortedIndex<T, K extends Comparable<? super K>> implements SecondaryIndex<T> {
+    private final Function<T, K> keyExtractor;
+    private Snapshot<K> entries = new Snapshot<>(PersistentSortedMap.empty(Position.<K>order()));
+    // Position of each indexed ID among those with the same key; only used when changing the entries
+    private final Map<String, Long> positions = new HashMap<>();
+    private long nextPosition = 0;
+
+    /**
+     * Constructor
+     * @param keyExtractor Function returning the sort key of an entity
+     */
+    SortedIndex(Function<T, K> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Place of an entity in the index: its key, then the order it was indexed in to keep equal keys apart
+     */
+    private static final class Position<K extends Comparable<? super K>> {
+        final K key;
+        final long position;
+
+        Position(K key, long position) {
+            this.key = key;
+            this.position = position;
+        }
+
+        static <K extends Comparable<? super K>> Comparator<Position<K>> order() {
+            return (a, b) -> {
+                int order = a.key.compareTo(b.key);
+                return order != 0 ? order : Long.compare(a.position, b.position);
+            };
+        }
+    }
+
+    /**
+     * Entries of the index at one moment, in key order
+     */
+    static final class Snapshot<K extends Comparable<? super K>> {
+        private final PersistentSortedMap<Position<K>, String> ids;
+
+        Snapshot(PersistentSortedMap<Position<K>, String> ids) {
+            this.ids = ids;
+        }
+
+        /**
+         * Get the IDs of all entities with from <= key < to, in key order
+         * @param from Lower bound (inclusive), or null for no lower bound
+         * @param to Upper bound (exclusive), or null for no upper bound
+         * @return Matching IDs
+         */
+        List<String> range(K from, K to) {
+            int start = from != null ? ids.rank(new Position<>(from, Long.MIN_VALUE)) : 0;
+            int end = to != null ? ids.rank(new Position<>(to, Long.MIN_VALUE)) : ids.size();
+            return ids.values(start, Math.max(start, end));
+        }
+
+        /**
+         * Get a page of the IDs in key order, stepping straight to the first one
+         * @param descending Whether to start with the largest key
+         * @param offset Number of IDs to skip
+         * @param limit Maximum number of IDs
+         * @return IDs on the page
+         */
+        List<String> page(boolean descending, int offset, int limit) {
+            List<String> page = new ArrayList<>(Math.min(limit, 256));
+            Iterator<String> it = ids.iterator(offset, descending);
+            while (it.hasNext() && page.size() < limit) {
+                page.add(it.next());
+            }
+            return page;
+        }
+
+        /**
+         * Iterate over the IDs of all indexed entities in key order
+         * @param descending Whether to start with the largest key
+         * @return IDs, lazily
+         */
+        Iterator<String> ids(boolean descending) {
+            return ids.iterator(0, descending);
+        }
+    }
+
+    @Override
+    public Snapshot<K> snapshot() {
+        return entries;
+    }
+
+    @Override
+    public SortedIndex<T, K> emptyCopy() {
+        return new SortedIndex<>(keyExtractor);
+    }
+
+    @Override
+    public void add(String id, T entity) {
+        K key = keyExtractor.apply(entity);
+        if (key != null) {
+            long position = nextPosition++;
+            positions.put(id, position);
+            entries = new Snapshot<>(entries.ids.put(new Position<>(key, position), id));
+        }
+    }
+
+    @Override
+    public void remove(String id, T entity) {
+        K key = keyExtractor.apply(entity);
+        Long position = positions.remove(id);
+        if (key != null && position != null) {
+            entries = new Snapshot<>(entries.ids.remove(new Position<>(key, position)));
+        }
+    }
+
+    @Override
+    public void update(String id, T oldEntity, T newEntity) {
+        if (Objects.equals(keyExtractor.apply(oldEntity), keyExtractor.apply(newEntity))) {
+            return;
+        }
+        remove(id, oldEntity);
+        add(id, newEntity);
+    }
+
+    @Override
+    public void clear() {
+        entries = new Snapshot<>(PersistentSortedMap.empty(Position.<K>order()));
+        positions.clear();
+    }
+}
@@ -0,0 +1,83 @@
+package com.owsb.repository.storage;
+
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Strategy interface for how an EntityStore persists its data
+ * Implementations decide the on-disk layout; the store only sees entities and mutations
+ * @param <T> The entity type
+ */
+public interface StorageEngine<T> {
+
+    /**
+     * Load the current state from disk
+     * @return Entities keyed by ID, in stable order
+     * @throws IOException if the data cannot be read
+     */
+    LinkedHashMap<String, T> load() throws IOException;
+
+    /**
+     * Read the entities matching a filter straight from disk, without loading the others
+     * Leaves the engine's view of the disk alone, so it does not stand in for {@link #load}.
+     * @param where Filter on the raw JSON object of each entity, or null for all entities
+     * @return Stream of matching entities; must be closed, e.g. with try-with-resources
+     * @throws IOException if the data cannot be read
+     */
+    Stream<T> stream(Predicate<JsonObject> where) throws IOException;
+
+    /**
+     * Read only the changes written by other processes since the last load, read or write
+     * Engines that cannot tell what changed return null and the store falls back to {@link #load}.
+     * The store does not call this after another instance compacted the data (see {@link #compactions}).
+     * @return Mutations in the order they were written, or null if a full load is needed
+     * @throws IOException if the data cannot be read
+     */
+    default List<Mutation<T>> readChanges() throws IOException {
+        return null;
+    }
+
+    /**
+     * Persist a batch of mutations that have already been applied in memory
+     * @param mutations Changes in the order they were applied
+     * @param currentState Full in-memory state after the changes, for engines that rewrite everything
+     * @param sync Whether the changes must be durable on return; false when a transaction journal
+     *             already holds them and {@link #sync} will be called at the next checkpoint
+     * @throws IOException if the data cannot be written
+     */
+    void write(Collection<Mutation<T>> mutations, Collection<T> currentState, boolean sync) throws IOException;
+
+    /**
+     * Make all changes written with sync = false durable
+     * @throws IOException if the data cannot be flushed
+     */
+    void sync() throws IOException;
+
+    /**
+     * Fold any pending changes into a fresh snapshot
+     * @param currentState Full in-memory state
+     * @throws IOException if the snapshot cannot be written
+     */
+    void compact(Collection<T> currentState) throws IOException;
+
+    /**
+     * Get the number of compactions this engine has made, for the store to tell other instances
+     * Engines that never compact, or rewrite everything on each write, return 0.
+     * @return Compaction count since the engine was created
+     */
+    default long compactions() {
+        return 0;
+    }
+
+    /**
+     * Check whether the data on disk was changed by someone else since the last load or write
+     * @return true if the store must reload
+     */
+    boolean hasChanged();
+}
@@ -0,0 +1,38 @@
+package com.owsb.repository.storage;
+
+/**
+ * Receives every change to the entities of an EntityStore, e.g. to keep derived data up to date
+ * Callbacks run while the store is locked and get the cached instances, which must not be modified.
+ * Changes made inside a transaction are reported when they are made; if the transaction rolls back,
+ * or the data changes on disk, the store reports the entities that differ after reloading.
+ * @param <T> The entity type
+ */
+public interface StoreListener<T> {
+
+    /**
+     * An entity was added
+     * @param id Entity ID
+     * @param entity Entity
+     */
+    void add(String id, T entity);
+
+    /**
+     * An entity was removed
+     * @param id Entity ID
+     * @param entity Entity as it was before removal
+     */
+    void remove(String id, T entity);
+
+    /**
+     * An entity was replaced
+     * @param id Entity ID
+     * @param oldEntity Previous state
+     * @param newEntity New state
+     */
+    void update(String id, T oldEntity, T newEntity);
+
+    /**
+     * Forget all entities
+     */
+    void clear();
+}
@@ -0,0 +1,133 @@
+package com.owsb.repository.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Unit of work spanning any number of repositories
+ * Inside {@link #execute} every repository call made on the same thread joins the transaction:
+ * the stores it touches stay locked until the end, changes are visible to later reads in the
+ * same transaction, and nothing is written until the work succeeds. All changes are then made
+ * durable together with one journal write (see {@link TransactionJournal}).
+ * If the work returns false or throws, every touched store is restored to its state on disk.
+ *
+ * Usage:
+ * <pre>
+ * boolean ok = Transaction.execute(() -> itemRepository.update(item) && salesRepository.save(sale));
+ * </pre>
+ */
+public final class Transaction {
+    private static final ThreadLocal<Transaction> CURRENT = new ThreadLocal<>();
+    // Transactions run one at a time so they never wait on each other's store locks
+    private static final ReentrantLock TRANSACTION_LOCK = new ReentrantLock();
+
+    private final String id = UUID.randomUUID().toString();
+    private final List<EntityStore<?>> stores = new ArrayList<>();
+    private final List<Consumer<Boolean>> completionCallbacks = new ArrayList<>();
+    private boolean rollbackOnly = false;
+
+    private Transaction() {
+    }
+
+    /**
+     * Run work as one atomic transaction
+     * A nested call joins the enclosing transaction; if it fails the whole transaction is rolled back.
+     * @param work Work to run, returning true on success
+     * @return true if the work succeeded and its changes were committed
+     */
+    public static boolean execute(BooleanSupplier work) {
+        Transaction outer = CURRENT.get();
+        if (outer != null) {
+            boolean success = work.getAsBoolean();
+            if (!success) {
+                outer.rollbackOnly = true;
+            }
+            return success;
+        }
+
+        TRANSACTION_LOCK.lock();
+        Transaction tx = new Transaction();
+        CURRENT.set(tx);
+        boolean committed = false;
+        try {
+            committed = work.getAsBoolean() && !tx.rollbackOnly && tx.commit();
+        } catch (RuntimeException e) {
+            System.err.println("Transaction rolled back: " + e.getMessage());
+        } finally {
+            CURRENT.remove();
+            // Read views see the whole transaction at once, before anyone is told it committed
+            if (committed) {
+                EntityStore.publishCommitted(tx.stores);
+            }
+            for (Consumer<Boolean> callback : tx.completionCallbacks) {
+                callback.accept(committed);
+            }
+            for (EntityStore<?> store : tx.stores) {
+                store.endTransaction(committed);
+            }
+            TRANSACTION_LOCK.unlock();
+        }
+        return committed;
+    }
+
+    /**
+     * Run a callback when the current transaction ends, or right away if there is none
+     * Lets state kept outside the stores (e.g. in-memory counters) follow a commit or undo itself on rollback.
+     * @param callback Receives true if the changes were committed
+     */
+    public static void whenComplete(Consumer<Boolean> callback) {
+        Transaction tx = CURRENT.get();
+        if (tx != null) {
+            tx.completionCallbacks.add(callback);
+        } else {
+            callback.accept(true);
+        }
+    }
+
+    /**
+     * Get the transaction running on the current thread
+     * @return Current transaction or null
+     */
+    static Transaction current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Register a store touched by this transaction; it stays locked until the transaction ends
+     * @param store Store
+     */
+    void enlist(EntityStore<?> store) {
+        stores.add(store);
+    }
+
+    /**
+     * Write the staged changes of every touched store
+     * @return true if committed
+     */
+    private boolean commit() {
+        List<EntityStore<?>> changed = new ArrayList<>();
+        for (EntityStore<?> store : stores) {
+            if (store.hasStaged()) {
+                changed.add(store);
+            }
+        }
+        if (changed.isEmpty()) {
+            return true;
+        }
+
+        if (EntityStore.usesLogEngine()) {
+            return TransactionJournal.commit(id, changed);
+        }
+
+        // Whole-file engine: one rewrite per file, but without a journal the files are not updated atomically
+        boolean success = true;
+        for (EntityStore<?> store : changed) {
+            success &= store.applyStaged(null, true);
+        }
+        return success;
+    }
+}
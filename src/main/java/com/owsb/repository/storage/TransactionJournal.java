@@ -0,0 +1,340 @@
+package com.owsb.repository.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+import com.owsb.util.Constants;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Redo journal that makes a transaction spanning several data files durable with a single fsync
+ * Each committed transaction is one line in data/transactions.log holding every change it made.
+ * The stores then append the same changes to their own logs without syncing, tagged with the
+ * transaction ID. On startup any change whose tag is missing from its log is appended again.
+ * A checkpoint syncs those logs and drops the transactions found in them; it runs when the journal
+ * grows large and before a log is compacted, since compaction removes the tags.
+ *
+ * The journal is shared by every instance using the data directory. Commits append to it under
+ * its ProcessLock shared; checkpoints and recovery, which rewrite it, hold it exclusively. Whoever
+ * needs both a data file's lock and the journal's takes the data file's first (compaction does).
+ */
+final class TransactionJournal {
+    private static final Gson gson = new Gson(); // Compact output, one transaction per line
+    private static final File journalFile = new File(Constants.TRANSACTION_JOURNAL);
+    private static final ProcessLock journalLock = new ProcessLock(Constants.TRANSACTION_JOURNAL);
+
+    // Engines holding unsynced records of journaled transactions
+    private static final Set<StorageEngine<?>> pendingEngines = new LinkedHashSet<>();
+    private static int journaledTransactions = 0;
+    // Set if a store failed to apply a journaled transaction; the journal must then survive until restart
+    private static boolean checkpointBlocked = false;
+
+    /**
+     * A single change within a journaled transaction
+     */
+    static class Change {
+        String file;
+        Mutation.Operation op;
+        String id;
+        JsonElement entity;
+    }
+
+    /**
+     * One line of the journal
+     */
+    private static class Entry {
+        String tx;
+        List<Change> changes = new ArrayList<>();
+    }
+
+    private TransactionJournal() {
+        // Static access only
+    }
+
+    /**
+     * Make a transaction durable and hand its changes to the stores
+     * @param transactionId Transaction ID
+     * @param stores Stores with staged changes
+     * @return true if committed, false if the journal could not be written (nothing was changed on disk)
+     */
+    static synchronized boolean commit(String transactionId, List<EntityStore<?>> stores) {
+        Entry entry = new Entry();
+        entry.tx = transactionId;
+        for (EntityStore<?> store : stores) {
+            store.describeStaged(entry.changes);
+        }
+
+        // Only held while appending: the stores' file locks are taken afterwards, never inside it
+        journalLock.lockShared();
+        try {
+            File parentDir = journalFile.getParentFile();
+            if (parentDir != null && !parentDir.exists()) {
+                parentDir.mkdirs();
+            }
+            try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+                out.write((gson.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing transaction journal: " + e.getMessage());
+            return false;
+        } finally {
+            journalLock.unlock();
+        }
+        journaledTransactions++;
+
+        // From here on the transaction is committed; the journal covers any store that fails to apply it
+        for (EntityStore<?> store : stores) {
+            if (!store.applyStaged(transactionId, false)) {
+                checkpointBlocked = true;
+            }
+        }
+
+        if (journaledTransactions >= Constants.LOG_COMPACTION_THRESHOLD) {
+            checkpoint();
+        }
+        return true;
+    }
+
+    /**
+     * Remember an engine that holds unsynced records of journaled transactions
+     * @param engine Storage engine
+     */
+    static synchronized void registerPending(StorageEngine<?> engine) {
+        pendingEngines.add(engine);
+    }
+
+    /**
+     * Sync the logs the journal refers to and drop the transactions they hold
+     * Transactions of other instances that are not in their logs yet are kept.
+     * @return true if the journal no longer refers to any log record
+     */
+    static synchronized boolean checkpoint() {
+        if (checkpointBlocked) {
+            return false;
+        }
+
+        journalLock.lockExclusive();
+        try {
+            for (StorageEngine<?> engine : pendingEngines) {
+                engine.sync();
+            }
+            pendingEngines.clear();
+
+            List<Entry> entries = readEntries();
+            Map<String, Set<String>> appliedByFile = new HashMap<>();
+            for (String file : filesOf(entries)) {
+                File logFile = new File(LogStructuredEngine.logPathFor(file));
+                // Other instances' records may not be synced yet
+                LogStructuredEngine.sync(logFile);
+                appliedByFile.put(file, LogStructuredEngine.transactionsIn(logFile, false));
+            }
+
+            List<Entry> remaining = new ArrayList<>();
+            for (Entry entry : entries) {
+                for (Change change : entry.changes) {
+                    if (!appliedByFile.get(change.file).contains(entry.tx)) {
+                        remaining.add(entry);
+                        break;
+                    }
+                }
+            }
+            rewrite(remaining);
+            journaledTransactions = remaining.size();
+            return remaining.isEmpty();
+        } catch (IOException e) {
+            System.err.println("Error checkpointing transaction journal: " + e.getMessage());
+            return false;
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * Re-apply journaled changes that did not reach their logs before the last shutdown
+     * Must run before any store of this instance loads its data. The data files are locked first,
+     * as compaction does, and their generation is advanced so running instances reload them.
+     */
+    static synchronized void recover() {
+        if (!journalFile.exists() || journalFile.length() == 0) {
+            return;
+        }
+
+        Map<String, ProcessLock> fileLocks = new LinkedHashMap<>();
+        try {
+            journalLock.lockShared();
+            Set<String> files;
+            try {
+                files = filesOf(readEntries());
+            } finally {
+                journalLock.unlock();
+            }
+            // In name order, so two instances recovering at once lock the files alike
+            for (String file : files) {
+                ProcessLock fileLock = new ProcessLock(file);
+                fileLock.lockExclusive();
+                fileLocks.put(file, fileLock);
+            }
+
+            journalLock.lockExclusive();
+            try {
+                recoverLocked(fileLocks);
+            } finally {
+                journalLock.unlock();
+            }
+        } catch (IOException e) {
+            System.err.println("Error recovering transaction journal: " + e.getMessage());
+            checkpointBlocked = true;
+        } finally {
+            for (ProcessLock fileLock : fileLocks.values()) {
+                fileLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Append the missing changes to the locked logs and empty the journal
+     * @param fileLocks Held locks of the data files to recover, by data file
+     */
+    private static void recoverLocked(Map<String, ProcessLock> fileLocks) throws IOException {
+        // Group the tagged log records to restore by log file
+        Map<String, List<Entry>> entriesByFile = new LinkedHashMap<>();
+        List<Entry> kept = new ArrayList<>();
+        for (Entry entry : readEntries()) {
+            if (!fileLocks.keySet().containsAll(filesOf(List.of(entry)))) {
+                // Committed meanwhile by a running instance, which writes it itself
+                kept.add(entry);
+                continue;
+            }
+            for (Change change : entry.changes) {
+                List<Entry> entries = entriesByFile.computeIfAbsent(change.file, f -> new ArrayList<>());
+                if (entries.isEmpty() || entries.get(entries.size() - 1) != entry) {
+                    entries.add(entry);
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<Entry>> fileEntries : entriesByFile.entrySet()) {
+            File logFile = new File(LogStructuredEngine.logPathFor(fileEntries.getKey()));
+            Set<String> applied = LogStructuredEngine.transactionsIn(logFile, true);
+
+            List<LogStructuredEngine.LogRecord> missing = new ArrayList<>();
+            for (Entry entry : fileEntries.getValue()) {
+                if (applied.contains(entry.tx)) {
+                    continue;
+                }
+                for (Change change : entry.changes) {
+                    if (fileEntries.getKey().equals(change.file)) {
+                        LogStructuredEngine.LogRecord record = new LogStructuredEngine.LogRecord();
+                        record.op = change.op;
+                        record.id = change.id;
+                        record.entity = change.entity;
+                        record.tx = entry.tx;
+                        missing.add(record);
+                    }
+                }
+            }
+
+            if (!missing.isEmpty()) {
+                System.err.println("Recovering " + missing.size() + " journaled changes into " + logFile);
+                LogStructuredEngine.append(logFile, missing, true);
+                fileLocks.get(fileEntries.getKey()).nextGeneration();
+            }
+        }
+
+        rewrite(kept);
+    }
+
+    /**
+     * Read every complete transaction in the journal
+     */
+    private static List<Entry> readEntries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!journalFile.exists()) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            Entry entry = parse(line);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Get the data files changed by some transactions, in name order
+     */
+    private static Set<String> filesOf(List<Entry> entries) {
+        Set<String> files = new TreeSet<>();
+        for (Entry entry : entries) {
+            for (Change change : entry.changes) {
+                files.add(change.file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Replace the journal with some of its transactions; must hold the journal lock exclusively
+     */
+    private static void rewrite(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            if (journalFile.exists()) {
+                try (FileOutputStream out = new FileOutputStream(journalFile, false)) {
+                    out.getFD().sync();
+                }
+            }
+            return;
+        }
+
+        File tempFile = new File(journalFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile, false)) {
+            StringBuilder lines = new StringBuilder();
+            for (Entry entry : entries) {
+                lines.append(gson.toJson(entry)).append('\n');
+            }
+            out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        try {
+            Files.move(tempFile.toPath(), journalFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Parse one journal line
+     * @param line Journal line
+     * @return Entry, or null for an unreadable line (e.g. a commit interrupted while being written)
+     */
+    private static Entry parse(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            Entry entry = gson.fromJson(line, Entry.class);
+            return entry != null && entry.tx != null && entry.changes != null ? entry : null;
+        } catch (JsonSyntaxException e) {
+            System.err.println("Skipping unreadable transaction in " + journalFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
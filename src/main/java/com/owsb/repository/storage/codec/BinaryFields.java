@@ -0,0 +1,64 @@
+package com.owsb.repository.storage.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Helpers for nullable fields in binary records
+ */
+final class BinaryFields {
+
+    private BinaryFields() {
+        // Static helpers only
+    }
+
+    /**
+     * Write a string as its UTF-8 length and bytes, -1 for null
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a date as epoch milliseconds, Long.MIN_VALUE for null
+     */
+    static void writeDate(DataOutputStream out, Date value) throws IOException {
+        out.writeLong(value != null ? value.getTime() : Long.MIN_VALUE);
+    }
+
+    static Date readDate(DataInputStream in) throws IOException {
+        long time = in.readLong();
+        return time != Long.MIN_VALUE ? new Date(time) : null;
+    }
+
+    /**
+     * Write an enum constant by name (stable across reordering), null allowed
+     */
+    static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+        writeString(out, value != null ? value.name() : null);
+    }
+
+    static <E extends Enum<E>> E readEnum(DataInputStream in, Class<E> enumClass) throws IOException {
+        String name = readString(in);
+        return name != null ? Enum.valueOf(enumClass, name) : null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.owsb.repository.storage.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary encoding of one entity type for compact snapshots
+ * Each codec has a type name and a schema version that are written into the file header,
+ * so a snapshot is never decoded with the wrong or an incompatible codec.
+ * @param <T> The entity type
+ */
+public interface RecordCodec<T> {
+
+    /**
+     * Get the name identifying the record type in snapshot headers
+     * @return Type name
+     */
+    String getTypeName();
+
+    /**
+     * Get the version of the record layout; bump it whenever write/read change
+     * @return Schema version
+     */
+    int getSchemaVersion();
+
+    /**
+     * Write one record
+     * @param out Output stream
+     * @param value Entity to write
+     * @throws IOException if the stream cannot be written
+     */
+    void write(DataOutputStream out, T value) throws IOException;
+
+    /**
+     * Read one record
+     * @param in Input stream
+     * @return Entity read
+     * @throws IOException if the stream cannot be read
+     */
+    T read(DataInputStream in) throws IOException;
+}
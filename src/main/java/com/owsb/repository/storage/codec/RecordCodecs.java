@@ -0,0 +1,316 @@
+package com.owsb.repository.storage.codec;
+
+import com.owsb.dto.ItemDTO;
+import com.owsb.model.finance.Payment;
+import com.owsb.model.message.Message;
+import com.owsb.model.procurement.POItem;
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.util.Constants;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.owsb.repository.storage.codec.BinaryFields.readDate;
+import static com.owsb.repository.storage.codec.BinaryFields.readEnum;
+import static com.owsb.repository.storage.codec.BinaryFields.readString;
+import static com.owsb.repository.storage.codec.BinaryFields.writeDate;
+import static com.owsb.repository.storage.codec.BinaryFields.writeEnum;
+import static com.owsb.repository.storage.codec.BinaryFields.writeString;
+
+/**
+ * Registry of the binary codecs for the entity types that can be stored in binary snapshots
+ * Types without a codec (users, suppliers, requisitions) always use JSON snapshots.
+ */
+public final class RecordCodecs {
+    private static final Map<Class<?>, RecordCodec<?>> CODECS = new HashMap<>();
+
+    static {
+        register(ItemDTO.class, new ItemCodec());
+        register(Sale.class, new SaleCodec());
+        register(PurchaseOrder.class, new PurchaseOrderCodec());
+        register(Payment.class, new PaymentCodec());
+        register(Message.class, new MessageCodec());
+    }
+
+    private RecordCodecs() {
+        // Static access only
+    }
+
+    private static <T> void register(Class<T> entityClass, RecordCodec<T> codec) {
+        CODECS.put(entityClass, codec);
+    }
+
+    /**
+     * Get the codec for an entity class
+     * @param entityClass Entity class
+     * @return Codec, or null if the class has no binary format
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RecordCodec<T> forClass(Class<T> entityClass) {
+        return (RecordCodec<T>) CODECS.get(entityClass);
+    }
+
+    /**
+     * Items with their inventory fields, as stored in items.txt
+     */
+    private static class ItemCodec implements RecordCodec<ItemDTO> {
+        @Override
+        public String getTypeName() {
+            return "Item";
+        }
+
+        @Override
+        public int getSchemaVersion() {
+            return 1;
+        }
+
+        @Override
+        public void write(DataOutputStream out, ItemDTO item) throws IOException {
+            writeString(out, item.itemID);
+            writeString(out, item.name);
+            writeString(out, item.description);
+            out.writeDouble(item.unitPrice);
+            writeString(out, item.category);
+            writeString(out, item.supplierID);
+            writeString(out, item.dateAdded);
+            out.writeInt(item.currentStock);
+            out.writeInt(item.minimumStock);
+            out.writeInt(item.maximumStock);
+            writeString(out, item.lastUpdated);
+        }
+
+        @Override
+        public ItemDTO read(DataInputStream in) throws IOException {
+            ItemDTO item = new ItemDTO();
+            item.itemID = readString(in);
+            item.name = readString(in);
+            item.description = readString(in);
+            item.unitPrice = in.readDouble();
+            item.category = readString(in);
+            item.supplierID = readString(in);
+            item.dateAdded = readString(in);
+            item.currentStock = in.readInt();
+            item.minimumStock = in.readInt();
+            item.maximumStock = in.readInt();
+            item.lastUpdated = readString(in);
+            return item;
+        }
+    }
+
+    /**
+     * Sales with their line items, keeping the stored subtotals and total
+     */
+    private static class SaleCodec implements RecordCodec<Sale> {
+        @Override
+        public String getTypeName() {
+            return "Sale";
+        }
+
+        @Override
+        public int getSchemaVersion() {
+            return 2;
+        }
+
+        @Override
+        public void write(DataOutputStream out, Sale sale) throws IOException {
+            writeString(out, sale.getSaleID());
+            writeDate(out, sale.getDate());
+            writeString(out, sale.getSalesManagerID());
+            writeString(out, sale.getNotes());
+
+            List<SaleItem> items = sale.getItems() != null ? sale.getItems() : new ArrayList<>();
+            out.writeInt(items.size());
+            for (SaleItem item : items) {
+                writeString(out, item.getItemID());
+                writeString(out, item.getItemName());
+                out.writeInt(item.getQuantity());
+                out.writeDouble(item.getUnitPrice());
+                out.writeDouble(item.getProfitRatio());
+                out.writeDouble(item.getSubtotal());
+            }
+            out.writeDouble(sale.getTotalAmount());
+        }
+
+        @Override
+        public Sale read(DataInputStream in) throws IOException {
+            String saleID = readString(in);
+            Date date = readDate(in);
+            String salesManagerID = readString(in);
+            String notes = readString(in);
+
+            int count = in.readInt();
+            List<SaleItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                SaleItem item = new SaleItem(readString(in), readString(in), in.readInt(), in.readDouble(), in.readDouble());
+                StoredFields.setDouble(item, "subtotal", in.readDouble());
+                items.add(item);
+            }
+            Sale sale = new Sale(saleID, date, salesManagerID, notes, items);
+            StoredFields.setDouble(sale, "totalAmount", in.readDouble());
+            return sale;
+        }
+    }
+
+    /**
+     * Purchase orders with their line items, keeping the stored costs and total
+     */
+    private static class PurchaseOrderCodec implements RecordCodec<PurchaseOrder> {
+        @Override
+        public String getTypeName() {
+            return "PurchaseOrder";
+        }
+
+        @Override
+        public int getSchemaVersion() {
+            return 2;
+        }
+
+        @Override
+        public void write(DataOutputStream out, PurchaseOrder po) throws IOException {
+            writeString(out, po.getPoID());
+            writeString(out, po.getPrID());
+            writeDate(out, po.getDate());
+            writeDate(out, po.getDeliveryDate());
+            writeString(out, po.getPurchaseManagerID());
+            writeString(out, po.getFinanceManagerID());
+            writeEnum(out, po.getStatus());
+            writeString(out, po.getNotes());
+
+            List<POItem> items = po.getItems() != null ? po.getItems() : new ArrayList<>();
+            out.writeInt(items.size());
+            for (POItem item : items) {
+                writeString(out, item.getItemID());
+                writeString(out, item.getItemName());
+                out.writeInt(item.getQuantity());
+                writeString(out, item.getSupplierID());
+                writeString(out, item.getSupplierName());
+                out.writeDouble(item.getUnitPrice());
+                out.writeDouble(item.getTotalCost());
+            }
+            out.writeDouble(po.getTotalValue());
+        }
+
+        @Override
+        public PurchaseOrder read(DataInputStream in) throws IOException {
+            String poID = readString(in);
+            String prID = readString(in);
+            Date date = readDate(in);
+            Date deliveryDate = readDate(in);
+            String purchaseManagerID = readString(in);
+            String financeManagerID = readString(in);
+            Constants.PurchaseOrderStatus status = readEnum(in, Constants.PurchaseOrderStatus.class);
+            String notes = readString(in);
+
+            int count = in.readInt();
+            List<POItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                POItem item = new POItem(readString(in), readString(in), in.readInt(),
+                        readString(in), readString(in), in.readDouble());
+                StoredFields.setDouble(item, "totalCost", in.readDouble());
+                items.add(item);
+            }
+
+            PurchaseOrder po = new PurchaseOrder(poID, prID, date, deliveryDate, purchaseManagerID, status, notes, items);
+            po.setFinanceManagerID(financeManagerID);
+            StoredFields.setDouble(po, "totalValue", in.readDouble());
+            return po;
+        }
+    }
+
+    /**
+     * Supplier payments
+     */
+    private static class PaymentCodec implements RecordCodec<Payment> {
+        @Override
+        public String getTypeName() {
+            return "Payment";
+        }
+
+        @Override
+        public int getSchemaVersion() {
+            return 1;
+        }
+
+        @Override
+        public void write(DataOutputStream out, Payment payment) throws IOException {
+            writeString(out, payment.getPaymentID());
+            writeDate(out, payment.getDate());
+            writeString(out, payment.getPoID());
+            writeString(out, payment.getSupplierID());
+            out.writeDouble(payment.getAmount());
+            writeEnum(out, payment.getPaymentMethod());
+            writeString(out, payment.getReferenceNumber());
+            writeString(out, payment.getFinanceManagerID());
+            writeEnum(out, payment.getStatus());
+            writeString(out, payment.getNotes());
+        }
+
+        @Override
+        public Payment read(DataInputStream in) throws IOException {
+            return new Payment(
+                    readString(in),
+                    readDate(in),
+                    readString(in),
+                    readString(in),
+                    in.readDouble(),
+                    readEnum(in, Payment.PaymentMethod.class),
+                    readString(in),
+                    readString(in),
+                    readEnum(in, Payment.Status.class),
+                    readString(in)
+            );
+        }
+    }
+
+    /**
+     * System messages
+     */
+    private static class MessageCodec implements RecordCodec<Message> {
+        @Override
+        public String getTypeName() {
+            return "Message";
+        }
+
+        @Override
+        public int getSchemaVersion() {
+            return 1;
+        }
+
+        @Override
+        public void write(DataOutputStream out, Message message) throws IOException {
+            writeString(out, message.getMessageID());
+            writeString(out, message.getSenderID());
+            writeString(out, message.getSenderName());
+            writeString(out, message.getReceiverRole());
+            writeString(out, message.getSubject());
+            writeString(out, message.getContent());
+            writeString(out, message.getTimestamp());
+            out.writeBoolean(message.isRead());
+            writeString(out, message.getRelatedItemID());
+        }
+
+        @Override
+        public Message read(DataInputStream in) throws IOException {
+            Message message = new Message(
+                    readString(in),
+                    readString(in),
+                    readString(in),
+                    readString(in),
+                    readString(in),
+                    readString(in)
+            );
+            message.setTimestamp(readString(in));
+            message.setRead(in.readBoolean());
+            message.setRelatedItemID(readString(in));
+            return message;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.owsb.repository.storage.codec;
+
+import com.owsb.dto.ItemDTO;
+import com.owsb.model.finance.Payment;
+import com.owsb.model.message.Message;
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.model.sales.Sale;
+import com.owsb.repository.storage.BinarySnapshotEngine;
+import com.owsb.repository.storage.JsonFileEngine;
+import com.owsb.repository.storage.StorageEngine;
+import com.owsb.util.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+
+/**
+ * Command line tool that converts the data files between JSON and binary snapshots
+ * Usage: SnapshotConverter to-binary | to-json
+ * Run it while the application is stopped; pending data/*.log records are kept and replayed
+ * on top of the converted snapshot as usual.
+ */
+public class SnapshotConverter {
+
+    public static void main(String[] args) {
+        if (args.length != 1 || !(args[0].equals("to-binary") || args[0].equals("to-json"))) {
+            System.err.println("Usage: SnapshotConverter to-binary | to-json");
+            System.exit(2);
+        }
+        boolean toBinary = args[0].equals("to-binary");
+
+        boolean success = convert(Constants.ITEM_FILE, ItemDTO.class, item -> item.itemID, toBinary)
+                & convert(Constants.SALES_FILE, Sale.class, Sale::getSaleID, toBinary)
+                & convert(Constants.PO_FILE, PurchaseOrder.class, PurchaseOrder::getPoID, toBinary)
+                & convert(Constants.PAYMENTS_FILE, Payment.class, Payment::getPaymentID, toBinary)
+                & convert(Constants.MESSAGES_FILE, Message.class, Message::getMessageID, toBinary);
+        System.exit(success ? 0 : 1);
+    }
+
+    /**
+     * Convert one data file
+     * @param filePath JSON data file
+     * @param entityClass Class of the stored entities
+     * @param keyExtractor Function returning the unique ID of an entity
+     * @param toBinary true to write the .bin file from the JSON file, false for the reverse
+     * @return true if converted (or there was nothing to convert)
+     */
+    static <T> boolean convert(String filePath, Class<T> entityClass, Function<T, String> keyExtractor,
+                               boolean toBinary) {
+        StorageEngine<T> json = new JsonFileEngine<>(filePath, entityClass, keyExtractor);
+        StorageEngine<T> binary = new BinarySnapshotEngine<>(filePath, entityClass, keyExtractor,
+                RecordCodecs.forClass(entityClass));
+        String source = toBinary ? filePath : BinarySnapshotEngine.binaryPathFor(filePath);
+        if (!new File(source).exists()) {
+            System.out.println("Skipping " + source + " (not found)");
+            return true;
+        }
+
+        try {
+            LinkedHashMap<String, T> entities = (toBinary ? json : binary).load();
+            (toBinary ? binary : json).write(Collections.emptyList(), entities.values(), true);
+            System.out.println("Converted " + source + " (" + entities.size() + " records)");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error converting " + source + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
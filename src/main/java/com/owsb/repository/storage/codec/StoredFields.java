@@ -0,0 +1,45 @@
+package com.owsb.repository.storage.codec;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Restores derived fields (totals, subtotals) exactly as they were stored
+ * The model constructors recalculate these values, which can differ slightly from what an older
+ * version saved. Binary records keep the stored value and set it back the way Gson does, by
+ * writing the private field.
+ */
+public final class StoredFields {
+    private static final Map<String, Field> FIELDS = new ConcurrentHashMap<>();
+
+    private StoredFields() {
+        // Static helpers only
+    }
+
+    /**
+     * Set a private double field
+     * @param target Object to change
+     * @param name Field name
+     * @param value Stored value
+     */
+    public static void setDouble(Object target, String name, double value) {
+        try {
+            field(target.getClass(), name).setDouble(target, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot restore " + name, e);
+        }
+    }
+
+    private static Field field(Class<?> type, String name) {
+        return FIELDS.computeIfAbsent(type.getName() + "." + name, key -> {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException("No field " + key, e);
+            }
+        });
+    }
+}
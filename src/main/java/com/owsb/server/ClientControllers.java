@@ -0,0 +1,341 @@
+package com.owsb.server;
+
+import com.owsb.controller.ItemController;
+import com.owsb.controller.MessageController;
+import com.owsb.controller.PurchaseOrderController;
+import com.owsb.controller.PurchaseRequisitionController;
+import com.owsb.controller.SalesController;
+import com.owsb.controller.SupplierController;
+import com.owsb.model.inventory.Item;
+import com.owsb.model.message.Message;
+import com.owsb.model.procurement.PurchaseOrder;
+import com.owsb.model.procurement.PurchaseRequisition;
+import com.owsb.model.sales.Sale;
+import com.owsb.model.supplier.Supplier;
+import com.owsb.service.DemandForecastService;
+import com.owsb.util.Constants;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controllers for the dashboards of a desktop client
+ * When Constants.USE_QUERY_SERVER is set, the returned controllers send the read-only queries of
+ * {@link QueryProtocol} through the {@link QueryConnection} while it is open, and run them locally
+ * otherwise. Changes always go to the local controller.
+ */
+public final class ClientControllers {
+    private ClientControllers() {
+    }
+
+    /**
+     * @return Controller for items
+     */
+    public static ItemController items() {
+        return Constants.USE_QUERY_SERVER ? new RemoteItemController() : new ItemController();
+    }
+
+    /**
+     * @return Controller for messages
+     */
+    public static MessageController messages() {
+        return Constants.USE_QUERY_SERVER ? new RemoteMessageController() : new MessageController();
+    }
+
+    /**
+     * @return Controller for purchase orders
+     */
+    public static PurchaseOrderController purchaseOrders() {
+        return Constants.USE_QUERY_SERVER ? new RemotePurchaseOrderController() : new PurchaseOrderController();
+    }
+
+    /**
+     * @return Controller for purchase requisitions
+     */
+    public static PurchaseRequisitionController purchaseRequisitions() {
+        return Constants.USE_QUERY_SERVER ? new RemotePurchaseRequisitionController() : new PurchaseRequisitionController();
+    }
+
+    /**
+     * @return Controller for sales
+     */
+    public static SalesController sales() {
+        return Constants.USE_QUERY_SERVER ? new RemoteSalesController() : new SalesController();
+    }
+
+    /**
+     * @return Controller for suppliers
+     */
+    public static SupplierController suppliers() {
+        return Constants.USE_QUERY_SERVER ? new RemoteSupplierController() : new SupplierController();
+    }
+
+    /**
+     * ItemController sending its queries to the server
+     */
+    private static class RemoteItemController extends ItemController {
+        @Override
+        public List<Item> getAllItems() {
+            return QueryConnection.query(ItemController.class, "getAllItems", super::getAllItems);
+        }
+
+        @Override
+        public List<Item> getItemPage(boolean descending, int offset, int limit) {
+            return QueryConnection.query(ItemController.class, "getItemPage",
+                    () -> super.getItemPage(descending, offset, limit), descending, offset, limit);
+        }
+
+        @Override
+        public int getItemCount() {
+            return QueryConnection.<Integer>query(ItemController.class, "getItemCount", super::getItemCount);
+        }
+
+        @Override
+        public Item getItemById(String id) {
+            return QueryConnection.query(ItemController.class, "getItemById", () -> super.getItemById(id), id);
+        }
+
+        @Override
+        public List<Item> getLowStockItems() {
+            return QueryConnection.query(ItemController.class, "getLowStockItems", super::getLowStockItems);
+        }
+
+        @Override
+        public List<Item> getItemsBySupplier(String supplierID) {
+            return QueryConnection.query(ItemController.class, "getItemsBySupplier",
+                    () -> super.getItemsBySupplier(supplierID), supplierID);
+        }
+    }
+
+    /**
+     * MessageController sending its queries to the server
+     */
+    private static class RemoteMessageController extends MessageController {
+        @Override
+        public List<Message> getMessagesForCurrentUser() {
+            return QueryConnection.query(MessageController.class, "getMessagesForCurrentUser",
+                    super::getMessagesForCurrentUser);
+        }
+
+        @Override
+        public List<Message> getMessagesForCurrentUser(int offset, int limit) {
+            return QueryConnection.query(MessageController.class, "getMessagesForCurrentUser",
+                    () -> super.getMessagesForCurrentUser(offset, limit), offset, limit);
+        }
+
+        @Override
+        public int getMessageCountForCurrentUser() {
+            return QueryConnection.<Integer>query(MessageController.class, "getMessageCountForCurrentUser",
+                    super::getMessageCountForCurrentUser);
+        }
+
+        @Override
+        public List<Message> getUnreadMessagesForCurrentUser() {
+            return QueryConnection.query(MessageController.class, "getUnreadMessagesForCurrentUser",
+                    super::getUnreadMessagesForCurrentUser);
+        }
+
+        @Override
+        public int getUnreadMessageCount() {
+            return QueryConnection.<Integer>query(MessageController.class, "getUnreadMessageCount",
+                    super::getUnreadMessageCount);
+        }
+    }
+
+    /**
+     * PurchaseOrderController sending its queries to the server
+     */
+    private static class RemotePurchaseOrderController extends PurchaseOrderController {
+        @Override
+        public List<PurchaseOrder> getAllPurchaseOrders() {
+            return QueryConnection.query(PurchaseOrderController.class, "getAllPurchaseOrders",
+                    super::getAllPurchaseOrders);
+        }
+
+        @Override
+        public List<PurchaseOrder> getPurchaseOrdersByStatus(Constants.PurchaseOrderStatus status) {
+            return QueryConnection.query(PurchaseOrderController.class, "getPurchaseOrdersByStatus",
+                    () -> super.getPurchaseOrdersByStatus(status), status);
+        }
+
+        @Override
+        public List<PurchaseOrder> getPurchaseOrderPage(Constants.PurchaseOrderStatus status, boolean byDate,
+                                                           boolean descending, int offset, int limit) {
+            return QueryConnection.query(PurchaseOrderController.class, "getPurchaseOrderPage",
+                    () -> super.getPurchaseOrderPage(status, byDate, descending, offset, limit),
+                    status, byDate, descending, offset, limit);
+        }
+
+        @Override
+        public int countPurchaseOrders(Constants.PurchaseOrderStatus status) {
+            return QueryConnection.<Integer>query(PurchaseOrderController.class, "countPurchaseOrders",
+                    () -> super.countPurchaseOrders(status), status);
+        }
+
+        @Override
+        public List<PurchaseOrder> getMyPurchaseOrders() {
+            return QueryConnection.query(PurchaseOrderController.class, "getMyPurchaseOrders",
+                    super::getMyPurchaseOrders);
+        }
+
+        @Override
+        public List<PurchaseOrder> getPurchaseOrdersByPR(String prId) {
+            return QueryConnection.query(PurchaseOrderController.class, "getPurchaseOrdersByPR",
+                    () -> super.getPurchaseOrdersByPR(prId), prId);
+        }
+
+        @Override
+        public PurchaseRequisition getPurchaseRequisition(String prId) {
+            return QueryConnection.query(PurchaseOrderController.class, "getPurchaseRequisition",
+                    () -> super.getPurchaseRequisition(prId), prId);
+        }
+
+        @Override
+        public String getSupplierName(String supplierId) {
+            return QueryConnection.query(PurchaseOrderController.class, "getSupplierName",
+                    () -> super.getSupplierName(supplierId), supplierId);
+        }
+
+        @Override
+        public List<PurchaseRequisition> getPendingApprovalPRs() {
+            return QueryConnection.query(PurchaseOrderController.class, "getPendingApprovalPRs",
+                    super::getPendingApprovalPRs);
+        }
+    }
+
+    /**
+     * PurchaseRequisitionController sending its queries to the server
+     */
+    private static class RemotePurchaseRequisitionController extends PurchaseRequisitionController {
+        @Override
+        public List<PurchaseRequisition> getAllPurchaseRequisitions() {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getAllPurchaseRequisitions",
+                    super::getAllPurchaseRequisitions);
+        }
+
+        @Override
+        public List<String> getAllPurchaseRequisitionIds() {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getAllPurchaseRequisitionIds",
+                    super::getAllPurchaseRequisitionIds);
+        }
+
+        @Override
+        public List<PurchaseRequisition> getPurchaseRequisitionsByStatus(Constants.PurchaseRequisitionStatus status) {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getPurchaseRequisitionsByStatus",
+                    () -> super.getPurchaseRequisitionsByStatus(status), status);
+        }
+
+        @Override
+        public List<PurchaseRequisition> getMyPurchaseRequisitions() {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getMyPurchaseRequisitions",
+                    super::getMyPurchaseRequisitions);
+        }
+
+        @Override
+        public List<Item> getItemsWithLowStock() {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getItemsWithLowStock",
+                    super::getItemsWithLowStock);
+        }
+
+        @Override
+        public String checkExistingPendingPR(String itemId) {
+            return QueryConnection.query(PurchaseRequisitionController.class, "checkExistingPendingPR",
+                    () -> super.checkExistingPendingPR(itemId), itemId);
+        }
+
+        @Override
+        public int getPendingQuantity(String itemId) {
+            return QueryConnection.<Integer>query(PurchaseRequisitionController.class, "getPendingQuantity",
+                    () -> super.getPendingQuantity(itemId), itemId);
+        }
+
+        @Override
+        public Map<String, Integer> getPendingQuantities() {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getPendingQuantities",
+                    super::getPendingQuantities);
+        }
+
+        @Override
+        public DemandForecastService.Forecast getDemandForecast(String itemId) {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getDemandForecast",
+                    () -> super.getDemandForecast(itemId), itemId);
+        }
+
+        @Override
+        public List<Item> getAllItems() {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getAllItems", super::getAllItems);
+        }
+
+        @Override
+        public Item getItemById(String itemId) {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getItemById",
+                    () -> super.getItemById(itemId), itemId);
+        }
+
+        @Override
+        public Supplier getSupplierById(String supplierId) {
+            return QueryConnection.query(PurchaseRequisitionController.class, "getSupplierById",
+                    () -> super.getSupplierById(supplierId), supplierId);
+        }
+    }
+
+    /**
+     * SalesController sending its queries to the server
+     */
+    private static class RemoteSalesController extends SalesController {
+        @Override
+        public List<Sale> getAllSales() {
+            return QueryConnection.query(SalesController.class, "getAllSales", super::getAllSales);
+        }
+
+        @Override
+        public List<Sale> getSalesByDate(Date date) {
+            return QueryConnection.query(SalesController.class, "getSalesByDate",
+                    () -> super.getSalesByDate(date), date);
+        }
+
+        @Override
+        public Sale getSaleById(String saleId) {
+            return QueryConnection.query(SalesController.class, "getSaleById", () -> super.getSaleById(saleId), saleId);
+        }
+
+        @Override
+        public Item getItemById(String itemId) {
+            return QueryConnection.query(SalesController.class, "getItemById", () -> super.getItemById(itemId), itemId);
+        }
+
+        @Override
+        public int getAvailableStock(String itemId) {
+            return QueryConnection.<Integer>query(SalesController.class, "getAvailableStock",
+                    () -> super.getAvailableStock(itemId), itemId);
+        }
+
+        @Override
+        public List<Item> getAllItems() {
+            return QueryConnection.query(SalesController.class, "getAllItems", super::getAllItems);
+        }
+    }
+
+    /**
+     * SupplierController sending its queries to the server
+     */
+    private static class RemoteSupplierController extends SupplierController {
+        @Override
+        public Supplier getSupplierById(String supplierId) {
+            return QueryConnection.query(SupplierController.class, "getSupplierById",
+                    () -> super.getSupplierById(supplierId), supplierId);
+        }
+
+        @Override
+        public List<Supplier> getAllSuppliers() {
+            return QueryConnection.query(SupplierController.class, "getAllSuppliers", super::getAllSuppliers);
+        }
+
+        @Override
+        public List<Supplier> getSuppliersForItem(String itemId) {
+            return QueryConnection.query(SupplierController.class, "getSuppliersForItem",
+                    () -> super.getSuppliersForItem(itemId), itemId);
+        }
+    }
+}
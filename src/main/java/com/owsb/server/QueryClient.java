@@ -0,0 +1,180 @@
+package com.owsb.server;
+
+import com.google.gson.JsonElement;
+import com.owsb.util.Constants;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Connection to a {@link QueryServer} for calling its controllers
+ * A call names the controller class and method and passes the same arguments as a local call would;
+ * the result comes back with the method's own return type, e.g.
+ * {@code List<Item> items = client.call(ItemController.class, "getAllItems");}
+ *
+ * The connection is one server session. Log in first with {@link #login}; the server then answers
+ * calls as that user. Only the server's read-only queries can be called. Calls on one client are
+ * sent one at a time. The desktop client shares one through {@link QueryConnection}.
+ */
+public class QueryClient implements Closeable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+
+    /**
+     * Connect to a server on this machine
+     * @param port Server port
+     * @throws IOException if the server cannot be reached
+     */
+    public QueryClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Connect to the server on the configured port
+     * @throws IOException if the server cannot be reached
+     */
+    public QueryClient() throws IOException {
+        this(Constants.QUERY_SERVER_PORT);
+    }
+
+    /**
+     * Log in the session, before any call
+     * @param username Username
+     * @param password Password
+     * @return true if logged in, false if the server refused the login
+     * @throws UncheckedIOException if the connection failed
+     */
+    public synchronized boolean login(String username, String password) {
+        QueryProtocol.Request request = new QueryProtocol.Request();
+        request.username = username;
+        request.password = password;
+        QueryProtocol.Response response = send(request);
+        if (response.error != null) {
+            System.err.println("Query server login failed: " + response.error);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Call a controller method on the server
+     * @param controller Controller class, e.g. ItemController.class
+     * @param methodName Query method of the controller
+     * @param args Arguments, matched against the method's parameters like a local call
+     * @return The method's result (null for void methods)
+     * @throws IllegalArgumentException if the controller has no matching query
+     * @throws IllegalStateException if the call failed on the server
+     * @throws UncheckedIOException if the connection failed
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <R> R call(Class<?> controller, String methodName, Object... args) {
+        Method method = findMethod(controller, methodName, args);
+        Class<?>[] types = method.getParameterTypes();
+
+        QueryProtocol.Request request = new QueryProtocol.Request();
+        request.controller = controller.getSimpleName();
+        request.method = methodName;
+        request.params = new String[types.length];
+        request.args = new JsonElement[types.length];
+        for (int i = 0; i < types.length; i++) {
+            request.params[i] = types[i].getName();
+            request.args[i] = QueryProtocol.gson.toJsonTree(args[i], method.getGenericParameterTypes()[i]);
+        }
+
+        QueryProtocol.Response response = send(request);
+        if (response.error != null) {
+            throw new IllegalStateException(response.error);
+        }
+        return (R) QueryProtocol.gson.fromJson(response.result, method.getGenericReturnType());
+    }
+
+    private QueryProtocol.Response send(QueryProtocol.Request request) {
+        try {
+            out.write(QueryProtocol.gson.toJson(request));
+            out.write('\n');
+            out.flush();
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("Query server closed the connection");
+            }
+            return QueryProtocol.gson.fromJson(line, QueryProtocol.Response.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Find the public instance method a local call with these arguments would use
+     */
+    private static Method findMethod(Class<?> controller, String methodName, Object[] args) {
+        if (!QueryProtocol.isQuery(controller, methodName)) {
+            throw new IllegalArgumentException(controller.getSimpleName() + "." + methodName
+                    + " is not served by the query server");
+        }
+        for (Method method : controller.getMethods()) {
+            if (method.getName().equals(methodName) && !Modifier.isStatic(method.getModifiers())
+                    && accepts(method.getParameterTypes(), args)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException("No method " + controller.getSimpleName() + "." + methodName
+                + " for " + args.length + " argument(s)");
+    }
+
+    private static boolean accepts(Class<?>[] types, Object[] args) {
+        if (types.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (args[i] == null) {
+                if (types[i].isPrimitive()) {
+                    return false;
+                }
+            } else if (!box(types[i]).isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+}
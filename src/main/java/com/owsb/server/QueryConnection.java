@@ -0,0 +1,100 @@
+package com.owsb.server;
+
+import com.owsb.util.Constants;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * The desktop client's connection to the query server, shared by all its controllers
+ * Opened at login when Constants.USE_QUERY_SERVER is set. While it is open, the controllers made by
+ * {@link ClientControllers} send their read-only queries to the server, which answers them from its
+ * warm stores, instead of loading and watching the data files in this process. Changes are still made
+ * locally. A query the server cannot answer is run locally; if the connection breaks, it is closed and
+ * every later query is run locally.
+ */
+public final class QueryConnection {
+    private static QueryClient client;
+
+    private QueryConnection() {
+    }
+
+    /**
+     * Connect and log in, if this client is configured to use a query server
+     * @param username Username, already checked locally
+     * @param password Password
+     * @return true if queries now go to the server
+     */
+    public static synchronized boolean open(String username, String password) {
+        close();
+        if (!Constants.USE_QUERY_SERVER) {
+            return false;
+        }
+        try {
+            QueryClient connected = new QueryClient();
+            if (!connected.login(username, password)) {
+                connected.close();
+                return false;
+            }
+            client = connected;
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Query server not reachable, reading data locally: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Disconnect, e.g. at logout; later queries run locally
+     */
+    public static synchronized void close() {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                System.err.println("Error closing query server connection: " + e.getMessage());
+            }
+            client = null;
+        }
+    }
+
+    /**
+     * @return true if queries go to the server
+     */
+    public static synchronized boolean isOpen() {
+        return client != null;
+    }
+
+    /**
+     * Run a controller query on the server, or locally when not connected
+     * @param controller Controller class declaring the query
+     * @param method Query method name
+     * @param local Runs the same query on the local controller
+     * @param args Arguments of the query
+     * @return Result of the query
+     */
+    static <R> R query(Class<?> controller, String method, Supplier<R> local, Object... args) {
+        QueryClient connected;
+        synchronized (QueryConnection.class) {
+            connected = client;
+        }
+        if (connected == null) {
+            return local.get();
+        }
+        try {
+            return connected.call(controller, method, args);
+        } catch (UncheckedIOException e) {
+            System.err.println("Query server connection lost, reading data locally: " + e.getMessage());
+            synchronized (QueryConnection.class) {
+                if (client == connected) {
+                    close();
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Query server could not answer " + controller.getSimpleName() + "." + method
+                    + ", reading locally: " + e.getMessage());
+        }
+        return local.get();
+    }
+}
@@ -0,0 +1,117 @@
+package com.owsb.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.owsb.controller.ItemController;
+import com.owsb.controller.MessageController;
+import com.owsb.controller.PurchaseOrderController;
+import com.owsb.controller.PurchaseRequisitionController;
+import com.owsb.controller.SalesController;
+import com.owsb.controller.SupplierController;
+import com.owsb.controller.SupplierSelectionController;
+import com.owsb.util.Constants;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wire format shared by {@link QueryServer} and {@link QueryClient}
+ * Each call is one line of compact JSON naming a controller, a method with its parameter types and
+ * the arguments; the reply is one line holding either the result or an error message.
+ * A session starts with a login line carrying a username and password; calls before it are refused.
+ *
+ * Only the read-only query methods listed here can be called. Changes, user management and anything
+ * that sets the current user stay with the in-process controllers.
+ */
+final class QueryProtocol {
+    // Controllers a client may call, by simple class name, with the methods it may call on each
+    static final Map<String, Class<?>> CONTROLLERS = new LinkedHashMap<>();
+    private static final Map<Class<?>, Set<String>> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put(ItemController.class, Set.of("getAllItems", "getItemPage", "getItemCount", "getItemById",
+                "getLowStockItems", "getItemsBySupplier", "canViewStock", "canManageStock"));
+        QUERIES.put(MessageController.class, Set.of("getMessagesForCurrentUser", "getMessageCountForCurrentUser",
+                "getUnreadMessagesForCurrentUser", "getUnreadMessageCount"));
+        QUERIES.put(PurchaseOrderController.class, Set.of("getAllPurchaseOrders", "getPurchaseOrdersByStatus",
+                "getPurchaseOrderPage", "countPurchaseOrders", "getMyPurchaseOrders", "getPurchaseOrdersByPR",
+                "getPurchaseRequisition", "getSupplierName", "getPendingApprovalPRs"));
+        QUERIES.put(PurchaseRequisitionController.class, Set.of("getAllPurchaseRequisitions",
+                "getAllPurchaseRequisitionIds", "getPurchaseRequisitionsByStatus", "getMyPurchaseRequisitions",
+                "getItemsWithLowStock", "checkExistingPendingPR", "getPendingQuantity", "getPendingQuantities",
+                "getDemandForecast", "getAllItems", "getItemById", "getSupplierById"));
+        QUERIES.put(SalesController.class, Set.of("getAllSales", "getSalesByDate", "getSaleById", "getItemById",
+                "getAvailableStock", "getAllItems"));
+        QUERIES.put(SupplierController.class, Set.of("getSupplierById", "getAllSuppliers", "getSuppliersForItem"));
+        QUERIES.put(SupplierSelectionController.class, Set.of("getAlternativeSuppliersForItem",
+                "getSuppliersForItems", "getPrimarySupplierForItem"));
+        for (Class<?> controller : QUERIES.keySet()) {
+            CONTROLLERS.put(controller.getSimpleName(), controller);
+        }
+    }
+
+    // Parameter types a call may name, by class name; nothing else is resolved
+    private static final Map<String, Class<?>> TYPES = new LinkedHashMap<>();
+
+    static {
+        for (Class<?> type : List.of(boolean.class, int.class, long.class, double.class, String.class,
+                Date.class, Collection.class, Constants.PurchaseOrderStatus.class,
+                Constants.PurchaseRequisitionStatus.class)) {
+            TYPES.put(type.getName(), type);
+        }
+    }
+
+    static final Gson gson = new Gson();
+
+    /**
+     * One call from a client
+     */
+    static class Request {
+        String username;   // Set on the login line only
+        String password;
+        String controller;
+        String method;
+        String[] params;   // Parameter type names, to pick between overloads
+        JsonElement[] args;
+    }
+
+    /**
+     * Reply to one call
+     */
+    static class Response {
+        JsonElement result;
+        String error;      // Set instead of result if the call failed
+    }
+
+    private QueryProtocol() {
+    }
+
+    /**
+     * Check whether clients may call a method
+     * @param controller Controller class
+     * @param method Method name
+     * @return true if the method is a listed query of the controller
+     */
+    static boolean isQuery(Class<?> controller, String method) {
+        Set<String> queries = QUERIES.get(controller);
+        return queries != null && queries.contains(method);
+    }
+
+    /**
+     * Resolve a parameter type name sent by a client
+     * @param name Class name or primitive name
+     * @return The class
+     * @throws ClassNotFoundException if the type is not one a query takes
+     */
+    static Class<?> typeOf(String name) throws ClassNotFoundException {
+        Class<?> type = TYPES.get(name);
+        if (type == null) {
+            throw new ClassNotFoundException("Parameter type not allowed: " + name);
+        }
+        return type;
+    }
+}
@@ -0,0 +1,255 @@
+package com.owsb.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.owsb.controller.AuthController;
+import com.owsb.model.user.User;
+import com.owsb.util.Constants;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the controllers of this process to {@link QueryClient}s on the same machine
+ * The server process owns the data files and keeps the only warm copy of the stores, indexes and
+ * report aggregates; clients send each controller call over a loopback socket instead of loading
+ * and watching the files themselves.
+ *
+ * Every connection is a session with its own controller instances, so state such as the current
+ * user stays per client, while all sessions share the stores. A session must log in first; its user
+ * is set on the controllers here, never by the client. Only the read-only queries listed in
+ * {@link QueryProtocol} are served. Start with {@code Main --server}; desktop clients started with
+ * {@code -Dowsb.server.connect=true} then send their dashboards' queries here through {@link QueryConnection}.
+ */
+public class QueryServer {
+    // Failed logins after which a session is dropped
+    private static final int MAX_LOGIN_ATTEMPTS = 3;
+
+    private final int port;
+    private final ExecutorService sessions = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "query-session");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ServerSocket serverSocket;
+
+    /**
+     * Constructor
+     * @param port Loopback port to listen on, usually Constants.QUERY_SERVER_PORT
+     */
+    public QueryServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Constructor for the configured port
+     */
+    public QueryServer() {
+        this(Constants.QUERY_SERVER_PORT);
+    }
+
+    /**
+     * Listen for clients on a background thread
+     * @return true if listening, false if the port could not be opened
+     */
+    public synchronized boolean start() {
+        try {
+            // Loopback only: passwords are sent in the clear
+            serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            System.err.println("Error starting query server on port " + port + ": " + e.getMessage());
+            return false;
+        }
+
+        Thread acceptor = new Thread(this::acceptClients, "query-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return true;
+    }
+
+    /**
+     * Stop accepting clients and close open sessions
+     */
+    public synchronized void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error stopping query server: " + e.getMessage());
+        }
+        sessions.shutdownNow();
+    }
+
+    /**
+     * @return Port the server listens on (useful when started with port 0)
+     */
+    public synchronized int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    private void acceptClients() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Error accepting query client: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * State of one client connection
+     */
+    private static class Session {
+        User user;
+        int failedLogins;
+        final Map<Class<?>, Object> controllers = new HashMap<>();
+    }
+
+    /**
+     * Answer the calls of one client until it disconnects
+     * @param socket Client connection
+     */
+    private void serve(Socket socket) {
+        Session session = new Session();
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                QueryProtocol.Response response;
+                try {
+                    QueryProtocol.Request request = QueryProtocol.gson.fromJson(line, QueryProtocol.Request.class);
+                    if (request != null && request.username != null) {
+                        response = login(request, session);
+                    } else if (session.user == null) {
+                        response = error("Not logged in");
+                    } else {
+                        response = handle(request, session);
+                    }
+                } catch (JsonParseException e) {
+                    response = error("Malformed request: " + e.getMessage());
+                }
+                out.write(QueryProtocol.gson.toJson(response));
+                out.write('\n');
+                out.flush();
+                if (session.failedLogins >= MAX_LOGIN_ATTEMPTS) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    /**
+     * Authenticate the session's user
+     * @param request Login line
+     * @param session Session to log in
+     * @return Empty reply, or an error if the login failed
+     */
+    private QueryProtocol.Response login(QueryProtocol.Request request, Session session) {
+        if (session.user != null) {
+            return error("Already logged in");
+        }
+        AuthController auth = new AuthController();
+        if (!auth.login(request.username, request.password)) {
+            session.failedLogins++;
+            return error("Invalid username or password");
+        }
+        session.user = auth.getCurrentUser();
+        return new QueryProtocol.Response();
+    }
+
+    /**
+     * Run one call on the session's controller
+     * @param request Call
+     * @param session Logged-in session
+     * @return Result or error
+     */
+    private QueryProtocol.Response handle(QueryProtocol.Request request, Session session) {
+        Class<?> controllerClass = request != null ? QueryProtocol.CONTROLLERS.get(request.controller) : null;
+        if (controllerClass == null) {
+            return error("Unknown controller: " + (request != null ? request.controller : null));
+        }
+        if (!QueryProtocol.isQuery(controllerClass, request.method)) {
+            return error("Not a query: " + request.controller + "." + request.method);
+        }
+
+        try {
+            String[] params = request.params != null ? request.params : new String[0];
+            Class<?>[] types = new Class<?>[params.length];
+            for (int i = 0; i < params.length; i++) {
+                types[i] = QueryProtocol.typeOf(params[i]);
+            }
+            Method method = controllerClass.getMethod(request.method, types);
+            if (Modifier.isStatic(method.getModifiers())) {
+                return error("Not a controller method: " + request.method);
+            }
+
+            Type[] parameterTypes = method.getGenericParameterTypes();
+            Object[] args = new Object[parameterTypes.length];
+            for (int i = 0; i < args.length; i++) {
+                JsonElement arg = request.args != null && i < request.args.length ? request.args[i] : null;
+                args[i] = QueryProtocol.gson.fromJson(arg, parameterTypes[i]);
+            }
+
+            Object controller = session.controllers.get(controllerClass);
+            if (controller == null) {
+                controller = controllerClass.getConstructor().newInstance();
+                setUser(controller, session.user);
+                session.controllers.put(controllerClass, controller);
+            }
+
+            QueryProtocol.Response response = new QueryProtocol.Response();
+            Object result = method.invoke(controller, args);
+            if (result != null) {
+                response.result = QueryProtocol.gson.toJsonTree(result, method.getGenericReturnType());
+            }
+            return response;
+        } catch (InvocationTargetException e) {
+            return error(request.controller + "." + request.method + " failed: " + e.getCause());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return error("Cannot call " + request.controller + "." + request.method + ": " + e);
+        }
+    }
+
+    /**
+     * Give a new controller the session's user, for controllers that act on behalf of one
+     */
+    private static void setUser(Object controller, User user) throws ReflectiveOperationException {
+        try {
+            controller.getClass().getMethod("setCurrentUser", User.class).invoke(controller, user);
+        } catch (NoSuchMethodException e) {
+            // Controller does not depend on the user
+        }
+    }
+
+    private static QueryProtocol.Response error(String message) {
+        QueryProtocol.Response response = new QueryProtocol.Response();
+        response.error = message;
+        return response;
+    }
+}
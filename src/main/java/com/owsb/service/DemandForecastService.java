@@ -0,0 +1,231 @@
+package com.owsb.service;
+
+import com.owsb.model.inventory.Item;
+import com.owsb.repository.DemandHistory;
+import com.owsb.repository.ItemRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class for demand forecasting
+ * Forecasts each item's daily demand from its sales history with exponential smoothing and turns
+ * it into a reorder point and an order-up-to level, using the item's lead time from the delivery
+ * dates of past purchase orders.
+ *
+ * Forecasts are cached per item and only recomputed when the item's sales or the lead times change
+ * (see {@link DemandHistory#getStamps}) or a new day starts. Stale forecasts of the whole catalogue
+ * are recomputed in parallel.
+ */
+public class DemandForecastService {
+    // Days of history the forecast looks at
+    public static final int HISTORY_DAYS = 90;
+    // Days averaged to start the smoothing
+    private static final int WARM_UP_DAYS = 7;
+    // Weight of the newest day in the smoothed demand
+    private static final double SMOOTHING = 0.3;
+    // Safety stock in standard deviations of daily demand (about 95% of lead times covered)
+    private static final double SERVICE_FACTOR = 1.65;
+    // Lead time assumed before any purchase order exists (matches the default PR required date)
+    private static final double DEFAULT_LEAD_TIME_DAYS = 14;
+
+    private static DemandForecastService instance;
+
+    /**
+     * Demand forecast of one item
+     */
+    public static class Forecast {
+        private final String itemID;
+        private final double dailyDemand;
+        private final double leadTimeDays;
+        private final int safetyStock;
+        private final int reorderPoint;
+        // Cache bookkeeping, not part of the forecast (and not sent to query clients)
+        final transient long stamp;
+        final transient LocalDate day;
+
+        Forecast(String itemID, double dailyDemand, double leadTimeDays, int safetyStock, long stamp, LocalDate day) {
+            this.itemID = itemID;
+            this.dailyDemand = dailyDemand;
+            this.leadTimeDays = leadTimeDays;
+            this.safetyStock = safetyStock;
+            this.reorderPoint = (int) Math.ceil(dailyDemand * leadTimeDays) + safetyStock;
+            this.stamp = stamp;
+            this.day = day;
+        }
+
+        public String getItemID() {
+            return itemID;
+        }
+
+        /**
+         * @return Expected units sold per day
+         */
+        public double getDailyDemand() {
+            return dailyDemand;
+        }
+
+        /**
+         * @return Expected days from ordering to delivery
+         */
+        public double getLeadTimeDays() {
+            return leadTimeDays;
+        }
+
+        /**
+         * @return Stock kept for demand above the forecast during the lead time
+         */
+        public int getSafetyStock() {
+            return safetyStock;
+        }
+
+        /**
+         * @return Stock level at which to reorder: lead time demand plus safety stock
+         */
+        public int getReorderPoint() {
+            return reorderPoint;
+        }
+
+        /**
+         * Get the quantity to order for an item
+         * Orders up to the item's maximum stock, or further if that would not last beyond the
+         * next delivery (reorder point plus another lead time of demand).
+         * @param item Item with its current stock and limits
+         * @return Suggested order quantity, 0 if nothing is needed
+         */
+        public int getSuggestedQuantity(Item item) {
+            int orderUpTo = Math.max(item.getMaximumStock(),
+                    reorderPoint + (int) Math.ceil(dailyDemand * leadTimeDays));
+            return Math.max(0, orderUpTo - item.getCurrentStock());
+        }
+    }
+
+    private final DemandHistory history;
+    private final ItemRepository itemRepository;
+    private final Map<String, Forecast> forecasts = new ConcurrentHashMap<>();
+
+    private DemandForecastService() {
+        this.history = DemandHistory.getInstance();
+        this.itemRepository = new ItemRepository();
+    }
+
+    /**
+     * Get the shared service
+     * @return Forecast service
+     */
+    public static synchronized DemandForecastService getInstance() {
+        if (instance == null) {
+            instance = new DemandForecastService();
+        }
+        return instance;
+    }
+
+    /**
+     * Get the forecast of one item
+     * @param itemID Item ID
+     * @return Forecast, recomputed only if the item's history changed
+     */
+    public Forecast getForecast(String itemID) {
+        return refresh(Collections.singletonList(itemID)).get(itemID);
+    }
+
+    /**
+     * Get the forecasts of the whole catalogue
+     * @return Forecast per item ID
+     */
+    public Map<String, Forecast> getForecasts() {
+        List<String> itemIDs = new ArrayList<>();
+        for (Item item : itemRepository.findAll()) {
+            itemIDs.add(item.getItemID());
+        }
+        return refresh(itemIDs);
+    }
+
+    /**
+     * Get the suggested order quantity of an item from its forecast
+     * @param item Item
+     * @return Quantity to order, 0 if nothing is needed
+     */
+    public int getSuggestedOrderQuantity(Item item) {
+        return getForecast(item.getItemID()).getSuggestedQuantity(item);
+    }
+
+    /**
+     * Recompute the stale forecasts among some items, in parallel
+     * @param itemIDs Item IDs
+     * @return Current forecast of each item
+     */
+    private Map<String, Forecast> refresh(Collection<String> itemIDs) {
+        LocalDate today = LocalDate.now();
+        Map<String, Long> stamps = history.getStamps(itemIDs);
+        List<String> stale = new ArrayList<>();
+        for (String itemID : itemIDs) {
+            Forecast cached = forecasts.get(itemID);
+            if (cached == null || cached.stamp != stamps.get(itemID) || !cached.day.equals(today)) {
+                stale.add(itemID);
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            // Read the history once, then work on the copies without holding its lock
+            Map<String, int[]> demand = history.getDailyDemand(stale, today, HISTORY_DAYS);
+            Map<String, Double> leadTimes = history.getLeadTimeDays(stale);
+            stale.parallelStream().forEach(itemID -> forecasts.put(itemID, forecast(itemID,
+                    demand.get(itemID), leadTimes.getOrDefault(itemID, DEFAULT_LEAD_TIME_DAYS),
+                    stamps.get(itemID), today)));
+        }
+
+        Map<String, Forecast> result = new LinkedHashMap<>();
+        for (String itemID : itemIDs) {
+            result.put(itemID, forecasts.get(itemID));
+        }
+        return result;
+    }
+
+    /**
+     * Forecast one item with simple exponential smoothing
+     * @param itemID Item ID
+     * @param series Units sold per day, oldest first, or null if none were sold
+     * @param leadTimeDays Expected lead time
+     * @param stamp History stamp the series was read at
+     * @param today Last day of the series
+     * @return Forecast
+     */
+    private static Forecast forecast(String itemID, int[] series, double leadTimeDays, long stamp, LocalDate today) {
+        if (series == null) {
+            return new Forecast(itemID, 0, leadTimeDays, 0, stamp, today);
+        }
+
+        // Start at the first sale so a new item is not diluted by days before it was sold
+        int start = 0;
+        while (start < series.length && series[start] == 0) {
+            start++;
+        }
+        int warmUp = Math.min(WARM_UP_DAYS, series.length - start);
+        double level = 0;
+        for (int i = start; i < start + warmUp; i++) {
+            level += series[i];
+        }
+        level /= warmUp;
+
+        // One-day-ahead errors give the spread of daily demand around the forecast
+        double squaredErrors = 0;
+        int days = 0;
+        for (int i = start + warmUp; i < series.length; i++) {
+            double error = series[i] - level;
+            squaredErrors += error * error;
+            days++;
+            level += SMOOTHING * error;
+        }
+        double deviation = days > 0 ? Math.sqrt(squaredErrors / days) : level;
+
+        int safetyStock = (int) Math.ceil(SERVICE_FACTOR * deviation * Math.sqrt(leadTimeDays));
+        return new Forecast(itemID, level, leadTimeDays, safetyStock, stamp, today);
+    }
+}
@@ -1,10 +1,14 @@
 package com.owsb.service;
 
+import com.owsb.model.inventory.Item;
 import com.owsb.model.supplier.Supplier;
+import com.owsb.repository.ItemRepository;
 import com.owsb.repository.SupplierRepository;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for supplier-related operations
@@ -12,13 +16,14 @@ import java.util.List;
  */
 public class SupplierService {
     private final SupplierRepository supplierRepository;
+    private final ItemRepository itemRepository;
     
     /**
      * Constructor
-     * @param supplierRepository Supplier repository
      */
     public SupplierService() {
         this.supplierRepository = new SupplierRepository();
+        this.itemRepository = new ItemRepository();
     }
     
     /**
@@ -27,18 +32,17 @@ public class SupplierService {
      * @return List of suppliers that can supply the item
      */
     public List<Supplier> findSuppliersForItem(String itemID) {
-        List<Supplier> allSuppliers = supplierRepository.findAll();
-        List<Supplier> matchingSuppliers = new ArrayList<>();
-        
-        // Scan all suppliers to find those that can supply this item
-        for (Supplier supplier : allSuppliers) {
-            List<String> suppliedItems = supplier.getItemIDs();
-            if (suppliedItems != null && suppliedItems.contains(itemID)) {
-                matchingSuppliers.add(supplier);
-            }
-        }
-        
-        return matchingSuppliers;
+        // Looked up in the supplier store's item index rather than by scanning every catalogue
+        return supplierRepository.findByItem(itemID);
+    }
+    
+    /**
+     * Find the suppliers of several items with one lookup per item
+     * @param itemIDs Item IDs, e.g. the lines of a purchase requisition
+     * @return Suppliers of each item
+     */
+    public Map<String, List<Supplier>> findSuppliersForItems(Collection<String> itemIDs) {
+        return supplierRepository.findByItems(itemIDs);
     }
     
     /**
@@ -47,14 +51,33 @@ public class SupplierService {
      * @return Primary supplier or null if not found
      */
     public Supplier getPrimarySupplierForItem(String itemID) {
-        // This uses the existing relationship where each item has one primary supplier
-        List<Supplier> suppliers = findSuppliersForItem(itemID);
-        
-        // If we have suppliers, return the first one as primary
-        if (!suppliers.isEmpty()) {
-            return suppliers.get(0);
+        // Each item records its primary supplier
+        Item item = itemRepository.findById(itemID);
+        if (item != null && item.getSupplierID() != null && !item.getSupplierID().isEmpty()) {
+            Supplier primary = supplierRepository.findById(item.getSupplierID());
+            if (primary != null) {
+                return primary;
+            }
         }
         
-        return null;
+        // Otherwise fall back to the first supplier that stocks it
+        List<Supplier> suppliers = findSuppliersForItem(itemID);
+        return suppliers.isEmpty() ? null : suppliers.get(0);
+    }
+    
+    /**
+     * Find the suppliers of an item other than a given one
+     * @param itemID Item ID
+     * @param excludedSupplierID Supplier to leave out, e.g. the current primary supplier
+     * @return Other suppliers of the item
+     */
+    public List<Supplier> findAlternativeSuppliers(String itemID, String excludedSupplierID) {
+        List<Supplier> alternatives = new ArrayList<>();
+        for (Supplier supplier : findSuppliersForItem(itemID)) {
+            if (!supplier.getSupplierID().equals(excludedSupplierID)) {
+                alternatives.add(supplier);
+            }
+        }
+        return alternatives;
     }
 }
\ No newline at end of file
@@ -8,8 +8,8 @@ import java.io.File;
  */
 public class Constants {
     
-    // Base directory for data files
-    private static final String DATA_DIR = "data";
+    // Base directory for data files, overridable with -Dowsb.data.dir (e.g. for benchmark datasets)
+    private static final String DATA_DIR = System.getProperty("owsb.data.dir", "data");
     
     // File paths for data files
     public static final String USER_FILE = DATA_DIR + File.separator + "users.txt";
@@ -23,6 +23,35 @@ public class Constants {
     public static final String ITEM_CATEGORY_FILE = DATA_DIR + File.separator + "item_categories.txt";
     public static final String MESSAGES_FILE = DATA_DIR + File.separator + "messages.txt";
     
+    // Storage settings
+    // "log" appends each change to a per-file log (data/*.log) and periodically compacts it into the
+    // data file, "json" rewrites the whole data file on every change
+    public static final String STORAGE_ENGINE = System.getProperty("owsb.storage", "log");
+    public static final int LOG_COMPACTION_THRESHOLD = 1000; // Minimum log records before compaction
+    // Lookups by ID or field a store answers by streaming its file before it loads it (0 = always load)
+    public static final int COLD_LOOKUPS_BEFORE_LOAD = Integer.getInteger("owsb.coldLookups", 8);
+    // "binary" stores items, sales, purchase orders, payments and messages as compact data/*.bin
+    // snapshots (converted with SnapshotConverter), "json" keeps the pretty-printed data/*.txt files
+    public static final String SNAPSHOT_FORMAT = System.getProperty("owsb.snapshot", "json");
+    // Journal that makes multi-file transactions durable with a single write
+    public static final String TRANSACTION_JOURNAL = DATA_DIR + File.separator + "transactions.log";
+    // Next free number per ID prefix; numbers are reserved in blocks so most IDs need no disk write
+    public static final String SEQUENCE_FILE = DATA_DIR + File.separator + "sequences.txt";
+    public static final int SEQUENCE_BLOCK_SIZE = 20;
+    // Sales older than this many days move from sales.txt to the memory-mapped archive (0 = never)
+    public static final String SALES_ARCHIVE_FILE = DATA_DIR + File.separator + "sales_archive.dat";
+    public static final String SALES_ARCHIVE_INDEX = DATA_DIR + File.separator + "sales_archive.idx";
+    public static final int SALES_ARCHIVE_AFTER_DAYS = Integer.getInteger("owsb.sales.archiveAfterDays", 365);
+    // Whether Main archives old sales when it starts (run by one instance, e.g. the query server)
+    public static final boolean SALES_ARCHIVE_ON_STARTUP = Boolean.getBoolean("owsb.sales.archiveOnStartup");
+    // Append-only record of every stock level change
+    public static final String STOCK_MOVEMENTS_FILE = DATA_DIR + File.separator + "stock_movements.log";
+    
+    // Query server: one process started with --server owns the data, clients call its controllers
+    public static final int QUERY_SERVER_PORT = Integer.getInteger("owsb.server.port", 5150);
+    // Whether the dashboards read through the query server instead of this process's own copy of the data
+    public static final boolean USE_QUERY_SERVER = Boolean.getBoolean("owsb.server.connect");
+    
     // Business constants
     public static final double DEFAULT_PROFIT_RATIO = 0.10; // 10%
     public static final int MINIMUM_ITEMS_REQUIRED = 3; // Minimum items required for a purchase requisition
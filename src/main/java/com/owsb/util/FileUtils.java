@@ -2,12 +2,19 @@ package com.owsb.util;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Utility class for file operations with JSON data
@@ -46,6 +53,33 @@ public class FileUtils {
         }
     }
     
+    /**
+     * Read a JSON list file lazily, one object at a time
+     * Reading stops when the stream is no longer consumed, so memory use does not depend on the
+     * file size. Read errors during consumption are thrown as UncheckedIOException.
+     * @param fileName Name of the file to read
+     * @param clazz Class of the objects in the list
+     * @return Stream of objects; must be closed, e.g. with try-with-resources
+     * @throws IOException If the file cannot be opened or does not hold a list
+     */
+    public static <T> Stream<T> streamListFromJson(String fileName, Class<T> clazz) throws IOException {
+        return streamListFromJson(fileName, clazz, null);
+    }
+    
+    /**
+     * Read a JSON list file lazily, skipping objects that do not match a filter
+     * The filter sees the raw JSON object, so rejected entries are never converted to objects.
+     * @param fileName Name of the file to read
+     * @param clazz Class of the objects in the list
+     * @param where Filter on the raw JSON (see JsonArrayCursor.fieldEquals), or null for all objects
+     * @return Stream of matching objects; must be closed, e.g. with try-with-resources
+     * @throws IOException If the file cannot be opened or does not hold a list
+     */
+    public static <T> Stream<T> streamListFromJson(String fileName, Class<T> clazz,
+                                                   Predicate<JsonObject> where) throws IOException {
+        return JsonArrayCursor.open(fileName, gson, clazz, where).stream();
+    }
+    
     /**
      * Write a list of objects to a JSON file
      * @param fileName Name of the file to write
@@ -65,6 +99,25 @@ public class FileUtils {
         }
     }
     
+    /**
+     * Write a list of objects to a JSON file without ever leaving a half-written file behind
+     * The list is written to a temporary file next to the target which is then renamed over it
+     * @param fileName Name of the file to write
+     * @param list List of objects to write
+     * @throws IOException If there's an error writing the file
+     */
+    public static <T> void writeListToJsonAtomically(String fileName, List<T> list) throws IOException {
+        File tempFile = new File(fileName + ".tmp");
+        writeListToJson(tempFile.getPath(), list);
+        
+        try {
+            Files.move(tempFile.toPath(), Paths.get(fileName), 
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
     /**
      * Read a single object from a JSON file
      * @param fileName Name of the file to read
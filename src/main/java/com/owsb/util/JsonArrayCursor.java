@@ -0,0 +1,193 @@
+package com.owsb.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the entities of a JSON array file one at a time instead of parsing the whole document
+ * Only the current element is held in memory, and reading stops as soon as the consumer stops
+ * asking (e.g. a findFirst on the stream). An optional filter on the raw JSON object rejects
+ * elements before they are bound to entity objects, which is the expensive part.
+ * @param <T> The entity type
+ */
+public class JsonArrayCursor<T> implements Iterator<T>, Closeable {
+    private final JsonReader reader; // null when there is nothing to read
+    private final Gson gson;
+    private final Class<T> entityClass;
+    private final Predicate<JsonObject> where;
+
+    private T next;
+    private boolean finished;
+
+    private JsonArrayCursor(JsonReader reader, Gson gson, Class<T> entityClass, Predicate<JsonObject> where) {
+        this.reader = reader;
+        this.gson = gson;
+        this.entityClass = entityClass;
+        this.where = where;
+        this.finished = reader == null;
+    }
+
+    /**
+     * Open a cursor over a JSON array file
+     * A missing or empty file, or a file holding null, yields no entities.
+     * @param fileName File to read
+     * @param gson Gson instance used to bind the elements
+     * @param entityClass Class of the elements
+     * @param where Filter on the raw JSON object of each element, or null to read every element
+     * @return Cursor positioned before the first element; must be closed
+     * @throws IOException if the file cannot be read or does not hold an array
+     */
+    public static <T> JsonArrayCursor<T> open(String fileName, Gson gson, Class<T> entityClass,
+                                              Predicate<JsonObject> where) throws IOException {
+        JsonReader reader;
+        try {
+            reader = new JsonReader(new BufferedReader(
+                    new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8), 64 * 1024));
+        } catch (FileNotFoundException e) {
+            return new JsonArrayCursor<>(null, gson, entityClass, where);
+        }
+
+        try {
+            JsonToken token = reader.peek();
+            if (token == JsonToken.NULL) {
+                reader.close();
+                return new JsonArrayCursor<>(null, gson, entityClass, where);
+            }
+            reader.beginArray();
+        } catch (EOFException e) {
+            reader.close();
+            return new JsonArrayCursor<>(null, gson, entityClass, where);
+        } catch (IOException | IllegalStateException e) {
+            reader.close();
+            throw new IOException(fileName + " does not hold a JSON array: " + e.getMessage(), e);
+        }
+        return new JsonArrayCursor<>(reader, gson, entityClass, where);
+    }
+
+    /**
+     * Filter that keeps elements whose field has the given string value
+     * @param field Field name as written in the file
+     * @param value Expected value
+     * @return Filter for {@link #open}
+     */
+    public static Predicate<JsonObject> fieldEquals(String field, String value) {
+        return object -> {
+            JsonElement element = object.get(field);
+            return element != null && element.isJsonPrimitive() && element.getAsString().equals(value);
+        };
+    }
+
+    /**
+     * Filter that keeps elements with any top-level field holding the given string value
+     * For lookups by ID when the name of the ID field is not known; confirm the match on the bound entity.
+     * @param value Expected value
+     * @return Filter for {@link #open}
+     */
+    public static Predicate<JsonObject> anyFieldEquals(String value) {
+        return object -> {
+            for (Map.Entry<String, JsonElement> field : object.entrySet()) {
+                JsonElement element = field.getValue();
+                if (element.isJsonPrimitive() && element.getAsString().equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+
+        try {
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                if (where == null) {
+                    // Bind straight from the token stream, no intermediate tree
+                    next = gson.fromJson(reader, entityClass);
+                    return true;
+                }
+
+                JsonElement element = JsonParser.parseReader(reader);
+                if (element.isJsonObject() && where.test(element.getAsJsonObject())) {
+                    next = gson.fromJson(element, entityClass);
+                    return true;
+                }
+            }
+            reader.endArray();
+            close();
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (JsonParseException e) {
+            throw new UncheckedIOException(new IOException("Invalid JSON element: " + e.getMessage(), e));
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T result = next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Expose the remaining elements as a sequential stream that closes the cursor when closed
+     * Read errors surface as UncheckedIOException.
+     * @return Stream of entities; use in try-with-resources
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        next = null;
+        if (reader != null) {
+            reader.close();
+        }
+    }
+}
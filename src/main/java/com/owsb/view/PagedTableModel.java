@@ -0,0 +1,261 @@
+package com.owsb.view;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableColumn;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Table model that shows a list of any size without holding it
+ * Rows are fetched a page at a time from a {@link PageSource} (a repository query that filters and
+ * sorts on its side) when the table first paints them, and only the most recently used pages are kept.
+ * Pages are fetched off the EDT; until one arrives its rows show a placeholder. A new source replaces
+ * all rows with a single table event.
+ *
+ * Sorting is done by the source too: {@link #enableSorting} lets a header click pick the sort column,
+ * after which the panel loads a source for the new order. All methods must be called on the EDT.
+ * @param <R> Record type
+ */
+public class PagedTableModel<R> extends AbstractTableModel {
+    public static final int PAGE_SIZE = 100;
+    private static final int CACHED_PAGES = 20;
+    private static final String LOADING = "Loading...";
+
+    /**
+     * Paged query behind the table
+     * @param <R> Record type
+     */
+    public interface PageSource<R> {
+        /**
+         * @return Number of records
+         */
+        int count();
+
+        /**
+         * @param offset Number of records to skip
+         * @param limit Maximum number of records
+         * @return Records on the page, in table order
+         */
+        List<R> page(int offset, int limit);
+    }
+
+    /**
+     * Records and rows of one page
+     */
+    private class Page {
+        final List<R> records;
+        final Object[][] rows;
+
+        Page(List<R> records) {
+            this.records = records;
+            this.rows = new Object[records.size()][];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = toRow.apply(records.get(i));
+            }
+        }
+    }
+
+    private final String[] columns;
+    private final Function<R, Object[]> toRow;
+
+    private PageSource<R> source;
+    private int rowCount = 0;
+    // Least recently used page first
+    private final Map<Integer, Page> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    // Numbers of the pages being fetched from the current source
+    private final Set<Integer> fetching = new HashSet<>();
+
+    private int sortColumn = -1;
+    private boolean descending = false;
+
+    /**
+     * Create an empty model
+     * @param columns Column names
+     * @param toRow Converts a record to its row values
+     */
+    public PagedTableModel(String[] columns, Function<R, Object[]> toRow) {
+        this.columns = columns.clone();
+        this.toRow = toRow;
+    }
+
+    /**
+     * Show the records of a new source
+     * @param source Paged query
+     * @param rowCount Number of records, counted off the EDT
+     * @param firstPage Records of the first page, fetched off the EDT
+     */
+    public void setSource(PageSource<R> source, int rowCount, List<R> firstPage) {
+        this.source = source;
+        this.rowCount = rowCount;
+        pages.clear();
+        fetching.clear();
+        pages.put(0, new Page(firstPage));
+        fireTableDataChanged();
+    }
+
+    /**
+     * Get the record shown in a row
+     * @param row Row index
+     * @return Record, or null if its page has not arrived yet or the row no longer exists in the source
+     */
+    public R getRecord(int row) {
+        Page page = pageOf(row);
+        int index = row % PAGE_SIZE;
+        return page != null && index < page.records.size() ? page.records.get(index) : null;
+    }
+
+    /**
+     * @return Model index of the sort column, or -1 for the source's natural order
+     */
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    /**
+     * @return Whether the sort column is sorted largest first
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Sort by a column when its header is clicked; clicking it again reverses the order
+     * The arrow in the header shows the current order.
+     * @param table Table showing this model
+     * @param reload Loads a source in the new order, see {@link #getSortColumn} and {@link #isDescending}
+     * @param sortableColumns Model indexes of the columns the source can sort by
+     */
+    public void enableSorting(JTable table, Runnable reload, int... sortableColumns) {
+        JTableHeader header = table.getTableHeader();
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int viewColumn = header.columnAtPoint(e.getPoint());
+                if (viewColumn < 0) {
+                    return;
+                }
+                int column = table.convertColumnIndexToModel(viewColumn);
+                for (int sortable : sortableColumns) {
+                    if (sortable == column) {
+                        descending = column == sortColumn && !descending;
+                        sortColumn = column;
+                        updateHeaders(table);
+                        reload.run();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Page page = pageOf(row);
+        if (page == null) {
+            return column == 0 && source != null && row >= 0 && row < rowCount ? LOADING : null;
+        }
+        int index = row % PAGE_SIZE;
+        return index < page.rows.length ? page.rows[index][column] : null;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    /**
+     * Get the page holding a row, starting to fetch it if it is not cached
+     * @return Page, or null until it has been fetched
+     */
+    private Page pageOf(int row) {
+        if (source == null || row < 0 || row >= rowCount) {
+            return null;
+        }
+        int number = row / PAGE_SIZE;
+        Page page = pages.get(number);
+        if (page == null) {
+            fetch(number);
+        }
+        return page;
+    }
+
+    /**
+     * Fetch a page in the background and repaint its rows when it arrives
+     * The source locks its store and may reload it, so it is never queried on the EDT.
+     * @param number Page number
+     */
+    private void fetch(int number) {
+        if (!fetching.add(number)) {
+            return;
+        }
+        PageSource<R> requested = source;
+        new SwingWorker<Page, Void>() {
+            @Override
+            protected Page doInBackground() {
+                return new Page(requested.page(number * PAGE_SIZE, PAGE_SIZE));
+            }
+
+            @Override
+            protected void done() {
+                // Dropped if the table has moved on to another source
+                if (source != requested) {
+                    return;
+                }
+                fetching.remove(number);
+                try {
+                    pages.put(number, get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    System.err.println("Error loading page: " + e.getCause());
+                    return;
+                }
+                int first = number * PAGE_SIZE;
+                int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+                if (last >= first) {
+                    fireTableRowsUpdated(first, last);
+                }
+            }
+        }.execute();
+    }
+
+    private void updateHeaders(JTable table) {
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            TableColumn column = table.getColumnModel().getColumn(i);
+            int modelIndex = column.getModelIndex();
+            String arrow = modelIndex != sortColumn ? "" : descending ? " ▼" : " ▲";
+            column.setHeaderValue(columns[modelIndex] + arrow);
+        }
+        table.getTableHeader().repaint();
+    }
+}
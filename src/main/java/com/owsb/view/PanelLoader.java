@@ -0,0 +1,246 @@
+package com.owsb.view;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs a panel's data loading off the Event Dispatch Thread
+ * Each panel owns one loader; starting a load supersedes the one still running, whose results are
+ * dropped. Table rows are built in the background and added in batches, one model event per batch,
+ * so large tables fill in without freezing the UI. All methods must be called on the EDT.
+ */
+public class PanelLoader {
+    private static final int BATCH_SIZE = 200;
+
+    private final JComponent owner;
+    private final JProgressBar progressBar;
+
+    // Last worker started; only its results are shown. Rows may still arrive after done().
+    private SwingWorker<?, ?> latest;
+
+    /**
+     * Create a loader without a progress bar
+     * @param owner Panel that shows the busy cursor while loading
+     */
+    public PanelLoader(JComponent owner) {
+        this(owner, null);
+    }
+
+    /**
+     * Create a loader
+     * @param owner Panel that shows the busy cursor while loading
+     * @param progressBar Progress bar shown while loading, or null
+     */
+    public PanelLoader(JComponent owner, JProgressBar progressBar) {
+        this.owner = owner;
+        this.progressBar = progressBar;
+    }
+
+    /**
+     * Create a progress bar that stays hidden until a load starts
+     * @return Progress bar
+     */
+    public static JProgressBar createProgressBar() {
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(160, 20));
+        progressBar.setVisible(false);
+        return progressBar;
+    }
+
+    /**
+     * Load a value in the background
+     * @param loader Runs off the EDT, e.g. a controller call
+     * @param onLoaded Runs on the EDT with the value, unless a newer load was started
+     * @param <T> Value type
+     */
+    public <T> void load(Supplier<T> loader, Consumer<T> onLoaded) {
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() {
+                return loader.get();
+            }
+
+            @Override
+            protected void done() {
+                if (latest != this) {
+                    return;
+                }
+                finish();
+                T value = result(this);
+                if (value != null) {
+                    onLoaded.accept(value);
+                }
+            }
+        };
+        start(worker, true);
+    }
+
+    /**
+     * Load records in the background and fill a table with them
+     * The table is cleared at once; onLoaded gets the records before their rows are added, so
+     * lookups by selected row always see the records being shown.
+     * @param loader Runs off the EDT and returns the records to show
+     * @param toRow Converts a record to a table row, also off the EDT
+     * @param model Table model to fill
+     * @param onLoaded Runs on the EDT with the records, or null
+     * @param <R> Record type
+     */
+    public <R> void loadRows(Supplier<List<R>> loader, Function<R, Object[]> toRow,
+                             DefaultTableModel model, Consumer<List<R>> onLoaded) {
+        model.setRowCount(0);
+
+        SwingWorker<List<R>, List<Vector<Object>>> worker = new SwingWorker<List<R>, List<Vector<Object>>>() {
+            @Override
+            protected List<R> doInBackground() {
+                List<R> records = loader.get();
+                if (records == null || isCancelled()) {
+                    return records;
+                }
+
+                // Queued ahead of the first batch of rows
+                SwingUtilities.invokeLater(() -> {
+                    if (latest == this && onLoaded != null) {
+                        onLoaded.accept(records);
+                    }
+                });
+
+                List<Vector<Object>> batch = new ArrayList<>(BATCH_SIZE);
+                int done = 0;
+                for (R record : records) {
+                    if (isCancelled()) {
+                        return records;
+                    }
+                    batch.add(new Vector<>(Arrays.asList(toRow.apply(record))));
+                    if (batch.size() == BATCH_SIZE) {
+                        publish(batch);
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                    done++;
+                    setProgress(done * 100 / records.size());
+                }
+                if (!batch.isEmpty()) {
+                    publish(batch);
+                }
+                return records;
+            }
+
+            @Override
+            protected void process(List<List<Vector<Object>>> batches) {
+                if (latest != this) {
+                    return;
+                }
+                for (List<Vector<Object>> batch : batches) {
+                    appendRows(model, batch);
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (latest != this) {
+                    return;
+                }
+                finish();
+                result(this);
+            }
+        };
+        start(worker, false);
+    }
+
+    /**
+     * Count and fetch the first page of a paged query in the background, then show it
+     * The table keeps its current rows until the new ones replace them in one event.
+     * @param model Paged table model
+     * @param source Paged query, e.g. a repository page with the panel's filter and sort order
+     * @param <R> Record type
+     */
+    public <R> void loadPages(PagedTableModel<R> model, PagedTableModel.PageSource<R> source) {
+        load(() -> {
+            int count = source.count();
+            List<R> firstPage = source.page(0, PagedTableModel.PAGE_SIZE);
+            return (Runnable) () -> model.setSource(source, count, firstPage);
+        }, Runnable::run);
+    }
+
+    /**
+     * Drop the running load, if any
+     */
+    public void cancel() {
+        if (latest != null) {
+            // Not interrupted: an interrupt closes file channels shared with other readers
+            latest.cancel(false);
+            latest = null;
+            finish();
+        }
+    }
+
+    /**
+     * @return true while a load is running
+     */
+    public boolean isLoading() {
+        return latest != null && !latest.isDone();
+    }
+
+    private void start(SwingWorker<?, ?> worker, boolean indeterminate) {
+        if (latest != null) {
+            latest.cancel(false);
+        }
+        latest = worker;
+
+        owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        if (progressBar != null) {
+            progressBar.setIndeterminate(indeterminate);
+            progressBar.setValue(0);
+            progressBar.setString(indeterminate ? "Loading..." : null);
+            progressBar.setVisible(true);
+            worker.addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName()) && latest == worker) {
+                    progressBar.setValue((Integer) evt.getNewValue());
+                }
+            });
+        }
+        worker.execute();
+    }
+
+    private void finish() {
+        owner.setCursor(null);
+        if (progressBar != null) {
+            progressBar.setVisible(false);
+        }
+    }
+
+    /**
+     * Get a finished worker's result, reporting a failed load
+     * @return Result, or null if the load failed
+     */
+    private static <T> T result(SwingWorker<T, ?> worker) {
+        try {
+            return worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error loading data: " + e.getCause());
+        }
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void appendRows(DefaultTableModel model, List<Vector<Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Vector data = model.getDataVector();
+        int first = data.size();
+        data.addAll(rows);
+        model.fireTableRowsInserted(first, data.size() - 1);
+    }
+}
@@ -9,6 +9,7 @@ import com.owsb.controller.SalesController;
 import com.owsb.controller.SupplierController;
 import com.owsb.model.user.Administrator;
 import com.owsb.model.user.User;
+import com.owsb.server.ClientControllers;
 import com.owsb.view.finance.FinancialReportsPanel;
 import com.owsb.view.finance.PaymentHistoryPanel;
 import com.owsb.view.finance.PaymentPanel;
@@ -47,9 +48,27 @@ import java.beans.PropertyChangeListener;
  */
 public class AdminDashboard extends BaseDashboard implements PropertyChangeListener {
     
-    // Admin-specific components
-    private UserManagementPanel userManagementPanel;
-    private JPanel systemConfigPanel;
+    // Panel keys, in menu order
+    private static final String USER_MANAGEMENT = "User Management";
+    private static final String SYSTEM_CONFIG = "System Configuration";
+    private static final String ITEM_MANAGEMENT = "Item Management";
+    private static final String SUPPLIER_MANAGEMENT = "Supplier Management";
+    private static final String SALES_ENTRY = "Sales Entry";
+    private static final String LOW_STOCK_ALERTS = "Low Stock Alerts";
+    private static final String STOCK_UPDATE = "Stock Update";
+    private static final String STOCK_REPORTS = "Stock Reports";
+    private static final String CREATE_REQUISITION = "Create Purchase Requisition";
+    private static final String PURCHASE_ORDERS = "Purchase Orders";
+    private static final String PAYMENTS = "Process Payments";
+    private static final String PAYMENT_HISTORY = "Payment History";
+    private static final String FINANCIAL_REPORTS = "Financial Reports";
+    
+    // Panels without a menu entry
+    private static final String REQUISITION_LIST = "Purchase Requisitions";
+    private static final String ITEM_LIST = "Item List";
+    private static final String SUPPLIER_LIST = "Supplier List";
+    private static final String MESSAGES = "Messages";
+    private static final String ITEM_CATEGORIES = "Item Category Management";
     
     // Controllers for all functionalities
     // DEPENDENCY INJECTION: Controllers are injected to handle business logic
@@ -60,32 +79,6 @@ public class AdminDashboard extends BaseDashboard implements PropertyChangeListe
     private PurchaseOrderController poController;
     private MessageController messageController;
     
-    // Sales Manager panels
-    private ItemManagementPanel itemManagementPanel;
-    private SupplierManagementPanel supplierManagementPanel;
-    private SalesEntryPanel salesEntryPanel;
-    private PurchaseRequisitionPanel purchaseRequisitionPanel;
-    private MessagePanel messagePanel;
-    
-    // Purchase Manager panels
-    private ItemListPanel itemListPanel;
-    private SupplierListPanel supplierListPanel;
-    private PurchaseRequisitionListPanel prListPanel;
-    private PurchaseOrderPanel purchaseOrderPanel;
-    
-    // Inventory Manager panels
-    private LowStockAlertsPanel lowStockAlertsPanel;
-    private StockUpdatePanel stockUpdatePanel;
-    private StockReportsPanel stockReportsPanel;
-    
-    // Finance Manager panels
-    private PaymentPanel paymentPanel;
-    private PaymentHistoryPanel paymentHistoryPanel;
-    private FinancialReportsPanel financialReportsPanel;
-    
-    // Additional specialized panels
-    private ItemCategoryManagementPanel itemCategoryPanel;
-    
     /**
      * Constructor for AdminDashboard
      * ENCAPSULATION: Constructor ensures proper initialization of admin dashboard
@@ -103,7 +96,7 @@ public class AdminDashboard extends BaseDashboard implements PropertyChangeListe
         // Initialize controllers
         initControllers();
         
-        // Initialize all panels
+        // Register all panels, each is built when first shown
         initAllPanels();
     }
     
@@ -113,65 +106,68 @@ public class AdminDashboard extends BaseDashboard implements PropertyChangeListe
      */
     private void initControllers() {
         // Initialize all required controllers
-        this.itemController = new ItemController();
+        this.itemController = ClientControllers.items();
         this.itemController.setCurrentUser(currentUser);
         
-        this.supplierController = new SupplierController();
+        this.supplierController = ClientControllers.suppliers();
         this.supplierController.setCurrentUser(currentUser);
         
-        this.salesController = new SalesController();
+        this.salesController = ClientControllers.sales();
         this.salesController.setCurrentUser(currentUser);
         
-        this.prController = new PurchaseRequisitionController();
+        this.prController = ClientControllers.purchaseRequisitions();
         this.prController.setCurrentUser(currentUser);
         
-        this.poController = new PurchaseOrderController();
+        this.poController = ClientControllers.purchaseOrders();
         this.poController.setCurrentUser(currentUser);
         
-        this.messageController = new MessageController();
+        this.messageController = ClientControllers.messages();
         this.messageController.setCurrentUser(currentUser);
     }
     
     /**
-     * Initialize all panels from all roles
-     * COMPOSITION: Creating and configuring panel objects
+     * Register all panels from all roles
+     * COMPOSITION: Panels are created lazily by BaseDashboard on first navigation
      */
     private void initAllPanels() {
         // Admin-specific panels
-        userManagementPanel = new UserManagementPanel(authController);
-        initSystemConfigPanel();
+        registerPanel(USER_MANAGEMENT, () -> new UserManagementPanel(authController));
+        registerPanel(SYSTEM_CONFIG, this::createSystemConfigPanel);
         
         // Sales Manager panels
-        itemManagementPanel = new ItemManagementPanel(itemController);
-        supplierManagementPanel = new SupplierManagementPanel(supplierController, itemController);
-        salesEntryPanel = new SalesEntryPanel(salesController);
-        purchaseRequisitionPanel = new PurchaseRequisitionPanel(prController, currentUser);
-        
-        purchaseRequisitionPanel.addPropertyChangeListener(this);
-        
-        messagePanel = new MessagePanel(messageController, prController, currentUser);
-        
-        // Purchase Manager panels
-        itemListPanel = new ItemListPanel(itemController, currentUser);
-        supplierListPanel = new SupplierListPanel(supplierController, currentUser);
-        prListPanel = new PurchaseRequisitionListPanel(prController, currentUser);
-        
-        prListPanel.addPropertyChangeListener(this);
-        
-        purchaseOrderPanel = new PurchaseOrderPanel(poController, currentUser);
+        registerPanel(ITEM_MANAGEMENT, () -> new ItemManagementPanel(itemController));
+        registerPanel(SUPPLIER_MANAGEMENT, () -> new SupplierManagementPanel(supplierController, itemController));
+        registerPanel(SALES_ENTRY, () -> new SalesEntryPanel(salesController));
         
         // Inventory Manager panels
-        lowStockAlertsPanel = new LowStockAlertsPanel(itemController, messageController, currentUser);
-        stockUpdatePanel = new StockUpdatePanel(poController, itemController);
-        stockReportsPanel = new StockReportsPanel(itemController, currentUser);
+        registerPanel(LOW_STOCK_ALERTS, () -> new LowStockAlertsPanel(itemController, messageController, currentUser));
+        registerPanel(STOCK_UPDATE, () -> new StockUpdatePanel(poController, itemController));
+        registerPanel(STOCK_REPORTS, () -> new StockReportsPanel(itemController, currentUser));
+        
+        // Procurement panels
+        registerPanel(CREATE_REQUISITION, () -> {
+            PurchaseRequisitionPanel panel = new PurchaseRequisitionPanel(prController, currentUser);
+            panel.addPropertyChangeListener(this);
+            return panel;
+        });
+        registerPanel(PURCHASE_ORDERS, () -> new PurchaseOrderPanel(poController, currentUser));
         
         // Finance Manager panels
-        paymentPanel = new PaymentPanel(poController);
-        paymentHistoryPanel = new PaymentHistoryPanel();
-        financialReportsPanel = new FinancialReportsPanel(poController, salesController, currentUser);
+        registerPanel(PAYMENTS, () -> new PaymentPanel(poController));
+        registerPanel(PAYMENT_HISTORY, PaymentHistoryPanel::new, PaymentHistoryPanel::loadPayments);
+        registerPanel(FINANCIAL_REPORTS, () -> new FinancialReportsPanel(poController, salesController, currentUser));
         
-        // Additional specialized panels
-        itemCategoryPanel = new ItemCategoryManagementPanel();
+        // Panels reached from other panels
+        registerPanel(REQUISITION_LIST, () -> {
+            PurchaseRequisitionListPanel panel = new PurchaseRequisitionListPanel(prController, currentUser);
+            panel.addPropertyChangeListener(this);
+            return panel;
+        }, PurchaseRequisitionListPanel::loadPurchaseRequisitions);
+        registerPanel(ITEM_LIST, () -> new ItemListPanel(itemController, currentUser));
+        registerPanel(SUPPLIER_LIST, () -> new SupplierListPanel(supplierController, currentUser));
+        registerPanel(MESSAGES, () -> new MessagePanel(messageController, prController, currentUser),
+                MessagePanel::loadMessages);
+        registerPanel(ITEM_CATEGORIES, ItemCategoryManagementPanel::new);
     }
     
     /**
@@ -187,25 +183,27 @@ public class AdminDashboard extends BaseDashboard implements PropertyChangeListe
         if (evt.getPropertyName().equals("createPO")) {
             // POLYMORPHISM: Using the same method signature as PurchaseManagerDashboard
             String prId = (String) evt.getNewValue();
+            PurchaseOrderPanel purchaseOrderPanel = getPanel(PURCHASE_ORDERS);
             purchaseOrderPanel.showGenerationPanel(prId);
-            setContent(purchaseOrderPanel);
-            setStatus("Creating Purchase Order from PR: " + prId);
+            showPanel(PURCHASE_ORDERS, "Creating Purchase Order from PR: " + prId);
         }
         
     }
     
     /**
-     * Initialize system configuration panel
+     * Create system configuration panel
      * ENCAPSULATION: Private method to handle internal panel setup
+     * @return System configuration panel
      */
-    private void initSystemConfigPanel() {
-        systemConfigPanel = new JPanel(new BorderLayout());
+    private JPanel createSystemConfigPanel() {
+        JPanel systemConfigPanel = new JPanel(new BorderLayout());
         JLabel configLabel = new JLabel("System Configuration", JLabel.CENTER);
         configLabel.setFont(new Font("Arial", Font.BOLD, 18));
         systemConfigPanel.add(configLabel, BorderLayout.NORTH);
         
         JPanel configContent = createSystemConfigContent();
         systemConfigPanel.add(configContent, BorderLayout.CENTER);
+        return systemConfigPanel;
     }
     
     /**
@@ -384,91 +382,72 @@ public class AdminDashboard extends BaseDashboard implements PropertyChangeListe
     
     // Methods to show Admin-specific panels
     private void showUserManagementPanel() {
-        setContent(userManagementPanel);
-        setStatus("User Management");
+        showPanel(USER_MANAGEMENT, "User Management");
     }
     
     private void showSystemConfigPanel() {
-        setContent(systemConfigPanel);
-        setStatus("System Configuration");
+        showPanel(SYSTEM_CONFIG, "System Configuration");
     }
     
     // Methods to show Sales Manager panels
     private void showItemManagementPanel() {
-        setContent(itemManagementPanel);
-        setStatus("Item Management");
+        showPanel(ITEM_MANAGEMENT, "Item Management");
     }
     
     private void showItemCategoryPanel() {
-        setContent(itemCategoryPanel);
-        setStatus("Item Category Management");
+        showPanel(ITEM_CATEGORIES, "Item Category Management");
     }
     
     private void showSupplierManagementPanel() {
-        setContent(supplierManagementPanel);
-        setStatus("Supplier Management");
+        showPanel(SUPPLIER_MANAGEMENT, "Supplier Management");
     }
     
     private void showSalesEntryPanel() {
-        setContent(salesEntryPanel);
-        setStatus("Daily Sales Entry");
+        showPanel(SALES_ENTRY, "Daily Sales Entry");
     }
     
     // Methods to show Purchase Manager panels
     private void showPurchaseRequisitionsPanel() {
-        prListPanel.loadPurchaseRequisitions();
-        setContent(prListPanel);
-        setStatus("Purchase Requisitions");
+        showPanel(REQUISITION_LIST, "Purchase Requisitions");
     }
     
     private void showCreateRequisitionPanel() {
-        setContent(purchaseRequisitionPanel);
-        setStatus("Create Purchase Requisition");
+        showPanel(CREATE_REQUISITION, "Create Purchase Requisition");
     }
     
     private void showPurchaseOrdersPanel() {
-        setContent(purchaseOrderPanel);
-        setStatus("Purchase Orders");
+        showPanel(PURCHASE_ORDERS, "Purchase Orders");
     }
     
     // Methods to show Inventory Manager panels
     private void showLowStockAlertsPanel() {
-        setContent(lowStockAlertsPanel);
-        setStatus("Low Stock Alerts");
+        showPanel(LOW_STOCK_ALERTS, "Low Stock Alerts");
     }
     
     private void showStockUpdatePanel() {
-        setContent(stockUpdatePanel);
-        setStatus("Stock Update");
+        showPanel(STOCK_UPDATE, "Stock Update");
     }
     
     private void showStockReportsPanel() {
-        setContent(stockReportsPanel);
-        setStatus("Stock Reports");
+        showPanel(STOCK_REPORTS, "Stock Reports");
     }
     
     // Methods to show Finance Manager panels
     private void showPaymentsPanel() {
-        setContent(paymentPanel);
-        setStatus("Process Payments");
+        showPanel(PAYMENTS, "Process Payments");
     }
     
     private void showPaymentHistoryPanel() {
-        paymentHistoryPanel.loadPayments();
-        setContent(paymentHistoryPanel);
-        setStatus("Payment History");
+        showPanel(PAYMENT_HISTORY, "Payment History");
     }
     
     private void showFinancialReportsPanel() {
-        setContent(financialReportsPanel);
-        setStatus("Financial Reports");
+        showPanel(FINANCIAL_REPORTS, "Financial Reports");
     }
     
     // Communication
     private void showMessagesPanel() {
-        messagePanel.loadMessages();
-        setContent(messagePanel);
-        setStatus("Messages");
+        showPanel(MESSAGES, "Messages");
     }
     
     /**
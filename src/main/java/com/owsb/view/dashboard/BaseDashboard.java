@@ -5,17 +5,54 @@ import com.owsb.model.user.User;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Base dashboard class that all role-specific dashboards extend
  * Provides common dashboard functionality
+ *
+ * Panels are registered with a factory and built the first time they are shown, so opening a
+ * dashboard does not load every panel's data. While the user is idle the panels next to the
+ * current one in the menu are built ahead of time.
  */
 public abstract class BaseDashboard extends JFrame {
     
+    // Idle time before a likely-next panel is built
+    private static final int PREFETCH_DELAY_MS = 500;
+    
+    /**
+     * A registered panel and, once built, the panel itself
+     */
+    private static class PanelEntry<P extends JPanel> {
+        final Supplier<P> factory;
+        final Consumer<P> onReshow;
+        P panel;
+        
+        PanelEntry(Supplier<P> factory, Consumer<P> onReshow) {
+            this.factory = factory;
+            this.onReshow = onReshow;
+        }
+    }
+    
+    // Registered panels in menu order
+    private final Map<String, PanelEntry<?>> panels = new LinkedHashMap<>();
+    private final Timer prefetchTimer = new Timer(PREFETCH_DELAY_MS, e -> prefetchNext());
+    private String currentPanelKey;
+    
+    // Time-to-first-frame is measured from here
+    private final long createdAt = System.nanoTime();
+    private long firstFrameMillis = -1;
+    
     // Common components
     protected JPanel mainPanel;
     protected JPanel menuPanel;
@@ -47,6 +84,22 @@ public abstract class BaseDashboard extends JFrame {
         
         // Initialize role-specific components
         initRoleComponents();
+        
+        prefetchTimer.setRepeats(false);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                // Runs once the frame has been laid out and shown
+                firstFrameMillis = (System.nanoTime() - createdAt) / 1_000_000;
+                setStatus("Ready (opened in " + firstFrameMillis + " ms)");
+                prefetchTimer.restart();
+            }
+            
+            @Override
+            public void windowClosed(WindowEvent e) {
+                prefetchTimer.stop();
+            }
+        });
     }
     
     /**
@@ -202,6 +255,114 @@ public abstract class BaseDashboard extends JFrame {
         contentPanel.repaint();
     }
     
+    /**
+     * Register a panel that is built the first time it is shown
+     * Register panels in menu order; neighbours in that order are prefetched.
+     * @param key Panel key
+     * @param factory Builds the panel
+     */
+    protected <P extends JPanel> void registerPanel(String key, Supplier<P> factory) {
+        registerPanel(key, factory, null);
+    }
+    
+    /**
+     * Register a panel that is built the first time it is shown
+     * @param key Panel key
+     * @param factory Builds the panel
+     * @param onReshow Refreshes the panel when it is shown again after being built, or null
+     */
+    protected <P extends JPanel> void registerPanel(String key, Supplier<P> factory, Consumer<P> onReshow) {
+        panels.put(key, new PanelEntry<>(factory, onReshow));
+    }
+    
+    /**
+     * Get a registered panel, building it if needed
+     * @param key Panel key
+     * @return Panel
+     */
+    @SuppressWarnings("unchecked")
+    protected <P extends JPanel> P getPanel(String key) {
+        PanelEntry<P> entry = (PanelEntry<P>) panels.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown panel: " + key);
+        }
+        if (entry.panel == null) {
+            entry.panel = entry.factory.get();
+        }
+        return entry.panel;
+    }
+    
+    /**
+     * Show a registered panel, building it on first use
+     * @param key Panel key
+     * @param status Status bar text
+     * @return Panel shown
+     */
+    @SuppressWarnings("unchecked")
+    protected <P extends JPanel> P showPanel(String key, String status) {
+        PanelEntry<P> entry = (PanelEntry<P>) panels.get(key);
+        boolean built = entry != null && entry.panel != null;
+        P panel = getPanel(key);
+        if (built && entry.onReshow != null) {
+            entry.onReshow.accept(panel);
+        }
+        
+        setContent(panel);
+        setStatus(status);
+        
+        // Navigation postpones prefetching until the user is idle again
+        currentPanelKey = key;
+        prefetchTimer.restart();
+        return panel;
+    }
+    
+    /**
+     * Build the next unbuilt panel next to the current one in the menu
+     * One panel per idle period, so prefetching never holds up the user.
+     */
+    private void prefetchNext() {
+        if (!isDisplayable()) {
+            return;
+        }
+        for (String key : likelyNextPanels()) {
+            PanelEntry<?> entry = panels.get(key);
+            if (entry.panel == null) {
+                getPanel(key);
+                prefetchTimer.restart();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Get the keys of the panels most likely to be opened next
+     * @return The panels after and before the current one, or the first two before any navigation
+     */
+    private List<String> likelyNextPanels() {
+        List<String> keys = new ArrayList<>(panels.keySet());
+        List<String> likely = new ArrayList<>();
+        int current = keys.indexOf(currentPanelKey);
+        if (current < 0) {
+            likely.addAll(keys.subList(0, Math.min(2, keys.size())));
+        } else {
+            if (current + 1 < keys.size()) {
+                likely.add(keys.get(current + 1));
+            }
+            if (current > 0) {
+                likely.add(keys.get(current - 1));
+            }
+        }
+        return likely;
+    }
+    
+    /**
+     * Get the time from creating the dashboard to its first frame on screen
+     * @return Milliseconds, or -1 if the dashboard has not been shown yet
+     */
+    public long getFirstFrameMillis() {
+        return firstFrameMillis;
+    }
+    
     /**
      * Update status bar text
      * @param message Message to display
@@ -6,6 +6,7 @@ import com.owsb.controller.PurchaseRequisitionController;
 import com.owsb.controller.SalesController;
 import com.owsb.model.user.FinanceManager;
 import com.owsb.model.user.User;
+import com.owsb.server.ClientControllers;
 import com.owsb.view.finance.FinancialReportsPanel;
 import com.owsb.view.finance.PaymentHistoryPanel;
 import com.owsb.view.finance.PaymentPanel;
@@ -26,12 +27,12 @@ public class FinanceManagerDashboard extends BaseDashboard {
     private final PurchaseOrderController poController;
     private final SalesController salesController;
     
-    // Specific panels for Finance Manager
-    private PurchaseOrderPanel approvePOPanel;
-    private PaymentPanel paymentsPanel;
-    private PaymentHistoryPanel paymentHistoryPanel;
-    private FinancialReportsPanel financialReportsPanel;
-    private PurchaseRequisitionListPanel viewPRPanel;
+    // Panel keys, in menu order
+    private static final String APPROVE_PO = "Approve Purchase Orders";
+    private static final String PAYMENTS = "Process Payments";
+    private static final String PAYMENT_HISTORY = "Payment History";
+    private static final String FINANCIAL_REPORTS = "Financial Reports";
+    private static final String VIEW_PR = "View Requisitions";
     
     /**
      * Constructor for FinanceManagerDashboard
@@ -47,13 +48,13 @@ public class FinanceManagerDashboard extends BaseDashboard {
         }
         
         // Initialize controllers
-        this.prController = new PurchaseRequisitionController();
+        this.prController = ClientControllers.purchaseRequisitions();
         this.prController.setCurrentUser(user);
         
-        this.poController = new PurchaseOrderController();
+        this.poController = ClientControllers.purchaseOrders();
         this.poController.setCurrentUser(user);
         
-        this.salesController = new SalesController();
+        this.salesController = ClientControllers.sales();
         this.salesController.setCurrentUser(user);
         
         // Initialize panels
@@ -84,52 +85,44 @@ public class FinanceManagerDashboard extends BaseDashboard {
     }
     
     /**
-     * Initialize panel placeholders
+     * Register panels, each is built when first shown
      */
     private void initPanels() {
         // Approve Purchase Orders panel - Use PurchaseOrderPanel
-        approvePOPanel = new PurchaseOrderPanel(poController, currentUser);
+        registerPanel(APPROVE_PO, () -> new PurchaseOrderPanel(poController, currentUser));
         
         // Process Payments panel - Use PaymentPanel
-        paymentsPanel = new PaymentPanel(poController);
+        registerPanel(PAYMENTS, () -> new PaymentPanel(poController));
         
-        // Payment History panel - Use PaymentHistoryPanel
-        paymentHistoryPanel = new PaymentHistoryPanel();
+        // Payment History panel - reloaded every time it is shown
+        registerPanel(PAYMENT_HISTORY, PaymentHistoryPanel::new, PaymentHistoryPanel::loadPayments);
         
         // Financial Reports panel - Use our new FinancialReportsPanel
-        financialReportsPanel = new FinancialReportsPanel(poController, salesController, currentUser);
+        registerPanel(FINANCIAL_REPORTS, () -> new FinancialReportsPanel(poController, salesController, currentUser));
         
-        // View Purchase Requisitions panel - Use PurchaseRequisitionListPanel
-        viewPRPanel = new PurchaseRequisitionListPanel(prController, currentUser, true);
+        // View Purchase Requisitions panel - reloaded every time it is shown
+        registerPanel(VIEW_PR, () -> new PurchaseRequisitionListPanel(prController, currentUser, true),
+                PurchaseRequisitionListPanel::loadPurchaseRequisitions);
     }
     
     // Methods to show different panels
     private void showApprovePOPanel() {
-        setContent(approvePOPanel);
-        setStatus("Approving Purchase Orders");
+        showPanel(APPROVE_PO, "Approving Purchase Orders");
     }
     
     private void showPaymentsPanel() {
-        setContent(paymentsPanel);
-        setStatus("Processing Payments");
+        showPanel(PAYMENTS, "Processing Payments");
     }
     
     private void showPaymentHistoryPanel() {
-        // Reload payment history
-        paymentHistoryPanel.loadPayments();
-        setContent(paymentHistoryPanel);
-        setStatus("Viewing Payment History");
+        showPanel(PAYMENT_HISTORY, "Viewing Payment History");
     }
     
     private void showFinancialReportsPanel() {
-        setContent(financialReportsPanel);
-        setStatus("Financial Reports");
+        showPanel(FINANCIAL_REPORTS, "Financial Reports");
     }
     
     private void showViewPRPanel() {
-        // Reload requisitions
-        viewPRPanel.loadPurchaseRequisitions();
-        setContent(viewPRPanel);
-        setStatus("Viewing Purchase Requisitions");
+        showPanel(VIEW_PR, "Viewing Purchase Requisitions");
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import com.owsb.controller.PurchaseOrderController;
 import com.owsb.controller.PurchaseRequisitionController;
 import com.owsb.model.user.InventoryManager;
 import com.owsb.model.user.User;
+import com.owsb.server.ClientControllers;
 import com.owsb.view.inventory.LowStockAlertsPanel;
 import com.owsb.view.inventory.StockReportsPanel;
 import com.owsb.view.inventory.StockUpdatePanel;
@@ -29,13 +30,13 @@ public class InventoryManagerDashboard extends BaseDashboard {
     private final ItemController itemController;
     private final MessageController messageController;
     
-    // Specific panels for Inventory Manager
-    private ItemListPanel viewItemsPanel;
-    private LowStockAlertsPanel lowStockPanel;
-    private StockUpdatePanel updateStockPanel;
-    private StockReportsPanel stockReportsPanel;
-    private PurchaseOrderPanel viewPOPanel;
-    private MessagePanel messagePanel;
+    // Panel keys, in menu order
+    private static final String VIEW_ITEMS = "View Items";
+    private static final String UPDATE_STOCK = "Update Stock";
+    private static final String LOW_STOCK = "Low Stock Alerts";
+    private static final String STOCK_REPORTS = "Stock Reports";
+    private static final String VIEW_PO = "View Purchase Orders";
+    private static final String MESSAGES = "Messages";
     
     /**
      * Constructor for InventoryManagerDashboard
@@ -51,16 +52,16 @@ public class InventoryManagerDashboard extends BaseDashboard {
         }
         
         // Initialize controllers
-        this.prController = new PurchaseRequisitionController();
+        this.prController = ClientControllers.purchaseRequisitions();
         this.prController.setCurrentUser(user);
         
-        this.poController = new PurchaseOrderController();
+        this.poController = ClientControllers.purchaseOrders();
         this.poController.setCurrentUser(user);
         
-        this.itemController = new ItemController();
+        this.itemController = ClientControllers.items();
         this.itemController.setCurrentUser(user);
         
-        this.messageController = new MessageController();
+        this.messageController = ClientControllers.messages();
         this.messageController.setCurrentUser(user);
         
         // Initialize panels
@@ -92,57 +93,51 @@ public class InventoryManagerDashboard extends BaseDashboard {
     }
     
     /**
-     * Initialize panel placeholders
+     * Register panels, each is built when first shown
      */
     private void initPanels() {
         // View Items panel - use the ItemListPanel
-        viewItemsPanel = new ItemListPanel(itemController, currentUser);
+        registerPanel(VIEW_ITEMS, () -> new ItemListPanel(itemController, currentUser));
         
         // Update Stock panel
-        updateStockPanel = new StockUpdatePanel(poController, itemController);
+        registerPanel(UPDATE_STOCK, () -> new StockUpdatePanel(poController, itemController));
         
         // Low Stock Alerts panel - use the new LowStockAlertsPanel
-        lowStockPanel = new LowStockAlertsPanel(itemController, messageController, currentUser);
+        registerPanel(LOW_STOCK, () -> new LowStockAlertsPanel(itemController, messageController, currentUser));
         
         // Stock Reports panel
-        stockReportsPanel = new StockReportsPanel(itemController, currentUser);
+        registerPanel(STOCK_REPORTS, () -> new StockReportsPanel(itemController, currentUser));
         
         // View Purchase Orders panel
-        viewPOPanel = new PurchaseOrderPanel(poController, currentUser);
+        registerPanel(VIEW_PO, () -> new PurchaseOrderPanel(poController, currentUser));
         
-        // Messages panel
-        messagePanel = new MessagePanel(messageController, prController, currentUser);
+        // Messages panel - reloaded every time it is shown
+        registerPanel(MESSAGES, () -> new MessagePanel(messageController, prController, currentUser),
+                MessagePanel::loadMessages);
     }
     
     // Methods to show different panels
     private void showViewItemsPanel() {
-        setContent(viewItemsPanel);
-        setStatus("Viewing Items");
+        showPanel(VIEW_ITEMS, "Viewing Items");
     }
     
     private void showUpdateStockPanel() {
-        setContent(updateStockPanel);
-        setStatus("Updating Stock");
+        showPanel(UPDATE_STOCK, "Updating Stock");
     }
     
     private void showLowStockPanel() {
-        setContent(lowStockPanel);
-        setStatus("Low Stock Alerts");
+        showPanel(LOW_STOCK, "Low Stock Alerts");
     }
     
     private void showStockReportsPanel() {
-        setContent(stockReportsPanel);
-        setStatus("Stock Reports");
+        showPanel(STOCK_REPORTS, "Stock Reports");
     }
     
     private void showViewPOPanel() {
-        setContent(viewPOPanel);
-        setStatus("Viewing Purchase Orders");
+        showPanel(VIEW_PO, "Viewing Purchase Orders");
     }
     
     private void showMessagesPanel() {
-        messagePanel.loadMessages();
-        setContent(messagePanel);
-        setStatus("Messages");
+        showPanel(MESSAGES, "Messages");
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import com.owsb.controller.PurchaseRequisitionController;
 import com.owsb.controller.SupplierController;
 import com.owsb.model.user.PurchaseManager;
 import com.owsb.model.user.User;
+import com.owsb.server.ClientControllers;
 import com.owsb.view.item.ItemListPanel;
 import com.owsb.view.order.PurchaseOrderPanel;
 import com.owsb.view.requisition.PurchaseRequisitionListPanel;
@@ -29,11 +30,11 @@ public class PurchaseManagerDashboard extends BaseDashboard implements PropertyC
     private final ItemController itemController;
     private final SupplierController supplierController;
     
-    // Panels
-    private JPanel viewItemsPanel;
-    private SupplierListPanel viewSuppliersPanel;
-    private PurchaseRequisitionListPanel viewRequisitionsPanel;
-    private PurchaseOrderPanel purchaseOrderPanel;
+    // Panel keys, in menu order
+    private static final String VIEW_ITEMS = "View Items";
+    private static final String VIEW_SUPPLIERS = "View Suppliers";
+    private static final String VIEW_REQUISITIONS = "View Requisitions";
+    private static final String PURCHASE_ORDERS = "Purchase Orders";
     
     /**
      * Constructor for PurchaseManagerDashboard
@@ -49,16 +50,16 @@ public class PurchaseManagerDashboard extends BaseDashboard implements PropertyC
         }
         
         // Initialize controllers
-        this.prController = new PurchaseRequisitionController();
+        this.prController = ClientControllers.purchaseRequisitions();
         this.prController.setCurrentUser(user);
         
-        this.poController = new PurchaseOrderController();
+        this.poController = ClientControllers.purchaseOrders();
         this.poController.setCurrentUser(user);
         
-        this.itemController = new ItemController();
+        this.itemController = ClientControllers.items();
         this.itemController.setCurrentUser(user);
         
-        this.supplierController = new SupplierController();
+        this.supplierController = ClientControllers.suppliers();
         this.supplierController.setCurrentUser(user);
         
         // Initialize panels
@@ -88,45 +89,41 @@ public class PurchaseManagerDashboard extends BaseDashboard implements PropertyC
     }
     
     /**
-     * Initialize panel placeholders
+     * Register panels, each is built when first shown
      */
     private void initPanels() {
         // View Items panel - Use ItemListPanel
-        viewItemsPanel = new ItemListPanel(itemController, currentUser);
+        registerPanel(VIEW_ITEMS, () -> new ItemListPanel(itemController, currentUser));
         
         // View Suppliers panel - Use SupplierListPanel
-        viewSuppliersPanel = new SupplierListPanel(supplierController, currentUser);
+        registerPanel(VIEW_SUPPLIERS, () -> new SupplierListPanel(supplierController, currentUser));
         
-        // Purchase Requisition List Panel - Only for viewing
-        viewRequisitionsPanel = new PurchaseRequisitionListPanel(prController, currentUser, true);
-        viewRequisitionsPanel.addPropertyChangeListener(this);
+        // Purchase Requisition List Panel - Only for viewing, reloaded every time it is shown
+        registerPanel(VIEW_REQUISITIONS, () -> {
+            PurchaseRequisitionListPanel panel = new PurchaseRequisitionListPanel(prController, currentUser, true);
+            panel.addPropertyChangeListener(this);
+            return panel;
+        }, PurchaseRequisitionListPanel::loadPurchaseRequisitions);
         
         // Purchase Order Panel
-        purchaseOrderPanel = new PurchaseOrderPanel(poController, currentUser);
+        registerPanel(PURCHASE_ORDERS, () -> new PurchaseOrderPanel(poController, currentUser));
     }
     
     // Methods to show different panels
     private void showViewItemsPanel() {
-        setContent(viewItemsPanel);
-        setStatus("Viewing Items");
+        showPanel(VIEW_ITEMS, "Viewing Items");
     }
     
     private void showViewSuppliersPanel() {
-        setContent(viewSuppliersPanel);
-        setStatus("Viewing Suppliers");
+        showPanel(VIEW_SUPPLIERS, "Viewing Suppliers");
     }
     
     private void showViewRequisitionsPanel() {
-        // Reload requisitions
-        viewRequisitionsPanel.loadPurchaseRequisitions();
-        
-        setContent(viewRequisitionsPanel);
-        setStatus("Viewing Purchase Requisitions");
+        showPanel(VIEW_REQUISITIONS, "Viewing Purchase Requisitions");
     }
     
     private void showPurchaseOrdersPanel() {
-        setContent(purchaseOrderPanel);
-        setStatus("Managing Purchase Orders");
+        showPanel(PURCHASE_ORDERS, "Managing Purchase Orders");
     }
     
     /**
@@ -138,9 +135,9 @@ public class PurchaseManagerDashboard extends BaseDashboard implements PropertyC
         if (evt.getPropertyName().equals("createPO")) {
             // Show purchase order creation panel with the selected PR
             String prId = (String) evt.getNewValue();
+            PurchaseOrderPanel purchaseOrderPanel = getPanel(PURCHASE_ORDERS);
             purchaseOrderPanel.showGenerationPanel(prId);
-            setContent(purchaseOrderPanel);
-            setStatus("Creating Purchase Order");
+            showPanel(PURCHASE_ORDERS, "Creating Purchase Order");
         }
     }
 }
\ No newline at end of file
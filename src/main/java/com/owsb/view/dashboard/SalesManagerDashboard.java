@@ -9,6 +9,7 @@ import com.owsb.controller.SupplierController;
 import com.owsb.controller.PurchaseOrderController;
 import com.owsb.model.user.SalesManager;
 import com.owsb.model.user.User;
+import com.owsb.server.ClientControllers;
 import com.owsb.view.item.ItemManagementPanel;
 import com.owsb.view.message.MessagePanel;
 import com.owsb.view.requisition.PurchaseRequisitionPanel;
@@ -25,13 +26,13 @@ import java.awt.*;
  */
 public class SalesManagerDashboard extends BaseDashboard {
     
-    // Dedicated management panels
-    private ItemManagementPanel itemPanel;
-    private SupplierManagementPanel supplierPanel;
-    private SalesEntryPanel salesPanel;
-    private PurchaseRequisitionPanel requisitionPanel;
-    private PurchaseOrderPanel purchaseOrderPanel;
-    private MessagePanel messagePanel;
+    // Panel keys, in menu order
+    private static final String ITEMS = "Item Management";
+    private static final String SUPPLIERS = "Supplier Management";
+    private static final String SALES = "Daily Sales Entry";
+    private static final String REQUISITIONS = "Purchase Requisitions";
+    private static final String PURCHASE_ORDERS = "Purchase Orders";
+    private static final String MESSAGES = "Messages";
     
     // Controllers - using composition to implement functionality
     private final ItemController itemController;
@@ -55,24 +56,24 @@ public class SalesManagerDashboard extends BaseDashboard {
         }
         
         // Initialize controllers
-        this.itemController = new ItemController();
+        this.itemController = ClientControllers.items();
         this.itemController.setCurrentUser(user);
         
-        this.supplierController = new SupplierController();
+        this.supplierController = ClientControllers.suppliers();
         
-        this.salesController = new SalesController();
+        this.salesController = ClientControllers.sales();
         this.salesController.setCurrentUser(user);
         
-        this.prController = new PurchaseRequisitionController();
+        this.prController = ClientControllers.purchaseRequisitions();
         this.prController.setCurrentUser(user);
         
-        this.poController = new PurchaseOrderController();
+        this.poController = ClientControllers.purchaseOrders();
         this.poController.setCurrentUser(user);
         
-        this.messageController = new MessageController();
+        this.messageController = ClientControllers.messages();
         this.messageController.setCurrentUser(user);
         
-        // Initialize UI components
+        // Register panels
         initPanels();
         
         // Add menu buttons for Sales Manager functions
@@ -104,67 +105,59 @@ public class SalesManagerDashboard extends BaseDashboard {
     }
     
     /**
-     * Initialize panel placeholders
+     * Register panels, each is built when first shown
      */
     private void initPanels() {
-        // Create dedicated panels using the new classes
-        itemPanel = new ItemManagementPanel(itemController);
-        supplierPanel = new SupplierManagementPanel(supplierController, itemController);
-        salesPanel = new SalesEntryPanel(salesController);
-        requisitionPanel = new PurchaseRequisitionPanel(prController, currentUser);
-        purchaseOrderPanel = new PurchaseOrderPanel(poController, currentUser);
-        messagePanel = new MessagePanel(messageController, prController, currentUser);
+        registerPanel(ITEMS, () -> new ItemManagementPanel(itemController));
+        registerPanel(SUPPLIERS, () -> new SupplierManagementPanel(supplierController, itemController));
+        registerPanel(SALES, () -> new SalesEntryPanel(salesController));
+        registerPanel(REQUISITIONS, () -> new PurchaseRequisitionPanel(prController, currentUser));
+        registerPanel(PURCHASE_ORDERS, () -> new PurchaseOrderPanel(poController, currentUser));
+        // Refresh messages when showing the panel again
+        registerPanel(MESSAGES, () -> new MessagePanel(messageController, prController, currentUser),
+                MessagePanel::loadMessages);
     }
     
     /**
      * Show item management panel
      */
     private void showItemPanel() {
-        setContent(itemPanel);
-        setStatus("Item Management");
+        showPanel(ITEMS, "Item Management");
     }
     
     /**
      * Show supplier management panel
      */
     private void showSupplierPanel() {
-        setContent(supplierPanel);
-        setStatus("Supplier Management");
+        showPanel(SUPPLIERS, "Supplier Management");
     }
     
     /**
      * Show sales entry panel
      */
     private void showSalesPanel() {
-        setContent(salesPanel);
-        setStatus("Daily Sales Entry");
+        showPanel(SALES, "Daily Sales Entry");
     }
     
     /**
      * Show requisition panel
      */
     private void showRequisitionPanel() {
-        setContent(requisitionPanel);
-        setStatus("Purchase Requisitions");
+        showPanel(REQUISITIONS, "Purchase Requisitions");
     }
     
     /**
      * Show purchase orders panel
      */
     private void showPurchaseOrdersPanel() {
-        setContent(purchaseOrderPanel);
-        setStatus("Viewing Purchase Orders");
+        showPanel(PURCHASE_ORDERS, "Viewing Purchase Orders");
     }
     
     /**
      * Show messages panel
      */
     private void showMessagesPanel() {
-        setContent(messagePanel);
-        setStatus("Messages");
-        
-        // Refresh messages when showing the panel
-        messagePanel.loadMessages();
+        showPanel(MESSAGES, "Messages");
     }
 
     /**
@@ -2,14 +2,15 @@ package com.owsb.view.finance;
 
 import com.owsb.controller.PurchaseOrderController;
 import com.owsb.controller.SalesController;
-import com.owsb.model.finance.Payment;
 import com.owsb.model.procurement.POItem;
 import com.owsb.model.procurement.PurchaseOrder;
 import com.owsb.model.sales.Sale;
-import com.owsb.model.sales.SaleItem;
 import com.owsb.model.user.User;
-import com.owsb.repository.PaymentRepository;
+import com.owsb.repository.AnalyticsStore;
+import com.owsb.repository.FinancialAggregates;
+import com.owsb.repository.storage.ReadView;
 import com.owsb.view.PanelHeaderUtils;
+import com.owsb.view.PanelLoader;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -32,6 +33,10 @@ import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -41,7 +46,6 @@ public class FinancialReportsPanel extends JPanel {
 
     private final PurchaseOrderController poController;
     private final SalesController salesController;
-    private final PaymentRepository paymentRepository;
     private final User currentUser;
     
     // UI Components
@@ -56,10 +60,10 @@ public class FinancialReportsPanel extends JPanel {
     private JPanel filterPanel;
     private JComboBox<String> periodComboBox;
     private JButton printButton;
+    private JProgressBar progressBar;
     
-    // Formatters
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
+    // Builds reports off the EDT
+    private final PanelLoader loader;
     
     // Report types
     private static final String PURCHASE_SUMMARY = "Purchase Summary Report";
@@ -75,7 +79,6 @@ public class FinancialReportsPanel extends JPanel {
     public FinancialReportsPanel(PurchaseOrderController poController, SalesController salesController, User currentUser) {
         this.poController = poController;
         this.salesController = salesController;
-        this.paymentRepository = new PaymentRepository();
         this.currentUser = currentUser;
         
         // Set up panel
@@ -84,6 +87,7 @@ public class FinancialReportsPanel extends JPanel {
         
         // Initialize components
         initComponents();
+        loader = new PanelLoader(this, progressBar);
         
         // Add listeners
         addListeners();
@@ -125,6 +129,9 @@ public class FinancialReportsPanel extends JPanel {
         });
         filterPanel.add(periodComboBox);
         
+        progressBar = PanelLoader.createProgressBar();
+        filterPanel.add(progressBar);
+        
         printButton = new JButton("Print Report");
         filterPanel.add(printButton);
         
@@ -206,6 +213,9 @@ public class FinancialReportsPanel extends JPanel {
             return;
         }
         
+        // Payments are only totalled over all time
+        periodComboBox.setEnabled(!SUPPLIER_PAYMENT.equals(selectedReport));
+        
         switch (selectedReport) {
             case PURCHASE_SUMMARY:
                 generatePurchaseSummaryReport();
@@ -220,234 +230,227 @@ public class FinancialReportsPanel extends JPanel {
     }
     
     /**
-     * Generate Purchase Summary Report
+     * Report chart and summary figures, read from the running aggregates off the EDT
      */
-    private void generatePurchaseSummaryReport() {
-        // Get purchase orders
-        List<PurchaseOrder> purchaseOrders = poController.getAllPurchaseOrders();
+    private static class ReportData {
+        final Map<String, Double> chartTotals;
+        final String[] summaryValues;
         
+        ReportData(Map<String, Double> chartTotals, String... summaryValues) {
+            this.chartTotals = chartTotals;
+            this.summaryValues = summaryValues;
+        }
+    }
+    
+    /**
+     * Show a report's chart and summary as soon as they are read, then fill the table
+     * @param columns Table columns
+     * @param builder Reads the chart and summary figures, off the EDT
+     * @param records Fetches the table records, off the EDT
+     * @param toRow Converts a record to a table row, off the EDT
+     * @param chart Draws the chart from the report totals
+     * @param summaryLabels Labels of the summary values
+     */
+    private <R> void showReport(String[] columns, Supplier<ReportData> builder, Supplier<List<R>> records,
+                                Function<R, Object[]> toRow, Consumer<Map<String, Double>> chart,
+                                String[] summaryLabels) {
         // Setup table columns
-        setupTableModel(new String[]{
-            "PO ID", "Date", "Supplier", "Status", "Total Value (RM)", "Items Count"
-        });
-        
-        // Map to store supplier totals
-        Map<String, Double> supplierTotals = new HashMap<>();
-        
-        // Total PO value
-        double totalPOValue = 0;
-        
-        // Populate table with PO data
-        for (PurchaseOrder po : purchaseOrders) {
-            // Extract supplier name from first item
-            String supplierName = po.getItems().isEmpty() ? "Unknown" : po.getItems().get(0).getSupplierName();
-            
-            // Count items
-            int itemCount = po.getItems().size();
-            
-            // Format PO date
-            String poDate = dateFormat.format(po.getDate());
+        setupTableModel(columns);
+        
+        // The rows are all read from the view taken here. The summary figures come from the live running
+        // totals instead, so a save landing right after the view was taken may show in the summary and
+        // not yet in the rows.
+        AtomicReference<ReadView> view = new AtomicReference<>();
+        loader.load(() -> {
+            view.set(ReadView.latest());
+            return view.get().read(builder);
+        }, report -> {
+            chart.accept(report.chartTotals);
             
-            // Format status
-            String status = po.getStatus().toString();
+            // Add summary to the bottom of the report content
+            reportContentPanel.add(createSummaryPanel(summaryLabels, report.summaryValues), BorderLayout.SOUTH);
             
-            // Format total value
-            String totalValue = currencyFormat.format(po.getTotalValue());
+            // Update UI
+            revalidate();
+            repaint();
             
-            // Add to table
-            tableModel.addRow(new Object[]{
-                po.getPoID(),
-                poDate,
-                supplierName,
-                status,
-                totalValue,
-                itemCount
-            });
-            
-            // Update supplier totals
-            supplierTotals.put(supplierName, 
-                supplierTotals.getOrDefault(supplierName, 0.0) + po.getTotalValue());
-            
-            // Update total PO value
-            totalPOValue += po.getTotalValue();
+            loader.loadRows(() -> view.get().read(records), toRow, tableModel, null);
+        });
+    }
+    
+    /**
+     * Get the first date of the selected period
+     * @return Start date, or null for all time
+     */
+    private Date getPeriodStart() {
+        String period = (String) periodComboBox.getSelectedItem();
+        Calendar calendar = Calendar.getInstance();
+        if ("Last Month".equals(period)) {
+            calendar.add(Calendar.MONTH, -1);
+        } else if ("Last Quarter".equals(period)) {
+            calendar.add(Calendar.MONTH, -3);
+        } else if ("Year to Date".equals(period)) {
+            calendar.set(Calendar.DAY_OF_YEAR, 1);
+        } else {
+            return null;
         }
+        // Periods start at midnight, matching the day-based analytics
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+    
+    /**
+     * Keep the records dated on or after the start of the period
+     */
+    private static <R> List<R> since(List<R> records, Function<R, Date> dateOf, Date from) {
+        if (from == null) {
+            return records;
+        }
+        return records.stream()
+            .filter(record -> dateOf.apply(record) != null && !dateOf.apply(record).before(from))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Get the amounts of grouped totals
+     */
+    private static Map<String, Double> amountsOf(Map<String, FinancialAggregates.Totals> totals) {
+        Map<String, Double> amounts = new HashMap<>();
+        for (Map.Entry<String, FinancialAggregates.Totals> entry : totals.entrySet()) {
+            amounts.put(entry.getKey(), entry.getValue().getAmount());
+        }
+        return amounts;
+    }
+    
+    /**
+     * Generate Purchase Summary Report
+     */
+    private void generatePurchaseSummaryReport() {
+        // Formatters are not thread-safe, each report build gets its own
+        SimpleDateFormat dates = new SimpleDateFormat("yyyy-MM-dd");
+        NumberFormat currency = NumberFormat.getCurrencyInstance();
+        Date from = getPeriodStart();
         
-        // Set up table sorting
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(tableModel);
-        reportTable.setRowSorter(sorter);
-        
-        // Create supplier spending chart
-        createSupplierSpendingChart(supplierTotals);
-        
-        // Create summary panel with key metrics
-        JPanel summaryPanel = createSummaryPanel(
-            new String[]{"Total Purchase Orders", "Total Spending", "Average PO Value"},
-            new String[]{
-                String.valueOf(purchaseOrders.size()),
-                currencyFormat.format(totalPOValue),
-                currencyFormat.format(purchaseOrders.isEmpty() ? 0 : totalPOValue / purchaseOrders.size())
+        showReport(new String[]{
+            "PO ID", "Date", "Supplier", "Status", "Total Value (RM)", "Items Count"
+        }, () -> {
+            long count;
+            double total;
+            Map<String, Double> supplierTotals;
+            if (from == null) {
+                // All time: kept up to date by the running totals
+                FinancialAggregates aggregates = FinancialAggregates.getInstance();
+                count = aggregates.getPurchaseOrderTotals().getCount();
+                total = aggregates.getPurchaseOrderTotals().getAmount();
+                supplierTotals = amountsOf(aggregates.getPurchaseOrdersBy(FinancialAggregates.BY_SUPPLIER));
+            } else {
+                AnalyticsStore analytics = AnalyticsStore.getInstance();
+                count = analytics.getPurchaseOrderCount(from, null);
+                total = analytics.getPurchaseTotal(from, null, null);
+                supplierTotals = analytics.getTopSuppliers(from, null, 5);
             }
-        );
-        
-        // Add summary to the top of the report content
-        reportContentPanel.add(summaryPanel, BorderLayout.SOUTH);
+            
+            return new ReportData(supplierTotals,
+                String.valueOf(count),
+                currency.format(total),
+                currency.format(count == 0 ? 0 : total / count));
+        }, () -> since(poController.getAllPurchaseOrders(), PurchaseOrder::getDate, from), po -> new Object[]{
+            po.getPoID(),
+            dates.format(po.getDate()),
+            supplierNameOf(po),
+            po.getStatus().toString(),
+            currency.format(po.getTotalValue()),
+            po.getItems().size()
+        }, this::createSupplierSpendingChart,
+            new String[]{"Total Purchase Orders", "Total Spending", "Average PO Value"});
         
-        // Update UI
-        revalidate();
-        repaint();
+        // Set up table sorting
+        reportTable.setRowSorter(new TableRowSorter<>(tableModel));
+    }
+    
+    /**
+     * Get the supplier name of a PO, taken from its first item
+     */
+    private static String supplierNameOf(PurchaseOrder po) {
+        return po.getItems().isEmpty() ? "Unknown" : po.getItems().get(0).getSupplierName();
     }
     
     /**
      * Generate Profit and Loss Report
      */
     private void generateProfitAndLossReport() {
-        // Get sales data
-        List<Sale> sales = salesController.getAllSales();
-        // Get purchase orders for loss calculation
-        List<PurchaseOrder> purchaseOrders = poController.getAllPurchaseOrders();
-
-        // Setup table columns
-        setupTableModel(new String[]{
+        SimpleDateFormat dates = new SimpleDateFormat("yyyy-MM-dd");
+        NumberFormat currency = NumberFormat.getCurrencyInstance();
+        Date from = getPeriodStart();
+        
+        showReport(new String[]{
             "Sale ID", "Date", "Sales Manager", "Items Sold", "Total Sales (RM)"
-        });
-
-        // Calculate total sales amount
-        double totalSalesAmount = 0;
-        // Map to store sales by item category
-        Map<String, Double> salesByCategory = new HashMap<>();
-
-        // Populate table with sales data
-        for (Sale sale : sales) {
-            String saleDate = sale.getDate() != null ? dateFormat.format(sale.getDate()) : "N/A";
-            int itemCount = sale.getItems().size();
-            String totalAmount = currencyFormat.format(sale.getTotalAmount());
-            tableModel.addRow(new Object[]{
-                sale.getSaleID(),
-                saleDate,
-                sale.getSalesManagerID(),
-                itemCount,
-                totalAmount
-            });
-            totalSalesAmount += sale.getTotalAmount();
-            for (SaleItem item : sale.getItems()) {
-                String category = item.getItemName().split(" ")[0];
-                salesByCategory.put(category,
-                    salesByCategory.getOrDefault(category, 0.0) + item.getSubtotal());
-            }
-        }
-
-        // Calculate total loss (all COMPLETED purchase orders)
-        double totalLoss = purchaseOrders.stream()
-            .filter(po -> "COMPLETED".equals(po.getStatus().toString()))
-            .mapToDouble(PurchaseOrder::getTotalValue)
-            .sum();
-
-        // Calculate net profit
-        double netProfit = totalSalesAmount - totalLoss;
-        // Calculate profit margin
-        double profitMarginPercentage = totalSalesAmount > 0 ? (netProfit / totalSalesAmount) * 100 : 0;
-
-        // Create sales by category chart
-        createSalesByCategoryChart(salesByCategory);
-
-        // Create summary panel with key metrics
-        JPanel summaryPanel = createSummaryPanel(
-            new String[]{"Total Sales", "Total Loss", "Net Profit", "Profit Margin"},
-            new String[]{
-                currencyFormat.format(totalSalesAmount),
-                currencyFormat.format(totalLoss),
-                currencyFormat.format(netProfit),
-                String.format("%.2f%%", profitMarginPercentage)
-            }
-        );
-
-        // Add summary to the top of the report content
-        reportContentPanel.add(summaryPanel, BorderLayout.SOUTH);
-
-        // Update UI
-        revalidate();
-        repaint();
+        }, () -> {
+            // Total sales amount split by item category, and total loss (all COMPLETED purchase orders),
+            // read in one call so a save in between cannot split them
+            FinancialAggregates.ProfitAndLoss figures = from == null
+                ? FinancialAggregates.getInstance().getProfitAndLoss()
+                : AnalyticsStore.getInstance().getProfitAndLoss(from, null);
+            double totalSalesAmount = figures.getSalesAmount();
+            Map<String, Double> salesByCategory = figures.getSalesByCategory();
+            double totalLoss = figures.getPurchaseAmount();
+            
+            // Calculate net profit
+            double netProfit = totalSalesAmount - totalLoss;
+            // Calculate profit margin
+            double profitMarginPercentage = totalSalesAmount > 0 ? (netProfit / totalSalesAmount) * 100 : 0;
+            
+            return new ReportData(salesByCategory,
+                currency.format(totalSalesAmount),
+                currency.format(totalLoss),
+                currency.format(netProfit),
+                String.format("%.2f%%", profitMarginPercentage));
+        }, () -> since(salesController.getAllSales(), Sale::getDate, from), sale -> new Object[]{
+            sale.getSaleID(),
+            sale.getDate() != null ? dates.format(sale.getDate()) : "N/A",
+            sale.getSalesManagerID(),
+            sale.getItems().size(),
+            currency.format(sale.getTotalAmount())
+        }, this::createSalesByCategoryChart,
+            new String[]{"Total Sales", "Total Loss", "Net Profit", "Profit Margin"});
     }
     
     /**
      * Generate Supplier Payment Report
      */
     private void generateSupplierPaymentReport() {
-        // Get payments
-        List<Payment> payments = paymentRepository.findAll();
+        SimpleDateFormat dates = new SimpleDateFormat("yyyy-MM-dd");
+        NumberFormat currency = NumberFormat.getCurrencyInstance();
         
-        // Group payments by supplier
-        Map<String, List<Payment>> paymentsBySupplier = payments.stream()
-            .collect(Collectors.groupingBy(Payment::getSupplierID));
+        // One row per supplier, all taken from the aggregates
+        Map<String, FinancialAggregates.Totals> bySupplier = new TreeMap<>();
         
-        // Calculate total payment amount per supplier
-        Map<String, Double> supplierPaymentTotals = new HashMap<>();
-        
-        for (Map.Entry<String, List<Payment>> entry : paymentsBySupplier.entrySet()) {
-            double total = entry.getValue().stream()
-                .mapToDouble(Payment::getAmount)
-                .sum();
-            supplierPaymentTotals.put(entry.getKey(), total);
-        }
-        
-        // Setup table columns
-        setupTableModel(new String[]{
+        showReport(new String[]{
             "Supplier ID", "Payment Count", "Total Paid (RM)", "Last Payment Date"
-        });
-        
-        // Populate table
-        for (Map.Entry<String, List<Payment>> entry : paymentsBySupplier.entrySet()) {
-            String supplierID = entry.getKey();
-            List<Payment> supplierPayments = entry.getValue();
-            
-            // Count payments
-            int paymentCount = supplierPayments.size();
-            
-            // Calculate total
-            double totalPaid = supplierPaymentTotals.get(supplierID);
+        }, () -> {
+            FinancialAggregates aggregates = FinancialAggregates.getInstance();
+            FinancialAggregates.Totals totals = aggregates.getPaymentTotals();
+            bySupplier.putAll(aggregates.getPaymentsBy(FinancialAggregates.BY_SUPPLIER));
             
-            // Get last payment date
-            Date lastPaymentDate = supplierPayments.stream()
-                .map(Payment::getDate)
-                .max(Date::compareTo)
-                .orElse(null);
+            return new ReportData(amountsOf(bySupplier),
+                String.valueOf(bySupplier.size()),
+                String.valueOf(totals.getCount()),
+                currency.format(totals.getAmount()));
+        }, () -> new ArrayList<>(bySupplier.entrySet()), entry -> {
+            FinancialAggregates.Totals supplierTotals = entry.getValue();
+            Date lastPaymentDate = supplierTotals.getLatestDate();
             
-            String lastPaymentDateStr = lastPaymentDate != null ? 
-                dateFormat.format(lastPaymentDate) : "N/A";
-            
-            // Add to table
-            tableModel.addRow(new Object[]{
-                supplierID,
-                paymentCount,
-                currencyFormat.format(totalPaid),
-                lastPaymentDateStr
-            });
-        }
-        
-        // Create supplier payment chart
-        createSupplierPaymentChart(supplierPaymentTotals);
-        
-        // Calculate total payments
-        double totalPayments = payments.stream()
-            .mapToDouble(Payment::getAmount)
-            .sum();
-        
-        // Create summary panel with key metrics
-        JPanel summaryPanel = createSummaryPanel(
-            new String[]{"Total Suppliers Paid", "Total Payments", "Total Amount Paid"},
-            new String[]{
-                String.valueOf(paymentsBySupplier.size()),
-                String.valueOf(payments.size()),
-                currencyFormat.format(totalPayments)
-            }
-        );
-        
-        // Add summary to the top of the report content
-        reportContentPanel.add(summaryPanel, BorderLayout.SOUTH);
-        
-        // Update UI
-        revalidate();
-        repaint();
+            return new Object[]{
+                entry.getKey(),
+                supplierTotals.getCount(),
+                currency.format(supplierTotals.getAmount()),
+                lastPaymentDate != null ? dates.format(lastPaymentDate) : "N/A"
+            };
+        }, this::createSupplierPaymentChart,
+            new String[]{"Total Suppliers Paid", "Total Payments", "Total Amount Paid"});
     }
     
     /**
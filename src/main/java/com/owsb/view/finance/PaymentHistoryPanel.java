@@ -2,11 +2,12 @@ package com.owsb.view.finance;
 
 import com.owsb.model.finance.Payment;
 import com.owsb.repository.PaymentRepository;
+import com.owsb.view.PagedTableModel;
 import com.owsb.view.PanelHeaderUtils;
+import com.owsb.view.PanelLoader;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
@@ -28,16 +29,17 @@ public class PaymentHistoryPanel extends JPanel {
     private JButton refreshButton;
     
     private JTable paymentsTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<Payment> tableModel;
     
     private JButton viewButton;
+    private JProgressBar progressBar;
+    
+    // Loads the history off the EDT
+    private final PanelLoader loader;
     
     // Repository
     private final PaymentRepository paymentRepository;
     
-    // Data
-    private List<Payment> payments;
-    
     // Formatters
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
@@ -54,6 +56,7 @@ public class PaymentHistoryPanel extends JPanel {
         
         // Initialize components
         initComponents();
+        loader = new PanelLoader(this, progressBar);
         
         // Add listeners
         addListeners();
@@ -89,14 +92,10 @@ public class PaymentHistoryPanel extends JPanel {
         // Center panel - Payments table
         centerPanel = new JPanel(new BorderLayout());
         
-        // Create table model
-        tableModel = new DefaultTableModel(
-                new Object[]{"Payment ID", "Date", "PO ID", "Supplier", "Amount", "Method", "Status", "Reference", "Notes"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Create table model; rows are fetched a page at a time as they are shown
+        tableModel = new PagedTableModel<>(
+                new String[]{"Payment ID", "Date", "PO ID", "Supplier", "Amount", "Method", "Status", "Reference", "Notes"},
+                this::toRow);
         
         // Create table
         paymentsTable = new JTable(tableModel);
@@ -133,6 +132,9 @@ public class PaymentHistoryPanel extends JPanel {
         // Bottom panel - Buttons
         bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         
+        progressBar = PanelLoader.createProgressBar();
+        bottomPanel.add(progressBar);
+        
         viewButton = new JButton("View Details");
         viewButton.setEnabled(false);
         
@@ -162,11 +164,14 @@ public class PaymentHistoryPanel extends JPanel {
      */
     private void addListeners() {
         // Status filter combo box listener
-        statusFilterComboBox.addActionListener(e -> filterPayments());
+        statusFilterComboBox.addActionListener(e -> loadPayments());
         
         // Refresh button listener
         refreshButton.addActionListener(e -> loadPayments());
         
+        // Header clicks sort by payment ID (creation order) or date
+        tableModel.enableSorting(paymentsTable, this::loadPayments, 0, 1);
+        
         // Table selection listener
         paymentsTable.getSelectionModel().addListSelectionListener(e -> {
             int selectedRow = paymentsTable.getSelectedRow();
@@ -180,23 +185,9 @@ public class PaymentHistoryPanel extends JPanel {
     }
     
     /**
-     * Load all payments
+     * Load payments matching the selected status in the background
      */
     public void loadPayments() {
-        // Get all payments
-        payments = paymentRepository.findAll();
-        
-        // Apply filter
-        filterPayments();
-    }
-    
-    /**
-     * Filter payments based on selected status
-     */
-    private void filterPayments() {
-        // Clear table
-        tableModel.setRowCount(0);
-        
         // Get selected filter
         StatusFilter filter = (StatusFilter) statusFilterComboBox.getSelectedItem();
         
@@ -204,34 +195,43 @@ public class PaymentHistoryPanel extends JPanel {
             return;
         }
         
-        // Filter payments
-        List<Payment> filteredPayments;
-        
-        if (filter.getStatus() == null) {
-            // Show all
-            filteredPayments = payments;
-        } else {
-            // Filter by status
-            filteredPayments = paymentRepository.findByStatus(filter.getStatus());
-        }
-        
-        // Add to table
-        for (Payment payment : filteredPayments) {
-            tableModel.addRow(new Object[]{
-                    payment.getPaymentID(),
-                    payment.getDate(),
-                    payment.getPoID(),
-                    payment.getSupplierID(),
-                    payment.getAmount(),
-                    payment.getPaymentMethod().getDisplayName(),
-                    payment.getStatus().getDisplayName(),
-                    payment.getReferenceNumber(),
-                    payment.getNotes()
-            });
-        }
-        
         // Reset button states
         viewButton.setEnabled(false);
+        
+        // Filtered and sorted by the repository, so only the rows on screen are loaded
+        Payment.Status status = filter.getStatus();
+        boolean byDate = tableModel.getSortColumn() == 1;
+        boolean descending = tableModel.isDescending();
+        loader.loadPages(tableModel, new PagedTableModel.PageSource<>() {
+            @Override
+            public int count() {
+                return paymentRepository.countByStatus(status);
+            }
+            
+            @Override
+            public List<Payment> page(int offset, int limit) {
+                return paymentRepository.findPage(status, byDate, descending, offset, limit);
+            }
+        });
+    }
+    
+    /**
+     * Convert a payment to a table row
+     * @param payment Payment
+     * @return Row values
+     */
+    private Object[] toRow(Payment payment) {
+        return new Object[]{
+                payment.getPaymentID(),
+                payment.getDate(),
+                payment.getPoID(),
+                payment.getSupplierID(),
+                payment.getAmount(),
+                payment.getPaymentMethod().getDisplayName(),
+                payment.getStatus().getDisplayName(),
+                payment.getReferenceNumber(),
+                payment.getNotes()
+        };
     }
     
     /**
@@ -243,14 +243,8 @@ public class PaymentHistoryPanel extends JPanel {
             return;
         }
         
-        // Get the payment ID
-        String paymentID = (String) paymentsTable.getValueAt(selectedRow, 0);
-        
         // Get the payment
-        Payment payment = payments.stream()
-                .filter(p -> p.getPaymentID().equals(paymentID))
-                .findFirst()
-                .orElse(null);
+        Payment payment = tableModel.getRecord(selectedRow);
         
         if (payment == null) {
             JOptionPane.showMessageDialog(this, 
@@ -4,16 +4,19 @@ import com.owsb.controller.ItemController;
 import com.owsb.controller.MessageController;
 import com.owsb.model.inventory.Item;
 import com.owsb.model.user.User;
+import com.owsb.repository.event.ChangeBus;
+import com.owsb.repository.event.LowStockEvent;
+import com.owsb.repository.event.StockChangedEvent;
 import com.owsb.util.SupplierUtils;
 import com.owsb.util.UserRole;
 import com.owsb.view.PanelHeaderUtils;
-import com.owsb.view.message.MessagePanel;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -23,12 +26,12 @@ import java.util.Map;
 public class LowStockAlertsPanel extends JPanel {
     private JTable lowStockTable;
     private DefaultTableModel tableModel;
-    private JButton refreshButton;
     private JButton notifySalesButton;
     private final ItemController itemController;
     private final MessageController messageController;
     private final User currentUser;
-    private List<Item> lowStockItems;
+    private List<Item> lowStockItems = new ArrayList<>(); // In table row order
+    private Map<String, String> supplierNames = Map.of();
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
 
     public LowStockAlertsPanel(ItemController itemController, MessageController messageController, User currentUser) {
@@ -42,6 +45,12 @@ public class LowStockAlertsPanel extends JPanel {
         initComponents();
         addListeners();
         loadLowStockItems();
+        
+        // Items join and leave the table as they cross their minimum; shown rows follow every stock change
+        ChangeBus.getInstance().subscribe(this, LowStockEvent.class, SwingUtilities::invokeLater,
+                LowStockAlertsPanel::onLowStockChanged);
+        ChangeBus.getInstance().subscribe(this, StockChangedEvent.class, SwingUtilities::invokeLater,
+                LowStockAlertsPanel::onStockChanged);
     }
 
     private void initComponents() {
@@ -121,23 +130,17 @@ public class LowStockAlertsPanel extends JPanel {
     }
 
     /**
-     * Create header panel with title and refresh button
+     * Create header panel with title
      */
     private JPanel createHeaderPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
         JLabel titleLabel = PanelHeaderUtils.createHeaderLabel("Low Stock Alerts");
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-        refreshButton = new JButton("Refresh");
-        buttonPanel.add(refreshButton);
         panel.add(titleLabel, BorderLayout.WEST);
-        panel.add(buttonPanel, BorderLayout.EAST);
         return panel;
     }
 
     private void addListeners() {
-        refreshButton.addActionListener(e -> loadLowStockItems());
-        
         lowStockTable.getSelectionModel().addListSelectionListener(e -> {
             notifySalesButton.setEnabled(lowStockTable.getSelectedRow() != -1);
         });
@@ -147,30 +150,94 @@ public class LowStockAlertsPanel extends JPanel {
 
     public void loadLowStockItems() {
         tableModel.setRowCount(0);
-        lowStockItems = itemController.getLowStockItems();
-        Map<String, String> supplierMap = SupplierUtils.getSupplierIdToNameMap();
+        lowStockItems = new ArrayList<>(itemController.getLowStockItems());
+        supplierNames = SupplierUtils.getSupplierIdToNameMap();
         
         for (Item item : lowStockItems) {
-            String supplierName = supplierMap.getOrDefault(item.getSupplierID(), "Unknown");
-            int reorderQty = calculateReorderQuantity(item);
-            
-            tableModel.addRow(new Object[]{
-                    item.getItemID(),
-                    item.getName(),
-                    item.getDescription(),
-                    currencyFormat.format(item.getUnitPrice()),
-                    supplierName,
-                    item.getCurrentStock(),
-                    item.getMinimumStock(),
-                    item.getStockStatus(),
-                    reorderQty
-            });
+            tableModel.addRow(toRow(item));
         }
         
         notifySalesButton.setEnabled(false);
         
     }
     
+    /**
+     * Add or remove the row of an item that crossed its minimum stock level
+     */
+    private void onLowStockChanged(LowStockEvent event) {
+        int row = rowOf(event.getId());
+        if (!event.isLow()) {
+            if (row != -1) {
+                lowStockItems.remove(row);
+                tableModel.removeRow(row);
+            }
+            return;
+        }
+        if (row != -1) {
+            return;
+        }
+        Item item = itemController.getItemById(event.getId());
+        if (item == null || !item.isLowStock()) {
+            // Recovered again before this event was handled
+            return;
+        }
+        if (!supplierNames.containsKey(item.getSupplierID())) {
+            supplierNames = SupplierUtils.getSupplierIdToNameMap();
+        }
+        lowStockItems.add(item);
+        tableModel.addRow(toRow(item));
+    }
+    
+    /**
+     * Update the row of a shown item whose stock changed without crossing its minimum
+     */
+    private void onStockChanged(StockChangedEvent event) {
+        int row = rowOf(event.getId());
+        if (row == -1) {
+            return;
+        }
+        Item item = itemController.getItemById(event.getId());
+        if (item == null || !item.isLowStock()) {
+            // The LowStockEvent removes the row
+            return;
+        }
+        lowStockItems.set(row, item);
+        Object[] values = toRow(item);
+        for (int column = 0; column < values.length; column++) {
+            tableModel.setValueAt(values[column], row, column);
+        }
+    }
+    
+    /**
+     * Find the table row of an item
+     * @return Row index, or -1 if the item is not shown
+     */
+    private int rowOf(String itemID) {
+        for (int i = 0; i < lowStockItems.size(); i++) {
+            if (lowStockItems.get(i).getItemID().equals(itemID)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Convert a low stock item to a table row
+     */
+    private Object[] toRow(Item item) {
+        return new Object[]{
+                item.getItemID(),
+                item.getName(),
+                item.getDescription(),
+                currencyFormat.format(item.getUnitPrice()),
+                supplierNames.getOrDefault(item.getSupplierID(), "Unknown"),
+                item.getCurrentStock(),
+                item.getMinimumStock(),
+                item.getStockStatus(),
+                calculateReorderQuantity(item)
+        };
+    }
+    
     /**
      * Calculate recommended reorder quantity (max stock - current stock)
      */
@@ -272,22 +339,6 @@ public class LowStockAlertsPanel extends JPanel {
                         "Message sent successfully to Sales Managers.",
                         "Message Sent",
                         JOptionPane.INFORMATION_MESSAGE);
-                
-                // Refresh the message panel if it exists in the parent components
-                Window window = SwingUtilities.getWindowAncestor(this);
-                if (window instanceof JFrame) {
-                    JFrame frame = (JFrame) window;
-                    Container contentPane = frame.getContentPane();
-                    if (contentPane instanceof JPanel) {
-                        JPanel mainPanel = (JPanel) contentPane;
-                        for (Component comp : mainPanel.getComponents()) {
-                            if (comp instanceof MessagePanel) {
-                                ((MessagePanel) comp).loadMessages();
-                                break;
-                            }
-                        }
-                    }
-                }
             } else {
                 JOptionPane.showMessageDialog(this,
                         "Failed to send message. Please try again.",
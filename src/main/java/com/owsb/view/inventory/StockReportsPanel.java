@@ -4,6 +4,7 @@ import com.owsb.controller.ItemController;
 import com.owsb.model.inventory.Item;
 import com.owsb.model.user.User;
 import com.owsb.view.PanelHeaderUtils;
+import com.owsb.view.PanelLoader;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -31,6 +32,11 @@ public class StockReportsPanel extends JPanel {
     private JPanel chartPanel;
     private JPanel filterPanel;
     private JComboBox<String> categoryFilter;
+    private JProgressBar progressBar;
+    
+    // Reports and the category list load off the EDT
+    private final PanelLoader loader;
+    private final PanelLoader categoryLoader;
     
     /**
      * Constructor for StockReportsPanel
@@ -43,6 +49,9 @@ public class StockReportsPanel extends JPanel {
         
         setLayout(new BorderLayout());
         initComponents();
+        loader = new PanelLoader(this, progressBar);
+        categoryLoader = new PanelLoader(this);
+        loadCategories();
         loadCurrentStockReport(); // Default report
     }
     
@@ -94,22 +103,13 @@ public class StockReportsPanel extends JPanel {
         filterPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         filterPanel.add(new JLabel("Filter by Category:"));
         
-        // Get unique categories from items
-        List<String> categories = itemController.getAllItems().stream()
-                .map(Item::getCategory)
-                .distinct()
-                .collect(Collectors.toList());
-        
-        String[] categoryArray = new String[categories.size() + 1];
-        categoryArray[0] = "All Categories";
-        for (int i = 0; i < categories.size(); i++) {
-            categoryArray[i + 1] = categories.get(i);
-        }
-        
-        categoryFilter = new JComboBox<>(categoryArray);
+        categoryFilter = new JComboBox<>(new String[] {"All Categories"});
         categoryFilter.addActionListener(e -> applyFilters());
         filterPanel.add(categoryFilter);
         
+        progressBar = PanelLoader.createProgressBar();
+        filterPanel.add(progressBar);
+        
         JButton printButton = new JButton("Print Report");
         printButton.addActionListener(e -> printReport());
         filterPanel.add(printButton);
@@ -156,6 +156,20 @@ public class StockReportsPanel extends JPanel {
         add(centerPanel, BorderLayout.CENTER);
     }
     
+    /**
+     * Fill the category filter with the categories in use
+     */
+    private void loadCategories() {
+        categoryLoader.load(() -> itemController.getAllItems().stream()
+                .map(Item::getCategory)
+                .distinct()
+                .collect(Collectors.toList()), categories -> {
+            for (String category : categories) {
+                categoryFilter.addItem(category);
+            }
+        });
+    }
+    
     /**
      * Load the Current Stock Report
      */
@@ -163,29 +177,22 @@ public class StockReportsPanel extends JPanel {
         // Setup table columns
         setupTableModel(new String[] {"Item ID", "Name", "Category", "Current Stock", "Min. Stock", "Max. Stock", "Status"});
         
-        // Fetch all items
-        List<Item> items = itemController.getAllItems();
-        
-        // Populate table
-        for (Item item : items) {
-            String status = getStockStatus(item);
+        // Fetch all items and populate the table in the background
+        loader.loadRows(itemController::getAllItems, item -> new Object[] {
+            item.getItemID(),
+            item.getName(),
+            item.getCategory(),
+            item.getCurrentStock(),
+            item.getMinimumStock(),
+            item.getMaximumStock(),
+            getStockStatus(item)
+        }, tableModel, items -> {
+            // Update chart
+            updateStockLevelChart(items);
             
-            tableModel.addRow(new Object[] {
-                item.getItemID(),
-                item.getName(),
-                item.getCategory(),
-                item.getCurrentStock(),
-                item.getMinimumStock(),
-                item.getMaximumStock(),
-                status
-            });
-        }
-        
-        // Update chart
-        updateStockLevelChart(items);
-        
-        // Apply any active filters
-        applyFilters();
+            // Apply any active filters
+            applyFilters();
+        });
     }
     
     /**
@@ -195,34 +202,24 @@ public class StockReportsPanel extends JPanel {
         // Setup table columns
         setupTableModel(new String[] {"Item ID", "Name", "Category", "Current Stock", "Min. Stock", "Required Qty", "Supplier ID"});
         
-        // Fetch all items
-        List<Item> items = itemController.getAllItems();
-        
-        // Filter for low stock items only
-        List<Item> lowStockItems = items.stream()
+        // Fetch low stock items only and populate the table in the background
+        loader.loadRows(() -> itemController.getAllItems().stream()
                 .filter(item -> item.getCurrentStock() <= item.getMinimumStock())
-                .collect(Collectors.toList());
-        
-        // Populate table
-        for (Item item : lowStockItems) {
-            int requiredQty = item.getMaximumStock() - item.getCurrentStock();
+                .collect(Collectors.toList()), item -> new Object[] {
+            item.getItemID(),
+            item.getName(),
+            item.getCategory(),
+            item.getCurrentStock(),
+            item.getMinimumStock(),
+            item.getMaximumStock() - item.getCurrentStock(),
+            item.getSupplierID()
+        }, tableModel, lowStockItems -> {
+            // Update chart
+            updateLowStockChart(lowStockItems);
             
-            tableModel.addRow(new Object[] {
-                item.getItemID(),
-                item.getName(),
-                item.getCategory(),
-                item.getCurrentStock(),
-                item.getMinimumStock(),
-                requiredQty,
-                item.getSupplierID()
-            });
-        }
-        
-        // Update chart
-        updateLowStockChart(lowStockItems);
-        
-        // Apply any active filters
-        applyFilters();
+            // Apply any active filters
+            applyFilters();
+        });
     }
     
     /**
@@ -232,28 +229,21 @@ public class StockReportsPanel extends JPanel {
         // Setup table columns
         setupTableModel(new String[] {"Item ID", "Name", "Category", "Unit Price (RM)", "Current Stock", "Total Value (RM)"});
         
-        // Fetch all items
-        List<Item> items = itemController.getAllItems();
-        
-        // Populate table
-        for (Item item : items) {
-            double totalValue = item.getUnitPrice() * item.getCurrentStock();
+        // Fetch all items and populate the table in the background
+        loader.loadRows(itemController::getAllItems, item -> new Object[] {
+            item.getItemID(),
+            item.getName(),
+            item.getCategory(),
+            String.format("%.2f", item.getUnitPrice()),
+            item.getCurrentStock(),
+            String.format("%.2f", item.getUnitPrice() * item.getCurrentStock())
+        }, tableModel, items -> {
+            // Update chart
+            updateValuationChart(items);
             
-            tableModel.addRow(new Object[] {
-                item.getItemID(),
-                item.getName(),
-                item.getCategory(),
-                String.format("%.2f", item.getUnitPrice()),
-                item.getCurrentStock(),
-                String.format("%.2f", totalValue)
-            });
-        }
-        
-        // Update chart
-        updateValuationChart(items);
-        
-        // Apply any active filters
-        applyFilters();
+            // Apply any active filters
+            applyFilters();
+        });
     }
     
     /**
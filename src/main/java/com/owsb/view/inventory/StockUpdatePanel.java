@@ -8,6 +8,7 @@ import com.owsb.model.procurement.PurchaseOrder;
 import com.owsb.util.Constants;
 import com.owsb.util.SupplierUtils;
 import com.owsb.repository.ItemRepository;
+import com.owsb.repository.StockLedger;
 import com.owsb.view.PanelHeaderUtils;
 
 import javax.swing.*;
@@ -361,6 +362,22 @@ public class StockUpdatePanel extends JPanel {
         }
     }
     
+    /**
+     * Find an item as it was when the table was loaded
+     * @param itemId Item ID
+     * @return Loaded item or null
+     */
+    private Item findLoadedItem(String itemId) {
+        if (allItems != null) {
+            for (Item item : allItems) {
+                if (item.getItemID().equals(itemId)) {
+                    return item;
+                }
+            }
+        }
+        return null;
+    }
+    
     /**
      * Load all items for manual update
      */
@@ -459,7 +476,14 @@ public class StockUpdatePanel extends JPanel {
         int updatedCount = 0;
         
         for (Item item : modifiedItems.values()) {
+            // Details are saved as they are; the stock level changes by the amount edited in the table
             success = itemRepository.update(item) && success;
+            
+            Item originalItem = findLoadedItem(item.getItemID());
+            int stockChange = item.getCurrentStock() - (originalItem != null ? originalItem.getCurrentStock() : 0);
+            if (originalItem != null && stockChange != 0) {
+                success = itemRepository.updateStock(item.getItemID(), stockChange) && success;
+            }
             updatedCount++;
         }
         
@@ -665,18 +689,17 @@ public class StockUpdatePanel extends JPanel {
                 continue; // Skip items with zero quantity
             }
             
-            // Get the item from repository
-            Item item = itemRepository.findById(itemId);
-            if (item != null) {
-                // Update stock
-                boolean itemUpdateSuccess = item.updateStock(receivedQty);
+            // Add the received quantity to stock
+            if (itemRepository.findById(itemId) != null) {
+                boolean itemUpdateSuccess = itemRepository.updateStock(itemId, receivedQty,
+                        StockLedger.MovementType.RECEIPT, selectedPO.getPoID());
                 if (!itemUpdateSuccess) {
                     JOptionPane.showMessageDialog(this, 
-                        "Failed to update stock for item " + itemId + ". Operation would result in negative stock.",
+                        "Failed to update stock for item " + itemId + ".",
                         "Stock Update Error", 
                         JOptionPane.ERROR_MESSAGE);
                 }
-                success = itemRepository.update(item) && success && itemUpdateSuccess;
+                success = success && itemUpdateSuccess;
             }
         }
         
@@ -4,11 +4,12 @@ import com.owsb.controller.ItemController;
 import com.owsb.model.inventory.Item;
 import com.owsb.model.user.User;
 import com.owsb.util.SupplierUtils;
+import com.owsb.view.PagedTableModel;
 import com.owsb.view.PanelHeaderUtils;
+import com.owsb.view.PanelLoader;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.text.NumberFormat;
 import java.util.List;
@@ -19,17 +20,19 @@ import java.util.Map;
  */
 public class ItemListPanel extends JPanel {
     private JTable itemTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<Item> tableModel;
     private JButton refreshButton;
     private JButton viewButton;
     private final ItemController itemController;
     private final User currentUser;
-    private List<Item> items;
+    private final PanelLoader loader;
+    private Map<String, String> supplierNames = Map.of();
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
 
     public ItemListPanel(ItemController itemController, User currentUser) {
         this.itemController = itemController;
         this.currentUser = currentUser;
+        this.loader = new PanelLoader(this);
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         initComponents();
@@ -42,14 +45,10 @@ public class ItemListPanel extends JPanel {
         JPanel headerPanel = createHeaderPanel();
         add(headerPanel, BorderLayout.NORTH);
 
-        // Table model
-        tableModel = new DefaultTableModel(
-                new Object[]{"Item Code", "Name", "Description", "Price", "Category", "Supplier", "Stock", "Min", "Max", "Status"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Table model; rows are fetched a page at a time as they are shown
+        tableModel = new PagedTableModel<>(
+                new String[]{"Item Code", "Name", "Description", "Price", "Category", "Supplier", "Stock", "Min", "Max", "Status"},
+                this::toRow);
         itemTable = new JTable(tableModel);
         itemTable.getTableHeader().setReorderingAllowed(false);
         itemTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -99,42 +98,53 @@ public class ItemListPanel extends JPanel {
             viewButton.setEnabled(itemTable.getSelectedRow() != -1);
         });
         viewButton.addActionListener(e -> viewItem());
+        // Header click sorts by item code
+        tableModel.enableSorting(itemTable, this::loadItems, 0);
     }
 
     public void loadItems() {
-        tableModel.setRowCount(0);
-        items = itemController.getAllItems();
-        Map<String, String> supplierMap = SupplierUtils.getSupplierIdToNameMap();
-        for (Item item : items) {
-            String supplierName = supplierMap.getOrDefault(item.getSupplierID(), "Unknown");
-            tableModel.addRow(new Object[]{
-                    item.getItemID(),
-                    item.getName(),
-                    item.getDescription(),
-                    currencyFormat.format(item.getUnitPrice()),
-                    item.getCategory(),
-                    supplierName,
-                    item.getCurrentStock(),
-                    item.getMinimumStock(),
-                    item.getMaximumStock(),
-                    item.getStockStatus()
-            });
-        }
         viewButton.setEnabled(false);
+        supplierNames = SupplierUtils.getSupplierIdToNameMap();
+        boolean descending = tableModel.isDescending();
+        loader.loadPages(tableModel, new PagedTableModel.PageSource<>() {
+            @Override
+            public int count() {
+                return itemController.getItemCount();
+            }
+
+            @Override
+            public List<Item> page(int offset, int limit) {
+                return itemController.getItemPage(descending, offset, limit);
+            }
+        });
+    }
+
+    private Object[] toRow(Item item) {
+        return new Object[]{
+                item.getItemID(),
+                item.getName(),
+                item.getDescription(),
+                currencyFormat.format(item.getUnitPrice()),
+                item.getCategory(),
+                supplierNames.getOrDefault(item.getSupplierID(), "Unknown"),
+                item.getCurrentStock(),
+                item.getMinimumStock(),
+                item.getMaximumStock(),
+                item.getStockStatus()
+        };
     }
 
     private void viewItem() {
         int selectedRow = itemTable.getSelectedRow();
         if (selectedRow == -1) return;
-        String itemId = (String) tableModel.getValueAt(selectedRow, 0);
-        Item item = items.stream().filter(i -> i.getItemID().equals(itemId)).findFirst().orElse(null);
+        Item item = tableModel.getRecord(selectedRow);
         if (item == null) {
             JOptionPane.showMessageDialog(this, "Item not found.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
         // Show item details dialog
         JDialog dialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this),
-                "Item Details: " + itemId, true);
+                "Item Details: " + item.getItemID(), true);
         dialog.setLayout(new BorderLayout(10, 10));
         dialog.setSize(500, 400);
         dialog.setLocationRelativeTo(this);
@@ -4,31 +4,43 @@ import com.owsb.controller.MessageController;
 import com.owsb.controller.PurchaseRequisitionController;
 import com.owsb.model.message.Message;
 import com.owsb.model.user.User;
+import com.owsb.repository.event.ChangeBus;
+import com.owsb.repository.event.MessageArrivedEvent;
 import com.owsb.util.UserRole;
 import com.owsb.view.dashboard.BaseDashboard;
 import com.owsb.view.PanelHeaderUtils;
+import com.owsb.view.PanelLoader;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Panel for viewing and managing messages
  */
 public class MessagePanel extends JPanel {
+    private static final int PAGE_SIZE = 50;
+    
     private JTable messageTable;
     private DefaultTableModel tableModel;
     private JButton refreshButton;
     private JButton viewButton;
     private JButton deleteButton;
     private JButton markAllReadButton;
+    private JButton previousPageButton;
+    private JButton nextPageButton;
+    private JLabel pageLabel;
+    private JProgressBar progressBar;
+    private final PanelLoader loader; // Loads messages off the EDT
     
     private final MessageController messageController;
     private final PurchaseRequisitionController prController;
     private final User currentUser;
-    private List<Message> messages;
+    private List<Message> messages = List.of();
+    private int page = 0; // Zero-based page shown
     
     /**
      * Constructor
@@ -42,8 +54,12 @@ public class MessagePanel extends JPanel {
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         initComponents();
+        loader = new PanelLoader(this, progressBar);
         addListeners();
         loadMessages();
+        
+        ChangeBus.getInstance().subscribe(this, MessageArrivedEvent.class, SwingUtilities::invokeLater,
+                MessagePanel::onMessageArrived);
     }
     
     /**
@@ -132,9 +148,18 @@ public class MessagePanel extends JPanel {
         
         // Bottom panel with buttons
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        progressBar = PanelLoader.createProgressBar();
         deleteButton = new JButton("Delete");
         viewButton = new JButton("View");
         
+        previousPageButton = new JButton("< Newer");
+        nextPageButton = new JButton("Older >");
+        pageLabel = new JLabel();
+        
+        bottomPanel.add(progressBar);
+        bottomPanel.add(previousPageButton);
+        bottomPanel.add(pageLabel);
+        bottomPanel.add(nextPageButton);
         bottomPanel.add(deleteButton);
         bottomPanel.add(viewButton);
         
@@ -164,6 +189,15 @@ public class MessagePanel extends JPanel {
     private void addListeners() {
         refreshButton.addActionListener(e -> loadMessages());
         
+        previousPageButton.addActionListener(e -> {
+            page--;
+            loadMessages();
+        });
+        nextPageButton.addActionListener(e -> {
+            page++;
+            loadMessages();
+        });
+        
         markAllReadButton.addActionListener(e -> markAllMessagesRead());
         
         messageTable.getSelectionModel().addListSelectionListener(e -> {
@@ -178,24 +212,74 @@ public class MessagePanel extends JPanel {
     }
     
     /**
-     * Load messages
+     * Load the current page of messages in the background
      */
     public void loadMessages() {
-        tableModel.setRowCount(0);
-        messages = messageController.getMessagesForCurrentUser();
-        
-        for (Message message : messages) {
-            tableModel.addRow(new Object[]{
-                    message.isRead(),
-                    message.getSubject(),
-                    message.getSenderName(),
-                    message.getTimestamp(),
-                    message.getRelatedItemID() != null ? message.getRelatedItemID() : ""
-            });
-        }
-        
         viewButton.setEnabled(false);
         deleteButton.setEnabled(false);
+        previousPageButton.setEnabled(false);
+        nextPageButton.setEnabled(false);
+        
+        loader.loadRows(() -> {
+            int total = messageController.getMessageCountForCurrentUser();
+            // Stay on the last page when messages were deleted
+            int pages = Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+            int shown = Math.min(Math.max(page, 0), pages - 1);
+            SwingUtilities.invokeLater(() -> showPage(shown, pages));
+            return messageController.getMessagesForCurrentUser(shown * PAGE_SIZE, PAGE_SIZE);
+        }, MessagePanel::toRow, tableModel, loaded -> messages = new ArrayList<>(loaded));
+    }
+    
+    /**
+     * Convert a message to a table row
+     */
+    private static Object[] toRow(Message message) {
+        return new Object[]{
+                message.isRead(),
+                message.getSubject(),
+                message.getSenderName(),
+                message.getTimestamp(),
+                message.getRelatedItemID() != null ? message.getRelatedItemID() : ""
+        };
+    }
+    
+    /**
+     * Show a new message at the top of the first page
+     */
+    private void onMessageArrived(MessageArrivedEvent event) {
+        Message message = event.getMessage();
+        boolean mine = currentUser.getRole().name().equals(message.getReceiverRole())
+                || currentUser.getUserId().equals(message.getSenderID());
+        if (!mine) {
+            return;
+        }
+        if (loader.isLoading()) {
+            // The rows being added may or may not include it
+            loadMessages();
+            return;
+        }
+        
+        int total = messageController.getMessageCountForCurrentUser();
+        int pages = Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+        if (page == 0) {
+            messages.add(0, message);
+            tableModel.insertRow(0, toRow(message));
+            if (messages.size() > PAGE_SIZE) {
+                messages.remove(PAGE_SIZE);
+                tableModel.removeRow(PAGE_SIZE);
+            }
+        }
+        showPage(page, pages);
+    }
+    
+    /**
+     * Update the page label and buttons
+     */
+    private void showPage(int shown, int pages) {
+        page = shown;
+        pageLabel.setText("Page " + (shown + 1) + " of " + pages);
+        previousPageButton.setEnabled(shown > 0);
+        nextPageButton.setEnabled(shown < pages - 1);
     }
     
     /**
@@ -255,12 +255,15 @@ public class PurchaseOrderGenerationPanel extends JPanel {
         poItems.clear();
         itemSuppliers.clear();
         
+        // Get all potential suppliers for every item in one go
+        List<String> itemIDs = new ArrayList<>();
+        for (PRItem prItem : pr.getItems()) {
+            itemIDs.add(prItem.getItemID());
+        }
+        itemSuppliers.putAll(supplierSelectionController.getSuppliersForItems(itemIDs));
+        
         // Add PR items to table
         for (PRItem prItem : pr.getItems()) {
-            // Get all potential suppliers for this item
-            List<Supplier> suppliers = supplierSelectionController.getAlternativeSuppliersForItem(prItem.getItemID());
-            itemSuppliers.put(prItem.getItemID(), suppliers);
-            
             // Get the suggested supplier from PR
             String suggestedSupplierId = prItem.getSuggestedSupplierID();
             String suggestedSupplierName = poController.getSupplierName(suggestedSupplierId);
@@ -5,9 +5,14 @@ import com.owsb.model.procurement.POItem;
 import com.owsb.model.procurement.PurchaseOrder;
 import com.owsb.model.user.Administrator;
 import com.owsb.model.user.FinanceManager;
+import com.owsb.model.user.PurchaseManager;
 import com.owsb.model.user.User;
+import com.owsb.repository.event.ChangeBus;
+import com.owsb.repository.event.PurchaseOrderStatusChangedEvent;
 import com.owsb.util.Constants;
+import com.owsb.view.PagedTableModel;
 import com.owsb.view.PanelHeaderUtils;
+import com.owsb.view.PanelLoader;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
@@ -15,9 +20,10 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Panel for viewing purchase orders
@@ -30,7 +36,7 @@ public class PurchaseOrderListPanel extends JPanel {
     private JPanel bottomPanel;
     
     private JTable poTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<PurchaseOrder> tableModel;
     
     private JComboBox<StatusFilter> statusFilterComboBox;
     private JButton refreshButton;
@@ -38,13 +44,17 @@ public class PurchaseOrderListPanel extends JPanel {
     private JButton viewButton;
     private JButton approveButton; // For Finance Managers
     private JButton rejectButton; // For Finance Managers
+    private JButton generateAllButton; // For Purchase Managers
+    private JProgressBar progressBar;
+    
+    // Loads the list off the EDT
+    private final PanelLoader loader;
     
     // Controller
     private final PurchaseOrderController poController;
     
     // Data
-    private List<PurchaseOrder> pos;
-    private Map<String, String> managerNames;
+    private Map<String, String> managerNames; // Also read by the loader thread
     
     // Current user
     private final User currentUser;
@@ -61,7 +71,7 @@ public class PurchaseOrderListPanel extends JPanel {
     public PurchaseOrderListPanel(PurchaseOrderController poController, User currentUser) {
         this.poController = poController;
         this.currentUser = currentUser;
-        this.managerNames = new HashMap<>();
+        this.managerNames = new ConcurrentHashMap<>();
         
         // Set up panel
         setLayout(new BorderLayout(10, 10));
@@ -69,9 +79,12 @@ public class PurchaseOrderListPanel extends JPanel {
         
         // Initialize components
         initComponents();
+        loader = new PanelLoader(this, progressBar);
         
         // Add listeners
         addListeners();
+        ChangeBus.getInstance().subscribe(this, PurchaseOrderStatusChangedEvent.class, SwingUtilities::invokeLater,
+                PurchaseOrderListPanel::onStatusChanged);
         
         // Load data
         loadPurchaseOrders();
@@ -98,14 +111,10 @@ public class PurchaseOrderListPanel extends JPanel {
         // Center panel - PO table
         centerPanel = new JPanel(new BorderLayout());
         
-        // Create table model
-        tableModel = new DefaultTableModel(
-                new Object[]{"PO ID", "PR ID", "Date", "Delivery Date", "Created By", "Status", "Items", "Total Value", "Notes"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Create table model; rows are fetched a page at a time as they are shown
+        tableModel = new PagedTableModel<>(
+                new String[]{"PO ID", "PR ID", "Date", "Delivery Date", "Created By", "Status", "Items", "Total Value", "Notes"},
+                this::toRow);
         
         // Create table
         poTable = new JTable(tableModel);
@@ -143,6 +152,9 @@ public class PurchaseOrderListPanel extends JPanel {
         // Bottom panel - Buttons
         bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         
+        progressBar = PanelLoader.createProgressBar();
+        bottomPanel.add(progressBar);
+        
         viewButton = new JButton("View");
         viewButton.setEnabled(false);
         
@@ -152,6 +164,8 @@ public class PurchaseOrderListPanel extends JPanel {
         rejectButton = new JButton("Reject");
         rejectButton.setEnabled(false);
         
+        generateAllButton = new JButton("Generate POs for Pending PRs");
+        
         bottomPanel.add(viewButton);
         
         // Only add Approve and Reject buttons for Finance Managers
@@ -160,6 +174,11 @@ public class PurchaseOrderListPanel extends JPanel {
             bottomPanel.add(rejectButton);
         }
         
+        // Only add the batch generation button for Purchase Managers
+        if (currentUser instanceof PurchaseManager || currentUser instanceof Administrator) {
+            bottomPanel.add(generateAllButton);
+        }
+        
         // Add panels to main panel
         add(topPanel, BorderLayout.NORTH);
         add(centerPanel, BorderLayout.CENTER);
@@ -188,62 +207,49 @@ public class PurchaseOrderListPanel extends JPanel {
      */
     private void addListeners() {
         // Status filter combo box listener
-        statusFilterComboBox.addActionListener(evt -> filterPOs());
+        statusFilterComboBox.addActionListener(evt -> loadPurchaseOrders());
+        // Header clicks sort by PO ID (creation order) or date
+        tableModel.enableSorting(poTable, this::loadPurchaseOrders, 0, 2);
         // Refresh button listener
         refreshButton.addActionListener(evt -> loadPurchaseOrders());
         // Table selection listener
-        poTable.getSelectionModel().addListSelectionListener(evt -> {
-            int selectedRow = poTable.getSelectedRow();
-            boolean hasSelection = selectedRow != -1;
-            viewButton.setEnabled(hasSelection);
-            // Enable/disable approve and reject buttons based on selection and status
-            if (hasSelection && (currentUser instanceof FinanceManager || currentUser instanceof Administrator)) {
-                String poId = (String) poTable.getValueAt(selectedRow, 0);
-                // Find the PO in our list
-                PurchaseOrder selectedPO = null;
-                for (PurchaseOrder po : pos) {
-                    if (po.getPoID().equals(poId)) {
-                        selectedPO = po;
-                        break;
-                    }
-                }
-                if (selectedPO != null) {
-                    // Only enable approve and reject for PENDING POs
-                    boolean canApprove = selectedPO.getStatus() == Constants.PurchaseOrderStatus.PENDING;
-                    approveButton.setEnabled(canApprove);
-                    rejectButton.setEnabled(canApprove);
-                }
-            } else {
-                approveButton.setEnabled(false);
-                rejectButton.setEnabled(false);
-            }
-        });
+        poTable.getSelectionModel().addListSelectionListener(evt -> updateButtons());
         // View button listener
         viewButton.addActionListener(evt -> viewPO());
         // Approve button listener
         approveButton.addActionListener(evt -> approvePO());
         // Reject button listener
         rejectButton.addActionListener(evt -> rejectPO());
+        // Generate all button listener
+        generateAllButton.addActionListener(evt -> generateAllPOs());
     }
     
     /**
-     * Load purchase orders
+     * Enable the buttons that apply to the selected PO
      */
-    public void loadPurchaseOrders() {
-        // Get all POs
-        pos = poController.getAllPurchaseOrders();
-        
-        // Apply filter
-        filterPOs();
+    private void updateButtons() {
+        int selectedRow = poTable.getSelectedRow();
+        boolean hasSelection = selectedRow != -1;
+        viewButton.setEnabled(hasSelection);
+        // Enable/disable approve and reject buttons based on selection and status
+        if (hasSelection && (currentUser instanceof FinanceManager || currentUser instanceof Administrator)) {
+            PurchaseOrder selectedPO = tableModel.getRecord(selectedRow);
+            if (selectedPO != null) {
+                // Only enable approve and reject for PENDING POs
+                boolean canApprove = selectedPO.getStatus() == Constants.PurchaseOrderStatus.PENDING;
+                approveButton.setEnabled(canApprove);
+                rejectButton.setEnabled(canApprove);
+            }
+        } else {
+            approveButton.setEnabled(false);
+            rejectButton.setEnabled(false);
+        }
     }
     
     /**
-     * Filter POs based on selected status
+     * Load purchase orders matching the selected status in the background
      */
-    private void filterPOs() {
-        // Clear table
-        tableModel.setRowCount(0);
-        
+    public void loadPurchaseOrders() {
         // Get selected filter
         StatusFilter filter = (StatusFilter) statusFilterComboBox.getSelectedItem();
         
@@ -251,41 +257,61 @@ public class PurchaseOrderListPanel extends JPanel {
             return;
         }
         
-        // Filter POs
-        List<PurchaseOrder> filteredPOs;
-        
-        if (filter.getStatus() == null) {
-            // Show all
-            filteredPOs = pos;
-        } else {
-            // Filter by status
-            filteredPOs = pos.stream()
-                .filter(po -> po.getStatus() == filter.getStatus())
-                .toList();
-        }
-        
-        // Add to table
-        for (PurchaseOrder po : filteredPOs) {
-            // Get the manager name
-            String managerName = getManagerName(po.getPurchaseManagerID());
-            
-            tableModel.addRow(new Object[]{
-                    po.getPoID(),
-                    po.getPrID(),
-                    po.getDate(),
-                    po.getDeliveryDate(),
-                    managerName,
-                    po.getStatus().getDisplayName(),
-                    po.getItemCount(),
-                    po.getTotalValue(),
-                    po.getNotes()
-            });
-        }
-        
         // Reset button states
         viewButton.setEnabled(false);
         approveButton.setEnabled(false);
         rejectButton.setEnabled(false);
+        
+        // Filtered and sorted by the repository; further pages are fetched off the EDT as they are scrolled to
+        Constants.PurchaseOrderStatus status = filter.getStatus();
+        boolean byDate = tableModel.getSortColumn() == 2;
+        boolean descending = tableModel.isDescending();
+        loader.loadPages(tableModel, new PagedTableModel.PageSource<>() {
+            @Override
+            public int count() {
+                return poController.countPurchaseOrders(status);
+            }
+            
+            @Override
+            public List<PurchaseOrder> page(int offset, int limit) {
+                return poController.getPurchaseOrderPage(status, byDate, descending, offset, limit);
+            }
+        });
+    }
+    
+    /**
+     * Reload the list when a PO enters or leaves it or its row changes
+     */
+    private void onStatusChanged(PurchaseOrderStatusChangedEvent event) {
+        StatusFilter filter = (StatusFilter) statusFilterComboBox.getSelectedItem();
+        if (filter == null) {
+            return;
+        }
+        // Not shown by the current filter before or after the change
+        if (filter.getStatus() != null && event.getOldStatus() != filter.getStatus()
+                && event.getNewStatus() != filter.getStatus()) {
+            return;
+        }
+        loadPurchaseOrders();
+    }
+    
+    /**
+     * Convert a PO to a table row
+     * @param po Purchase order
+     * @return Row values
+     */
+    private Object[] toRow(PurchaseOrder po) {
+        return new Object[]{
+                po.getPoID(),
+                po.getPrID(),
+                po.getDate(),
+                po.getDeliveryDate(),
+                getManagerName(po.getPurchaseManagerID()),
+                po.getStatus().getDisplayName(),
+                po.getItemCount(),
+                po.getTotalValue(),
+                po.getNotes()
+        };
     }
     
     /**
@@ -318,14 +344,8 @@ public class PurchaseOrderListPanel extends JPanel {
             return;
         }
         
-        // Get the PO ID
-        String poId = (String) poTable.getValueAt(selectedRow, 0);
-        
         // Get the PO
-        PurchaseOrder po = pos.stream()
-                .filter(p -> p.getPoID().equals(poId))
-                .findFirst()
-                .orElse(null);
+        PurchaseOrder po = tableModel.getRecord(selectedRow);
         
         if (po == null) {
             JOptionPane.showMessageDialog(this, 
@@ -337,7 +357,7 @@ public class PurchaseOrderListPanel extends JPanel {
         
         // Create and show PO viewer dialog
         JDialog dialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this), 
-                "Purchase Order Details: " + poId, true);
+                "Purchase Order Details: " + po.getPoID(), true);
         dialog.setLayout(new BorderLayout(10, 10));
         dialog.setSize(800, 600);
         dialog.setLocationRelativeTo(this);
@@ -481,9 +501,6 @@ public class PurchaseOrderListPanel extends JPanel {
                         "Purchase order approved successfully.", 
                         "Success", 
                         JOptionPane.INFORMATION_MESSAGE);
-                
-                // Reload POs
-                loadPurchaseOrders();
             } else {
                 JOptionPane.showMessageDialog(this, 
                         "Failed to approve purchase order. It may have already been processed.", 
@@ -520,9 +537,6 @@ public class PurchaseOrderListPanel extends JPanel {
                         "Purchase order rejected successfully.", 
                         "Success", 
                         JOptionPane.INFORMATION_MESSAGE);
-                
-                // Reload POs
-                loadPurchaseOrders();
             } else {
                 JOptionPane.showMessageDialog(this, 
                         "Failed to reject purchase order. It may have already been processed.", 
@@ -532,6 +546,66 @@ public class PurchaseOrderListPanel extends JPanel {
         }
     }
     
+    /**
+     * Generate a PO for every PR awaiting approval
+     */
+    private void generateAllPOs() {
+        int response = JOptionPane.showConfirmDialog(this, 
+                "Generate a purchase order with the suggested suppliers for every pending purchase requisition?", 
+                "Confirm Generate", 
+                JOptionPane.YES_NO_OPTION);
+        if (response != JOptionPane.YES_OPTION) {
+            return;
+        }
+        
+        // Not through the panel's loader, whose next page load would cancel this
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        generateAllButton.setEnabled(false);
+        new SwingWorker<List<String>, Void>() {
+            @Override
+            protected List<String> doInBackground() {
+                return poController.createPurchaseOrdersForPendingRequisitions("Generated in batch");
+            }
+            
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                generateAllButton.setEnabled(true);
+                List<String> poIds;
+                try {
+                    poIds = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error generating purchase orders: " + e);
+                    poIds = null;
+                }
+                showGenerated(poIds);
+            }
+        }.execute();
+    }
+    
+    /**
+     * Report the result of generating purchase orders in batch
+     * @param poIds IDs of the new POs, or null if none were saved
+     */
+    private void showGenerated(List<String> poIds) {
+        if (poIds == null) {
+            JOptionPane.showMessageDialog(this, 
+                    "There was a problem generating the purchase orders. No orders were created.", 
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+        } else if (poIds.isEmpty()) {
+            JOptionPane.showMessageDialog(this, 
+                    "There are no pending purchase requisitions with a required date.", 
+                    "Nothing to Generate", 
+                    JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, 
+                    poIds.size() + " purchase order(s) generated successfully.", 
+                    "Success", 
+                    JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+    
     /**
      * Status filter class for combo box
      */
@@ -5,6 +5,7 @@ import com.owsb.model.inventory.Item;
 import com.owsb.model.procurement.PRItem;
 import com.owsb.model.procurement.PurchaseRequisition;
 import com.owsb.model.supplier.Supplier;
+import com.owsb.service.DemandForecastService;
 import com.owsb.util.Constants;
 import com.owsb.util.SupplierUtils;
 import com.owsb.view.PanelHeaderUtils;
@@ -40,6 +41,7 @@ public class PurchaseRequisitionCreationPanel extends JPanel {
     
     private JComboBox<ItemWrapper> itemComboBox;
     private JSpinner quantitySpinner;
+    private JLabel suggestionLabel;
     private JButton addButton;
     private JButton removeButton;
     private JButton quickAddButton;
@@ -225,6 +227,8 @@ public class PurchaseRequisitionCreationPanel extends JPanel {
         quantitySpinner = new JSpinner(quantityModel);
         quantitySpinner.setPreferredSize(new Dimension(80, 25));
         
+        suggestionLabel = new JLabel();
+        
         addButton = new JButton("Add Item");
         removeButton = new JButton("Remove Selected");
         removeButton.setEnabled(false);
@@ -233,6 +237,7 @@ public class PurchaseRequisitionCreationPanel extends JPanel {
         itemSelectionPanel.add(itemComboBox);
         itemSelectionPanel.add(quantityLabel);
         itemSelectionPanel.add(quantitySpinner);
+        itemSelectionPanel.add(suggestionLabel);
         itemSelectionPanel.add(addButton);
         itemSelectionPanel.add(removeButton);
         
@@ -309,6 +314,9 @@ public class PurchaseRequisitionCreationPanel extends JPanel {
         // Quick add button listener
         quickAddButton.addActionListener(e -> quickAddBelowMinimum());
         
+        // Item selection listener
+        itemComboBox.addActionListener(e -> showSuggestedQuantity());
+        
         // Add item button listener
         addButton.addActionListener(e -> addItemToTable());
         
@@ -384,6 +392,25 @@ public class PurchaseRequisitionCreationPanel extends JPanel {
         });
     }
     
+    /**
+     * Preset the quantity to the forecast-based suggestion for the selected item
+     */
+    private void showSuggestedQuantity() {
+        ItemWrapper selectedWrapper = (ItemWrapper) itemComboBox.getSelectedItem();
+        if (selectedWrapper == null) {
+            suggestionLabel.setText("");
+            return;
+        }
+        
+        Item item = selectedWrapper.getItem();
+        DemandForecastService.Forecast forecast = prController.getDemandForecast(item.getItemID());
+        int suggestedQuantity = forecast.getSuggestedQuantity(item);
+        quantitySpinner.setValue(Math.max(1, Math.min(10000, suggestedQuantity)));
+        int pendingQuantity = prController.getPendingQuantity(item.getItemID());
+        suggestionLabel.setText(String.format("Suggested: %d (reorder at %d, %.1f/day, %d on open PRs)",
+                suggestedQuantity, forecast.getReorderPoint(), forecast.getDailyDemand(), pendingQuantity));
+    }
+    
     /**
      * Quick add items below minimum stock
      */
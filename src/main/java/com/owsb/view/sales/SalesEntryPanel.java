@@ -4,6 +4,7 @@ import com.owsb.controller.SalesController;
 import com.owsb.model.inventory.Item;
 import com.owsb.model.sales.Sale;
 import com.owsb.model.sales.SaleItem;
+import com.owsb.repository.StockLedger;
 import com.owsb.view.PanelHeaderUtils;
 
 import javax.swing.*;
@@ -55,6 +56,8 @@ public class SalesEntryPanel extends JPanel {
     
     // Data
     private final List<SaleItem> saleItems = new ArrayList<>();
+    // Stock held for the items of a new sale until it is saved or discarded, by item ID
+    private final Map<String, StockLedger.Reservation> draftReservations = new HashMap<>();
     private Date selectedDate = new Date();
     
     // Formatters
@@ -288,6 +291,11 @@ public class SalesEntryPanel extends JPanel {
                     
                     if (e.getColumn() == 2) { // Quantity
                         int quantity = (int) tableModel.getValueAt(row, 2);
+                        if (!editMode && !resizeReservation(saleItem.getItemID(), quantity)) {
+                            // Not enough stock, go back to the previous quantity
+                            tableModel.setValueAt(saleItem.getQuantity(), row, 2);
+                            return;
+                        }
                         saleItem.setQuantity(quantity);
                     } else if (e.getColumn() == 4) { // Profit %
                         double profitRatio = (double) tableModel.getValueAt(row, 4);
@@ -353,6 +361,16 @@ public class SalesEntryPanel extends JPanel {
             }
         }
         
+        // Reserve the stock of a new sale so other clerks cannot sell it in the meantime
+        if (!editMode) {
+            StockLedger.Reservation reservation = salesController.reserveStock(selectedItem.getItemID(), quantity);
+            if (reservation == null) {
+                showInsufficientStock(selectedItem.getItemID());
+                return;
+            }
+            draftReservations.put(selectedItem.getItemID(), reservation);
+        }
+        
         // Create a new sale item
         SaleItem saleItem = new SaleItem(
                 selectedItem.getItemID(),
@@ -383,13 +401,63 @@ public class SalesEntryPanel extends JPanel {
         profitRatioSpinner.setValue(SalesController.DEFAULT_PROFIT_RATIO);
     }
     
+    /**
+     * Change the reserved quantity of an item in a new sale
+     * @param itemId Item ID
+     * @param quantity New quantity
+     * @return true if the new quantity is reserved, false if not enough stock is available
+     */
+    private boolean resizeReservation(String itemId, int quantity) {
+        StockLedger.Reservation current = draftReservations.get(itemId);
+        if (current != null && current.getQuantity() == quantity) {
+            return true;
+        }
+        
+        salesController.releaseReservation(current);
+        StockLedger.Reservation resized = salesController.reserveStock(itemId, quantity);
+        if (resized == null) {
+            showInsufficientStock(itemId);
+            resized = current != null ? salesController.reserveStock(itemId, current.getQuantity()) : null;
+        }
+        
+        if (resized != null) {
+            draftReservations.put(itemId, resized);
+        } else {
+            // Saving will try to reserve again
+            draftReservations.remove(itemId);
+        }
+        return resized != null && resized.getQuantity() == quantity;
+    }
+    
+    /**
+     * Give back all stock reserved for the current draft
+     */
+    private void releaseDraftReservations() {
+        for (StockLedger.Reservation reservation : draftReservations.values()) {
+            salesController.releaseReservation(reservation);
+        }
+        draftReservations.clear();
+    }
+    
+    /**
+     * Tell the user an item does not have enough unreserved stock
+     * @param itemId Item ID
+     */
+    private void showInsufficientStock(String itemId) {
+        JOptionPane.showMessageDialog(this, 
+                "Not enough stock. Available: " + salesController.getAvailableStock(itemId), 
+                "Insufficient Stock", 
+                JOptionPane.WARNING_MESSAGE);
+    }
+    
     /**
      * Remove selected item from table
      */
     private void removeSelectedItem() {
         int selectedRow = salesTable.getSelectedRow();
         if (selectedRow != -1) {
-            saleItems.remove(selectedRow);
+            SaleItem removed = saleItems.remove(selectedRow);
+            salesController.releaseReservation(draftReservations.remove(removed.getItemID()));
             tableModel.removeRow(selectedRow);
             removeButton.setEnabled(false);
             
@@ -450,7 +518,8 @@ public class SalesEntryPanel extends JPanel {
         if (editMode && editingSaleId != null) {
             success = salesController.updateSale(editingSaleId, selectedDate, saleItems, notes);
         } else {
-            success = salesController.createSale(selectedDate, saleItems, notes);
+            success = salesController.createSale(selectedDate, saleItems, notes,
+                    new ArrayList<>(draftReservations.values()));
         }
         
         // Show message
@@ -475,6 +544,7 @@ public class SalesEntryPanel extends JPanel {
         // Clear table
         tableModel.setRowCount(0);
         saleItems.clear();
+        releaseDraftReservations();
         
         // Reset components
         dateSpinner.setValue(new Date());
@@ -821,7 +891,8 @@ public class SalesEntryPanel extends JPanel {
             return;
         }
         
-        // Set up for editing
+        // Set up for editing (an edited sale already holds its stock)
+        releaseDraftReservations();
         editMode = true;
         editingSaleId = saleId;
         saveButton.setText("Update Sale");
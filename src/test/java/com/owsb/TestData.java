@@ -0,0 +1,29 @@
+package com.owsb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * Points the data files at an empty temporary directory for the tests
+ * Constants reads the directory once, so every test class calls {@link #init} before touching a
+ * repository or store, and all of them share the directory; tests use their own IDs and files.
+ */
+public final class TestData {
+    private TestData() {
+    }
+
+    /**
+     * Create the directory and select it, unless this JVM already has one
+     */
+    public static synchronized void init() {
+        if (System.getProperty("owsb.data.dir") != null) {
+            return;
+        }
+        try {
+            System.setProperty("owsb.data.dir", Files.createTempDirectory("owsb-test").toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.owsb.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.owsb.TestData;
+import com.owsb.model.sales.Sale;
+import com.owsb.model.sales.SaleItem;
+import com.owsb.repository.storage.ReadView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SalesArchiveTest {
+    private static SalesRepository sales;
+
+    @BeforeClass
+    public static void createRepository() {
+        TestData.init();
+        sales = new SalesRepository();
+    }
+
+    @Test
+    public void archivedSalesStayReadable() {
+        assertTrue(sales.save(sale("SL901", new Date(1000L))));
+        assertTrue(sales.save(sale("SL902", new Date(2000L))));
+        assertTrue(sales.save(sale("SL903", new Date())));
+        ReadView before = ReadView.latest();
+        List<String> all = ids(sales.findAll());
+
+        assertEquals(2, sales.archiveSalesBefore(new Date(3000L)));
+        assertEquals(0, sales.archiveSalesBefore(new Date(3000L)));
+
+        assertEquals(all, ids(sales.findAll()));
+        assertEquals(all, before.read(() -> ids(sales.findAll())));
+        assertNotNull(sales.findById("SL901"));
+        assertEquals(3, sales.findById("SL902").getItems().get(0).getQuantity());
+        // Archived IDs are never handed out again or saved twice
+        assertFalse(sales.save(sale("SL901", new Date())));
+        assertFalse(sales.generateNewSaleID().equals("SL901"));
+    }
+
+    @Test
+    public void deletedArchivedSaleIsGone() {
+        assertTrue(sales.save(sale("SL911", new Date(500L))));
+        assertEquals(1, sales.archiveSalesBefore(new Date(600L)));
+
+        assertTrue(sales.delete("SL911"));
+        assertEquals(null, sales.findById("SL911"));
+        assertFalse(ids(sales.findAll()).contains("SL911"));
+    }
+
+    @Test
+    public void dateRangesUnderViewMatchTheArchiveOfTheirTime() {
+        SalesArchive archive = SalesArchive.getInstance();
+        assertTrue(archive.append(List.of(sale("SL921", new Date(10000L)), sale("SL922", new Date(20000L)),
+                sale("SL923", new Date(20000L)), sale("SL924", new Date(30000L)))));
+        ReadView before = ReadView.latest();
+        assertTrue(archive.remove("SL922"));
+        assertTrue(archive.append(List.of(sale("SL925", new Date(20000L)))));
+
+        assertEquals(List.of("SL922", "SL923"),
+                before.read(() -> ids(archive.findInRange(new Date(20000L), new Date(30000L)))));
+        assertEquals(List.of("SL921", "SL922", "SL923", "SL924"),
+                before.read(() -> ids(archive.findInRange(new Date(10000L), null))));
+        assertEquals(List.of("SL921"), before.read(() -> ids(archive.findInRange(new Date(9000L), new Date(20000L)))));
+        assertEquals(List.of(), before.read(() -> ids(archive.findInRange(new Date(40000L), null))));
+
+        ReadView after = ReadView.latest();
+        for (Date[] range : new Date[][]{{new Date(20000L), new Date(30000L)}, {new Date(10000L), null},
+                {new Date(20000L), new Date(20001L)}, {new Date(15000L), new Date(35000L)}}) {
+            assertEquals(ids(archive.findInRange(range[0], range[1])),
+                    after.read(() -> ids(archive.findInRange(range[0], range[1]))));
+        }
+        assertEquals(List.of("SL923", "SL925"),
+                after.read(() -> ids(archive.findInRange(new Date(20000L), new Date(20001L)))));
+    }
+
+    private static Sale sale(String saleID, Date date) {
+        return new Sale(saleID, date, "SM001", "Test sale",
+                new ArrayList<>(Collections.singletonList(new SaleItem("IT001", "Widget", 3, 10.0, 0.1))));
+    }
+
+    private static List<String> ids(List<Sale> list) {
+        List<String> ids = new ArrayList<>();
+        for (Sale sale : list) {
+            ids.add(sale.getSaleID());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,104 @@
+package com.owsb.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.owsb.TestData;
+import com.owsb.model.inventory.Item;
+import com.owsb.repository.storage.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class StockLedgerTest {
+    private static ItemRepository items;
+    private static StockLedger ledger;
+
+    @BeforeClass
+    public static void createRepositories() {
+        TestData.init();
+        items = new ItemRepository();
+        ledger = StockLedger.getInstance();
+    }
+
+    @Test
+    public void concurrentReservationsNeverOversell() throws Exception {
+        String itemID = stockedItem("LT001", 50);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> sales = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            String reference = "SL-T" + i;
+            sales.add(() -> {
+                StockLedger.Reservation reservation = ledger.reserve(itemID, 1);
+                return reservation != null && ledger.commit(reservation, reference);
+            });
+        }
+        int sold = 0;
+        for (Future<Boolean> sale : pool.invokeAll(sales)) {
+            if (sale.get()) {
+                sold++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(50, sold);
+        assertEquals(0, ledger.getOnHand(itemID));
+        assertEquals(0, ledger.getAvailable(itemID));
+        assertEquals(0, items.findById(itemID).getCurrentStock());
+    }
+
+    @Test
+    public void reservationsHoldStockUntilReleased() {
+        String itemID = stockedItem("LT002", 5);
+
+        StockLedger.Reservation reservation = ledger.reserve(itemID, 4);
+        assertNotNull(reservation);
+        assertEquals(5, ledger.getOnHand(itemID));
+        assertEquals(1, ledger.getAvailable(itemID));
+        assertNull(ledger.reserve(itemID, 2));
+        assertFalse(items.updateStock(itemID, -2));
+
+        ledger.release(reservation);
+        ledger.release(reservation);
+        assertEquals(5, ledger.getAvailable(itemID));
+        assertFalse(ledger.commit(reservation, "SL-T"));
+    }
+
+    @Test
+    public void rollbackRestoresCountersAndReopensReservation() {
+        String itemID = stockedItem("LT003", 10);
+        StockLedger.Reservation reservation = ledger.reserve(itemID, 3);
+
+        assertFalse(Transaction.execute(() -> {
+            assertTrue(ledger.commit(reservation, "SL-T"));
+            assertTrue(items.updateStock(itemID, 5));
+            return false;
+        }));
+
+        assertTrue(reservation.isOpen());
+        assertEquals(10, ledger.getOnHand(itemID));
+        assertEquals(7, ledger.getAvailable(itemID));
+        assertEquals(10, items.findById(itemID).getCurrentStock());
+
+        assertTrue(ledger.commit(reservation, "SL-T"));
+        assertEquals(7, ledger.getOnHand(itemID));
+        assertEquals(7, items.findById(itemID).getCurrentStock());
+    }
+
+    private static String stockedItem(String itemID, int stock) {
+        assertTrue(items.save(new Item(itemID, "Test item", "", 1.0, "Test", "SP001")));
+        assertTrue(items.updateStock(itemID, stock));
+        return itemID;
+    }
+}
@@ -0,0 +1,80 @@
+package com.owsb.repository.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.owsb.TestData;
+import com.owsb.util.FileUtils;
+import com.owsb.util.JsonArrayCursor;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FilteredStreamTest {
+    private static String dataDir;
+
+    @BeforeClass
+    public static void init() {
+        TestData.init();
+        dataDir = System.getProperty("owsb.data.dir");
+    }
+
+    @Test
+    public void logRecordsOverrideTheSnapshot() throws IOException {
+        String file = writeNotes("stream_notes.txt");
+        LogStructuredEngine<Note> engine = new LogStructuredEngine<>(file,
+                new JsonFileEngine<>(file, Note.class, note -> note.id), Note.class, note -> note.id, 1000);
+
+        try (Stream<Note> stream = engine.stream(JsonArrayCursor.fieldEquals("status", "OPEN"))) {
+            assertEquals(Arrays.asList("S3", "S5"), ids(stream));
+        }
+        try (Stream<Note> stream = engine.stream(null)) {
+            assertEquals(Arrays.asList("S3", "S4", "S2", "S5"), ids(stream));
+        }
+    }
+
+    @Test
+    public void coldLookupsMatchTheLoadedStore() throws IOException {
+        String file = writeNotes("cold_notes.txt");
+        EntityStore<Note> store = EntityStore.of(file, Note.class, note -> note.id, true);
+
+        assertEquals(Arrays.asList("S3", "S5"), ids(store.findByField("status", "OPEN").stream()));
+        assertEquals("DONE", store.findById("S2").status);
+        assertNull(store.findById("S1"));
+        assertNull(store.findById("DONE"));
+
+        // Loaded, the same lookups come from memory
+        assertEquals(4, store.size());
+        assertEquals(Arrays.asList("S3", "S5"), ids(store.findByField("status", "OPEN").stream()));
+        assertEquals("DONE", store.findById("S2").status);
+        assertNull(store.findById("S1"));
+    }
+
+    /**
+     * Write a snapshot of S1-S4 and a log that deletes S1, closes S2 and adds S5
+     */
+    private static String writeNotes(String name) throws IOException {
+        String file = dataDir + File.separator + name;
+        FileUtils.writeListToJson(file, Arrays.asList(new Note("S1", "OPEN", 1), new Note("S2", "OPEN", 2),
+                new Note("S3", "OPEN", 3), new Note("S4", "DONE", 4)));
+        try (Writer log = new FileWriter(LogStructuredEngine.logPathFor(file))) {
+            log.write("{\"op\":\"DELETE\",\"id\":\"S1\"}\n");
+            log.write("{\"op\":\"PUT\",\"id\":\"S2\",\"entity\":{\"id\":\"S2\",\"status\":\"DONE\",\"rank\":2}}\n");
+            log.write("{\"op\":\"PUT\",\"id\":\"S5\",\"entity\":{\"id\":\"S5\",\"status\":\"OPEN\",\"rank\":5}}\n");
+        }
+        return file;
+    }
+
+    private static List<String> ids(Stream<Note> notes) {
+        return notes.map(note -> note.id).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,19 @@
+package com.owsb.repository.storage;
+
+/**
+ * Small entity for the storage tests
+ */
+class Note {
+    String id;
+    String status;
+    int rank;
+
+    Note() {
+    }
+
+    Note(String id, String status, int rank) {
+        this.id = id;
+        this.status = status;
+        this.rank = rank;
+    }
+}
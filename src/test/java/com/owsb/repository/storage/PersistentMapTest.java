@@ -0,0 +1,108 @@
+package com.owsb.repository.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class PersistentMapTest {
+
+    @Test
+    public void matchesLinkedHashMapAndKeepsOldVersions() {
+        Random random = new Random(42);
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        List<PersistentMap<String, Integer>> versions = new ArrayList<>();
+        List<Map<String, Integer>> expectedVersions = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            String key = "K" + random.nextInt(800);
+            if (random.nextInt(4) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, i);
+                expected.put(key, i);
+            }
+            if (i % 250 == 0) {
+                versions.add(map);
+                expectedVersions.add(new LinkedHashMap<>(expected));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+        assertEquals(new ArrayList<>(expected.keySet()), map.keys());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(new ArrayList<>(expectedVersions.get(i).values()), versions.get(i).values());
+        }
+    }
+
+    @Test
+    public void replacingKeepsPositionAndSameValueReturnsSameMap() {
+        Integer one = 1;
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().put("a", one).put("b", 2).put("c", 3);
+        assertSame(map, map.put("a", one));
+        assertSame(map, map.remove("missing"));
+
+        PersistentMap<String, Integer> replaced = map.put("a", 10);
+        assertEquals(Arrays.asList(10, 2, 3), replaced.values());
+        assertEquals(Arrays.asList(1, 2, 3), map.values());
+        assertNull(replaced.remove("a").get("a"));
+        assertFalse(replaced.remove("a").containsKey("a"));
+    }
+
+    @Test
+    public void collidingHashesAreKeptApart() {
+        // "Aa" and "BB" have the same hashCode
+        PersistentMap<String, String> map = PersistentMap.<String, String>empty().put("Aa", "first").put("BB", "second");
+        assertEquals("first", map.get("Aa"));
+        assertEquals("second", map.get("BB"));
+        assertEquals(Collections.singletonList("second"), map.remove("Aa").values());
+    }
+
+    @Test
+    public void sortedMapFindsPositionsAndPages() {
+        Random random = new Random(7);
+        PersistentSortedMap<Integer, Integer> map = PersistentSortedMap.empty(Comparator.naturalOrder());
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        List<Integer> values = new ArrayList<>(expected.values());
+        assertEquals(expected.size(), map.size());
+        assertEquals(values, map.values(0, map.size()));
+        assertEquals(values.subList(100, 125), map.values(100, 125));
+        assertEquals(expected.headMap(500).size(), map.rank(500));
+
+        List<Integer> descending = new ArrayList<>();
+        Iterator<Integer> it = map.iterator(40, true);
+        while (it.hasNext()) {
+            descending.add(it.next());
+        }
+        List<Integer> reversed = new ArrayList<>(values);
+        Collections.reverse(reversed);
+        assertEquals(reversed.subList(40, reversed.size()), descending);
+    }
+}
@@ -0,0 +1,80 @@
+package com.owsb.repository.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.owsb.TestData;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ReadViewTest {
+    private static EntityStore<Note> store;
+
+    @BeforeClass
+    public static void createStore() {
+        TestData.init();
+        store = EntityStore.of(System.getProperty("owsb.data.dir") + File.separator + "view_notes.txt",
+                Note.class, note -> note.id, true);
+        store.defineIndex("status", note -> note.status);
+        store.defineSortedIndex("rank", note -> note.rank);
+        store.insert(new Note("V1", "OPEN", 3));
+        store.insert(new Note("V2", "OPEN", 1));
+        store.insert(new Note("V3", "DONE", 2));
+    }
+
+    @Test
+    public void viewIsStableAcrossCommits() {
+        ReadView before = ReadView.latest();
+        List<String> all = before.read(() -> ids(store.findAll()));
+        List<String> open = before.read(() -> ids(store.findBy("status", "OPEN")));
+        List<String> byRank = before.read(() -> ids(store.findPage("rank", false, null, null, 0, 10)));
+
+        Note changed = store.findById("V2");
+        changed.status = "DONE";
+        changed.rank = 9;
+        assertTrue(store.update(changed));
+        assertTrue(store.insert(new Note("V4", "OPEN", 0)));
+        assertTrue(store.delete("V1"));
+
+        assertEquals(all, before.read(() -> ids(store.findAll())));
+        assertEquals(open, before.read(() -> ids(store.findBy("status", "OPEN"))));
+        assertEquals(2, (int) before.read(() -> store.countBy("status", "OPEN")));
+        assertEquals(byRank, before.read(() -> ids(store.findPage("rank", false, null, null, 0, 10))));
+        assertEquals(Arrays.asList("V2", "V3", "V1"), byRank);
+
+        ReadView after = ReadView.latest();
+        assertEquals(ids(store.findBy("status", "OPEN")), after.read(() -> ids(store.findBy("status", "OPEN"))));
+        assertEquals(Arrays.asList("V4"), after.read(() -> ids(store.findBy("status", "OPEN"))));
+        assertEquals(Arrays.asList("V4", "V3", "V2"), after.read(() -> ids(store.findInRange("rank", null, null))));
+        assertEquals(Arrays.asList("V3", "V4"),
+                after.read(() -> ids(store.findPage("rank", true, null, null, 1, 2))));
+    }
+
+    @Test
+    public void rolledBackChangesAreNeverVisible() {
+        assertFalse(Transaction.execute(() -> {
+            store.insert(new Note("V9", "OPEN", 5));
+            return false;
+        }));
+
+        assertNull(store.findById("V9"));
+        assertNull(ReadView.latest().read(() -> store.findById("V9")));
+        assertFalse(ids(store.findBy("status", "OPEN")).contains("V9"));
+    }
+
+    private static List<String> ids(List<Note> notes) {
+        List<String> ids = new ArrayList<>();
+        for (Note note : notes) {
+            ids.add(note.id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,93 @@
+package com.owsb.repository.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.owsb.TestData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SequenceAllocatorTest {
+    private static SequenceAllocator allocator;
+
+    @BeforeClass
+    public static void createAllocator() {
+        TestData.init();
+        allocator = SequenceAllocator.getInstance();
+    }
+
+    @Test
+    public void concurrentCallersGetDistinctIds() throws Exception {
+        IdSource taken = new IdSource(Collections.emptyList());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            calls.add(() -> allocator.next("QA", taken));
+        }
+        Set<String> ids = new HashSet<>();
+        for (Future<String> id : pool.invokeAll(calls)) {
+            ids.add(id.get());
+        }
+        pool.shutdown();
+
+        assertEquals(500, ids.size());
+        assertTrue(ids.contains("QA001"));
+        assertTrue(ids.contains("QA500"));
+    }
+
+    @Test
+    public void seedsFromHighestStoredId() {
+        IdSource taken = new IdSource(Arrays.asList("QB001", "QB004", "QB002"));
+
+        assertEquals("QB005", allocator.peek("QB", taken));
+        assertEquals("QB005", allocator.next("QB", taken));
+        assertEquals("QB006", allocator.next("QB", taken));
+    }
+
+    @Test
+    public void blocksAreAscendingAndSkipTakenIds() {
+        // QC002 was saved by someone else after the counter was seeded
+        IdSource taken = new IdSource(Collections.emptyList());
+        List<String> block = allocator.nextBlock("QC", taken, 1);
+        taken.ids.add("QC002");
+        block.addAll(allocator.nextBlock("QC", taken, 2));
+
+        assertEquals(Arrays.asList("QC001", "QC003", "QC004"), block);
+        assertEquals("QC1000", allocator.nextBlock("QC", taken, 996).get(995));
+        assertFalse(allocator.next("QC", taken).equals("QC1000"));
+    }
+
+    /**
+     * Fixed set of taken IDs
+     */
+    private static class IdSource implements SequenceAllocator.IdSource {
+        final List<String> ids;
+
+        IdSource(List<String> ids) {
+            this.ids = new ArrayList<>(ids);
+        }
+
+        @Override
+        public boolean contains(String id) {
+            return ids.contains(id);
+        }
+
+        @Override
+        public List<String> ids() {
+            return new ArrayList<>(ids);
+        }
+    }
+}
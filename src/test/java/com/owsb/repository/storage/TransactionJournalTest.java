@@ -0,0 +1,60 @@
+package com.owsb.repository.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import com.owsb.TestData;
+import com.owsb.util.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TransactionJournalTest {
+    private static String file;
+
+    @BeforeClass
+    public static void selectDataDir() {
+        TestData.init();
+        file = System.getProperty("owsb.data.dir") + File.separator + "journal_notes.txt";
+    }
+
+    @Test
+    public void recoveryAppendsJournaledChangesMissingFromTheLog() throws IOException {
+        // A transaction that reached the journal but not the data file's log before a crash
+        String entry = "{\"tx\":\"crashed-tx\",\"changes\":[{\"file\":" + quote(file)
+                + ",\"op\":\"PUT\",\"id\":\"J1\",\"entity\":{\"id\":\"J1\",\"status\":\"OPEN\",\"rank\":1}}]}\n";
+        appendToJournal(entry);
+
+        TransactionJournal.recover();
+        // Recovering the same entry again must not append it twice
+        appendToJournal(entry);
+        TransactionJournal.recover();
+
+        File log = new File(LogStructuredEngine.logPathFor(file));
+        long records = Files.readAllLines(log.toPath(), StandardCharsets.UTF_8).stream()
+                .filter(line -> line.contains("crashed-tx")).count();
+        assertEquals(1, records);
+        assertFalse(new String(Files.readAllBytes(new File(Constants.TRANSACTION_JOURNAL).toPath()),
+                StandardCharsets.UTF_8).contains("crashed-tx"));
+
+        Note recovered = EntityStore.of(file, Note.class, note -> note.id, true).findById("J1");
+        assertNotNull(recovered);
+        assertEquals("OPEN", recovered.status);
+    }
+
+    private static void appendToJournal(String line) throws IOException {
+        Files.write(new File(Constants.TRANSACTION_JOURNAL).toPath(), line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\") + "\"";
+    }
+}